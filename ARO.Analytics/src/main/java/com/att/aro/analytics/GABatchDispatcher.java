@@ -0,0 +1,274 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.db.AROObjectDao;
+
+/**
+ * Sends the google analytics entries from one background thread. Entries are queued without blocking the caller and
+ * sent as batch requests of up to 20 hits. While there is no internet the entries are saved to the local database in
+ * one write per batch, and sent once the connection is back.
+ * 
+ * The number of saved entries is counted once when the dispatcher starts and kept in memory afterwards.
+ */
+public class GABatchDispatcher implements Runnable {
+
+	private static final Logger LOGGER = LogManager.getLogger(GABatchDispatcher.class.getName());
+
+	public static final String BATCH_URL = "https://www.google-analytics.com/batch";
+
+	// limits of a measurement protocol batch request
+	static final int MAX_BATCH_HITS = 20;
+	static final int MAX_BATCH_BYTES = 16 * 1024;
+	static final int MAX_HIT_BYTES = 8 * 1024;
+
+	private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+	private static final long CONNECTION_RECHECK_INTERVAL = TimeUnit.SECONDS.toNanos(60);
+	private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+	private final ConcurrentLinkedQueue<GAEntry> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final int capacity;
+
+	private final GAUrlBuilder urlBuilder;
+	private final HTTPPostMethod httpPost;
+	private final String batchUrl;
+	private final AROObjectDao aroDAO;
+	private final int maxDBRecords;
+	private final BooleanSupplier connectionCheck;
+
+	private final Thread thread;
+	private volatile boolean closed = false;
+
+	// only used by the dispatcher thread
+	private boolean online = false;
+	private long lastConnectionCheck;
+	private long storedRecords;
+
+	/**
+	 * @param urlBuilder
+	 *            builds the payload of each entry
+	 * @param httpPost
+	 *            posts the batches
+	 * @param batchUrl
+	 *            batch endpoint, BATCH_URL
+	 * @param aroDAO
+	 *            database for the entries that could not be sent, null to drop them
+	 * @param capacity
+	 *            number of entries that can wait to be sent, entries offered beyond it are dropped
+	 * @param maxDBRecords
+	 *            number of entries that can be saved to the database
+	 * @param connectionCheck
+	 *            tells if there is internet, called from the dispatcher thread
+	 */
+	public GABatchDispatcher(GAUrlBuilder urlBuilder, HTTPPostMethod httpPost, String batchUrl, AROObjectDao aroDAO,
+			int capacity, int maxDBRecords, BooleanSupplier connectionCheck) {
+		this.urlBuilder = urlBuilder;
+		this.httpPost = httpPost;
+		this.batchUrl = batchUrl;
+		this.aroDAO = aroDAO;
+		this.capacity = capacity;
+		this.maxDBRecords = maxDBRecords;
+		this.connectionCheck = connectionCheck;
+		this.thread = new Thread(this, "gaDispatcher");
+		this.thread.setDaemon(true);
+		this.thread.setPriority(Thread.MIN_PRIORITY);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Queues the entry without blocking.
+	 * 
+	 * @param entry
+	 *            is owned by the dispatcher afterwards
+	 * @param urgent
+	 *            sends the entry without waiting for more entries to batch with it
+	 * @return false when the entry was dropped because the queue is full or the dispatcher is closed
+	 */
+	public boolean offer(GAEntry entry, boolean urgent) {
+		if (closed) {
+			return false;
+		}
+		if (queued.incrementAndGet() > capacity) {
+			queued.decrementAndGet();
+			LOGGER.debug("Analytics queue full, dropped an entry");
+			return false;
+		}
+		queue.offer(entry);
+		if (urgent || queued.get() >= MAX_BATCH_HITS) {
+			LockSupport.unpark(thread);
+		}
+		return true;
+	}
+
+	/**
+	 * Sends or saves the queued entries and stops the dispatcher thread, waits at most 5 seconds for it.
+	 */
+	public void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		storedRecords = aroDAO != null ? aroDAO.recordCount(new GAEntry()) : 0;
+		checkConnection();
+		while (!closed) {
+			LockSupport.parkNanos(this, FLUSH_INTERVAL);
+			try {
+				dispatch();
+			} catch (RuntimeException e) {
+				LOGGER.error("Failed to dispatch analytics", e);
+			}
+		}
+		dispatch();
+	}
+
+	private void checkConnection() {
+		online = connectionCheck.getAsBoolean();
+		lastConnectionCheck = System.nanoTime();
+	}
+
+	/**
+	 * Sends the queued entries followed by the saved ones, what cannot be sent is saved.
+	 */
+	private void dispatch() {
+		if (!online && (queued.get() > 0 || storedRecords > 0)
+				&& System.nanoTime() - lastConnectionCheck >= CONNECTION_RECHECK_INTERVAL) {
+			checkConnection();
+		}
+		List<GAEntry> pending = drain();
+		if (online) {
+			int sent = send(pending);
+			pending = pending.subList(sent, pending.size());
+			if (pending.isEmpty() && storedRecords > 0) {
+				sendStored();
+			}
+		}
+		store(pending);
+	}
+
+	private List<GAEntry> drain() {
+		List<GAEntry> entries = new ArrayList<>();
+		GAEntry entry;
+		while ((entry = queue.poll()) != null) {
+			queued.decrementAndGet();
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	/**
+	 * Sends the entries in batches, stops at the first batch that fails and marks the dispatcher offline.
+	 * 
+	 * @return number of entries sent from the start of the list
+	 */
+	int send(List<GAEntry> entries) {
+		StringBuilder body = new StringBuilder();
+		int hits = 0;
+		int batchStart = 0;
+		for (int index = 0; index < entries.size(); index++) {
+			String payload = urlBuilder.buildPayload(entries.get(index));
+			int payloadBytes = payload.getBytes(StandardCharsets.UTF_8).length;
+			if (payloadBytes > MAX_HIT_BYTES) {
+				LOGGER.debug("Analytics entry too large to send, dropped");
+				continue;
+			}
+			if (hits == MAX_BATCH_HITS || body.length() + payloadBytes + 1 > MAX_BATCH_BYTES) {
+				if (!post(body)) {
+					return batchStart;
+				}
+				body.setLength(0);
+				hits = 0;
+				batchStart = index;
+			}
+			body.append(payload).append('\n');
+			hits++;
+		}
+		if (hits > 0 && !post(body)) {
+			return batchStart;
+		}
+		return entries.size();
+	}
+
+	private boolean post(StringBuilder body) {
+		if (httpPost.request(batchUrl, body.toString())) {
+			return true;
+		}
+		online = false;
+		lastConnectionCheck = System.nanoTime();
+		return false;
+	}
+
+	/**
+	 * Sends the entries saved while there was no internet, deleting the ones sent in one write.
+	 */
+	private void sendStored() {
+		List<GAEntry> stored = aroDAO.get(new GAEntry());
+		int sent = send(stored);
+		if (sent > 0) {
+			aroDAO.deleteAll(stored.subList(0, sent));
+		}
+		storedRecords = stored.size() - sent;
+	}
+
+	/**
+	 * Saves the entries to the database in one write, as many as there is room for.
+	 */
+	private void store(List<GAEntry> entries) {
+		if (entries.isEmpty() || aroDAO == null) {
+			return;
+		}
+		int room = (int) Math.max(0, Math.min(entries.size(), maxDBRecords - storedRecords));
+		if (room < entries.size()) {
+			LOGGER.debug("Analytics database full, dropped " + (entries.size() - room) + " entries");
+		}
+		List<GAEntry> offline = room < entries.size() ? entries.subList(0, room) : entries;
+		for (GAEntry entry : offline) {
+			entry.setValue("1");
+			entry.resetSession();
+		}
+		aroDAO.putAll(offline);
+		storedRecords += offline.size();
+	}
+
+	/**
+	 * @return number of entries waiting to be sent
+	 */
+	int getQueued() {
+		return queued.get();
+	}
+}
@@ -55,6 +55,26 @@ public class GAEntry {
 		this.hitType = hitType;
 	}
 
+	/**
+	 * Copy of an entry, the fields are already encoded
+	 */
+	public GAEntry(GAEntry entry) {
+		this.name = entry.getName();
+		this.category = entry.getCategory();
+		this.action = entry.getAction();
+		this.label = entry.getLabel();
+		this.value = entry.getValue();
+		this.timingCategory = entry.getTimingCategory();
+		this.timingValue = entry.getTimingValue();
+		this.timingVariable = entry.getTimingVariable();
+		this.hitType = entry.getHitType();
+		this.exceptionDesc = entry.getExceptionDesc();
+		this.errorName = entry.getErrorName();
+		this.dataSource = entry.getDataSource();
+		this.session = entry.getSession();
+		this.isFatal = entry.isFatal();
+	}
+
 	public String getDataSource() {
 		return dataSource;
 	}
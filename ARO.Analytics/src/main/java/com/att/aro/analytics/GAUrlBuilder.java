@@ -34,7 +34,6 @@ public class GAUrlBuilder {
 
 	private String googleAnalyticsTrackingCode;
 	private String appName = "";
-	private VersionInfo versionInfo =(VersionInfo) SpringContextUtil.getInstance().getContext().getBean(VersionInfo.class);
 	private String appVersion = "";
 	private String appCode = "1";
 	private StringBuffer defaultUrl = new StringBuffer();
@@ -48,16 +47,30 @@ public class GAUrlBuilder {
 	}
 
 	public GAUrlBuilder(String appName, String googleAnalyticsTrackingCode) {
+		this(appName, googleAnalyticsTrackingCode,
+				SpringContextUtil.getInstance().getContext().getBean(VersionInfo.class).getVersion());
+	}
+
+	GAUrlBuilder(String appName, String googleAnalyticsTrackingCode, String appVersion) {
 		this.appName = appName;
-		this.appVersion = versionInfo.getVersion().trim().replaceAll(" ", "%20").replaceAll("#", "%23");
+		this.appVersion = appVersion.trim().replaceAll(" ", "%20").replaceAll("#", "%23");
 		this.googleAnalyticsTrackingCode = googleAnalyticsTrackingCode;
 	}
+
 	public String buildURL(GAEntry focusPoint) {
 		StringBuilder url = new StringBuilder(getURLWithRequiredParams());
 		url.append(getParametersForUrl(focusPoint));
 		return url.toString();
 	}
 
+	/**
+	 * The parameters of the entry without the tracking url, a line of a batch request body
+	 */
+	public String buildPayload(GAEntry focusPoint) {
+		String url = buildURL(focusPoint);
+		return url.substring(url.indexOf('?') + 1);
+	}
+
 	private String getURLWithRequiredParams() {
 		StringBuffer preFixUrl = new StringBuffer();
 		if (defaultUrl.length() <= 0) {
@@ -15,8 +15,6 @@
 */
 package com.att.aro.analytics;
 
-import java.util.List;
-
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
@@ -34,13 +32,12 @@ import com.att.aro.db.AROObjectDao;
 public class GoogleAnalyticsTracker {
 
 	private static final Logger LOGGER = LogManager.getLogger(GoogleAnalyticsTracker.class.getName());
+	private static final int QUEUE_CAPACITY = 1000;
     private GAUrlBuilder urlBuildingStrategy = null;
     private HTTPGetMethod httpRequest = new HTTPGetMethod();
+    private HTTPPostMethod httpPost = new HTTPPostMethod();
     private AROObjectDao aroDAO = null;
-    private GoogleAnalyticsTracker gaTracker;
-    
-    private static boolean runninDBThreadTracker = false; // Check DB thread is running or not
-    private int maxDBRecords;
+    private GABatchDispatcher dispatcher = null;
 
     /**
      * Constructor passing the application name, application version & google analytics tracking code
@@ -52,14 +49,15 @@ public class GoogleAnalyticsTracker {
     public GoogleAnalyticsTracker(String appName, String appVersion, String googleAnalyticsTrackingCode, int maxDBRecords){ //ARO, version Name, UA-48887240-1
     	this.urlBuildingStrategy = new GAUrlBuilder(appName, googleAnalyticsTrackingCode);
         HTTPGetMethod.setApplicationName(appName);
-        this.maxDBRecords = maxDBRecords;
-        this.gaTracker = this;
-        inetChecker();
+        HTTPPostMethod.setApplicationName(appName);
         aroDAO = AROObjectDao.getInstance();
+        // the connection is checked and the database counted on the dispatcher thread
+        dispatcher = new GABatchDispatcher(urlBuildingStrategy, httpPost, GABatchDispatcher.BATCH_URL, aroDAO,
+        		QUEUE_CAPACITY, maxDBRecords, this::isInternetAvailable);
+        dispatcher.start();
     }
 
     public GoogleAnalyticsTracker(){
-    	this.gaTracker = this;
     };
 
     /**
@@ -82,50 +80,26 @@ public class GoogleAnalyticsTracker {
     public void inetChecker(){
     	new NetworkConnectionChecker(httpRequest).run();
     }
-    
-    public static void setRunninDBThreadTracker(boolean runninDBThreadTracker) {
-		GoogleAnalyticsTracker.runninDBThreadTracker = runninDBThreadTracker;
-	}
 
     /**
-     * Push all the events to google Analytics server if internet is available</br>
-     * Other wise save all the records into local database.
-     * @param focusPoint
-     * @param appCloseEvent
+     * Checks for internet and makes the batches go through the proxy found
+     */
+    private boolean isInternetAvailable() {
+    	inetChecker();
+    	httpPost.setProxy(httpRequest.getProxy());
+    	return httpRequest.isValidIConnection();
+    }
+
+    /**
+     * Queue the event to be sent to google Analytics server with the next batch</br>
+     * The records that cannot be sent are saved into local database.
+     * @param focusPoint copied, it can be reused by the caller
+     * @param appCloseEvent send without waiting for other events
      */
 	public void pushToCloud(GAEntry focusPoint, boolean appCloseEvent){
-		//LOGGER.info("Max Number records stored : " + this.maxDBRecords);
-		//LOGGER.info("Number of records in DB : " + this.aroDAO.recordCount(focusPoint));
-    	if(httpRequest.isValidIConnection()){ //Check for Internet
-    		if(appCloseEvent){
-    			boolean pushReqFlag = httpRequest.request(urlBuildingStrategy.buildURL(focusPoint));
-    			if(!pushReqFlag){
-    				if(this.aroDAO.recordCount(focusPoint) < maxDBRecords){ // add not to save more than Max number of records
-	    				//focusPoint.setEventLabel("offline");
-    					focusPoint.setValue("1");
-	    				focusPoint.resetSession();
-	    				this.aroDAO.put(focusPoint);
-    				}
-    			}
-    		}else{ // send Async req
-    			trackAsynchronously(focusPoint); // Send GA req..Send separate thread
-    			if(this.aroDAO.recordCount(focusPoint) > 0){ // Invoke DB thread        			
-        			if(!runninDBThreadTracker){ // Check for db records Thread running. On separate thread push all the db records to cloud
-        				runninDBThreadTracker = true;
-        				new TrackDBRecordsThread(this.aroDAO.get(focusPoint)).start();
-        			}
-        		}
-    		}
-    		
-    	} else { //Since No internet save the record to DB and check again for internet
-    		if(this.aroDAO.recordCount(focusPoint) < maxDBRecords){ // add not to save more than Max number of records
-		    		//focusPoint.setEventLabel("offline");
-	    			focusPoint.setValue("1");
-		    		focusPoint.resetSession();
-		    		this.aroDAO.put(focusPoint);
-    			}
-    			inetChecker(); //Check for internet connection since no internet.
-        }
+		if (dispatcher != null) {
+			dispatcher.offer(new GAEntry(focusPoint), appCloseEvent);
+		}
     }
 
     /**
@@ -140,80 +114,13 @@ public class GoogleAnalyticsTracker {
     		return pushNotifyFlag;
      }
 
-
-    /**
-     * Track the focusPoint in the application asynchronously. <br/>
-     *
-     * @param focusPoint Focus point of the application like application load, application module load, user actions, error events etc.
-     */
-    public void trackAsynchronously(GAEntry focusPoint) {
-    	   new TrackingThread(focusPoint).start();
-    }
-
-    /**
-     * Send the google analytics request Asynchronously 
-     *
-     *
-     */
-    private class TrackingThread extends Thread {
-        private GAEntry focusPointObj;
-
-        public TrackingThread(GAEntry focusPoint) {
-            this.focusPointObj = focusPoint;
-            this.setPriority(Thread.MIN_PRIORITY);
-        }
-
-        public void run() {
-			String url = "";
-			if (this.focusPointObj.getExceptionDesc() == null) {
-				url = urlBuildingStrategy.buildURL(this.focusPointObj);
-			}
-			boolean pushCloudFlag = httpRequest.request(url);
-			// If fails...Update Internet Flag send record to DB.
-			if (!pushCloudFlag) {
-				httpRequest.setIsValidIConnection(false);
-				if (gaTracker.aroDAO.recordCount(this.focusPointObj) < gaTracker.maxDBRecords) {
-					// focusPointObj.setEventLabel("offline");
-					focusPointObj.setValue("1");
-					focusPointObj.resetSession();
-					gaTracker.aroDAO.put(focusPointObj);
-				}
-			}
-         }
-    }
-    
-    /**
-     * Separate thread push all the records in database to cloud. 
-     *
-     *
-     */
-	private class TrackDBRecordsThread extends Thread {
-		// private FocusPoint focusPoint;
-		private List<GAEntry> dbObjList;
-
-		public TrackDBRecordsThread(List<GAEntry> dbList) {
-			this.dbObjList = dbList;
-			this.setPriority(Thread.MIN_PRIORITY);
-		}
-
-		public void run() {
-			for (GAEntry focusPointObj : dbObjList) { // Push all the off-line records to cloud when internet is up.
-				boolean pushCloudFlag = httpRequest.request(urlBuildingStrategy.buildURL(focusPointObj));
-				if (pushCloudFlag) {
-					gaTracker.aroDAO.delete(focusPointObj);
-				} else {
-					httpRequest.setIsValidIConnection(false);
-					break;
-				}
-			}
-			GoogleAnalyticsTracker.setRunninDBThreadTracker(false);
-		}
-	}
-
     /**
      * properly close database
      */
     public void close(){
+    	if(dispatcher != null){
+    		dispatcher.close();
+    	}
     	if(aroDAO != null){
     		aroDAO.closeDB();
     		LOGGER.trace("Properly closed database");
@@ -128,6 +128,13 @@ public class HTTPGetMethod {
 		isProxy = proxyFlag;
 	}
 
+	/**
+	 * @return the proxy found by the connection check, null when connecting directly
+	 */
+	public synchronized Proxy getProxy() {
+		return isProxy ? proxyObj : null;
+	}
+
 	public synchronized void setProxyObj(Proxy proxyObject) {
 		proxyObj = proxyObject;
 	}
@@ -16,13 +16,20 @@
 package com.att.aro.analytics;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Proxy;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
 public class HTTPPostMethod {
     private static final String POST_METHOD_NAME = "POST";
+    static final int CONNECT_TIMEOUT = 3000;
+    // a stalled endpoint must not hold the dispatcher thread past its close
+    static final int READ_TIMEOUT = 3000;
     private static String applicationName = "ARO";
     private static String userAgentInfo = null;
+    private Proxy proxy = null;
 
     public HTTPPostMethod(){
 
@@ -51,6 +58,38 @@ public class HTTPPostMethod {
         return gaRequestStatus;
     }
 
+    /**
+     * Posts the body to the url, through the proxy when one is set
+     *
+     * @param urlString
+     * @param body
+     * @return true when the server answered OK
+     */
+    public boolean request(String urlString, String body) {
+        boolean gaRequestStatus = false;
+        try {
+            URL url = new URL(urlString);
+            HttpURLConnection urlConnection = proxy != null ? (HttpURLConnection) url.openConnection(proxy)
+                    : openURLConnection(url);
+            urlConnection.setInstanceFollowRedirects(true);
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            urlConnection.setReadTimeout(READ_TIMEOUT);
+            urlConnection.setRequestMethod(POST_METHOD_NAME);
+            urlConnection.setRequestProperty("User-Agent", getUserAgentInfo());
+            urlConnection.setDoOutput(true);
+            byte[] content = body.getBytes(StandardCharsets.UTF_8);
+            urlConnection.setFixedLengthStreamingMode(content.length);
+            try (OutputStream output = urlConnection.getOutputStream()) {
+                output.write(content);
+            }
+            gaRequestStatus = getResponseCode(urlConnection) == HttpURLConnection.HTTP_OK;
+            urlConnection.disconnect();
+        } catch (Exception e) {
+            //ignoring the error condition
+        }
+        return gaRequestStatus;
+    }
+
     /**
      *
      * @param urlConnection
@@ -98,6 +137,14 @@ public class HTTPPostMethod {
         HTTPPostMethod.userAgentInfo = userAgentInfo;
     }
 
+    /**
+     *
+     * @param proxy null to connect directly
+     */
+    public void setProxy(Proxy proxy) {
+        this.proxy = proxy;
+    }
+
     /**
      *
      * @param applicationName
@@ -69,6 +69,30 @@ public class AROObjectDao implements IARODatabaseObject{
     	}
     }
 
+    /**
+     * Saves all the objects in one transaction
+     *
+     * @param iPojos
+     * @param <T>
+     */
+    public synchronized <T extends Object> void putAll(List<T> iPojos){
+    	if(aroDB != null && !iPojos.isEmpty()){
+	    	ODatabaseObject objectDB = aroDB.getObjectDB();
+	    	try{
+		    	objectDB.getEntityManager().registerEntityClass(iPojos.get(0).getClass());
+		    	objectDB.begin();
+		    	for (T iPojo : iPojos) {
+		    		objectDB.save(iPojo);
+		    	}
+		        objectDB.commit();
+	    	} catch (Exception ex){
+	    		objectDB.rollback();
+	    	}finally{
+	    		objectDB.close();
+	    	}
+    	}
+    }
+
     /**
      *
      * @param iPojo
@@ -91,6 +115,30 @@ public class AROObjectDao implements IARODatabaseObject{
     	}
     }
 
+    /**
+     * Deletes all the objects in one transaction
+     *
+     * @param iPojos
+     * @param <T>
+     */
+    public synchronized <T extends Object> void deleteAll(List<T> iPojos){
+    	if(aroDB != null && !iPojos.isEmpty()){
+	    	ODatabaseObject objectDB = aroDB.getObjectDB();
+	    	try{
+	    		objectDB.getEntityManager().registerEntityClass(iPojos.get(0).getClass());
+	    		objectDB.begin();
+	    		for (T iPojo : iPojos) {
+	    			objectDB.delete(iPojo);
+	    		}
+	    		objectDB.commit();
+	    	}catch (Exception e){
+	    		objectDB.rollback();
+	    	} finally {
+	    		objectDB.close();
+	    	}
+    	}
+    }
+
 	@SuppressWarnings("unchecked")
 	public synchronized <T> List<T> get(T iPojoClass) {
 
@@ -0,0 +1,169 @@
+package com.att.aro.analytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.att.aro.db.AROObjectDao;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The dispatcher posts to a local server standing in for the google analytics batch endpoint
+ */
+public class GABatchDispatcherTest {
+
+	private HttpServer server;
+	private final List<String> bodies = new ArrayList<>();
+	private volatile int responseCode = 200;
+	private String batchUrl;
+	private GAUrlBuilder urlBuilder;
+	private AROObjectDao aroDAO;
+	private final CountDownLatch stalled = new CountDownLatch(1);
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/batch", exchange -> {
+			try (InputStream input = exchange.getRequestBody()) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int count;
+				while ((count = input.read(buffer)) > 0) {
+					body.write(buffer, 0, count);
+				}
+				synchronized (bodies) {
+					bodies.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+				}
+			}
+			exchange.sendResponseHeaders(responseCode, -1);
+			exchange.close();
+		});
+		server.createContext("/stall", exchange -> {
+			try {
+				stalled.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.close();
+		});
+		server.start();
+		batchUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/batch";
+		urlBuilder = new GAUrlBuilder("VO", "UA-TEST-1", "4.4.0");
+		aroDAO = mock(AROObjectDao.class);
+	}
+
+	@After
+	public void tearDown() {
+		stalled.countDown();
+		server.stop(0);
+	}
+
+	@Test
+	public void sendsBatches() {
+		GABatchDispatcher dispatcher = new GABatchDispatcher(urlBuilder, new HTTPPostMethod(), batchUrl, aroDAO, 100, 50,
+				() -> true);
+		dispatcher.start();
+		for (int index = 0; index < 45; index++) {
+			assertTrue(dispatcher.offer(event(index), false));
+		}
+		dispatcher.close();
+
+		int hits = 0;
+		for (String body : bodies) {
+			String[] lines = body.split("\n");
+			assertTrue(lines.length <= GABatchDispatcher.MAX_BATCH_HITS);
+			for (String line : lines) {
+				assertTrue(line.startsWith("v=1&tid=UA-TEST-1&"));
+				assertTrue(line.contains("&ea=action" + hits + "&"));
+				hits++;
+			}
+		}
+		assertEquals(45, hits);
+		verify(aroDAO, never()).putAll(anyListOf(GAEntry.class));
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void storesWhatCannotBeSent() {
+		responseCode = 500;
+		GABatchDispatcher dispatcher = new GABatchDispatcher(urlBuilder, new HTTPPostMethod(), batchUrl, aroDAO, 100, 25,
+				() -> true);
+		for (int index = 0; index < 30; index++) {
+			dispatcher.offer(event(index), false);
+		}
+		dispatcher.start();
+		dispatcher.close();
+
+		// the first batch failed, the rest is not tried
+		assertEquals(1, bodies.size());
+		ArgumentCaptor<List> stored = ArgumentCaptor.forClass(List.class);
+		verify(aroDAO, times(1)).putAll(stored.capture());
+		assertEquals(25, stored.getValue().size());
+		for (GAEntry entry : (List<GAEntry>) stored.getValue()) {
+			assertEquals("1", entry.getValue());
+		}
+	}
+
+	@Test
+	public void sendsStoredEntries() {
+		List<GAEntry> stored = Arrays.asList(event(0), event(1));
+		when(aroDAO.recordCount(any(GAEntry.class))).thenReturn(2L);
+		when(aroDAO.get(any(GAEntry.class))).thenReturn(stored);
+		GABatchDispatcher dispatcher = new GABatchDispatcher(urlBuilder, new HTTPPostMethod(), batchUrl, aroDAO, 100, 50,
+				() -> true);
+		dispatcher.start();
+		dispatcher.close();
+
+		assertEquals(1, bodies.size());
+		assertEquals(2, bodies.get(0).split("\n").length);
+		verify(aroDAO).deleteAll(stored);
+	}
+
+	@Test
+	public void dropsBeyondCapacity() {
+		GABatchDispatcher dispatcher = new GABatchDispatcher(urlBuilder, new HTTPPostMethod(), batchUrl, null, 3, 50,
+				() -> false);
+		assertTrue(dispatcher.offer(event(0), false));
+		assertTrue(dispatcher.offer(event(1), false));
+		assertTrue(dispatcher.offer(event(2), false));
+		assertFalse(dispatcher.offer(event(3), true));
+		assertEquals(3, dispatcher.getQueued());
+	}
+
+	@Test
+	public void stalledEndpointTimesOut() {
+		long start = System.currentTimeMillis();
+		assertFalse(new HTTPPostMethod().request("http://127.0.0.1:" + server.getAddress().getPort() + "/stall", "v=1"));
+		assertTrue(System.currentTimeMillis() - start < HTTPPostMethod.READ_TIMEOUT + 2000);
+	}
+
+	private GAEntry event(int index) {
+		GAEntry entry = new GAEntry("VO");
+		entry.setCategory("category");
+		entry.setAction("action" + index);
+		return entry;
+	}
+}
@@ -106,7 +106,7 @@ public final class Application implements IAROView {
         }
         // command sanity check, if fails then reverts to help
         if (cmds.isHelp() || !((cmds.isListcollector() || cmds.isListDevices())
-                || !(cmds.getAnalyze() == null && cmds.getStartcollector() == null && cmds.getAsk() == null))) {
+                || !(cmds.getAnalyze() == null && cmds.getBatch() == null && cmds.getStartcollector() == null && cmds.getAsk() == null))) {
             usageHelp();
             System.exit(1);
         }
@@ -142,6 +142,8 @@ public final class Application implements IAROView {
         // start the collector
         if (cmds.getStartcollector() != null) {
             runDataCollector(context, cmds);
+        } else if (cmds.getBatch() != null) {
+            runBatchAnalyzer(cmds);
         } else if (cmds.getAnalyze() != null) {
             runAnalyzer(context, cmds);
         }
@@ -454,6 +456,45 @@ public final class Application implements IAROView {
         System.exit(0);
     }
 
+    /**
+     * Analyze every trace of a batch and produce one report per trace in the output folder<br>
+     * 
+     * <pre>
+     * Required command:
+     *   --batch folder of trace folders or a manifest file listing one trace per line
+     *   --output output folder, created if missing
+     *   --format html or json, if missing defaults to json
+     *   --threads number of traces analyzed at the same time
+     * 
+     * @param cmds
+     *            - user commands
+     */
+    void runBatchAnalyzer(Commands cmds) {
+        List<String> traces;
+        try {
+            traces = BatchAnalyzer.findTraces(cmds.getBatch());
+        } catch (IOException e) {
+            errln("Error occured reading batch " + cmds.getBatch() + ", detail: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (traces.isEmpty()) {
+            errln("No traces found in " + cmds.getBatch());
+            System.exit(1);
+        }
+
+        boolean success;
+        OutSave outSave = prepareSystemOut();
+        try {
+            BatchAnalyzer batchAnalyzer = new BatchAnalyzer(new File(cmds.getOutput()), cmds.getFormat(),
+                    "yes".equals(cmds.getOverwrite()), outSave.getOut());
+            success = batchAnalyzer.analyze(traces, cmds.getThreads());
+        } finally {
+            restoreSystemOut(outSave);
+        }
+        System.exit(success ? 0 : 1);
+    }
+
     private VideoOption configureVideoOption(String videoOption) {
         VideoOption option = VideoOption.NONE;
         switch (videoOption) {
@@ -748,7 +789,9 @@ public final class Application implements IAROView {
                 .append("\nUsage: vo [commands] [arguments]").append("\n  --analyze [trace location]: analyze a trace folder or file.")
                 .append("\n  --startcollector [rooted_android|vpn_android|ios]: run a collector.")
                 .append("\n  --ask [auto|rooted_android|vpn_android|ios]: asks for a device then runs the collector.")
-                .append("\n  --output [fullpath including filename] : output to a file or trace folder")
+                .append("\n  --batch [folder|manifest file]: analyze every trace folder in a folder, or every trace listed one per line in a file.")
+                .append("\n  --threads [number]: optional number of traces analyzed at the same time with --batch. Default: half the processors.")
+                .append("\n  --output [fullpath including filename] : output to a file or trace folder, or the report folder with --batch")
                 .append("\n  --overwrite [yes/no] : overwrite a trace folder - optional - will default to no if not specified")
                 .append("\n  --deviceid [device id]: device id of Android(optional) and  udid/Device identifier for IOS(required).")
                 .append("\n    If not declared first device found is used.")
@@ -796,7 +839,10 @@ public final class Application implements IAROView {
                 .append("\n  --analyze /User/documents/test --output /User/documents/report.html --format html")
 
                 .append("\nAnalyze trace and produce JSON report:")
-                .append("\n  --analyze /User/documents/test/traffic.cap --output /User/documents/report.json");
+                .append("\n  --analyze /User/documents/test/traffic.cap --output /User/documents/report.json")
+
+                .append("\nAnalyze every trace folder in a folder, four at a time, and produce a JSON report for each:")
+                .append("\n  --batch /User/documents/traces --output /User/documents/reports --threads 4");
         println(sbuilder.toString());
     }
 
@@ -0,0 +1,276 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.console;
+
+import static com.att.aro.core.settings.SettingsUtil.retrieveBestPractices;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.log4j.Logger;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.att.aro.core.AROConfig;
+import com.att.aro.core.IAROService;
+import com.att.aro.core.pojo.AROTraceData;
+
+/**
+ * Analyzes many traces at the same time and writes one report per trace into an output folder.
+ * 
+ * The analyzers hold the state of the trace being analyzed, so every worker thread runs its traces
+ * through its own Spring context.
+ */
+public class BatchAnalyzer {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchAnalyzer.class);
+
+    private static final String TRAFFIC_FILE = "traffic.cap";
+
+    private static final String[] TRACE_FILE_EXTENSIONS = { "cap", "pcap", "pcapng" };
+
+    private final File outputFolder;
+
+    private final String format;
+
+    private final boolean overwrite;
+
+    private final PrintStream out;
+
+    private final List<AnnotationConfigApplicationContext> contexts = Collections.synchronizedList(new ArrayList<>());
+
+    private final ThreadLocal<IAROService> services;
+
+    public BatchAnalyzer(File outputFolder, String format, boolean overwrite, PrintStream out) {
+        this(outputFolder, format, overwrite, out, null);
+    }
+
+    /**
+     * @param serviceFactory
+     *            - creates the service of a worker thread, null for a service from a Spring context of its own
+     */
+    BatchAnalyzer(File outputFolder, String format, boolean overwrite, PrintStream out, Supplier<IAROService> serviceFactory) {
+        this.outputFolder = outputFolder;
+        this.format = format;
+        this.overwrite = overwrite;
+        this.out = out;
+        this.services = ThreadLocal.withInitial(serviceFactory != null ? serviceFactory : this::createService);
+    }
+
+    /**
+     * Lists the traces of a batch.
+     * 
+     * @param batch
+     *            - a trace folder, a folder of trace folders and trace files, or a manifest file listing one
+     *            trace per line, blank lines and lines starting with # are skipped
+     * @return trace folders and files in batch order
+     * @throws IOException
+     *             when the manifest cannot be read
+     */
+    public static List<String> findTraces(String batch) throws IOException {
+        File batchFile = new File(batch);
+        List<String> traces = new ArrayList<>();
+        if (batchFile.isFile()) {
+            File manifestFolder = batchFile.getAbsoluteFile().getParentFile();
+            for (String line : Files.readAllLines(batchFile.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File trace = new File(line);
+                traces.add((trace.isAbsolute() ? trace : new File(manifestFolder, line)).getPath());
+            }
+        } else if (new File(batchFile, TRAFFIC_FILE).isFile()) {
+            traces.add(batchFile.getPath());
+        } else {
+            File[] children = batchFile.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    if ((child.isDirectory() && new File(child, TRAFFIC_FILE).isFile())
+                            || (child.isFile() && FilenameUtils.isExtension(child.getName().toLowerCase(), TRACE_FILE_EXTENSIONS))) {
+                        traces.add(child.getPath());
+                    }
+                }
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * Analyzes the traces on a pool of worker threads, printing each outcome as soon as the trace is done.
+     * 
+     * @param traces
+     *            - trace folders or files
+     * @param threads
+     *            - number of traces analyzed at the same time
+     * @return true when every trace produced a report
+     */
+    public boolean analyze(List<String> traces, int threads) {
+        int poolSize = Math.min(threads, traces.size());
+        out.println("Analyzing " + traces.size() + " traces, " + poolSize + " at a time");
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        CompletionService<BatchResult> completionService = new ExecutorCompletionService<>(executor);
+        Set<String> reportNames = new HashSet<>();
+        for (String trace : traces) {
+            File report = new File(outputFolder, reportName(trace, reportNames) + "." + format);
+            completionService.submit(() -> analyze(trace, report));
+        }
+
+        int succeeded = 0;
+        long packets = 0;
+        try {
+            for (int done = 1; done <= traces.size(); done++) {
+                BatchResult result = completionService.take().get();
+                if (result.isSuccess()) {
+                    succeeded++;
+                    packets += result.getPackets();
+                    out.println(String.format("[%d/%d] %s -> %s (%.1f s, %d packets)", done, traces.size(), result.getTrace(),
+                            result.getReport(), result.getMillis() / 1000.0, result.getPackets()));
+                } else {
+                    out.println(String.format("[%d/%d] %s failed: %s", done, traces.size(), result.getTrace(), result.getMessage()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.println("Batch analysis interrupted");
+        } catch (ExecutionException e) {
+            LOGGER.error("Batch analysis failed", e);
+            out.println("Batch analysis failed, detail: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (AnnotationConfigApplicationContext context : contexts) {
+                context.close();
+            }
+        }
+
+        double seconds = Math.max(System.currentTimeMillis() - start, 1) / 1000.0;
+        out.println(String.format("Analyzed %d of %d traces in %.1f s: %.1f traces/min, %.0f packets/s", succeeded, traces.size(),
+                seconds, succeeded * 60 / seconds, packets / seconds));
+        return succeeded == traces.size();
+    }
+
+    private BatchResult analyze(String trace, File report) {
+        long start = System.currentTimeMillis();
+        if (report.exists() && !overwrite) {
+            return BatchResult.failed(trace, "report " + report + " exists, use --overwrite yes to replace it");
+        }
+        try {
+            IAROService serv = services.get();
+            AROTraceData results = serv.isFile(trace) ? serv.analyzeFile(retrieveBestPractices(), trace)
+                    : serv.analyzeDirectory(retrieveBestPractices(), trace);
+            if (results == null || !results.isSuccess()) {
+                return BatchResult.failed(trace, results == null || results.getError() == null ? "analysis failed"
+                        : results.getError().getCode() + " " + results.getError().getDescription());
+            }
+            boolean written = "html".equals(format) ? serv.getHtmlReport(report.getPath(), results)
+                    : serv.getJSonReport(report.getPath(), results);
+            if (!written) {
+                return BatchResult.failed(trace, "unable to write " + report);
+            }
+            return new BatchResult(trace, report.getPath(), results.getAnalyzerResult().getStatistic().getTotalPackets(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LOGGER.error("Error analyzing " + trace, e);
+            return BatchResult.failed(trace, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private IAROService createService() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AROConfig.class);
+        contexts.add(context);
+        return context.getBean(IAROService.class);
+    }
+
+    /**
+     * Names a report after its trace folder, or trace file without extension, numbering repeated names.
+     */
+    private static String reportName(String trace, Set<String> reportNames) {
+        File traceFile = new File(trace);
+        String name = traceFile.isFile() ? FilenameUtils.getBaseName(traceFile.getName()) : traceFile.getName();
+        String reportName = name;
+        for (int count = 2; !reportNames.add(reportName); count++) {
+            reportName = name + "_" + count;
+        }
+        return reportName;
+    }
+
+    private static class BatchResult {
+
+        private final String trace;
+        private final String report;
+        private final String message;
+        private final int packets;
+        private final long millis;
+
+        BatchResult(String trace, String report, int packets, long millis) {
+            this(trace, report, null, packets, millis);
+        }
+
+        private BatchResult(String trace, String report, String message, int packets, long millis) {
+            this.trace = trace;
+            this.report = report;
+            this.message = message;
+            this.packets = packets;
+            this.millis = millis;
+        }
+
+        static BatchResult failed(String trace, String message) {
+            return new BatchResult(trace, null, message, 0, 0);
+        }
+
+        boolean isSuccess() {
+            return message == null;
+        }
+
+        String getTrace() {
+            return trace;
+        }
+
+        String getReport() {
+            return report;
+        }
+
+        String getMessage() {
+            return message;
+        }
+
+        int getPackets() {
+            return packets;
+        }
+
+        long getMillis() {
+            return millis;
+        }
+    }
+}
@@ -32,6 +32,12 @@ public class Commands {
     @Parameter(names = "--analyze", description = "analyze trace file or folder")
     private String analyze = null;
 
+    @Parameter(names = "--batch", description = "analyze every trace in a folder or listed in a manifest file")
+    private String batch = null;
+
+    @Parameter(names = "--threads", description = "number of traces analyzed at the same time with --batch")
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
     @Parameter(names = "--output", description = "provide output location of report")
     private String output = null;
 
@@ -123,6 +129,22 @@ public class Commands {
         return this.overwrite;
     }
 
+    public String getBatch() {
+        return batch;
+    }
+
+    public void setBatch(String batch) {
+        this.batch = batch;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public String getOutput() {
         return output;
     }
@@ -206,6 +228,9 @@ public class Commands {
         if (analyze != null) {
             sb.append(", analyze:" + getAnalyze());
         }
+        if (batch != null) {
+            sb.append(", batch:" + getBatch() + ", threads:" + getThreads());
+        }
         if (deviceid != null) {
             sb.append(", deviceid:" + getDeviceid());
         }
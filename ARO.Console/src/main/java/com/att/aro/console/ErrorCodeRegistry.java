@@ -129,6 +129,15 @@ public final class ErrorCodeRegistry {
 		return err;
 	}
 	
+	public static ErrorCode getInvalidBatchThreads() {
+		ErrorCode err = new ErrorCode();
+		err.setCode(315);
+		err.setName("Invalid number of threads");
+		err.setDescription("--threads must be at least 1 when analyzing traces with --batch.");
+		sendGAErrorCode(err);
+		return err;
+	}
+	
 	private static void sendGAErrorCode(ErrorCode err){
 		GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendErrorEvents(err.getName(),err.getDescription(), false);
 	}
@@ -15,6 +15,8 @@
 */
 package com.att.aro.console;
 
+import java.io.File;
+
 import org.springframework.context.ApplicationContext;
 
 import com.att.aro.console.util.ThrottleUtil;
@@ -27,7 +29,22 @@ import com.att.aro.core.pojo.ErrorCode;
  */
 public class Validator {
 	public ErrorCode validate(Commands cmd, ApplicationContext context) {
-		if (cmd.getAnalyze() != null) {
+		if (cmd.getBatch() != null) {
+			if (!"json".equals(cmd.getFormat()) && !"html".equals(cmd.getFormat())) {
+				return ErrorCodeRegistry.getUnsupportedFormat();
+			}
+			if (cmd.getOutput() == null) {
+				return ErrorCodeRegistry.getOutputRequired();
+			}
+			if (cmd.getThreads() < 1) {
+				return ErrorCodeRegistry.getInvalidBatchThreads();
+			}
+			// reports are written into the output folder, one per trace
+			File output = new File(cmd.getOutput());
+			if (output.isFile() || (!output.exists() && !output.mkdirs())) {
+				return ErrorCodeRegistry.getFileExist();
+			}
+		} else if (cmd.getAnalyze() != null) {
 			if (cmd.getFormat().equals("json") && cmd.getFormat().equals("html")) {
 				return ErrorCodeRegistry.getUnsupportedFormat();
 			}
@@ -0,0 +1,269 @@
+package com.att.aro.console;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.IAROService;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+import com.att.aro.core.packetanalysis.pojo.Statistic;
+import com.att.aro.core.pojo.AROTraceData;
+
+public class BatchAnalyzerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void findTracesInManifest() throws IOException {
+		File absolute = folder.newFolder("absolute");
+		File manifest = folder.newFile("batch.txt");
+		Files.write(manifest.toPath(), Arrays.asList("# traces of the batch", "", "relative/trace1", "  " + absolute.getPath() + "  ", "#skipped",
+				"capture.pcapng"), StandardCharsets.UTF_8);
+
+		List<String> traces = BatchAnalyzer.findTraces(manifest.getPath());
+		assertEquals(Arrays.asList(new File(folder.getRoot(), "relative/trace1").getPath(), absolute.getPath(),
+				new File(folder.getRoot(), "capture.pcapng").getPath()), traces);
+	}
+
+	@Test
+	public void findTracesInFolder() throws IOException {
+		File batch = folder.newFolder("batch");
+		newTrace(new File(batch, "trace2"));
+		newTrace(new File(batch, "trace1"));
+		new File(batch, "notes").mkdir();
+		new File(batch, "capture.PCAPNG").createNewFile();
+		new File(batch, "capture.cap").createNewFile();
+		new File(batch, "readme.txt").createNewFile();
+
+		List<String> traces = BatchAnalyzer.findTraces(batch.getPath());
+		assertEquals(Arrays.asList(new File(batch, "capture.PCAPNG").getPath(), new File(batch, "capture.cap").getPath(),
+				new File(batch, "trace1").getPath(), new File(batch, "trace2").getPath()), traces);
+
+		// a trace folder is a batch of one
+		assertEquals(Arrays.asList(new File(batch, "trace1").getPath()), BatchAnalyzer.findTraces(new File(batch, "trace1").getPath()));
+		assertTrue(BatchAnalyzer.findTraces(new File(batch, "notes").getPath()).isEmpty());
+	}
+
+	@Test
+	public void threadsLimitTracesAnalyzedAtTheSameTime() throws Exception {
+		List<String> traces = new ArrayList<>();
+		for (int index = 0; index < 6; index++) {
+			traces.add(newTrace(new File(folder.getRoot(), "trace" + index)).getPath());
+		}
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger services = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BatchAnalyzer batchAnalyzer = new BatchAnalyzer(folder.newFolder("reports"), "json", false, new PrintStream(out, true), () -> {
+			services.incrementAndGet();
+			IAROService service = mock(IAROService.class);
+			try {
+				when(service.analyzeDirectory(any(), anyString())).thenAnswer(invocation -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					started.countDown();
+					release.await(10, TimeUnit.SECONDS);
+					running.decrementAndGet();
+					return traceData(10);
+				});
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			when(service.getJSonReport(anyString(), any(AROTraceData.class))).thenReturn(true);
+			return service;
+		});
+
+		CountDownLatch done = new CountDownLatch(1);
+		boolean[] success = new boolean[1];
+		new Thread(() -> {
+			success[0] = batchAnalyzer.analyze(traces, 2);
+			done.countDown();
+		}).start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		// the other traces wait for one of the two workers
+		Thread.sleep(100);
+		assertEquals(2, running.get());
+
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(output, success[0]);
+		assertEquals(2, maxRunning.get());
+		assertEquals(2, services.get());
+		assertTrue(output, output.contains("Analyzing 6 traces, 2 at a time"));
+		assertTrue(output, output.contains("Analyzed 6 of 6 traces"));
+	}
+
+	@Test
+	public void threadsAboveTraceCount() throws Exception {
+		List<String> traces = Arrays.asList(newTrace(new File(folder.getRoot(), "trace1")).getPath(),
+				newTrace(new File(folder.getRoot(), "trace2")).getPath());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IAROService service = mock(IAROService.class);
+		when(service.analyzeDirectory(any(), anyString())).thenReturn(traceData(10));
+		when(service.getJSonReport(anyString(), any(AROTraceData.class))).thenReturn(true);
+		BatchAnalyzer batchAnalyzer = new BatchAnalyzer(folder.newFolder("reports"), "json", false, new PrintStream(out, true), () -> service);
+
+		assertTrue(batchAnalyzer.analyze(traces, 8));
+		String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(output, output.contains("Analyzing 2 traces, 2 at a time"));
+	}
+
+	@Test
+	public void existingReportIsKept() throws Exception {
+		File reports = folder.newFolder("reports");
+		File report = new File(reports, "trace1.json");
+		Files.write(report.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+		IAROService service = mock(IAROService.class);
+		when(service.analyzeDirectory(any(), anyString())).thenReturn(traceData(10));
+		when(service.getJSonReport(anyString(), any(AROTraceData.class))).thenReturn(true);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BatchAnalyzer batchAnalyzer = new BatchAnalyzer(reports, "json", false, new PrintStream(out, true), () -> service);
+
+		assertFalse(batchAnalyzer.analyze(Arrays.asList(newTrace(new File(folder.getRoot(), "trace1")).getPath()), 1));
+		assertEquals("{}", new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Every worker analyzes through analyzers of its own, traces analyzed at the same time get the reports they get
+	 * one at a time.
+	 */
+	@Test
+	public void concurrentAnalysisMatchesSequential() throws Exception {
+		File batch = folder.newFolder("batch");
+		List<String> traces = new ArrayList<>();
+		for (int index = 0; index < 4; index++) {
+			File trace = new File(batch, "trace" + index);
+			trace.mkdir();
+			writeHttpCapture(new File(trace, "traffic.cap"), 1 + index * 2, index);
+			traces.add(trace.getPath());
+		}
+
+		File sequential = folder.newFolder("sequential");
+		File concurrent = folder.newFolder("concurrent");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(new BatchAnalyzer(sequential, "json", false, new PrintStream(out, true)).analyze(traces, 1));
+		assertTrue(new BatchAnalyzer(concurrent, "json", false, new PrintStream(out, true)).analyze(traces, 2));
+
+		for (int index = 0; index < traces.size(); index++) {
+			byte[] expected = Files.readAllBytes(new File(sequential, "trace" + index + ".json").toPath());
+			byte[] actual = Files.readAllBytes(new File(concurrent, "trace" + index + ".json").toPath());
+			assertArrayEquals("trace" + index, expected, actual);
+		}
+		String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		for (int index = 0; index < traces.size(); index++) {
+			assertTrue(output, output.contains(String.format("%s -> %s", traces.get(index), new File(concurrent, "trace" + index + ".json"))));
+		}
+	}
+
+	private File newTrace(File trace) throws IOException {
+		trace.mkdirs();
+		new File(trace, "traffic.cap").createNewFile();
+		return trace;
+	}
+
+	private AROTraceData traceData(int packets) {
+		Statistic statistic = new Statistic();
+		statistic.setTotalPackets(packets);
+		PacketAnalyzerResult analyzerResult = new PacketAnalyzerResult();
+		analyzerResult.setStatistic(statistic);
+		AROTraceData traceData = new AROTraceData();
+		traceData.setSuccess(true);
+		traceData.setAnalyzerResult(analyzerResult);
+		return traceData;
+	}
+
+	/**
+	 * A pcapng capture of raw IP packets with HTTP sessions, each one downloading a text file
+	 */
+	private void writeHttpCapture(File file, int sessions, int seed) throws IOException {
+		ByteBuffer capture = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		int start = startBlock(capture, 0x0A0D0D0A);
+		capture.putInt(0x1A2B3C4D).putShort((short) 1).putShort((short) 0).putLong(-1);
+		endBlock(capture, start);
+		start = startBlock(capture, 0x00000001);
+		capture.putShort((short) 101).putShort((short) 0).putInt(65535);
+		endBlock(capture, start);
+
+		long time = 1600000000000000L + seed * 1000000L;
+		for (int session = 0; session < sessions; session++) {
+			int port = 40000 + session;
+			String request = "GET /file" + session + ".txt HTTP/1.1\r\nHost: example.com\r\n\r\n";
+			String body = String.join("", Collections.nCopies(10 + session * 50 + seed, "x"));
+			String response = "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+			int clientSeq = 1000;
+			int serverSeq = 5000;
+			// a SYN, SYN-ACK and ACK, request, response and its ACK for each session
+			putPacket(capture, time, true, port, clientSeq, 0, 0x02, "");
+			putPacket(capture, time += 50000, false, port, serverSeq, clientSeq + 1, 0x12, "");
+			putPacket(capture, time += 1000, true, port, clientSeq + 1, serverSeq + 1, 0x10, "");
+			putPacket(capture, time += 1000, true, port, clientSeq + 1, serverSeq + 1, 0x18, request);
+			putPacket(capture, time += 80000, false, port, serverSeq + 1, clientSeq + 1 + request.length(), 0x18, response);
+			putPacket(capture, time += 1000, true, port, clientSeq + 1 + request.length(), serverSeq + 1 + response.length(), 0x10, "");
+			time += 500000;
+		}
+
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(capture.array(), 0, capture.position());
+		}
+	}
+
+	private void putPacket(ByteBuffer capture, long time, boolean uplink, int port, int seq, int ack, int flags, String payload) {
+		byte[] client = new byte[] { 10, 0, 0, 1 };
+		byte[] server = new byte[] { 93, (byte) 184, (byte) 216, 34 };
+		byte[] data = payload.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer ip = ByteBuffer.allocate(40 + data.length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(uplink ? client : server).put(uplink ? server : client);
+		ip.putShort((short) (uplink ? port : 80)).putShort((short) (uplink ? 80 : port)).putInt(seq).putInt(ack).put((byte) 0x50).put((byte) flags)
+				.putShort((short) 65535).putInt(0).put(data);
+
+		int start = startBlock(capture, 0x00000006);
+		capture.putInt(0).putInt((int) (time >>> 32)).putInt((int) time).putInt(ip.capacity()).putInt(ip.capacity());
+		capture.put(ip.array());
+		for (int length = ip.capacity(); length % 4 != 0; length++) {
+			capture.put((byte) 0);
+		}
+		endBlock(capture, start);
+	}
+
+	private int startBlock(ByteBuffer buffer, int type) {
+		int start = buffer.position();
+		buffer.putInt(type).putInt(0);
+		return start;
+	}
+
+	private void endBlock(ByteBuffer buffer, int start) {
+		int length = buffer.position() - start + 4;
+		buffer.putInt(length);
+		buffer.putInt(start + 4, length);
+	}
+}
@@ -62,6 +62,7 @@ import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
 import com.att.aro.core.packetanalysis.ISessionManager;
 import com.att.aro.core.packetanalysis.IThroughputCalculator;
 import com.att.aro.core.packetanalysis.ITraceDataReader;
+import com.att.aro.core.packetanalysis.ITracePacketCache;
 import com.att.aro.core.packetanalysis.IVideoTrafficCollector;
 import com.att.aro.core.packetanalysis.impl.BurstCollectionAnalysisImpl;
 import com.att.aro.core.packetanalysis.impl.ByteArrayLineReaderImpl;
@@ -78,6 +79,7 @@ import com.att.aro.core.packetanalysis.impl.RrcStateRangeFactoryImpl;
 import com.att.aro.core.packetanalysis.impl.SessionManagerImpl;
 import com.att.aro.core.packetanalysis.impl.ThroughputCalculatorImpl;
 import com.att.aro.core.packetanalysis.impl.TraceDataReaderImpl;
+import com.att.aro.core.packetanalysis.impl.TracePacketCacheImpl;
 import com.att.aro.core.packetanalysis.impl.VideoStreamConstructor;
 import com.att.aro.core.packetanalysis.impl.VideoTrafficCollectorImpl;
 import com.att.aro.core.packetreader.IDomainNameParser;
@@ -85,6 +87,7 @@ import com.att.aro.core.packetreader.IPacketReader;
 import com.att.aro.core.packetreader.IPacketService;
 import com.att.aro.core.packetreader.IPcapngHelper;
 import com.att.aro.core.packetreader.impl.DomainNameParserImpl;
+import com.att.aro.core.packetreader.impl.MappedPcapReaderImpl;
 import com.att.aro.core.packetreader.impl.NetmonPacketReaderImpl;
 import com.att.aro.core.packetreader.impl.PacketReaderLibraryImpl;
 import com.att.aro.core.packetreader.impl.PacketServiceImpl;
@@ -160,11 +163,13 @@ import com.att.aro.core.searching.strategy.ISearchingStrategy;
 import com.att.aro.core.searching.strategy.impl.TrieSearchingStrategy;
 import com.att.aro.core.securedpacketreader.ICipherDataService;
 import com.att.aro.core.securedpacketreader.ICrypto;
+import com.att.aro.core.securedpacketreader.IKeyLogDecryptor;
 import com.att.aro.core.securedpacketreader.ISSLKeyService;
 import com.att.aro.core.securedpacketreader.ITLSHandshake;
 import com.att.aro.core.securedpacketreader.ITLSSessionInfo;
 import com.att.aro.core.securedpacketreader.impl.CipherDataServiceImpl;
 import com.att.aro.core.securedpacketreader.impl.CryptoImpl;
+import com.att.aro.core.securedpacketreader.impl.KeyLogDecryptorImpl;
 import com.att.aro.core.securedpacketreader.impl.SSLKeyServiceImpl;
 import com.att.aro.core.securedpacketreader.impl.TLSHandshakeImpl;
 import com.att.aro.core.securedpacketreader.impl.TLSSessionInfoImpl;
@@ -177,6 +182,7 @@ import com.att.aro.core.util.FFprobeConfirmationImpl;
 import com.att.aro.core.util.IStringParse;
 import com.att.aro.core.util.PcapConfirmationImpl;
 import com.att.aro.core.util.StringParse;
+import com.att.aro.core.util.Util;
 import com.att.aro.core.video.IScreenRecorder;
 import com.att.aro.core.video.IVideoCapture;
 import com.att.aro.core.video.IVideoWriter;
@@ -246,11 +252,28 @@ public class AROConfig {
 		return new ThreadExecutorImpl();
 	}
 
+	/**
+	 * Packet reader used for trace files. The memory mapped reader is used for classic pcap files
+	 * when the PACKET_READER setting is "mapped", otherwise the pcap4j reader is used.
+	 */
 	@Bean(name = "packetReader")
 	public IPacketReader getPacketReader() {
+		if (Util.MAPPED_PACKET_READER.equalsIgnoreCase(SettingsImpl.getInstance().getAttribute(Util.PACKET_READER))) {
+			return getMappedPacketReader();
+		}
+		return getPcap4jPacketReader();
+	}
+
+	@Bean(name = "pcap4jPacketReader")
+	public IPacketReader getPcap4jPacketReader() {
 		return new PacketReaderLibraryImpl();
 	}
 
+	@Bean(name = "mappedPacketReader")
+	public IPacketReader getMappedPacketReader() {
+		return new MappedPcapReaderImpl();
+	}
+
 	@Bean(name = "netmonPacketReader")
 	public IPacketReader getNetmonPacketReader() {
 		return new NetmonPacketReaderImpl();
@@ -317,6 +340,15 @@ public class AROConfig {
 		return new TraceDataReaderImpl();
 	}
 
+	/**
+	 * Cache of decoded trace packets and their unfiltered sessions, used by the trace reader and the packet analyzer
+	 * unless the PACKET_CACHE setting is false.
+	 */
+	@Bean
+	public ITracePacketCache getTracePacketCache() {
+		return new TracePacketCacheImpl();
+	}
+
 	@Bean
 	public IGpsInfoReader getGpsInfoReader() {
 		return new GpsInfoReaderImpl();
@@ -432,6 +464,11 @@ public class AROConfig {
 		return new CryptoImpl();
 	}
 
+	@Bean
+	public IKeyLogDecryptor getKeyLogDecryptor() {
+		return new KeyLogDecryptorImpl();
+	}
+
 	@Bean
 	public IDeviceInfoReader getDeviceInfoReader() {
 		return new DeviceInfoReaderImpl();
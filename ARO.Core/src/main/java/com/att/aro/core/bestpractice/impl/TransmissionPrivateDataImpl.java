@@ -15,18 +15,14 @@
 */
 package com.att.aro.core.bestpractice.impl;
 
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.text.MessageFormat;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
-import org.apache.log4j.LogManager;
-import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -56,8 +52,6 @@ import com.att.aro.core.util.Util;
 
 public class TransmissionPrivateDataImpl implements IBestPractice {
 	
-	private static final Logger LOGGER = LogManager.getLogger(TransmissionPrivateDataImpl.class.getName());
-
 	@Value("${security.transmissionPrivateData.title}")
 	private String overviewTitle;
 	
@@ -101,43 +95,48 @@ public class TransmissionPrivateDataImpl implements IBestPractice {
 	
 	@Override
 	public AbstractBestPracticeResult runTest(PacketAnalyzerResult tracedata) {
-		Set<TransmissionPrivateDataEntry> entries = new HashSet<TransmissionPrivateDataEntry>();
-		entries.addAll(search(tracedata.getSessionlist(), keywordHandler, tracedata.getDeviceKeywords()));
-		entries.addAll(search(tracedata.getSessionlist(), regexHandler, null));
+		SearchingPattern keywords = getSearchingPattern(keywordHandler, tracedata.getDeviceKeywords());
+		SearchingPattern expressions = getSearchingPattern(regexHandler, null);
+		// each pattern is compiled once by its handler and shared by all sessions,
+		// so sessions are independent and searched in parallel
+		Set<TransmissionPrivateDataEntry> entries = tracedata.getSessionlist().parallelStream()
+				.flatMap(session -> search(session, keywords, expressions).stream())
+				.collect(Collectors.toSet());
 		return getTestResult(entries);
 	}
 	
 	/**
-	 * searching method depends on the type of searching handler (exact keyword searching or pattern searching)
-	 * @param sessions
-	 * @param handler
-	 * @param privateDataSet
+	 * search the request content of one session with both the exact keyword and the pattern searching handler
+	 * @param session
+	 * @param keywords
+	 * @param expressions
 	 * @return
 	 */
-	private List<TransmissionPrivateDataEntry> search(List<Session> sessions, 
-								ISearchingHandler handler, Map<String, String> privateDataSet) {
-		
+	private List<TransmissionPrivateDataEntry> search(Session session, SearchingPattern keywords, SearchingPattern expressions) {
 		List<TransmissionPrivateDataEntry> entries = new LinkedList<>();
-		SearchingPattern pattern = getSearchingPattern(handler, privateDataSet);
-		if (pattern.isEmpty()) {
+		if (keywords.isEmpty() && expressions.isEmpty()) {
 			return entries;
 		}
-
-		for (Session session : sessions) {
-			SearchingContent content = getContent(session);
-			SearchingResult result = handler.search(pattern, content);
-			
-			List<String> wordsFound = result.getWords();
-			List<String> types = result.getTypes();
-
-			for (int i = 0; i < wordsFound.size(); i++) {
-				entries.add(populateEntry(session, wordsFound.get(i), types.get(i)));
-			}
-		}
 		
+		SearchingContent content = getContent(session);
+		if (!keywords.isEmpty()) {
+			addEntries(entries, session, keywordHandler.search(keywords, content));
+		}
+		if (!expressions.isEmpty()) {
+			addEntries(entries, session, regexHandler.search(expressions, content));
+		}
 		return entries;
 	}
 	
+	private void addEntries(List<TransmissionPrivateDataEntry> entries, Session session, SearchingResult result) {
+		List<String> wordsFound = result.getWords();
+		List<String> types = result.getTypes();
+
+		for (int i = 0; i < wordsFound.size(); i++) {
+			entries.add(populateEntry(session, wordsFound.get(i), types.get(i)));
+		}
+	}
+	
 	/**
 	 * get searching pattern based on handler type
 	 * @param handler
@@ -185,26 +184,30 @@ public class TransmissionPrivateDataImpl implements IBestPractice {
 	}
 	
 	/**
-	 * get content string from given session
+	 * get content string from given session, request payloads are copied once into a character
+	 * array using the same byte mapping as {@link Util#byteArrayToString(byte[])}
 	 * @param session
 	 * @return
 	 */
 	private SearchingContent getContent(Session session) {
-		String str = "";
-		ByteArrayOutputStream data = new ByteArrayOutputStream();
-		BufferedOutputStream dataWrapper = new BufferedOutputStream(data);
-		try {
-			for (HttpRequestResponseInfo rrInfo : session.getRequestResponseInfo()) {
-				if (rrInfo.getDirection() == HttpDirection.REQUEST) {
-					dataWrapper.write(rrInfo.getPayloadData().toByteArray());
-				}
+		List<byte[]> payloads = new ArrayList<>();
+		int length = 0;
+		for (HttpRequestResponseInfo rrInfo : session.getRequestResponseInfo()) {
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				byte[] payload = rrInfo.getPayloadData().toByteArray();
+				payloads.add(payload);
+				length += payload.length;
+			}
+		}
+		
+		char[] chars = new char[length];
+		int position = 0;
+		for (byte[] payload : payloads) {
+			for (byte value : payload) {
+				chars[position++] = value >= 32 || value == '\n' || value == '\r' || value == '\t' ? (char) value : '.';
 			}
-			dataWrapper.flush();
-		} catch (IOException e) {
-			LOGGER.error("Error extracting content from Session: " + session.getSessionKey());
 		}
-		str = Util.byteArrayToString(data.toByteArray());
-		return new SearchingContent(str);
+		return new SearchingContent(new String(chars));
 	}
 	
 	/**
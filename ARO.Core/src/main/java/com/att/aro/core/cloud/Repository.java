@@ -16,6 +16,8 @@
 package com.att.aro.core.cloud;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
@@ -27,6 +29,14 @@ public abstract class Repository {
 	protected String userName;
 	protected String password;
 
+	/**
+	 * Content produced while it is uploaded, written once to the stream of the repository.
+	 */
+	@FunctionalInterface
+	public interface Payload {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
 	/**
 	 * Uploads the trace from disk to cloud repository.
 	 * 
@@ -41,6 +51,17 @@ public abstract class Repository {
 	 */
 	public abstract TransferState put(File file);
 
+	/**
+	 * Uploads content as it is produced, without a file on disk.
+	 * 
+	 * @param name
+	 *            Name of the stored object
+	 * @param payload
+	 *            Writes the content
+	 * @return TransferState of the upload
+	 */
+	public abstract TransferState put(String name, Payload payload);
+
 	/**
 	 * Downloads the trace from a cloud repository to local folder.
 	 * 
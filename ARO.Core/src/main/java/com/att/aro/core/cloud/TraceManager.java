@@ -18,17 +18,17 @@ package com.att.aro.core.cloud;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections.CollectionUtils;
 
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.att.aro.core.upload.ParallelZipWriter;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
-import net.lingala.zip4j.util.Zip4jConstants;
 
 @SuppressFBWarnings({ "NP_UNWRITTEN_FIELD", "UWF_UNWRITTEN_FIELD" })
 public class TraceManager {
@@ -45,53 +45,42 @@ public class TraceManager {
 		this.repository = repository;
 		listeners = new ArrayList<Listener>();
 	}
+	/**
+	 * Zips the trace straight into the repository, no zip file is written to disk.
+	 */
  	public State upload(String trace) {
 		clean(trace);
-		String zipFile = compress(trace);
-		File file = new File(zipFile);
-		TransferState state = repository.put(file);
-		if(state ==TransferState.Completed) {
-			removeZip(zipFile);
-			return State.COMPLETE;	
-		}else {
-			return State.FAILURE;
-		}
- 	}
-
-	public String compress(String trace) {
 		notifyListeners(State.COMPRESSING);
-
-		File folder = new File(trace);
-		File[] listOfFiles = folder.listFiles();
-		if (listOfFiles == null) {
+		List<File> sourceFileList = listTraceFiles(trace);
+		if (sourceFileList.isEmpty()) {
 			notifyListeners(State.FAILURE);
-			return "";
-		}
-		
-		ArrayList<File> sourceFileList = new ArrayList<>();
-		for (int i = 0; i < listOfFiles.length; i++) {
-			String fileName = listOfFiles[i].getName();
-			if (listOfFiles[i].isFile() && !fileName.endsWith("mp4") && !fileName.endsWith("mov")) {
-				sourceFileList.add(listOfFiles[i]);
-			}
+			return State.FAILURE;
 		}
-		if(sourceFileList.size() <= 0) {
+		TransferState state = repository.put(folderName(trace) + ".zip", out -> ParallelZipWriter.zip(sourceFileList, out));
+		if (state == TransferState.Completed) {
+			notifyListeners(State.DONE);
+			return State.COMPLETE;
+		} else {
 			notifyListeners(State.FAILURE);
-			return "";
+			return State.FAILURE;
 		}
-		ZipParameters parameters = new ZipParameters();
-		parameters.setCompressionMethod(Zip4jConstants.COMP_DEFLATE);
-		parameters.setCompressionLevel(Zip4jConstants.DEFLATE_LEVEL_NORMAL);
-		String zipFileName = folderName(trace);
-		ZipFile zipfile;
-		try {
-			zipfile = new ZipFile(trace + FILE_SEPARATOR + zipFileName + ".zip");
-			zipfile.addFiles(sourceFileList, parameters);
-		} catch (ZipException e) {
-			e.printStackTrace();
+ 	}
+
+	/**
+	 * Files of the trace folder that are shared, videos are left out.
+	 */
+	public static List<File> listTraceFiles(String trace) {
+		List<File> sourceFileList = new ArrayList<>();
+		File[] listOfFiles = new File(trace).listFiles();
+		if (listOfFiles != null) {
+			for (int i = 0; i < listOfFiles.length; i++) {
+				String fileName = listOfFiles[i].getName();
+				if (listOfFiles[i].isFile() && !fileName.endsWith("mp4") && !fileName.endsWith("mov")) {
+					sourceFileList.add(listOfFiles[i]);
+				}
+			}
 		}
-		notifyListeners(State.DONE);
-		return trace + FILE_SEPARATOR + zipFileName + ".zip";
+		return sourceFileList;
 	}
 
 	public State download(String remoteSelectedTrace, String saveTo) {
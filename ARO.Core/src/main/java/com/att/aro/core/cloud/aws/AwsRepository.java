@@ -17,7 +17,11 @@ package com.att.aro.core.cloud.aws;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -33,10 +37,15 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.Download;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
 import com.amazonaws.services.s3.transfer.TransferManager;
@@ -51,6 +60,8 @@ import com.att.aro.core.cloud.Repository;
  */
 public class AwsRepository extends Repository {
 	private static final Logger LOGGER = LogManager.getLogger(AwsRepository.class.getName());
+	// S3 accepts parts of at least 5 MB except the last one
+	private static final int PART_SIZE = 8 * 1024 * 1024;
 
 	private AmazonS3 s3Client = null;
 	private TransferManager transferMgr;
@@ -106,6 +117,78 @@ public class AwsRepository extends Repository {
 		return null;
 	}
 
+	/**
+	 * Streams the payload as a multipart upload, only the part being filled is held in memory.
+	 */
+	@Override
+	public TransferState put(String name, Payload payload) {
+		if (s3Client == null) {
+			return null;
+		}
+		String uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, name)).getUploadId();
+		try (MultipartUploadStream out = new MultipartUploadStream(name, uploadId)) {
+			payload.writeTo(out);
+			out.flushPart(true);
+			s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, name, uploadId, out.partETags));
+			return TransferState.Completed;
+		} catch (AmazonServiceException ase) {
+			LOGGER.error("Error Message:  " + ase.getMessage());
+		} catch (Exception exception) {
+			LOGGER.error(exception.getMessage(), exception);
+		}
+		s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, name, uploadId));
+		return TransferState.Failed;
+	}
+
+	/**
+	 * Uploads a part each time PART_SIZE bytes have been written.
+	 */
+	private class MultipartUploadStream extends OutputStream {
+		private final String key;
+		private final String uploadId;
+		private final List<PartETag> partETags = new ArrayList<>();
+		private final byte[] part = new byte[PART_SIZE];
+		private int length = 0;
+
+		MultipartUploadStream(String key, String uploadId) {
+			this.key = key;
+			this.uploadId = uploadId;
+		}
+
+		@Override
+		public void write(int value) throws IOException {
+			if (length == part.length) {
+				flushPart(false);
+			}
+			part[length++] = (byte) value;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int count) throws IOException {
+			while (count > 0) {
+				if (length == part.length) {
+					flushPart(false);
+				}
+				int copied = Math.min(count, part.length - length);
+				System.arraycopy(bytes, offset, part, length, copied);
+				length += copied;
+				offset += copied;
+				count -= copied;
+			}
+		}
+
+		private void flushPart(boolean last) {
+			if (length == 0 && !(last && partETags.isEmpty())) {
+				return;
+			}
+			UploadPartRequest request = new UploadPartRequest().withBucketName(bucketName).withKey(key).withUploadId(uploadId)
+					.withPartNumber(partETags.size() + 1).withInputStream(new ByteArrayInputStream(part, 0, length))
+					.withPartSize(length).withLastPart(last);
+			partETags.add(s3Client.uploadPart(request).getPartETag());
+			length = 0;
+		}
+	}
+
 	@Override
 	public String get(String remotePath, String localPath) {
 		String downloadedFilePath = "";
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.cloud.local;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.att.aro.core.cloud.Repository;
+
+/**
+ * Repository kept in a local directory, for shared folders and for checking uploads without a cloud account.
+ */
+public class LocalRepository extends Repository {
+	private static final Logger LOGGER = LogManager.getLogger(LocalRepository.class.getName());
+
+	private final File directory;
+
+	public LocalRepository(File directory) {
+		this.directory = directory;
+		this.uri = directory.getAbsolutePath();
+	}
+
+	@Override
+	public void put(String trace) {
+		put(new File(trace));
+	}
+
+	@Override
+	public TransferState put(File file) {
+		try {
+			Files.createDirectories(directory.toPath());
+			Files.copy(file.toPath(), new File(directory, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return TransferState.Completed;
+		} catch (IOException exception) {
+			LOGGER.error(exception.getMessage(), exception);
+			return TransferState.Failed;
+		}
+	}
+
+	@Override
+	public TransferState put(String name, Payload payload) {
+		File target = new File(directory, name);
+		try {
+			Files.createDirectories(directory.toPath());
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath()))) {
+				payload.writeTo(out);
+			}
+			return TransferState.Completed;
+		} catch (IOException exception) {
+			LOGGER.error(exception.getMessage(), exception);
+			target.delete();
+			return TransferState.Failed;
+		}
+	}
+
+	@Override
+	public String get(String from, String to) {
+		File source = new File(directory, from);
+		if (!source.isFile()) {
+			return null;
+		}
+		File target = new File(to, from);
+		try {
+			Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return target.getAbsolutePath();
+		} catch (IOException exception) {
+			LOGGER.error(exception.getMessage(), exception);
+			return null;
+		}
+	}
+
+	@Override
+	public List<String> list() {
+		List<String> names = new ArrayList<>();
+		String[] files = directory.list();
+		if (files != null) {
+			Collections.addAll(names, files);
+			Collections.sort(names);
+		}
+		return names;
+	}
+}
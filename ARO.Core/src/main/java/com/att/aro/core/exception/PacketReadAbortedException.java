@@ -13,15 +13,15 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
 */
-package com.att.aro.core.packetreader.model.pcapng;
+package com.att.aro.core.exception;
 
+/**
+ * Thrown by a packet listener that can not take any more packets, the packet reader stops reading the file.
+ */
+public class PacketReadAbortedException extends ARORuntimeException {
+	private static final long serialVersionUID = 1L;
 
-import com.google.gson.annotations.SerializedName;
-import lombok.Data;
-
-
-@Data
-public class RawPacketData {
-	@SerializedName("_source")
-	private Source source;
+	public PacketReadAbortedException(String message) {
+		super(message);
+	}
 }
@@ -19,15 +19,22 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 
 import com.att.aro.core.IAROService;
 import com.att.aro.core.bestpractice.IBestPractice;
@@ -47,6 +54,7 @@ import com.att.aro.core.pojo.ErrorCodeRegistry;
 import com.att.aro.core.pojo.VersionInfo;
 import com.att.aro.core.report.IReport;
 import com.att.aro.core.settings.SettingsUtil;
+import com.att.aro.core.settings.impl.SettingsImpl;
 import com.att.aro.core.util.GoogleAnalyticsUtil;
 import com.att.aro.core.util.Util;
 
@@ -79,14 +87,41 @@ import com.att.aro.core.util.Util;
  */
 public class AROServiceImpl implements IAROService {
 	private static final Logger LOGGER = LogManager.getLogger(AROServiceImpl.class.getName());
+
+	/**
+	 * Best practices that read the CacheAnalysis, which is created once before any best practice runs
+	 */
+	private static final Set<BestPracticeType> CACHE_ANALYSIS_BEST_PRACTICES = EnumSet.of(
+			BestPracticeType.USING_CACHE, BestPracticeType.CACHE_CONTROL, BestPracticeType.DUPLICATE_CONTENT);
+
+	/**
+	 * Best practices that parse HTTP content through the shared IHttpRequestResponseHelper, which is not thread
+	 * safe. In parallel mode these run one after another in a single task; all others only read the
+	 * PacketAnalyzerResult and run as independent tasks.
+	 */
+	private static final Set<BestPracticeType> CONTENT_BEST_PRACTICES = EnumSet.of(
+			BestPracticeType.ASYNC_CHECK, BestPracticeType.COMBINE_CS_JSS, BestPracticeType.DISPLAY_NONE_IN_CSS,
+			BestPracticeType.EMPTY_URL, BestPracticeType.FILE_COMPRESSION, BestPracticeType.FILE_ORDER,
+			BestPracticeType.IMAGE_CMPRS, BestPracticeType.IMAGE_FORMAT, BestPracticeType.IMAGE_MDATA,
+			BestPracticeType.IMAGE_SIZE, BestPracticeType.IMAGE_COMPARE, BestPracticeType.MINIFICATION,
+			BestPracticeType.SCRIPTS_URL, BestPracticeType.SPRITEIMAGE, BestPracticeType.TRANSMISSION_PRIVATE_DATA);
+
+	private final ForkJoinPool bestPracticePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Stops the best practice threads when the application context is closed
+	 */
+	@PreDestroy
+	public void shutdown() {
+		bestPracticePool.shutdown();
+	}
+
 	private IPacketAnalyzer packetanalyzer;
 	private ICacheAnalysis cacheAnalyzer;
 	@Autowired
 	private transient VersionInfo info;
 	@Autowired
 	private IFileManager filemanager;
-	@Value("${ga.request.timing.bpTimings.title}")
-	private String bpTimingsTitle;
 	private IReport jsonreport;
 
 	@Autowired
@@ -639,7 +674,8 @@ public class AROServiceImpl implements IAROService {
 	 * Performs BestPractice tests identified in the requests
 	 * List&lt;BestPracticeType&gt; requests.<br>
 	 * Test results are added to a resultList, ArrayList&lt;IBestPractice&gt;
-	 *
+	 * in the order of the requests.<br>
+	 * Best practices run in parallel unless the PARALLEL_BEST_PRACTICES setting is false.
 	 *
 	 * @param result
 	 *            a PacketAnalyzerResult object
@@ -652,24 +688,27 @@ public class AROServiceImpl implements IAROService {
 		if (result == null) {
 			return null;
 		}
-		List<AbstractBestPracticeResult> resultlist = new ArrayList<AbstractBestPracticeResult>();
-		IBestPractice worker = null;
-		if (requests.contains(BestPracticeType.USING_CACHE) || requests.contains(BestPracticeType.CACHE_CONTROL)
-				 || requests.contains(BestPracticeType.DUPLICATE_CONTENT)) {
-					this.createCacheAnalysis(result);
+		if (requests.stream().anyMatch(CACHE_ANALYSIS_BEST_PRACTICES::contains)) {
+			this.createCacheAnalysis(result);
 		}
-		for (BestPracticeType type : requests) {
-			worker = getBPWorker(type);
-			if (worker != null) {
-				try {
-					long bpStartTime = System.currentTimeMillis();
-					resultlist.add(worker.runTest(result));
-					GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(type.getDescription(),
-							System.currentTimeMillis() - bpStartTime, bpTimingsTitle);
-				} catch (Exception | Error ex) {
-					LOGGER.error("Error running best practice " + type.getDescription() + " : ", ex);
-					new Thread(() -> sendExceptiontoGA(type)).start();
-				}
+		AbstractBestPracticeResult[] results = new AbstractBestPracticeResult[requests.size()];
+		boolean[] completed = new boolean[requests.size()];
+		long[] timings = new long[requests.size()];
+		long startTime = System.currentTimeMillis();
+		if ("false".equalsIgnoreCase(SettingsImpl.getInstance().getAttribute(Util.PARALLEL_BEST_PRACTICES))) {
+			for (int index = 0; index < requests.size(); index++) {
+				runBestPractice(result, requests, index, results, completed, timings);
+			}
+		} else {
+			runBestPracticesInParallel(result, requests, results, completed, timings);
+		}
+		logTimings(requests, timings, System.currentTimeMillis() - startTime);
+
+		// results are kept in the order of the requests, whatever order they completed in
+		List<AbstractBestPracticeResult> resultlist = new ArrayList<AbstractBestPracticeResult>();
+		for (int index = 0; index < requests.size(); index++) {
+			if (completed[index]) {
+				resultlist.add(results[index]);
 			}
 		}
 		for(AbstractBestPracticeResult testresult : resultlist){
@@ -677,6 +716,59 @@ public class AROServiceImpl implements IAROService {
 		}
 		return resultlist;
 	}
+
+	/**
+	 * Run each best practice as a task on the bounded best practice pool. Repeated requests of one type and the
+	 * content parsing best practices share a task so a worker never runs on two threads at once.
+	 */
+	private void runBestPracticesInParallel(PacketAnalyzerResult result, List<BestPracticeType> requests,
+			AbstractBestPracticeResult[] results, boolean[] completed, long[] timings) {
+		Map<Object, List<Integer>> tasks = new LinkedHashMap<>();
+		for (int index = 0; index < requests.size(); index++) {
+			BestPracticeType type = requests.get(index);
+			Object taskKey = CONTENT_BEST_PRACTICES.contains(type) ? CONTENT_BEST_PRACTICES : type;
+			tasks.computeIfAbsent(taskKey, key -> new ArrayList<>()).add(index);
+		}
+		List<ForkJoinTask<?>> futures = new ArrayList<>(tasks.size());
+		for (List<Integer> indexes : tasks.values()) {
+			futures.add(bestPracticePool.submit(() -> {
+				for (int index : indexes) {
+					runBestPractice(result, requests, index, results, completed, timings);
+				}
+			}));
+		}
+		for (ForkJoinTask<?> future : futures) {
+			future.join();
+		}
+	}
+
+	/**
+	 * Run a single best practice, a failure is logged and leaves it out of the results without affecting the others
+	 */
+	private void runBestPractice(PacketAnalyzerResult result, List<BestPracticeType> requests, int index,
+			AbstractBestPracticeResult[] results, boolean[] completed, long[] timings) {
+		BestPracticeType type = requests.get(index);
+		IBestPractice worker = getBPWorker(type);
+		if (worker != null) {
+			long bpStartTime = System.currentTimeMillis();
+			try {
+				results[index] = worker.runTest(result);
+				completed[index] = true;
+			} catch (Exception | Error ex) {
+				LOGGER.error("Error running best practice " + type.getDescription() + " : ", ex);
+				new Thread(() -> sendExceptiontoGA(type)).start();
+			}
+			timings[index] = System.currentTimeMillis() - bpStartTime;
+		}
+	}
+
+	private void logTimings(List<BestPracticeType> requests, long[] timings, long totalTime) {
+		StringBuilder message = new StringBuilder("Best practices ran in ").append(totalTime).append(" ms");
+		for (int index = 0; index < requests.size(); index++) {
+			message.append(index == 0 ? " : " : ", ").append(requests.get(index)).append('=').append(timings[index]);
+		}
+		LOGGER.info(message);
+	}
 	
     private void sendExceptiontoGA(BestPracticeType type){
     	GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendErrorEvents("Exception", "Error running best practice: "+ type.getDescription(), false);
@@ -19,6 +19,7 @@ import java.io.IOException;
 
 public interface IByteArrayLineReader {
 	void init(byte[] data);
+	void init(byte[] data, int length);
 	void skipContent(int skipAmount);
 	void skipForward(int count);
 	String readLine() throws IOException;
@@ -23,6 +23,10 @@ public interface IHttpRequestResponseHelper {
 	long getActualByteCount(HttpRequestResponseInfo item, Session session);
 	String getContentString(HttpRequestResponseInfo req, Session session) throws Exception;
 	byte[] getContent(HttpRequestResponseInfo req, Session session) throws Exception;
+	/**
+	 * Drops the content decoded by getContent, the request/responses of a new analysis replacing the former ones.
+	 */
+	void clearContentCache();
 	boolean isJavaScript(String contentType);
 	boolean isCss(String contentType);
 	boolean isHtml(String contentType);
@@ -23,5 +23,14 @@ import com.att.aro.core.packetanalysis.pojo.Session;
 public interface ISessionManager {
 	List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets);
 
+	/**
+	 * Assembles the sessions of packets whose grouping was recorded by an earlier assembly of the same packets, the
+	 * recorded session of each packet is used instead of looking up its flow.
+	 * 
+	 * @param packetSessions
+	 *            index of the session of each packet in the sorted session list, -1 for packets in no session
+	 */
+	List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets, int[] packetSessions);
+
 	void setiOSSecureTracePath(String tracePath);
 }
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis;
+
+import java.util.List;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.packetreader.pojo.Packet;
+
+/**
+ * On-disk cache of the packets decoded from the traffic.cap of a trace directory, so a trace that was opened before
+ * does not have to be decoded again. The sessions assembled from the unfiltered packets are stored with them as
+ * packet index ranges, so they are grouped without looking up the flow of every packet.
+ */
+public interface ITracePacketCache {
+
+	/**
+	 * Reads the cached packets of a trace directory.
+	 * 
+	 * @param traceDirectory
+	 * @return packets in the order they were read from traffic.cap, with decrypted payloads from secure_traffic.cap
+	 *         already applied, or null when there is no cache or traffic.cap has changed since it was written
+	 */
+	List<Packet> readPackets(String traceDirectory);
+
+	/**
+	 * Writes the packets of a trace directory to the cache.
+	 * 
+	 * @param traceDirectory
+	 * @param packets
+	 *            packets in the order they were read from traffic.cap
+	 * @param packetData
+	 *            data of each packet as read from traffic.cap, before any decrypted payload replaced it
+	 */
+	void writePackets(String traceDirectory, List<Packet> packets, List<byte[]> packetData);
+
+	/**
+	 * Reads the sessions cached for the unfiltered packets of a trace directory.
+	 * 
+	 * @param traceDirectory
+	 * @param packetCount
+	 *            size of the unfiltered packet list
+	 * @return the session of each packet, as its index in the sorted session list or -1 when the packet belongs to
+	 *         none, or null when no sessions were cached for this packet list
+	 */
+	int[] readSessions(String traceDirectory, int packetCount);
+
+	/**
+	 * Stores the sessions assembled from the unfiltered packets of a trace directory with its cached packets. Nothing
+	 * is written when the packets of the directory are not cached.
+	 * 
+	 * @param traceDirectory
+	 * @param packets
+	 *            the unfiltered packet list
+	 * @param sessions
+	 *            sessions assembled from packets, sorted
+	 */
+	void writeSessions(String traceDirectory, List<PacketInfo> packets, List<Session> sessions);
+
+}
@@ -18,6 +18,7 @@ package com.att.aro.core.packetanalysis.impl;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
 import com.att.aro.core.util.Util;
 import com.att.aro.core.packetanalysis.IByteArrayLineReader;
@@ -32,15 +33,25 @@ public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 	private int length;
 	private byte[] byteArray;
 	private int index;
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
 	
 	/**
 	 * Instantiate a byte[] for retrieval of strings
 	 * @param data
 	 */
 	public void init(byte[] data) {
+		init(data, data.length);
+	}
+
+	/**
+	 * Instantiate the first length bytes of a byte[], which may be a reused buffer, for retrieval of strings
+	 * @param data
+	 * @param length
+	 */
+	public void init(byte[] data, int length) {
 		this.byteArray = data;
 		index = 0;
-		length = this.byteArray.length;
+		this.length = length;
 	}
 
 	/**
@@ -94,28 +105,27 @@ public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 	 */
 	public String readLine() throws IOException {
 		int num;
-		try(ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+		output.reset();
 
-			// Look for CRLF
-			while ((num = readInput()) != -1) {
-				
-				if (num == '\r') {
-					num = readInput();
-					if (num == '\n') {
-						// Return found line of text
-						return new String(output.toByteArray(), StandardCharsets.UTF_8);
-					} else {
-						output.write('\r');
-						output.write(num);
-					}
+		// Look for CRLF
+		while ((num = readInput()) != -1) {
+			
+			if (num == '\r') {
+				num = readInput();
+				if (num == '\n') {
+					// Return found line of text
+					return output.toString(StandardCharsets.UTF_8.name());
 				} else {
+					output.write('\r');
 					output.write(num);
 				}
+			} else {
+				output.write(num);
 			}
-
-			// End of stream
-			return output.size() > 0 ? new String(output.toByteArray() , StandardCharsets.UTF_8) : null;
 		}
+
+		// End of stream
+		return output.size() > 0 ? output.toString(StandardCharsets.UTF_8.name()) : null;
 	}
 
 	public int getIndex() {
@@ -135,7 +145,7 @@ public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 		try {
 			String response = "index :" + index + "\n";
 			// return response + (byteArray != null ? new String(byteArray, StandardCharsets.UTF_8) : "null");
-			return response + Util.byteArrayToString(byteArray);
+			return response + Util.byteArrayToString(Arrays.copyOf(byteArray, length));
 		} catch (Exception e) {
 			return "UnsupportedEncodingException :"+e.getMessage();
 		}
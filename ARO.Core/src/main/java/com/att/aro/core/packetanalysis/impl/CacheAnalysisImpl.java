@@ -16,7 +16,6 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -60,6 +59,10 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 	private static final Logger LOG = LogManager.getLogger(CacheAnalysisImpl.class.getName());
 	int itindex = 0;
 	List<DuplicateEntry> duplicateEntries;
+	/**
+	 * Bodies of the duplicate entries, which only keep the name of their body
+	 */
+	private ContentDigestStore contentStore;
 	@Value("${ga.request.timing.cacheAnalysisTimings.title}")
 	private String cacheAnalysisTitle;
 	@Value("${ga.request.timing.analysisCategory.title}")
@@ -80,6 +83,10 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 		List<CacheEntry> duplicateContentWithOriginals = new ArrayList<CacheEntry>();
 		Map<CacheExpiration, List<CacheEntry>> cacheExpirationResponses = result.getCacheExpirationResponses();
 		duplicateEntries = new ArrayList<DuplicateEntry>();
+		if (contentStore != null) {
+			contentStore.close();
+		}
+		contentStore = new ContentDigestStore();
 		// Initialize cache expiration lists
 		for (CacheExpiration expiration : CacheExpiration.values()) {
 			cacheExpirationResponses.put(expiration, new ArrayList<CacheEntry>());
@@ -166,7 +173,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					diagnosis = Diagnosis.CACHING_DIAG_ETAG_DUPLICATE;
 				}
 				duplicateEntries.add(new DuplicateEntry(request, response, diagnosis, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 				continue;
 			} else {
 				int oldCount = cacheEntry.getCacheCount();
@@ -189,7 +196,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
 							firstPacket);
 					duplicateEntries.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
-							firstPacket, session, getContent(response, session)));
+							firstPacket, session, getContentDigest(response, session)));
 					diagnosisResults.add(newCacheEntry);
 					break;
 				default:
@@ -211,7 +218,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP_PARTIALHIT,
 							bytesInCache, firstPacket);
 					duplicateEntries.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
-							firstPacket, session, getContent(response, session)));
+							firstPacket, session, getContentDigest(response, session)));
 					diagnosisResults.add(newCacheEntry);
 					break;
 				default:
@@ -238,7 +245,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						dupEntry.setCount(1);
 						duplicateEntriesMap.put(key, dupEntry);
 					} else {
-						if (Arrays.equals(duplicateEntriesMap.get(key).getContent(), dupEntry.getContent())) {
+						if (duplicateEntriesMap.get(key).getContentDigest().equals(dupEntry.getContentDigest())) {
 							int count = duplicateEntriesMap.get(key).getCount();
 							if (count == 1) {
 								cache = new CacheEntry(duplicateEntriesMap.get(key).getRequest(),
@@ -253,7 +260,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 							dupsWithOrig.add(cache);
 							dupEntry = new DuplicateEntry(dupEntry.getRequest(), dupEntry.getResponse(),
 									dupEntry.getDiagnosis(), dupEntry.getSessionFirstPacket(), dupEntry.getSession(),
-									dupEntry.getContent());
+									dupEntry.getContentDigest());
 							dupEntry.setCount(count + 1);
 							duplicateEntriesMap.replace(key, dupEntry);
 						}
@@ -288,6 +295,8 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 		result.setDuplicateContentWithOriginals(duplicateContentWithOriginals);
 		result.setTotalRequestResponseBytes(totalRequestResponseBytes);
 		result.setTotalRequestResponseDupBytes(totalRequestResponseDupBytes);
+		LOG.debug(String.format("%d duplicate entries, %d distinct bodies", duplicateEntries.size(), contentStore.size()));
+		contentStore.close();
 		GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(cacheAnalysisTitle,
 				System.currentTimeMillis() - analysisStartTime, analysisCategory);
 		return result;
@@ -302,13 +311,13 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_SERVER, bytesInCache, firstPacket);
 				duplicateEntries.add(new DuplicateEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_SERVER, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 			} else {
 				newCacheEntry = new CacheEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_CLIENT, bytesInCache, firstPacket);
 				duplicateEntries.add(new DuplicateEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_CLIENT, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 			}
 		}
 		return newCacheEntry;
@@ -323,13 +332,13 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						firstPacket);
 				duplicateEntries
 						.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_SERVER,
-								firstPacket, session, getContent(response, session)));
+								firstPacket, session, getContentDigest(response, session)));
 			} else {
 				newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
 						firstPacket);
 				duplicateEntries
 						.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
-								firstPacket, session, getContent(response, session)));
+								firstPacket, session, getContentDigest(response, session)));
 			}
 		}
 		return newCacheEntry;
@@ -548,6 +557,16 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 		}
 	}
 
+	/**
+	 * Stores the body of the response, the store keeping one copy of equal bodies
+	 * 
+	 * @return name of the body, equal for equal bodies, empty when there is no body
+	 */
+	String getContentDigest(HttpRequestResponseInfo response, Session session) {
+		byte[] content = getContent(response, session);
+		return content == null ? "" : contentStore.add(content);
+	}
+
 	public byte[] getContent(HttpRequestResponseInfo response, Session session) {
 		byte[] content = new byte[0];
 		try {
@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Content addressed store of response bodies. Each distinct body is written once to a temporary file and named by
+ * its SHA-256 digest, so that equal bodies have equal names while the heap only holds the names. A body whose digest
+ * is already taken is compared with the stored body before it shares its name.
+ */
+final class ContentDigestStore implements Closeable {
+
+	private static final Logger LOG = LogManager.getLogger(ContentDigestStore.class.getName());
+
+	private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * offset and length of each stored body in the file, by name
+	 */
+	private final Map<String, long[]> locations = new HashMap<>();
+	private final MessageDigest messageDigest;
+	private File file;
+	private RandomAccessFile storage;
+	private ByteBuffer compareBuffer;
+
+	ContentDigestStore() {
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Stores a body unless an equal body is stored already.
+	 * 
+	 * @return the name of the body, equal for equal bodies
+	 */
+	String add(byte[] content) {
+		messageDigest.reset();
+		String digest = Base64.getEncoder().encodeToString(messageDigest.digest(content));
+		String name = digest;
+		for (int collision = 1; locations.containsKey(name); collision++) {
+			if (isStored(locations.get(name), content)) {
+				return name;
+			}
+			name = digest + "-" + collision;
+		}
+		locations.put(name, store(content));
+		return name;
+	}
+
+	int size() {
+		return locations.size();
+	}
+
+	@Override
+	public void close() {
+		locations.clear();
+		if (storage != null) {
+			try {
+				storage.close();
+			} catch (IOException e) {
+				LOG.debug("Unable to close " + file, e);
+			}
+			storage = null;
+		}
+		if (file != null && !file.delete()) {
+			file.deleteOnExit();
+		}
+		file = null;
+	}
+
+	/**
+	 * @return offset and length of the stored body, the offset being -1 when it could not be written
+	 */
+	private long[] store(byte[] content) {
+		if (content.length == 0) {
+			return new long[] { 0, 0 };
+		}
+		try {
+			if (storage == null) {
+				file = File.createTempFile("aro-content", ".store");
+				file.deleteOnExit();
+				storage = new RandomAccessFile(file, "rw");
+			}
+			long offset = storage.length();
+			storage.seek(offset);
+			storage.write(content);
+			return new long[] { offset, content.length };
+		} catch (IOException e) {
+			LOG.warn("Unable to store content, equal digests are taken as equal content", e);
+			return new long[] { -1, content.length };
+		}
+	}
+
+	private boolean isStored(long[] location, byte[] content) {
+		if (location[1] != content.length) {
+			return false;
+		}
+		if (location[0] < 0 || content.length == 0) {
+			return true;
+		}
+		try {
+			if (compareBuffer == null) {
+				compareBuffer = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+			}
+			FileChannel channel = storage.getChannel();
+			int index = 0;
+			while (index < content.length) {
+				compareBuffer.clear();
+				compareBuffer.limit(Math.min(COMPARE_BUFFER_SIZE, content.length - index));
+				int read = channel.read(compareBuffer, location[0] + index);
+				if (read <= 0) {
+					return false;
+				}
+				for (int position = 0; position < read; position++) {
+					if (compareBuffer.get(position) != content[index++]) {
+						return false;
+					}
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Unable to read stored content, equal digests are taken as equal content", e);
+			return true;
+		}
+	}
+}
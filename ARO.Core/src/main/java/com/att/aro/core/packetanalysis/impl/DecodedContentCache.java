@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+import lombok.Getter;
+
+/**
+ * Decoded bodies of the request/responses of one analysis, so that a body is de-chunked and decompressed once
+ * however many best practices and extractors read it.
+ * 
+ * Bodies are kept in memory up to a total size, evicting the least recently used. Bodies above the spill
+ * threshold are written to a temporary file instead. Request/responses are matched by identity, their equals
+ * compares host names only.
+ */
+public class DecodedContentCache {
+
+	private static final Logger LOG = LogManager.getLogger(DecodedContentCache.class.getName());
+
+	private static final long DEFAULT_MAX_MEMORY_BYTES = Math.min(64L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
+	private static final int DEFAULT_SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+	private final long maxMemoryBytes;
+	private final int spillThreshold;
+
+	private final LinkedHashMap<IdentityKey, byte[]> memory = new LinkedHashMap<>(256, 0.75f, true);
+	private final Map<IdentityKey, File> spilled = new LinkedHashMap<>();
+	private File spillDirectory;
+
+	@Getter
+	private long hits;
+	@Getter
+	private long misses;
+	/**
+	 * Bytes of the bodies held in memory
+	 */
+	@Getter
+	private long memoryBytes;
+	/**
+	 * Bytes of the bodies written to temporary files
+	 */
+	@Getter
+	private long spilledBytes;
+
+	public DecodedContentCache() {
+		this(DEFAULT_MAX_MEMORY_BYTES, DEFAULT_SPILL_THRESHOLD);
+	}
+
+	DecodedContentCache(long maxMemoryBytes, int spillThreshold) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * @return the decoded body, which must not be modified, or null when it has not been decoded yet
+	 */
+	public synchronized byte[] get(HttpRequestResponseInfo request) {
+		IdentityKey key = new IdentityKey(request);
+		byte[] content = memory.get(key);
+		if (content == null) {
+			File file = spilled.get(key);
+			if (file != null) {
+				try {
+					content = Files.readAllBytes(file.toPath());
+				} catch (IOException e) {
+					LOG.warn("Unable to read decoded content from " + file, e);
+					spilled.remove(key);
+				}
+			}
+		}
+		if (content != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return content;
+	}
+
+	public synchronized void put(HttpRequestResponseInfo request, byte[] content) {
+		IdentityKey key = new IdentityKey(request);
+		if (content.length > spillThreshold) {
+			if (!spilled.containsKey(key) && spill(key, content)) {
+				return;
+			}
+		}
+		if (content.length > maxMemoryBytes) {
+			return;
+		}
+		byte[] previous = memory.put(key, content);
+		memoryBytes += content.length - (previous == null ? 0 : previous.length);
+		Iterator<byte[]> eldest = memory.values().iterator();
+		while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+			memoryBytes -= eldest.next().length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Drops every body and its temporary file, logging the counters of the analysis.
+	 */
+	public synchronized void clear() {
+		if (hits + misses > 0) {
+			LOG.debug(String.format("Decoded content cache hits:%d, misses:%d, memory bytes:%d, spilled bytes:%d", hits, misses,
+					memoryBytes, spilledBytes));
+		}
+		memory.clear();
+		for (File file : spilled.values()) {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+		spilled.clear();
+		hits = 0;
+		misses = 0;
+		memoryBytes = 0;
+		spilledBytes = 0;
+	}
+
+	private boolean spill(IdentityKey key, byte[] content) {
+		try {
+			if (spillDirectory == null || !spillDirectory.isDirectory()) {
+				spillDirectory = Files.createTempDirectory("aro-content").toFile();
+				spillDirectory.deleteOnExit();
+			}
+			File file = File.createTempFile("body", ".bin", spillDirectory);
+			file.deleteOnExit();
+			Files.write(file.toPath(), content);
+			spilled.put(key, file);
+			spilledBytes += content.length;
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Unable to spill decoded content", e);
+			return false;
+		}
+	}
+
+	private static final class IdentityKey {
+
+		private final HttpRequestResponseInfo request;
+
+		IdentityKey(HttpRequestResponseInfo request) {
+			this.request = request;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(request);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).request == request;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+/**
+ * Open addressing hash table keyed on a TCP or UDP flow (local address, local port, remote address, remote port).
+ *
+ * The key is packed into two primitives stored in parallel arrays, so a lookup allocates nothing. For IPv4 the
+ * packed key is the flow itself; for IPv6 it is a hash of the addresses, and a match is confirmed against the
+ * stored addresses.
+ *
+ * Not thread safe, entries cannot be removed.
+ */
+public class FlowTable<V> {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private long[] addressKeys;
+	private int[] portKeys;
+	private InetAddress[] localAddresses;
+	private InetAddress[] remoteAddresses;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	public FlowTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public FlowTable(int expectedFlows) {
+		allocate(Integer.highestOneBit(Math.max(expectedFlows, 8) * 2 - 1) << 1);
+	}
+
+	/**
+	 * Returns the value of the flow, or null if the flow is not in the table
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(InetAddress localIP, int localPort, InetAddress remoteIP, int remotePort) {
+		long addressKey = addressKey(localIP, remoteIP);
+		int portKey = portKey(localPort, remotePort);
+		for (int slot = slot(addressKey, portKey);; slot = (slot + 1) & mask) {
+			if (values[slot] == null) {
+				return null;
+			}
+			if (matches(slot, addressKey, portKey, localIP, remoteIP)) {
+				return (V) values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Adds the flow or replaces its value
+	 */
+	public void put(InetAddress localIP, int localPort, InetAddress remoteIP, int remotePort, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Flow value cannot be null");
+		}
+		long addressKey = addressKey(localIP, remoteIP);
+		int portKey = portKey(localPort, remotePort);
+		int slot = slot(addressKey, portKey);
+		while (values[slot] != null) {
+			if (matches(slot, addressKey, portKey, localIP, remoteIP)) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		addressKeys[slot] = addressKey;
+		portKeys[slot] = portKey;
+		localAddresses[slot] = localIP;
+		remoteAddresses[slot] = remoteIP;
+		values[slot] = value;
+		if (++size > values.length / 2) {
+			resize();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private boolean matches(int slot, long addressKey, int portKey, InetAddress localIP, InetAddress remoteIP) {
+		if (addressKeys[slot] != addressKey || portKeys[slot] != portKey) {
+			return false;
+		}
+		if (localIP instanceof Inet4Address && remoteIP instanceof Inet4Address) {
+			return localAddresses[slot] instanceof Inet4Address && remoteAddresses[slot] instanceof Inet4Address;
+		}
+		return localIP.equals(localAddresses[slot]) && remoteIP.equals(remoteAddresses[slot]);
+	}
+
+	/**
+	 * Both addresses in one long. Inet4Address.hashCode() is the address itself, so for IPv4 this is exact
+	 * without copying the address bytes.
+	 */
+	private static long addressKey(InetAddress localIP, InetAddress remoteIP) {
+		return ((long) localIP.hashCode() << 32) | (remoteIP.hashCode() & 0xFFFFFFFFL);
+	}
+
+	private static int portKey(int localPort, int remotePort) {
+		return (localPort << 16) | (remotePort & 0xFFFF);
+	}
+
+	private int slot(long addressKey, int portKey) {
+		long hash = addressKey * 0x9E3779B97F4A7C15L + portKey;
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		return (int) hash & mask;
+	}
+
+	private void allocate(int capacity) {
+		addressKeys = new long[capacity];
+		portKeys = new int[capacity];
+		localAddresses = new InetAddress[capacity];
+		remoteAddresses = new InetAddress[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private void resize() {
+		long[] oldAddressKeys = addressKeys;
+		int[] oldPortKeys = portKeys;
+		InetAddress[] oldLocalAddresses = localAddresses;
+		InetAddress[] oldRemoteAddresses = remoteAddresses;
+		Object[] oldValues = values;
+		allocate(oldValues.length * 2);
+		for (int index = 0; index < oldValues.length; index++) {
+			if (oldValues[index] != null) {
+				int slot = slot(oldAddressKeys[index], oldPortKeys[index]);
+				while (values[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				addressKeys[slot] = oldAddressKeys[index];
+				portKeys[slot] = oldPortKeys[index];
+				localAddresses[slot] = oldLocalAddresses[index];
+				remoteAddresses[slot] = oldRemoteAddresses[index];
+				values[slot] = oldValues[index];
+			}
+		}
+	}
+}
@@ -45,6 +45,8 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 	private static final Logger LOG = LogManager.getLogger(HttpRequestResponseHelperImpl.class.getName());
 	
 	private IByteArrayLineReader storageReader;
+
+	private final DecodedContentCache contentCache = new DecodedContentCache();
 	
 	@Autowired
 	public void setByteArrayLineReader(IByteArrayLineReader reader){
@@ -119,13 +121,34 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 	}
 
 	/**
-	 * get content of the request/response in byte[]
+	 * get content of the request/response in byte[], decoded once per analysis
 	 * 
 	 * @param request actually this is the response to the request
-	 * @return byte array
+	 * @return byte array, shared by every caller so it must not be modified
 	 * @throws Exception
 	 */
 	public byte[] getContent(HttpRequestResponseInfo request, Session session) throws Exception {
+		byte[] content = contentCache.get(request);
+		if (content == null) {
+			content = decodeContent(request, session);
+			contentCache.put(request, content);
+		}
+		return content;
+	}
+
+	@Override
+	public void clearContentCache() {
+		contentCache.clear();
+	}
+
+	public DecodedContentCache getContentCache() {
+		return contentCache;
+	}
+
+	/**
+	 * de-chunk and decompress the content of the request/response
+	 */
+	private byte[] decodeContent(HttpRequestResponseInfo request, Session session) throws Exception {
 		if (!request.isExtractable() && !StringUtils.isEmpty(request.getExceptionMessege())) {
 			// already seen this exception so don't try again
 			throw new Exception("As seen before Exception: " + request.getExceptionMessege());
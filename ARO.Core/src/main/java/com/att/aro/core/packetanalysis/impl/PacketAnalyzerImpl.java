@@ -33,6 +33,7 @@ import java.util.TreeMap;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -41,11 +42,13 @@ import com.att.aro.core.configuration.IProfileFactory;
 import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.packetanalysis.IBurstCollectionAnalysis;
 import com.att.aro.core.packetanalysis.IEnergyModelFactory;
+import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
 import com.att.aro.core.packetanalysis.IPacketAnalyzer;
 import com.att.aro.core.packetanalysis.IPktAnazlyzerTimeRangeUtil;
 import com.att.aro.core.packetanalysis.IRrcStateMachineFactory;
 import com.att.aro.core.packetanalysis.ISessionManager;
 import com.att.aro.core.packetanalysis.ITraceDataReader;
+import com.att.aro.core.packetanalysis.ITracePacketCache;
 import com.att.aro.core.packetanalysis.IVideoTrafficCollector;
 import com.att.aro.core.packetanalysis.pojo.AbstractRrcStateMachine;
 import com.att.aro.core.packetanalysis.pojo.AbstractTraceResult;
@@ -60,17 +63,25 @@ import com.att.aro.core.packetanalysis.pojo.IPPacketSummary;
 import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
 import com.att.aro.core.packetanalysis.pojo.PacketCounter;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.Statistic;
 import com.att.aro.core.packetanalysis.pojo.TimeRange;
+import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
 import com.att.aro.core.packetanalysis.pojo.TraceDirectoryResult;
 import com.att.aro.core.packetanalysis.pojo.TraceFileResult;
+import com.att.aro.core.packetreader.IPacketService;
 import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
+import com.att.aro.core.peripheral.pojo.CpuActivity;
+import com.att.aro.core.peripheral.pojo.CpuActivityList;
 import com.att.aro.core.settings.SettingsUtil;
+import com.att.aro.core.settings.impl.SettingsImpl;
 import com.att.aro.core.tracemetadata.IMetaDataHelper;
 import com.att.aro.core.util.GoogleAnalyticsUtil;
+import com.att.aro.core.util.Util;
 import com.att.aro.core.videoanalysis.csi.ICSIDataHelper;
 import com.att.aro.core.videoanalysis.csi.VideoTrafficInferencer;
 
@@ -88,6 +99,12 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	@Autowired
 	private ISessionManager sessionmanager;
 
+	@Autowired
+	private ITracePacketCache packetCache;
+
+	@Autowired
+	private IPacketService packetService;
+
 	private IRrcStateMachineFactory statemachinefactory;
 
 	private IProfileFactory profilefactory;
@@ -119,7 +136,72 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	@Autowired
 	private ICSIDataHelper csiDataHelper;
 
-	private SortedMap<Double, HttpRequestResponseInfo> requestMap = new TreeMap<>();
+	@Autowired
+	private IHttpRequestResponseHelper httpRequestResponseHelper;
+
+	// requests of the last analysis, each analysis builds its own map so traces can be analyzed concurrently
+	private volatile SortedMap<Double, HttpRequestResponseInfo> requestMap = new TreeMap<>();
+
+	/**
+	 * Last trace directory read, kept unmodified so that a new time range or filter does not re-read the trace
+	 */
+	private final Object traceCacheLock = new Object();
+	private CachedTrace cachedTrace;
+
+	/**
+	 * A parsed trace shared by the analyses of the trace. Its packets are kept in a read only {@link PacketTable},
+	 * each analysis works on copies of the packets it selects. The copies and sessions of the last analysis are kept
+	 * for the next analysis that selects the same packets, such as a re-analysis with another profile.
+	 */
+	static final class CachedTrace {
+		private final String key;
+		private final TraceDirectoryResult result;
+		private final PacketTable packets;
+		private List<PacketInfo> selection;
+		private List<PacketInfo> analysisPackets;
+		private List<Session> sessions;
+
+		/**
+		 * @param result the trace read, its packets are replaced by the views of packets
+		 */
+		CachedTrace(String key, TraceDirectoryResult result, PacketTable packets) {
+			this.key = key;
+			this.result = result;
+			this.packets = packets;
+			result.setAllpackets(packets.getPackets());
+		}
+
+		/**
+		 * Hands out the packet copies and sessions of the last analysis when it selected the same packets. They are
+		 * taken out of the cache until the analysis is done, so two analyses never share them.
+		 * 
+		 * @return the sessions, analysisPackets then holds their packets, or null
+		 */
+		synchronized List<Session> takeSessions(List<PacketInfo> selectedPackets) {
+			List<Session> reused = null;
+			if (sessions != null && selection.equals(selectedPackets)) {
+				reused = sessions;
+			}
+			if (reused == null) {
+				analysisPackets = null;
+			}
+			selection = null;
+			sessions = null;
+			return reused;
+		}
+
+		synchronized List<PacketInfo> takeAnalysisPackets() {
+			List<PacketInfo> packets = analysisPackets;
+			analysisPackets = null;
+			return packets;
+		}
+
+		synchronized void putSessions(List<PacketInfo> selectedPackets, List<PacketInfo> packets, List<Session> assembledSessions) {
+			selection = selectedPackets;
+			analysisPackets = packets;
+			sessions = assembledSessions;
+		}
+	}
 
 	@Autowired
 	public void setTraceReader(ITraceDataReader traceReader) {
@@ -166,7 +248,9 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	@Override
 	public PacketAnalyzerResult analyzeTraceDirectory(String traceDirectory, Profile profile, AnalysisFilter filter) throws FileNotFoundException {
 		long bpStartTime = System.currentTimeMillis();
-		TraceDirectoryResult result = tracereader.readTraceDirectory(traceDirectory);
+		// the last parsed trace is reused while traffic.cap is unchanged, each analysis works on its own copy
+		CachedTrace trace = getCachedTrace(traceDirectory);
+		TraceDirectoryResult result = trace != null ? copyTraceResult(trace.result) : tracereader.readTraceDirectory(traceDirectory);
 		if (filter != null) {
 			TimeRange tempTimeRange = filter.getTimeRange();
 			if (tempTimeRange != null) {
@@ -188,14 +272,78 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 				result.setAttenautionEvent(tempResult.getAttenautionEvent());
 			}
 		}
-		PacketAnalyzerResult res = finalResult(result, profile, filter);
+		PacketAnalyzerResult res = finalResult(result, profile, filter, trace);
 		result.setMetaData(metaDataHelper.initMetaData(res));
 		GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(pktAnalysisTitle, System.currentTimeMillis() - bpStartTime, analysisCategory);
 		LOGGER.debug(String.format("Time to process PacketAnalyzerImpl %s :%12.4f", pktAnalysisTitle, ((float) (System.currentTimeMillis() - bpStartTime)) / 3600.0));
 		return res;
 	}
 
+	/**
+	 * @return the parsed trace, read now if it is not the cached one, null if the trace can not be cached
+	 */
+	private CachedTrace getCachedTrace(String traceDirectory) throws FileNotFoundException {
+		String traceKey = getTraceKey(traceDirectory);
+		if (traceKey == null) {
+			return null;
+		}
+		synchronized (traceCacheLock) {
+			if (cachedTrace != null && traceKey.equals(cachedTrace.key)) {
+				LOGGER.debug("Reusing parsed trace: " + traceDirectory);
+				return cachedTrace;
+			}
+		}
+		TraceDirectoryResult result = tracereader.readTraceDirectory(traceDirectory);
+		if (result == null) {
+			return null;
+		}
+		CachedTrace trace = new CachedTrace(traceKey, result, new PacketTable(result.getAllpackets(), packetService));
+		synchronized (traceCacheLock) {
+			cachedTrace = trace;
+		}
+		return trace;
+	}
+
+	/**
+	 * The modification time of the directory is left out, the analysis itself writes the trace metadata to it.
+	 * 
+	 * @return key identifying the trace directory and the state of its traffic.cap, null if there is no traffic.cap
+	 */
+	private String getTraceKey(String traceDirectory) {
+		File directory = new File(traceDirectory);
+		File pcapFile = new File(directory, TraceDataConst.FileName.PCAP_FILE);
+		if (!pcapFile.isFile()) {
+			return null;
+		}
+		return directory.getAbsolutePath() + "|" + pcapFile.lastModified() + "|" + pcapFile.length();
+	}
+
+	private TraceDirectoryResult copyTraceResult(TraceDirectoryResult result) {
+		TraceDirectoryResult copy = new TraceDirectoryResult();
+		BeanUtils.copyProperties(result, copy);
+		// the time range is applied to the cpu activity list itself
+		CpuActivityList cpuActivityList = result.getCpuActivityList();
+		if (cpuActivityList != null) {
+			CpuActivityList cpuCopy = new CpuActivityList();
+			for (CpuActivity cpuActivity : cpuActivityList.getCpuActivities()) {
+				cpuCopy.add(cpuActivity);
+			}
+			cpuCopy.setProcessSelection(cpuActivityList.getProcessSelection());
+			copy.setCpuActivityList(cpuCopy);
+		}
+		return copy;
+	}
+
 	protected PacketAnalyzerResult finalResult(AbstractTraceResult result, Profile profile, AnalysisFilter filter) {
+		return finalResult(result, profile, filter, null);
+	}
+
+	/**
+	 * @param trace
+	 *            the cached trace the packets of result belong to, they are copied before the analysis. null when the
+	 *            analysis owns the packets.
+	 */
+	private PacketAnalyzerResult finalResult(AbstractTraceResult result, Profile profile, AnalysisFilter filter, CachedTrace trace) {
 		PacketAnalyzerResult data = new PacketAnalyzerResult();
 		if (filter == null) {
 			double endTime = result.getAllpackets().size() > 0
@@ -257,7 +405,23 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 			}
 			timeRange = filter.getTimeRange();
 			if (result != null) {
-				filteredPackets = filterPackets(filter, result.getAllpackets());
+				filteredPackets = trace != null ? selectPackets(filter, trace.packets) : filterPackets(filter, result.getAllpackets());
+			}
+		}
+
+		// packets of the cached trace are shared, analyze copies of them or reuse the copies and sessions of the
+		// last analysis that selected the same packets
+		List<PacketInfo> selectedPackets = filteredPackets;
+		List<Session> sessionList = null;
+		if (trace != null) {
+			sessionList = trace.takeSessions(selectedPackets);
+			if (sessionList != null) {
+				filteredPackets = trace.takeAnalysisPackets();
+				for (PacketInfo packetInfo : filteredPackets) {
+					packetInfo.setStateMachine(null);
+				}
+			} else {
+				filteredPackets = copyPackets(selectedPackets, filter != null);
 			}
 		}
 
@@ -282,8 +446,29 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 
 		Statistic stat = this.getStatistic(filteredPackets);
 
-		List<Session> sessionList = sessionmanager.processPacketsAndAssembleSessions(filteredPackets);
-		generateGetRequestMapAndPopulateLatencyStat(sessionList, stat);
+		httpRequestResponseHelper.clearContentCache();
+		if (sessionList == null) {
+			// the sessions of the unfiltered packets are kept with the packet cache of the trace
+			String cachedDirectory = filter == null && result instanceof TraceDirectoryResult && isPacketCacheEnabled()
+					? result.getTraceDirectory() : null;
+			int[] packetSessions = cachedDirectory != null ? packetCache.readSessions(cachedDirectory, filteredPackets.size()) : null;
+			if (packetSessions != null) {
+				LOGGER.debug("Assembling sessions from the packet cache");
+				sessionList = sessionmanager.processPacketsAndAssembleSessions(filteredPackets, packetSessions);
+			} else {
+				sessionList = sessionmanager.processPacketsAndAssembleSessions(filteredPackets);
+				if (cachedDirectory != null) {
+					packetCache.writeSessions(cachedDirectory, filteredPackets, sessionList);
+				}
+			}
+			if (trace != null) {
+				trace.putSessions(selectedPackets, filteredPackets, sessionList);
+			}
+		} else {
+			LOGGER.debug("Reusing the sessions of the last analysis");
+		}
+		SortedMap<Double, HttpRequestResponseInfo> requestMap = generateGetRequestMapAndPopulateLatencyStat(sessionList, stat);
+		this.requestMap = requestMap;
 
 		
 		if (result != null && stat.getAppName() != null && stat.getAppName().size() == 1 && stat.getAppName().contains(TraceDataReaderImpl.UNKNOWN_APPNAME)) {
@@ -366,6 +551,10 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 		return data;
 	}
 
+	private boolean isPacketCacheEnabled() {
+		return !"false".equalsIgnoreCase(SettingsImpl.getInstance().getAttribute(Util.PACKET_CACHE));
+	}
+
 	/**
 	 * Calculates total Https data not analyzed where responses are determined to be Unknown
 	 * @param sessions
@@ -393,83 +582,164 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
             .sum();
 	}
 
+	/**
+	 * Copies the packets of the cached trace for an analysis.
+	 * 
+	 * @param renumber
+	 *            number the copies from 1 as {@link #filterPackets(AnalysisFilter, List)} does
+	 */
+	private List<PacketInfo> copyPackets(List<PacketInfo> packets, boolean renumber) {
+		List<PacketInfo> copies = new ArrayList<>(packets.size());
+		int packetIdx = 0;
+		for (PacketInfo packetInfo : packets) {
+			PacketInfo copy = packetInfo.copy();
+			if (renumber) {
+				copy.setPacketId(++packetIdx);
+			}
+			copies.add(copy);
+		}
+		return copies;
+	}
+
 	/**
 	 * Runs the filtering process on the specified packets/PacketInfos.
 	 * 
+	 * @param packetsInfo packets in timestamp order, as read from the trace
 	 * @return packets/PacketInfos filtered
 	 */
 	public List<PacketInfo> filterPackets(AnalysisFilter filter, List<PacketInfo> packetsInfo) {
+		List<PacketInfo> filteredPackets = selectPackets(filter, packetsInfo);
+		int packetIdx = 0;
+		for (PacketInfo packetInfo : filteredPackets) {
+			packetInfo.setPacketId(++packetIdx);
+		}
+		return filteredPackets;
+	}
+
+	/**
+	 * Selects the packets kept by the filter without modifying them. The time range is found by binary search, only
+	 * the packets inside it are looked at.
+	 * 
+	 * @param packetsInfo packets in timestamp order, as read from the trace
+	 * @return packets/PacketInfos filtered
+	 */
+	List<PacketInfo> selectPackets(AnalysisFilter filter, List<PacketInfo> packetsInfo) {
 
 		List<PacketInfo> filteredPackets = new ArrayList<PacketInfo>(); // create new packets according to the filter setting
 		TimeRange timeRange = filter.getTimeRange();
-		int packetIdx = 0;
 
-		// Ff you select the check box, you want to include it.
-		// All of of the skip-flags are false at first.
-		boolean ipv4Skip = !filter.isIpv4Sel();
-		boolean ipv6Skip = !filter.isIpv6Sel();
-		boolean tcpSkip = !filter.isTcpSel();
-		boolean udpSkip = !filter.isUdpSel();
-		boolean dnsSkip = !filter.isDnsSelection();
+		// packets are in timestamp order, only look at the ones inside the time range
+		if (timeRange != null) {
+			int fromIndex = packetIndex(packetsInfo, timeRange.getBeginTime(), false);
+			int toIndex = packetIndex(packetsInfo, timeRange.getEndTime(), true);
+			packetsInfo = packetsInfo.subList(fromIndex, Math.max(fromIndex, toIndex));
+		}
 
 		for (PacketInfo packetInfo : packetsInfo) {
-
-			if (packetInfo.getRemoteIPAddress() != null) {
-				if (ipv4Skip && packetInfo.getRemoteIPAddress() instanceof Inet4Address) {
-					continue;
-				}
-				if (ipv6Skip && packetInfo.getRemoteIPAddress() instanceof Inet6Address) {
-					continue;
-				}
-			} else {
-				IPPacket ipPacket = (IPPacket) packetInfo.getPacket();
-				
-				if (ipPacket != null) {
-
-					if (ipv4Skip && ipPacket.getIPVersion() == 4) {
-						continue;
-					}
-					if (ipv6Skip && ipPacket.getIPVersion() == 6) {
-						continue;
-					}
-				}
-			
-			}
-			
-			if (tcpSkip && packetInfo.getPacket() instanceof TCPPacket) {
-				continue;
-			}
-			
-			if (udpSkip && packetInfo.getPacket() instanceof UDPPacket) {
-				UDPPacket udpPacket = (UDPPacket) packetInfo.getPacket();
-				if (!(DNS_PORT == udpPacket.getDestinationPort() || DNS_PORT == udpPacket.getSourcePort())) {
-					continue;
-				}
+			Packet packet = packetInfo.getPacket();
+			int ipVersion = packet instanceof IPPacket ? ((IPPacket) packet).getIPVersion() : 0;
+			int sourcePort = 0;
+			int destinationPort = 0;
+			if (packet instanceof UDPPacket) {
+				sourcePort = ((UDPPacket) packet).getSourcePort();
+				destinationPort = ((UDPPacket) packet).getDestinationPort();
 			}
-			if (dnsSkip && packetInfo.getPacket() instanceof UDPPacket) {
-				UDPPacket udpPacket = (UDPPacket) packetInfo.getPacket();
-				if (DNS_PORT == udpPacket.getDestinationPort() || DNS_PORT == udpPacket.getSourcePort()) {
-					continue;
-				}
+			if (isSelected(filter, packetInfo, ipVersion, packet instanceof TCPPacket, packet instanceof UDPPacket, sourcePort, destinationPort)) {
+				filteredPackets.add(packetInfo);
 			}
+		}
+		
+		return filteredPackets;
+	}
 
-			// Check time range
-			double timestamp = packetInfo.getTimeStamp();
-			if (timeRange != null && (timeRange.getBeginTime() > timestamp || timeRange.getEndTime() < timestamp)) {
-				// Not in time range
-				continue;
+	/**
+	 * Selects the packets of a packet table as {@link #selectPackets(AnalysisFilter, List)} does, from the columns of
+	 * the table.
+	 * 
+	 * @return views of the selected rows
+	 */
+	List<PacketInfo> selectPackets(AnalysisFilter filter, PacketTable packets) {
+		List<PacketInfo> views = packets.getPackets();
+		int fromIndex = 0;
+		int toIndex = packets.size();
+		TimeRange timeRange = filter.getTimeRange();
+		if (timeRange != null) {
+			fromIndex = packets.indexOf(timeRange.getBeginTime(), false);
+			toIndex = Math.max(fromIndex, packets.indexOf(timeRange.getEndTime(), true));
+		}
+		int[] rows = new int[toIndex - fromIndex];
+		int count = 0;
+		for (int row = fromIndex; row < toIndex; row++) {
+			if (isSelected(filter, views.get(row), packets.getIPVersion(row), packets.isTcp(row), packets.isUdp(row),
+					packets.getSourcePort(row), packets.getDestinationPort(row))) {
+				rows[count++] = row;
 			}
-			// Check to see if application is selected
-			if (filter.getPacketColor(packetInfo) == null) {
-				// App unknown by filter
-				continue;
+		}
+		return packets.getPackets(rows, count);
+	}
+
+	/**
+	 * @param ipVersion
+	 *            4 or 6, tells the IP version when the remote address is not known
+	 * @param sourcePort
+	 *            of a UDP packet
+	 * @param destinationPort
+	 *            of a UDP packet
+	 * @return true when the filter keeps the packet
+	 */
+	private boolean isSelected(AnalysisFilter filter, PacketInfo packetInfo, int ipVersion, boolean tcp, boolean udp, int sourcePort,
+			int destinationPort) {
+
+		// Ff you select the check box, you want to include it.
+		InetAddress remoteIPAddress = packetInfo.getRemoteIPAddress();
+		boolean ipv4 = remoteIPAddress != null ? remoteIPAddress instanceof Inet4Address : ipVersion == 4;
+		boolean ipv6 = remoteIPAddress != null ? remoteIPAddress instanceof Inet6Address : ipVersion == 6;
+		if ((ipv4 && !filter.isIpv4Sel()) || (ipv6 && !filter.isIpv6Sel())) {
+			return false;
+		}
+		if (tcp && !filter.isTcpSel()) {
+			return false;
+		}
+		boolean dns = udp && (DNS_PORT == destinationPort || DNS_PORT == sourcePort);
+		if (udp && !dns && !filter.isUdpSel()) {
+			return false;
+		}
+		if (dns && !filter.isDnsSelection()) {
+			return false;
+		}
+
+		// Check time range
+		TimeRange timeRange = filter.getTimeRange();
+		double timestamp = packetInfo.getTimeStamp();
+		if (timeRange != null && (timeRange.getBeginTime() > timestamp || timeRange.getEndTime() < timestamp)) {
+			// Not in time range
+			return false;
+		}
+		// Check to see if application is selected
+		return filter.getPacketColor(packetInfo) != null;
+	}
+
+	/**
+	 * Binary search of packets sorted by timestamp.
+	 * 
+	 * @param packetsInfo packets in timestamp order
+	 * @param timestamp
+	 * @param after true to skip packets at the timestamp
+	 * @return index of the first packet with a timestamp after (or at, when after is false) timestamp
+	 */
+	static int packetIndex(List<PacketInfo> packetsInfo, double timestamp, boolean after) {
+		int low = 0;
+		int high = packetsInfo.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			double midTimestamp = packetsInfo.get(mid).getTimeStamp();
+			if (midTimestamp < timestamp || (after && midTimestamp == timestamp)) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
-			
-			packetInfo.setPacketId(++packetIdx);
-			filteredPackets.add(packetInfo);
 		}
-		
-		return filteredPackets;
+		return low;
 	}
 
 	@Override
@@ -588,13 +858,13 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	 * 
 	 * @return Map of Requests
 	 */
-	private void generateGetRequestMapAndPopulateLatencyStat(List<Session> sessionList, Statistic stat) {
+	private SortedMap<Double, HttpRequestResponseInfo> generateGetRequestMapAndPopulateLatencyStat(List<Session> sessionList, Statistic stat) {
+		SortedMap<Double, HttpRequestResponseInfo> requestMap = new TreeMap<>();
 		int counter = 0;
 		double minLatency = Double.MAX_VALUE;
 		double maxLatency = Double.MIN_VALUE;
 		double totalLatency = 0.0d;
 		int totalSessions = 0;
-		requestMap.clear();
 
 		for (Session session : sessionList) {
 			// Calculate latency data by session
@@ -630,6 +900,7 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 		stat.setMinLatency(Double.MAX_VALUE == minLatency ? 0.0d : minLatency);
 		stat.setMaxLatency(Double.MIN_VALUE == maxLatency ? 0.0d : maxLatency);
 		stat.setAverageLatency(totalSessions != 0 ? totalLatency/totalSessions : 0.0);
+		return requestMap;
 	}
 
 	/*
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+
+/**
+ * Puts packets that arrive nearly in timestamp order back in order through a bounded buffer, instead of sorting the
+ * whole trace once it is read.
+ *
+ * Packets must be added with increasing packet ids, which break ties between equal timestamps. The result is then
+ * the same as a stable sort of the packets in arrival order. Packets further out of place than the buffer holds are
+ * put in place by a stable sort when the buffer is drained.
+ *
+ * Not thread safe.
+ */
+class PacketReorderBuffer {
+
+	private static final Comparator<PacketInfo> ORDER = Comparator.comparingDouble(PacketInfo::getTimeStamp)
+			.thenComparingInt(PacketInfo::getPacketId);
+
+	private final int capacity;
+	private final PriorityQueue<PacketInfo> buffer;
+	private final List<PacketInfo> packets = new ArrayList<>();
+	private PacketInfo lastPacket;
+	private boolean ordered = true;
+
+	/**
+	 * @param capacity
+	 *            number of packets held back, the distance a packet can be out of place and still be ordered
+	 *            without a sort
+	 */
+	PacketReorderBuffer(int capacity) {
+		this.capacity = capacity;
+		this.buffer = new PriorityQueue<>(capacity + 1, ORDER);
+	}
+
+	void add(PacketInfo packetInfo) {
+		buffer.add(packetInfo);
+		if (buffer.size() > capacity) {
+			release(buffer.poll());
+		}
+	}
+
+	/**
+	 * @return all packets added, in timestamp order
+	 */
+	List<PacketInfo> drain() {
+		while (!buffer.isEmpty()) {
+			release(buffer.poll());
+		}
+		if (!ordered) {
+			Collections.sort(packets);
+		}
+		return packets;
+	}
+
+	/**
+	 * @return false when packets were too far out of place for the buffer and had to be sorted
+	 */
+	boolean isOrdered() {
+		return ordered;
+	}
+
+	private void release(PacketInfo packetInfo) {
+		if (ordered && lastPacket != null && ORDER.compare(lastPacket, packetInfo) > 0) {
+			ordered = false;
+		}
+		lastPacket = packetInfo;
+		packets.add(packetInfo);
+	}
+}
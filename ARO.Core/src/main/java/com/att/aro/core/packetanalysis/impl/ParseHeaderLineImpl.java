@@ -17,7 +17,6 @@ package com.att.aro.core.packetanalysis.impl;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.regex.Matcher;
 
 import org.apache.log4j.Logger;
 import org.apache.commons.lang.StringUtils;
@@ -25,7 +24,6 @@ import org.apache.log4j.LogManager;
 
 import com.att.aro.core.packetanalysis.IParseHeaderLine;
 import com.att.aro.core.packetanalysis.pojo.HttpDirection;
-import com.att.aro.core.packetanalysis.pojo.HttpPattern;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.util.Util;
 
@@ -42,12 +40,22 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 	private static final String MUSTREVALIDATE = "must-revalidate";
 	private static final String PROXYREVALIDATE = "proxy-revalidate";
 	private static final String ONLYIFCACHED = "only-if-cached";
+	private static final String MAXAGE = "max-age";
+	private static final String SMAXAGE = "s-maxage";
+	private static final String MINFRESH = "min-fresh";
+	private static final String MAXSTALE = "max-stale";
+	private static final String BYTES = "bytes ";
 
 	private static final Object HEADERS_SEPARATOR = " ";
 	
 	
 	/**
-	 * Parse data from the line of text
+	 * Parse data from the line of text.
+	 * 
+	 * The header name is recognized by its first character and compared in place, only the value of a recognized
+	 * header is looked at. Names and values are matched as the HttpPattern expressions used to: the initial letters of
+	 * Host, Content-Length, Transfer-Encoding, Content-Encoding, Content-Type and the T of ETag in either case, the
+	 * other names case sensitive, and white space allowed before the colon only for the latter.
 	 * 
 	 * @param headerLine
 	 * @param rrInfo
@@ -56,253 +64,414 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 
 		appendHeaderToHttpRequestResponseInfo(headerLine, rrInfo);
 
-		Matcher matcher;
-		String[] str;
+		if (headerLine.isEmpty()) {
+			return;
+		}
+		int valueStart;
+		switch (headerLine.charAt(0)) {
+		case 'H':
+		case 'h':
+			// Get request host "[H|h]ost:"
+			if ((valueStart = foldedNameEnd(headerLine, "Host")) > 0) {
+				String hostName = headerLine.substring(valueStart).trim();
+
+				// Strip port info if included
+				int index = hostName.indexOf(':');
+				if (index >= 0) {
+					hostName = hostName.substring(0, index);
+				}
+				rrInfo.setHostName(hostName);
+			}
+			return;
 
-		// Get request host "[H|h]ost:"
-		matcher = HttpPattern.strReRequestHost.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			String hostName = headerLine.substring(matcher.end()).trim();
+		case 'C':
+		case 'c':
+			// Get request content length "[C|c]ontent-[L|l]ength:"
+			if ((valueStart = foldedNameEnd(headerLine, "Content-Length")) > 0) {
+				if (rrInfo.getContentLength() == 0) {
+					parseContentLength(headerLine.substring(valueStart).trim(), rrInfo);
+				}
+				return;
+			}
 
-			// Strip port info if included
-			int index = hostName.indexOf(':');
-			if (index >= 0) {
-				hostName = hostName.substring(0, index);
+			// Get content encoding "[C|c]ontent-[E|e]ncoding:"
+			if ((valueStart = foldedNameEnd(headerLine, "Content-Encoding")) > 0) {
+				rrInfo.setContentEncoding(headerLine.substring(valueStart).trim().toLowerCase());
+				return;
+			}
+
+			// Get content type "[C|c]ontent-[T|t]ype:"
+			if ((valueStart = foldedNameEnd(headerLine, "Content-Type")) > 0) {
+				parseContentType(headerLine.substring(valueStart), rrInfo);
+				return;
+			}
+
+			// Cache-Control
+			if ((valueStart = nameEnd(headerLine, "Cache-Control")) > 0) {
+				parseCacheControl(restOfLine(headerLine, valueStart), rrInfo);
+				return;
+			}
+
+			// Content-Range
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE && (valueStart = nameEnd(headerLine, "Content-Range")) > 0) {
+				parseContentRange(headerLine, valueStart, rrInfo);
 			}
-			rrInfo.setHostName(hostName);
 			return;
-		}
 
-		// Get request content length "[C|c]ontent-[L|l]ength:"
-		matcher = HttpPattern.strReResponseContentLength.matcher(headerLine);
-		if (matcher.lookingAt() && rrInfo.getContentLength() == 0) {
-			try {
-				rrInfo.setContentLength(Integer.parseInt(headerLine.substring(matcher.end()).trim()));
-			} catch (NumberFormatException e) {
-				/*
-				 * The value exceeds the Interger.MAX_VALUE i.e
-				 * 2^31-1=2147483647
-				 */
-				LOGGER.info("Cannot parse the string to int for contentLength,because" + " The value to parse is :" + (headerLine.substring(matcher.end()).trim())
-						+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+		case 'T':
+		case 't':
+			// Get request transfer encoding "[T|t]ransfer-[E|e]ncoding:"
+			if ((valueStart = foldedNameEnd(headerLine, "Transfer-Encoding")) > 0) {
+				rrInfo.setChunked(CHUNKED.equals(headerLine.substring(valueStart).trim()));
 			}
+			return;
 
+		case 'D':
+			// Date
+			if ((valueStart = nameEnd(headerLine, "Date")) > 0) {
+				rrInfo.setDate(Util.readHttpDate(restOfLine(headerLine, valueStart), false));
+			}
 			return;
-		}
 
-		// Get request transfer encoding "[T|t]ransfer-[E|e]ncoding:"
-		matcher = HttpPattern.strReTransferEncoding.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setChunked(CHUNKED.equals(headerLine.substring(matcher.end()).trim()));
+		case 'P':
+			// Pragma: no-cache
+			if ((valueStart = nameEnd(headerLine, "Pragma")) > 0
+					&& headerLine.startsWith(NOCACHE, skipWhiteSpace(headerLine, valueStart))) {
+				rrInfo.setHasCacheHeaders(true);
+				rrInfo.setPragmaNoCache(true);
+			}
 			return;
-		}
 
-		// Get request transfer encoding
-		matcher = HttpPattern.strReResponseContentEncoding.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setContentEncoding(headerLine.substring(matcher.end()).trim().toLowerCase());
+		case 'E':
+			if (rrInfo.getDirection() != HttpDirection.RESPONSE) {
+				return;
+			}
+			// ETag
+			if ((valueStart = nameEnd(headerLine, "ETag", 1)) > 0) {
+				parseEtag(headerLine, valueStart, rrInfo);
+				return;
+			}
+
+			// Expires
+			if ((valueStart = nameEnd(headerLine, "Expires")) > 0) {
+				rrInfo.setExpires(Util.readHttpDate(restOfLine(headerLine, valueStart), true));
+			}
 			return;
-		}
 
-		// Get content type
-		matcher = HttpPattern.strReResponseContentType.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			str = headerLine.substring(matcher.end()).trim().split(";");
-			rrInfo.setContentType(str[0].trim().toLowerCase());
-			for (int i = 1; i < str.length; ++i) {
-				int index = str[i].indexOf('=');
-				if (index >= 0) {
-					String attr = str[i].substring(0, index).trim();
-					if (CHARSET.equals(attr)) {
-						rrInfo.setCharset(str[i].substring(index+1).trim());
-					}
+		case 'A':
+			// Age
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE && (valueStart = nameEnd(headerLine, "Age")) > 0) {
+				String age = readDigits(headerLine, skipWhiteSpace(headerLine, valueStart));
+				if (StringUtils.isNotBlank(age) && StringUtils.isNumeric(age)) {
+					rrInfo.setAge(Long.valueOf(age));
 				}
 			}
 			return;
-		}
 
-		// Date
-		matcher = HttpPattern.strReResponseDate.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setDate(Util.readHttpDate(matcher.group(1), false));
+		case 'L':
+			// Last modified
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE && (valueStart = nameEnd(headerLine, "Last-Modified")) > 0) {
+				rrInfo.setLastModified(Util.readHttpDate(restOfLine(headerLine, valueStart), false));
+			}
 			return;
+
+		case 'R':
+			// Referer
+			if (rrInfo.getDirection() == HttpDirection.REQUEST && (valueStart = nameEnd(headerLine, "Referer")) > 0) {
+				String referrer = restOfLine(headerLine, valueStart);
+				try {
+					rrInfo.setReferrer(new URI(referrer.trim()));
+				} catch (URISyntaxException e) {
+					LOGGER.warn("Invalid referrer URI: " + referrer);
+				}
+			}
+			return;
+
+		case 'I':
+			if (rrInfo.getDirection() != HttpDirection.REQUEST) {
+				return;
+			}
+			// If-Modified-Since
+			if (nameEnd(headerLine, "If-Modified-Since") > 0) {
+				rrInfo.setIfModifiedSince(true);
+				return;
+			}
+
+			// If-None-Match
+			if (nameEnd(headerLine, "If-None-Match") > 0) {
+				rrInfo.setIfNoneMatch(true);
+			}
+			return;
+
+		default:
+			return;
+		}
+	}
+
+	private void parseContentLength(String value, HttpRequestResponseInfo rrInfo) {
+		try {
+			rrInfo.setContentLength(Integer.parseInt(value));
+		} catch (NumberFormatException e) {
+			/*
+			 * The value exceeds the Interger.MAX_VALUE i.e
+			 * 2^31-1=2147483647
+			 */
+			LOGGER.info("Cannot parse the string to int for contentLength,because" + " The value to parse is :" + value
+					+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
 		}
+	}
 
-		// Pragma: no-cache
-		matcher = HttpPattern.strReResponsePragmaNoCache.matcher(headerLine);
-		if (matcher.lookingAt()) {
+	private void parseContentType(String value, HttpRequestResponseInfo rrInfo) {
+		String[] str = value.trim().split(";");
+		rrInfo.setContentType(str[0].trim().toLowerCase());
+		for (int i = 1; i < str.length; ++i) {
+			int index = str[i].indexOf('=');
+			if (index >= 0) {
+				String attr = str[i].substring(0, index).trim();
+				if (CHARSET.equals(attr)) {
+					rrInfo.setCharset(str[i].substring(index+1).trim());
+				}
+			}
+		}
+	}
+
+	private void parseCacheControl(String value, HttpRequestResponseInfo rrInfo) {
+		String[] str = value.split(",");
+		if (str.length > 0) {
 			rrInfo.setHasCacheHeaders(true);
-			rrInfo.setPragmaNoCache(true);
-			return;
 		}
+		for (int i = 0; i < str.length; ++i) {
+			String directive = str[i].trim();
+			if (NOCACHE.equals(directive)) {
+				rrInfo.setNoCache(true);
+				continue;
+			} else if (NOSTORE.equals(directive)) {
+				rrInfo.setNoStore(true);
+				continue;
+			}
 
-		// Cache-Control
-		matcher = HttpPattern.strReResponseCacheControl.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			str = matcher.group(1).split(",");
-			if (str.length > 0) {
-				rrInfo.setHasCacheHeaders(true);
+			// max-age
+			String seconds = directiveSeconds(directive, MAXAGE);
+			if (seconds != null) {
+				rrInfo.setMaxAge(Long.valueOf(seconds));
+				continue;
 			}
-			for (int i = 0; i < str.length; ++i) {
-				String directive = str[i].trim();
-				if (NOCACHE.equals(directive)) {
-					rrInfo.setNoCache(true);
-					continue;
-				} else if (NOSTORE.equals(directive)) {
-					rrInfo.setNoStore(true);
+
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				if (ONLYIFCACHED.equals(directive)) { // only-if-cached
+					rrInfo.setOnlyIfCached(true);
 					continue;
 				}
 
-				// max-age
-				matcher = HttpPattern.strReCacheMaxAge.matcher(directive);
-				if (matcher.lookingAt()) {
-					rrInfo.setMaxAge(Long.valueOf(matcher.group(1)));
+				// min-fresh
+				seconds = directiveSeconds(directive, MINFRESH);
+				if (seconds != null) {
+					rrInfo.setMinFresh(Long.valueOf(seconds));
 					continue;
 				}
 
-				if (rrInfo.getDirection() == HttpDirection.REQUEST) {
-					if (ONLYIFCACHED.equals(directive)) { // only-if-cached
-						rrInfo.setOnlyIfCached(true);
-						continue;
-					}
-
-					// min-fresh
-					matcher = HttpPattern.strReCacheMinFresh.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setMinFresh(Long.valueOf(matcher.group(1)));
-						continue;
+				// max-stale, with an optional number of seconds
+				if (directive.startsWith(MAXSTALE)) {
+					int index = skipWhiteSpace(directive, MAXSTALE.length());
+					if (index < directive.length() && directive.charAt(index) == '=') {
+						rrInfo.setMaxStale(Long.valueOf(readDigits(directive, skipWhiteSpace(directive, index + 1))));
+					} else {
+						rrInfo.setMaxStale(Long.MAX_VALUE);
 					}
+					continue;
+				}
 
-					// max-stale
-					matcher = HttpPattern.strReCacheMaxStale.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setMaxStale(matcher.group(1) != null ? Long.valueOf(matcher.group(1)) : Long.MAX_VALUE);
-						continue;
-					}
+			} else if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				if (PUBLIC.equals(directive)) {
+					rrInfo.setPublicCache(true);
+					continue;
+				} else if (PRIVATE.equals(directive)) {
+					rrInfo.setPrivateCache(true);
+					continue;
+				} else if (MUSTREVALIDATE.equals(directive)) {
+					rrInfo.setMustRevalidate(true);
+					continue;
+				} else if (PROXYREVALIDATE.equals(directive)) {
+					rrInfo.setProxyRevalidate(true);
+					continue;
+				}
 
-				} else if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
-					if (PUBLIC.equals(directive)) {
-						rrInfo.setPublicCache(true);
-						continue;
-					} else if (PRIVATE.equals(directive)) {
-						rrInfo.setPrivateCache(true);
-						continue;
-					} else if (MUSTREVALIDATE.equals(directive)) {
-						rrInfo.setMustRevalidate(true);
-						continue;
-					} else if (PROXYREVALIDATE.equals(directive)) {
-						rrInfo.setProxyRevalidate(true);
-						continue;
-					}
+				// s-maxage
+				seconds = directiveSeconds(directive, SMAXAGE);
+				if (seconds != null) {
+					rrInfo.setsMaxAge(Long.valueOf(seconds));
+					continue;
+				}
 
-					// s-maxage
-					matcher = HttpPattern.strReCacheSMaxAge.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setsMaxAge(Long.valueOf(matcher.group(1)));
-						continue;
-					}
+			}
+		}
+	}
 
-				}
+	/**
+	 * ETag: optionally W/, then the tag between the first and the last double quote
+	 */
+	private void parseEtag(String headerLine, int valueStart, HttpRequestResponseInfo rrInfo) {
+		int index = skipWhiteSpace(headerLine, valueStart);
+		if (headerLine.startsWith("W/", index)) {
+			index += 2;
+		}
+		if (index < headerLine.length() && headerLine.charAt(index) == '"') {
+			int end = headerLine.lastIndexOf('"', lineEnd(headerLine, index + 1) - 1);
+			if (end > index) {
+				rrInfo.setEtag(headerLine.substring(index + 1, end));
 			}
-			return;
 		}
+	}
 
-		if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+	/**
+	 * Content-Range: bytes first-last/full
+	 */
+	private void parseContentRange(String headerLine, int valueStart, HttpRequestResponseInfo rrInfo) {
+		int index = skipWhiteSpace(headerLine, valueStart);
+		if (!headerLine.startsWith(BYTES, index)) {
+			return;
+		}
+		index += BYTES.length();
+		String first = readDigits(headerLine, index);
+		index = skipWhiteSpace(headerLine, index + first.length());
+		if (index >= headerLine.length() || headerLine.charAt(index) != '-') {
+			return;
+		}
+		index = skipWhiteSpace(headerLine, index + 1);
+		String last = readDigits(headerLine, index);
+		index = skipWhiteSpace(headerLine, index + last.length());
+		if (index >= headerLine.length() || headerLine.charAt(index) != '/') {
+			return;
+		}
+		String full = readDigits(headerLine, skipWhiteSpace(headerLine, index + 1));
+
+		rrInfo.setRangeResponse(true);
+		rrInfo.setRangeFirst(Integer.parseInt(first));
+		try {
+			rrInfo.setRangeLast(Integer.parseInt(last));
+		} catch (NumberFormatException e) {
+			/*
+			 * The value exceeds the Interger.MAX_VALUE i.e
+			 * 2^31-1=2147483647. Continue.
+			 */
+			LOGGER.info("Cannot parse the string to int for rangeLast,because" + " The value to parse is :" + last
+					+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
 
-			// ETag
-			matcher = HttpPattern.strReResponseEtag.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setEtag(matcher.group(2));
-				return;
-			}
+		}
+		rrInfo.setRangeFull(Long.parseLong(full));
 
-			// Age
-			matcher = HttpPattern.strReResponseAge.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				String age = matcher.group(1);
-				if (StringUtils.isNotBlank(age) && StringUtils.isNumeric(age)) {
-					rrInfo.setAge(Long.valueOf(matcher.group(1)));
-				}
+		if (rrInfo.getContentLength() == 0) {
+			rrInfo.setContentLength(rrInfo.getRangeLast() - rrInfo.getRangeFirst() + 1);
+		}
+	}
 
-				return;
+	/**
+	 * @return the position after the colon when the line starts with name, each capital letter of it in either case,
+	 *         immediately followed by a colon, else -1
+	 */
+	private static int foldedNameEnd(String line, String name) {
+		int length = name.length();
+		if (line.length() <= length || line.charAt(length) != ':') {
+			return -1;
+		}
+		for (int index = 0; index < length; index++) {
+			char expected = name.charAt(index);
+			char actual = line.charAt(index);
+			if (actual != expected && !(Character.isUpperCase(expected) && actual == Character.toLowerCase(expected))) {
+				return -1;
 			}
+		}
+		return length + 1;
+	}
 
-			// Expires
-			matcher = HttpPattern.strReResponseExpires.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setExpires(Util.readHttpDate(matcher.group(1), true));
-				return;
-			}
+	/**
+	 * @return the position after the colon when the line starts with name, white space and a colon, else -1
+	 */
+	private static int nameEnd(String line, String name) {
+		return nameEnd(line, name, -1);
+	}
 
-			// Last modified
-			matcher = HttpPattern.strReResponseLastMod.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setLastModified(Util.readHttpDate(matcher.group(1), false));
-				return;
+	/**
+	 * @param foldedIndex
+	 *            position of a capital letter of the name that may be in either case, -1 for none
+	 * @return the position after the colon when the line starts with name, white space and a colon, else -1
+	 */
+	private static int nameEnd(String line, String name, int foldedIndex) {
+		if (foldedIndex < 0) {
+			if (!line.startsWith(name)) {
+				return -1;
 			}
+		} else if (!line.regionMatches(0, name, 0, foldedIndex) || !line.regionMatches(foldedIndex + 1, name, foldedIndex + 1, name.length() - foldedIndex - 1)
+				|| Character.toUpperCase(line.charAt(foldedIndex)) != name.charAt(foldedIndex)) {
+			return -1;
+		}
+		int index = skipWhiteSpace(line, name.length());
+		return index < line.length() && line.charAt(index) == ':' ? index + 1 : -1;
+	}
 
-			// Content-Range
-			matcher = HttpPattern.strReContentRange.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setRangeResponse(true);
-				rrInfo.setRangeFirst(Integer.parseInt(matcher.group(1)));
-				try {
-					rrInfo.setRangeLast(Integer.parseInt(matcher.group(2)));
-				} catch (NumberFormatException e) {
-					/*
-					 * The value exceeds the Interger.MAX_VALUE i.e
-					 * 2^31-1=2147483647. Continue.
-					 */
-					LOGGER.info("Cannot parse the string to int for rangeLast,because" + " The value to parse is :" + matcher.group(2)
-							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+	/**
+	 * @return the digits of a directive "name = digits", null when it is not one
+	 */
+	private static String directiveSeconds(String directive, String name) {
+		if (!directive.startsWith(name)) {
+			return null;
+		}
+		int index = skipWhiteSpace(directive, name.length());
+		if (index >= directive.length() || directive.charAt(index) != '=') {
+			return null;
+		}
+		String digits = readDigits(directive, skipWhiteSpace(directive, index + 1));
+		return digits.isEmpty() ? null : digits;
+	}
 
-				}
-				rrInfo.setRangeFull(Long.parseLong(matcher.group(3)));
+	private static int skipWhiteSpace(String text, int start) {
+		int index = start;
+		while (index < text.length() && isWhiteSpace(text.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
 
-				if (rrInfo.getContentLength() == 0) {
-					rrInfo.setContentLength(rrInfo.getRangeLast() - rrInfo.getRangeFirst() + 1);
-				}
-				return;
-			}
+	private static String readDigits(String text, int start) {
+		int index = start;
+		while (index < text.length() && text.charAt(index) >= '0' && text.charAt(index) <= '9') {
+			index++;
+		}
+		return text.substring(start, index);
+	}
 
-		} else if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+	/**
+	 * @return the text from start up to the end of the line, without the line terminator
+	 */
+	private static String restOfLine(String line, int start) {
+		return line.substring(start, lineEnd(line, start));
+	}
 
-			// Referer
-			matcher = HttpPattern.strReResponseReferer.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				try {
-					rrInfo.setReferrer(new URI(matcher.group(1).trim()));
-				} catch (URISyntaxException e) {
-					LOGGER.warn("Invalid referrer URI: " + matcher.group(1));
-				}
-				return;
-			}
+	private static int lineEnd(String line, int start) {
+		int index = start;
+		while (index < line.length() && !isLineTerminator(line.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
 
-			// If-Modified-Since
-			matcher = HttpPattern.strReIfModifiedSince.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setIfModifiedSince(true);
-				return;
-			}
+	// same as \s in a regular expression
+	private static boolean isWhiteSpace(char character) {
+		return character == ' ' || character == '\t' || character == '\n' || character == '\u000B' || character == '\f'
+				|| character == '\r';
+	}
 
-			// If-None-Match
-			matcher = HttpPattern.strReIfNoneMatch.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setIfNoneMatch(true);
-				return;
-			}
-		}
+	// characters . does not match in a regular expression
+	private static boolean isLineTerminator(char character) {
+		return character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028'
+				|| character == '\u2029';
 	}
 
 	private void appendHeaderToHttpRequestResponseInfo(String line, HttpRequestResponseInfo rrInfo) {
 		if (rrInfo != null) {
-			StringBuilder headersBuilder;
-			if (rrInfo.getAllHeaders() == null) {
-				headersBuilder = new StringBuilder();
-			} else {
-				headersBuilder = new StringBuilder(rrInfo.getAllHeaders());
-			}
-			headersBuilder.append(HEADERS_SEPARATOR).append(line);
+			String allHeaders = rrInfo.getAllHeaders() == null ? "" : rrInfo.getAllHeaders();
+			StringBuilder headersBuilder = new StringBuilder(allHeaders.length() + 1 + line.length());
+			headersBuilder.append(allHeaders).append(HEADERS_SEPARATOR).append(line);
 			rrInfo.setAllHeaders(headersBuilder.toString());
 		}
 	}
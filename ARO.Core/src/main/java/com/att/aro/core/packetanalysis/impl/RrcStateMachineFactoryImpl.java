@@ -15,7 +15,6 @@
 */
 package com.att.aro.core.packetanalysis.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,10 +29,12 @@ import com.att.aro.core.packetanalysis.IRrcStateMachineFactory;
 import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
 import com.att.aro.core.packetanalysis.pojo.AbstractRrcStateMachine;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachine3G;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachineLTE;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachineWiFi;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetanalysis.pojo.RrcStateRangeIndex;
 import com.att.aro.core.packetanalysis.pojo.TimeRange;
 
 /**
@@ -51,49 +52,49 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 			Profile profile, double packetDuration, double traceDuration, double totalBytes,
 			TimeRange timerange) {
 		List<RrcStateRange> staterangelist = staterange.create(packetlist, profile, traceDuration);
+		// energy of each range is computed once here, for a time range only the ranges inside it
+		RrcStateRangeIndex stateIndex;
 		if(timerange != null){
-			staterangelist = this.getRRCStatesForTheTimeRange(staterangelist, timerange.getBeginTime(), timerange.getEndTime());
+			stateIndex = RrcStateRangeIndex.window(staterangelist, timerange.getBeginTime(), timerange.getEndTime(), getEnergyFunction(profile, packetlist));
+			staterangelist = stateIndex.getRanges();
+		}else{
+			stateIndex = new RrcStateRangeIndex(staterangelist, getEnergyFunction(profile, packetlist));
 		}
 		AbstractRrcStateMachine data = null;
 		if(profile.getProfileType() == ProfileType.T3G){
-			data = run3GRRcStatistics(staterangelist, (Profile3G)profile, totalBytes, packetDuration, traceDuration);
+			data = run3GRRcStatistics(stateIndex, totalBytes, packetDuration, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.LTE){
-			data = runLTERRcStatistics(staterangelist, (ProfileLTE)profile, packetlist, totalBytes, packetDuration, traceDuration);
+			data = runLTERRcStatistics(stateIndex, totalBytes, packetDuration, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.WIFI){
-			data = runWiFiRRcStatistics(staterangelist, (ProfileWiFi)profile, totalBytes, packetDuration, traceDuration);
+			data = runWiFiRRcStatistics(stateIndex, totalBytes, packetDuration, traceDuration);
 		}
 		if(data != null){
 			data.setStaterangelist(staterangelist);
+			data.setStateIndex(stateIndex);
 		}
 		return data;
 	}
-	private RrcStateMachineWiFi runWiFiRRcStatistics(List<RrcStateRange> staterangelist, ProfileWiFi prof,
+	
+	private RrcStateRangeIndex.EnergyFunction getEnergyFunction(Profile profile, List<PacketInfo> packetlist) {
+		if (profile.getProfileType() == ProfileType.T3G) {
+			return (beginTime, endTime, state) -> profilefactory.energy3G(beginTime, endTime, state, (Profile3G) profile);
+		} else if (profile.getProfileType() == ProfileType.LTE) {
+			return (beginTime, endTime, state) -> profilefactory.energyLTE(beginTime, endTime, state, (ProfileLTE) profile, packetlist);
+		} else if (profile.getProfileType() == ProfileType.WIFI) {
+			return (beginTime, endTime, state) -> profilefactory.energyWiFi(beginTime, endTime, state, (ProfileWiFi) profile);
+		}
+		return null;
+	}
+	
+	private RrcStateMachineWiFi runWiFiRRcStatistics(RrcStateRangeIndex stateIndex,
 			double totalBytes, double packetDuration, double traceDuration) {
-		double totalRRCEnergy = 0, wifiActiveTime = 0, wifiActiveEnergy = 0, wifiTailTime = 0;
-		double wifiTailEnergy = 0, wifiIdleTime = 0, wifiIdleEnergy = 0;
-		for (RrcStateRange rrc : staterangelist) {
-			double rrcTimeDiff = rrc.getEndTime() - rrc.getBeginTime();
-			double energy = profilefactory.energyWiFi(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState(), prof);
-			totalRRCEnergy += energy;
-			switch (rrc.getState()) {
-			case WIFI_ACTIVE:
-				wifiActiveTime += rrcTimeDiff;
-				wifiActiveEnergy += energy;
-				break;
-			case WIFI_TAIL:
-				//wifiActiveTime += rrcTimeDiff;
-				wifiActiveEnergy += energy;
-				wifiTailTime += rrcTimeDiff;
-				wifiTailEnergy += energy;
-				break;
-			case WIFI_IDLE:
-				wifiIdleTime += rrcTimeDiff;
-				wifiIdleEnergy += energy;
-				break;
-			default:
-				break;
-			}
-			}
+		double totalRRCEnergy = stateIndex.getTotalEnergy();
+		double wifiActiveTime = stateIndex.getDuration(RRCState.WIFI_ACTIVE);
+		double wifiTailTime = stateIndex.getDuration(RRCState.WIFI_TAIL);
+		double wifiTailEnergy = stateIndex.getEnergy(RRCState.WIFI_TAIL);
+		double wifiActiveEnergy = stateIndex.getEnergy(RRCState.WIFI_ACTIVE) + wifiTailEnergy;
+		double wifiIdleTime = stateIndex.getDuration(RRCState.WIFI_IDLE);
+		double wifiIdleEnergy = stateIndex.getEnergy(RRCState.WIFI_IDLE);
 		double bytes = totalBytes;
 		double joulesPerKilobyte = bytes != 0 ? totalRRCEnergy / (bytes / 1000.0) : 0.0;
 		RrcStateMachineWiFi stmachine = new RrcStateMachineWiFi();
@@ -115,48 +116,21 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 	/**
 	 * LTE RRC state time modification.
 	 */
-	private RrcStateMachineLTE runLTERRcStatistics(List<RrcStateRange> staterangelist, ProfileLTE profile, List<PacketInfo> packets,
+	private RrcStateMachineLTE runLTERRcStatistics(RrcStateRangeIndex stateIndex,
 			double totalBytes, double packetsDuration, double traceDuration) {
-		double totalRRCEnergy = 0, lteIdleTime = 0, lteIdleEnergy = 0, lteIdleToCRPromotionTime = 0;
-		double lteIdleToCRPromotionEnergy = 0, lteCrTime = 0, lteCrEnergy = 0, lteCrTailTime = 0;
-		double lteCrTailEnergy = 0, lteDrxShortTime = 0, lteDrxShortEnergy = 0, lteDrxLongTime = 0;
-		double lteDrxLongEnergy = 0;
-		for (RrcStateRange rrc : staterangelist) {
-			double duration = rrc.getEndTime() - rrc.getBeginTime();
-			double energy = profilefactory.energyLTE(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState(), profile, packets);
-			totalRRCEnergy += energy;
-			switch (rrc.getState()) {
-			case LTE_IDLE:
-				lteIdleTime += duration;
-				lteIdleEnergy += energy;
-				break;
-			case LTE_PROMOTION:
-				lteIdleToCRPromotionTime += duration;
-				lteIdleToCRPromotionEnergy += energy;
-				break;
-			case LTE_CONTINUOUS:
-				lteCrTime += duration;
-				lteCrEnergy += energy;
-				break;
-			case LTE_CR_TAIL:
-				lteCrTime += duration;
-				lteCrTailTime += duration;
-				lteCrEnergy += energy;
-				lteCrTailEnergy += energy;
-				break;
-			case LTE_DRX_SHORT:
-				lteDrxShortTime += duration;
-				lteDrxShortEnergy += energy;
-				break;
-			case LTE_DRX_LONG:
-				lteDrxLongTime += duration;
-				lteDrxLongEnergy += energy;
-				break;
-			default:
-				break;
-			}
-			rrc.setEnergy(energy);
-		}
+		double totalRRCEnergy = stateIndex.getTotalEnergy();
+		double lteIdleTime = stateIndex.getDuration(RRCState.LTE_IDLE);
+		double lteIdleEnergy = stateIndex.getEnergy(RRCState.LTE_IDLE);
+		double lteIdleToCRPromotionTime = stateIndex.getDuration(RRCState.LTE_PROMOTION);
+		double lteIdleToCRPromotionEnergy = stateIndex.getEnergy(RRCState.LTE_PROMOTION);
+		double lteCrTailTime = stateIndex.getDuration(RRCState.LTE_CR_TAIL);
+		double lteCrTailEnergy = stateIndex.getEnergy(RRCState.LTE_CR_TAIL);
+		double lteCrTime = stateIndex.getDuration(RRCState.LTE_CONTINUOUS) + lteCrTailTime;
+		double lteCrEnergy = stateIndex.getEnergy(RRCState.LTE_CONTINUOUS) + lteCrTailEnergy;
+		double lteDrxShortTime = stateIndex.getDuration(RRCState.LTE_DRX_SHORT);
+		double lteDrxShortEnergy = stateIndex.getEnergy(RRCState.LTE_DRX_SHORT);
+		double lteDrxLongTime = stateIndex.getDuration(RRCState.LTE_DRX_LONG);
+		double lteDrxLongEnergy = stateIndex.getEnergy(RRCState.LTE_DRX_LONG);
 		double bytes = totalBytes;
 		double joulesPerKilobyte = bytes != 0 ? totalRRCEnergy / (bytes / 1000.0) : 0.0;
 		RrcStateMachineLTE stmachine = new RrcStateMachineLTE();
@@ -186,57 +160,27 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 	/**
 	 * 3G RRC state time modification.
 	 */
-	private RrcStateMachine3G run3GRRcStatistics(List<RrcStateRange> staterangelist,
-			Profile3G prof3g, double totalBytes, double packetsDuration, double traceDuration) {
+	private RrcStateMachine3G run3GRRcStatistics(RrcStateRangeIndex stateIndex,
+			double totalBytes, double packetsDuration, double traceDuration) {
 		
-		double idleTime = 0, idleEnergy = 0, dchTime = 0, dchEnergy = 0, dchTailTime =0, dchTailEnergy=0;
-		double fachTime=0, fachEnergy=0, fachTailTime=0;
-		double fachTailEnergy=0, idleToDch=0, idleToDchTime=0, idleToDchEnergy=0, fachToDch=0;
-		double fachToDchTime=0, fachToDchEnergy=0;
+		double idleTime = stateIndex.getDuration(RRCState.STATE_IDLE);
+		double idleEnergy = stateIndex.getEnergy(RRCState.STATE_IDLE);
+		double dchTime = stateIndex.getDuration(RRCState.STATE_DCH);
+		double dchTailTime = stateIndex.getDuration(RRCState.TAIL_DCH);
+		double dchTailEnergy = stateIndex.getEnergy(RRCState.TAIL_DCH);
+		double dchEnergy = stateIndex.getEnergy(RRCState.STATE_DCH) + dchTailEnergy;
+		double fachTailTime = stateIndex.getDuration(RRCState.TAIL_FACH);
+		double fachTailEnergy = stateIndex.getEnergy(RRCState.TAIL_FACH);
+		double fachTime = stateIndex.getDuration(RRCState.STATE_FACH) + fachTailTime;
+		double fachEnergy = stateIndex.getEnergy(RRCState.STATE_FACH) + fachTailEnergy;
+		double idleToDch = stateIndex.getCount(RRCState.PROMO_IDLE_DCH);
+		double idleToDchTime = stateIndex.getDuration(RRCState.PROMO_IDLE_DCH);
+		double idleToDchEnergy = stateIndex.getEnergy(RRCState.PROMO_IDLE_DCH);
+		double fachToDch = stateIndex.getCount(RRCState.PROMO_FACH_DCH);
+		double fachToDchTime = stateIndex.getDuration(RRCState.PROMO_FACH_DCH);
+		double fachToDchEnergy = stateIndex.getEnergy(RRCState.PROMO_FACH_DCH);
 		RrcStateMachine3G statemachine = new RrcStateMachine3G();
 		
-		for (RrcStateRange rrc : staterangelist) {
-			double energy = profilefactory.energy3G(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState(), prof3g);
-			double duration = rrc.getEndTime() - rrc.getBeginTime();
-			switch (rrc.getState()) {
-			case STATE_IDLE:
-				idleTime += duration;
-				idleEnergy += energy;
-				break;
-			case STATE_DCH:
-				dchTime += duration;
-				dchEnergy += energy;
-				break;
-			case TAIL_DCH:
-				//dchTime += duration;
-				dchTailTime += duration;
-				dchEnergy += energy;
-				dchTailEnergy += energy;
-				break;
-			case STATE_FACH:
-				fachTime += duration;
-				fachEnergy += energy;
-				break;
-			case TAIL_FACH:
-				fachTime += duration;
-				fachTailTime += duration;
-				fachTailEnergy += energy;
-				fachEnergy += energy;
-				break;
-			case PROMO_IDLE_DCH:
-				idleToDch++;
-				idleToDchTime += duration;
-				idleToDchEnergy += energy;
-				break;
-			case PROMO_FACH_DCH:
-				fachToDch++;
-				fachToDchTime += duration;
-				fachToDchEnergy += energy;
-				break;
-			default:
-				break;
-			}
-		}
 		double totalRRCEnergy = fachEnergy + dchEnergy + fachToDchEnergy + idleToDchEnergy
 				+ idleEnergy;
 		double bytes = totalBytes;
@@ -268,34 +212,5 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 		
 		return statemachine;
 	}
-	private List<RrcStateRange> getRRCStatesForTheTimeRange(List<RrcStateRange> rrcRanges , double beginTime , double endTime){
-		
-		List<RrcStateRange> filteredRRCStates = new ArrayList<RrcStateRange>();
-		boolean stateAdded = false;
-
-		for (RrcStateRange rrcRange : rrcRanges) {
-
-			if (rrcRange.getBeginTime() >= beginTime
-					&& rrcRange.getEndTime() <= endTime) {
-				filteredRRCStates.add(rrcRange);
-			} else if (rrcRange.getBeginTime() <= beginTime
-					&& rrcRange.getEndTime() <= endTime && rrcRange.getEndTime() > beginTime) {
-				filteredRRCStates.add(new RrcStateRange(beginTime, rrcRange
-						.getEndTime(), rrcRange.getState()));
-			} else if (rrcRange.getBeginTime() <= beginTime
-					&& rrcRange.getEndTime() >= endTime) {
-				filteredRRCStates.add(new RrcStateRange(beginTime, endTime,
-						rrcRange.getState()));
-			} else if (rrcRange.getBeginTime() >= beginTime && rrcRange.getBeginTime() < endTime
-					&& rrcRange.getEndTime() >= endTime && !stateAdded) {
-				filteredRRCStates.add(new RrcStateRange(rrcRange
-						.getBeginTime(), endTime, rrcRange
-						.getState()));
-				stateAdded = true;
-			}
-		}
-		return filteredRRCStates;
-		
-	}
 
 }
@@ -16,6 +16,7 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -319,6 +320,10 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 			DchDemotionQueue dchDemotionQueue = new DchDemotionQueue(profile);
 			FachQueue fachQueue = new FachQueue(profile);
 
+			// uplink packets of the current run of packets on FACH, oldest first
+			int[] fachUplinks = new int[16];
+			int fachUplinkCount = 0;
+
 			// Set up initial packet
 			PacketInfo prevPacket = packetInfos.get(0);
 			double currTimeStamp = prevPacket.getTimeStamp();
@@ -608,58 +613,44 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 												// promotion after some previous
 												// packet
 										boolean bFixed = false;
-										for (int ii = i - 1; ii > 0; ii--) {
-											PacketInfo earlierPacket = packetInfos.get(ii);
-											if (earlierPacket.getStateMachine() == RRCState.STATE_FACH) {
-												// FACH-DCH promo: from
-												// packets[ii].ts to
-												// packets[ii].ts+y
-												// DCH: from packets[ii].ts+y to
-												// tMax
-
-												double piTimeStamp = packetInfos.get(ii).getTimeStamp();
-												if (earlierPacket.getDir() == PacketDirection.UPLINK
-														&& currTimeStamp >= piTimeStamp + fachDchPromoMin) {
-													int resultSize = result.size() - 1;
-													// boolean bDone = false;
-													for (int jj = resultSize; jj > 0; jj--) {
-														// double EPS = 1e-4;
-														if (result.get(jj).getBeginTime() == piTimeStamp) {
-
-															for (int k = 0; k < resultSize - jj + 1; k++) {
-																result.remove(result.size() - 1);
-															}
-
-															double avgDchPromo;
-															if (currTimeStamp >= piTimeStamp
-																	+ fachDchPromoAvg) {
-																avgDchPromo = fachDchPromoAvg;
-															} else {
-																avgDchPromo = fachDchPromoMin;
-															}
-
-															result.add(new RrcStateRange(piTimeStamp, piTimeStamp
-																	+ avgDchPromo, RRCState.PROMO_FACH_DCH));
-															result.add(new RrcStateRange(piTimeStamp + avgDchPromo,
-																	prevTimeStamp,
-																	RRCState.STATE_DCH));
-
-															prevTimeStamp = addStateRangeEx(result,
-																	prevTimeStamp,
-																	Double.MAX_VALUE,
-																	RRCState.STATE_DCH,
-																	currTimeStamp);
-															break;
-														}
-														// #undef EPS
-
+										// only uplink packets of the FACH run just before this one qualify,
+										// newest first
+										for (int run = fachUplinkCount - 1; run >= 0; run--) {
+											// FACH-DCH promo: from pi.ts to pi.ts+y
+											// DCH: from pi.ts+y to tMax
+
+											double piTimeStamp = packetInfos.get(fachUplinks[run]).getTimeStamp();
+											if (currTimeStamp >= piTimeStamp + fachDchPromoMin) {
+												// the range to rewrite from is among the ones added since that packet
+												int jj = result.size() - 1;
+												while (jj > 0 && result.get(jj).getBeginTime() != piTimeStamp) {
+													jj--;
+												}
+												if (jj > 0) {
+													result.subList(jj, result.size()).clear();
+
+													double avgDchPromo;
+													if (currTimeStamp >= piTimeStamp
+															+ fachDchPromoAvg) {
+														avgDchPromo = fachDchPromoAvg;
+													} else {
+														avgDchPromo = fachDchPromoMin;
 													}
 
-													bFixed = true;
-													break;
+													result.add(new RrcStateRange(piTimeStamp, piTimeStamp
+															+ avgDchPromo, RRCState.PROMO_FACH_DCH));
+													result.add(new RrcStateRange(piTimeStamp + avgDchPromo,
+															prevTimeStamp,
+															RRCState.STATE_DCH));
+
+													prevTimeStamp = addStateRangeEx(result,
+															prevTimeStamp,
+															Double.MAX_VALUE,
+															RRCState.STATE_DCH,
+															currTimeStamp);
 												}
 
-											} else {
+												bFixed = true;
 												break;
 											}
 										}
@@ -715,6 +706,14 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 				if (packet != null) {
 					packet.setStateMachine(state);
 				}
+				if (state != RRCState.STATE_FACH) {
+					fachUplinkCount = 0;
+				} else if (dir == PacketDirection.UPLINK) {
+					if (fachUplinkCount == fachUplinks.length) {
+						fachUplinks = Arrays.copyOf(fachUplinks, fachUplinkCount * 2);
+					}
+					fachUplinks[fachUplinkCount++] = i;
+				}
 				prevPacket = packet;
 			}
 		}
@@ -13,9 +13,7 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
@@ -24,19 +22,23 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -69,11 +71,19 @@ public class SessionManagerImpl implements ISessionManager {
 
 	private String tracePath = "";
 
-	private IByteArrayLineReader storageReader;
-	
 	private static final byte TLS_APPLICATION_DATA = 23;
 	
 	private static final int AVG_QUIC_UDP_PACKET_SIZE = 100;
+
+	private final ForkJoinPool sessionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Stops the session analysis threads when the application context is closed
+	 */
+	@PreDestroy
+	public void shutdown() {
+		sessionPool.shutdown();
+	}
 	
 	private double pcapTimeOffset;
 	
@@ -85,11 +95,6 @@ public class SessionManagerImpl implements ISessionManager {
 		this.pcapTimeOffset = pcapTimeOffset;
 	}
 
-	@Autowired
-	public void setByteArrayLineReader(IByteArrayLineReader reader) {
-		this.storageReader = reader;
-	}
-
 	public void setiOSSecureTracePath(String tracePath) {
 		this.tracePath = tracePath + Util.FILE_SEPARATOR + "iosSecure" + Util.FILE_SEPARATOR;
 	}
@@ -115,19 +120,30 @@ public class SessionManagerImpl implements ISessionManager {
 	 * returns List<Session> sessionList
 	 */
 	public List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets) {
+		return processPacketsAndAssembleSessions(packets, null);
+	}
+
+	public List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets, int[] packetSessions) {
 
 		LOGGER.warn("processPacketsAndAssembleSessions -> Trace path: " + tracePath);
+		if (packetSessions != null && !isRecorded(packets, packetSessions)) {
+			LOGGER.warn("Recorded sessions do not match the packets, looking up the flow of each packet");
+			packetSessions = null;
+		}
 		List<Session> sessions = new ArrayList<>();
 		List<PacketInfo> udpPackets = new ArrayList<>();
 		Map<InetAddress, String> hostMap = new HashMap<>();
-		Map<String, Session> udpSessions = new LinkedHashMap<>();
+		Session[] recordedSessions = packetSessions != null ? new Session[packets.size()] : null;
+		SessionTable udpSessions = new SessionTable(packetSessions, recordedSessions);
 		Map<String, PacketInfo> dnsRequestDomains = new HashMap<>();
-		Map<String, List<Session>> tcpSessions = new LinkedHashMap<>();
+		SessionTable tcpSessions = new SessionTable(packetSessions, recordedSessions);
 		Map<InetAddress, PacketInfo> dnsResponsePackets = new HashMap<>();
 
 		if (packets != null) {
+			int packetIndex = -1;
 			for (PacketInfo packetInfo : packets) {
 				Packet packet = packetInfo.getPacket();
+				packetIndex++;
 
 				if (packet instanceof UDPPacket) { // UDP
 					udpPackets.add(packetInfo);
@@ -142,11 +158,11 @@ public class SessionManagerImpl implements ISessionManager {
 							dnsRequestDomains.put(dns.getDomainName(), packetInfo);
 						}
 					}
-					associatePacketToUDPSessionAndPopulateCollections(sessions, udpSessions, packetInfo, (UDPPacket) packet);
+					associatePacketToUDPSessionAndPopulateCollections(sessions, udpSessions, packetIndex, packetInfo, (UDPPacket) packet);
 				} else if (packet instanceof TCPPacket) { // TCP
 					TCPPacket tcpPacket = (TCPPacket) packet;
 					packetInfo.setTcpInfo(null);
-					Session session = associatePacketToTCPSessionAndPopulateCollections(sessions, tcpSessions, packetInfo, tcpPacket);
+					Session session = associatePacketToTCPSessionAndPopulateCollections(sessions, tcpSessions, packetIndex, packetInfo, tcpPacket);
 
 					populateTCPPacketInfo(packetInfo, tcpPacket);
 
@@ -175,8 +191,7 @@ public class SessionManagerImpl implements ISessionManager {
 						session.getAppNames().add(packetInfo.getAppName());
 					}
 					
-					if (!session.isSessionComplete() && (packetInfo.getTcpFlagString().contains("R")
-							|| packetInfo.getTcpFlagString().contains("F"))) {
+					if (!session.isSessionComplete() && (tcpPacket.isRST() || tcpPacket.isFIN())) {
 						session.setSessionComplete(true);
 					}
 					
@@ -269,7 +284,7 @@ public class SessionManagerImpl implements ISessionManager {
 	 * @param packet
 	 * @return Session of UDP packets
 	 */
-	private Session associatePacketToUDPSessionAndPopulateCollections(List<Session> sessions, Map<String, Session> udpSessions, PacketInfo packetInfo, UDPPacket packet) {
+	private Session associatePacketToUDPSessionAndPopulateCollections(List<Session> sessions, SessionTable udpSessions, int packetIndex, PacketInfo packetInfo, UDPPacket packet) {
 
 		int localPort;
 		int remotePort;
@@ -299,9 +314,9 @@ public class SessionManagerImpl implements ISessionManager {
 			break;
 		}
 
-		String sessionKey = localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
-		if (!udpSessions.containsKey(sessionKey)) {
-			session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
+		session = udpSessions.get(packetIndex, localIP, localPort, remoteIP, remotePort);
+		if (session == null) {
+			session = new Session(localIP, remoteIP, remotePort, localPort, getSessionKey(localIP, localPort, remoteIP, remotePort));
 			if (packet.isDNSPacket()) {
 				DomainNameSystem dns = packet.getDns();
 				if (dns != null) {
@@ -314,16 +329,14 @@ public class SessionManagerImpl implements ISessionManager {
 			}
 			session.setUdpOnly(true);
 			sessions.add(session);
-			udpSessions.put(sessionKey, session);
-		} else {
-			session = udpSessions.get(sessionKey);
+			udpSessions.put(packetIndex, localIP, localPort, remoteIP, remotePort, session);
 		}
 		session.setBytesTransferred(session.getBytesTransferred() + packetInfo.getPayloadLen());
 		session.addUdpPacket(packetInfo);
 		return session;
 	}
 
-	private Session associatePacketToTCPSessionAndPopulateCollections(List<Session> sessions, Map<String, List<Session>> tcpSessions, PacketInfo packetInfo, TCPPacket tcpPacket) {
+	private Session associatePacketToTCPSessionAndPopulateCollections(List<Session> sessions, SessionTable tcpSessions, int packetIndex, PacketInfo packetInfo, TCPPacket tcpPacket) {
 
 		int localPort;
 		int remotePort;
@@ -355,26 +368,23 @@ public class SessionManagerImpl implements ISessionManager {
 			break;
 		}
 
-		String sessionKey = localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
+		// the table holds the latest session of each flow, the session key string is only built for a new session
+		session = tcpSessions.get(packetIndex, localIP, localPort, remoteIP, remotePort);
 
-		if (!tcpSessions.containsKey(sessionKey)) {
+		if (session == null) {
 
-			session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
+			session = new Session(localIP, remoteIP, remotePort, localPort, getSessionKey(localIP, localPort, remoteIP, remotePort));
 			sessions.add(session);
-			List<Session> tcpSessionList = new ArrayList<>();
-			tcpSessionList.add(session);
-			tcpSessions.put(sessionKey, tcpSessionList);
+			tcpSessions.put(packetIndex, localIP, localPort, remoteIP, remotePort, session);
 
 		} else {
 
-			session = (tcpSessions.get(sessionKey)).get(tcpSessions.get(sessionKey).size() - 1);
-
 			if (tcpPacket.isSYN() && packetInfo.getDir().equals(PacketDirection.UPLINK)) {
 
 				if (!session.getUplinkPacketsSortedBySequenceNumbers().containsKey(tcpPacket.getSequenceNumber())) {
-					session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
+					session = new Session(localIP, remoteIP, remotePort, localPort, session.getSessionKey());
 					sessions.add(session);
-					tcpSessions.get(sessionKey).add(session);
+					tcpSessions.put(packetIndex, localIP, localPort, remoteIP, remotePort, session);
 
 				} else {
 					tcpPacket.setRetransmission(true);
@@ -414,247 +424,285 @@ public class SessionManagerImpl implements ISessionManager {
 		return session;
 	}
 
+	/**
+	 * Every TCP and UDP packet needs a recorded session
+	 */
+	private boolean isRecorded(List<PacketInfo> packets, int[] packetSessions) {
+		if (packets == null || packets.size() != packetSessions.length) {
+			return false;
+		}
+		for (int index = 0; index < packetSessions.length; index++) {
+			Packet packet = packets.get(index).getPacket();
+			if ((packet instanceof TCPPacket || packet instanceof UDPPacket) && (packetSessions[index] < 0 || packetSessions[index] >= packetSessions.length)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String getSessionKey(InetAddress localIP, int localPort, InetAddress remoteIP, int remotePort) {
+		return localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
+	}
+
 	/**
 	 * Traverse all Sessions of all types UDP/TCP/
 	 * 
+	 * Each session only touches its own packets, so sessions are analyzed in parallel. The sessions list keeps its
+	 * order and every session holds its own results, so the output does not depend on scheduling.
+	 * 
 	 * @param sessions
 	 */
 	private void analyzeRequestResponses(List<Session> sessions) {
-
-		ArrayList<HttpRequestResponseInfo> results;
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(sessions.size());
 		for (Session session : sessions) {
-			int limit = 0;
-			results = new ArrayList<>();
-			PacketInfo previousPacket = null;
-			if (session.isUdpOnly()) { // UDP
-				HttpRequestResponseInfo rrInfo = null;
-				HttpRequestResponseInfo recentUpRRInfo = null;
-				HttpRequestResponseInfo recentDnRRInfo = null;
-				for (PacketInfo udpPacketInfo : session.getUdpPackets()) {
-					try {
-						switch (udpPacketInfo.getDir()) {
-						case UPLINK:
-							if (!session.isDataInaccessible()) {
-								rrInfo = extractHttpRequestResponseInfo(results, session, udpPacketInfo, udpPacketInfo.getDir(), previousPacket, limit);
+			tasks.add(sessionPool.submit(() -> analyzeRequestResponses(session)));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	/**
+	 * Reassemble the request/response objects of a single session, using a line reader and buffer confined to this call
+	 * 
+	 * @param session
+	 */
+	private void analyzeRequestResponses(Session session) {
+
+		IByteArrayLineReader storageReader = new ByteArrayLineReaderImpl();
+		ReassemblyBuffer buffer = new ReassemblyBuffer();
+		int limit = 0;
+		ArrayList<HttpRequestResponseInfo> results = new ArrayList<>();
+		PacketInfo previousPacket = null;
+		if (session.isUdpOnly()) { // UDP
+			HttpRequestResponseInfo rrInfo = null;
+			HttpRequestResponseInfo recentUpRRInfo = null;
+			HttpRequestResponseInfo recentDnRRInfo = null;
+			for (PacketInfo udpPacketInfo : session.getUdpPackets()) {
+				try {
+					switch (udpPacketInfo.getDir()) {
+					case UPLINK:
+						if (!session.isDataInaccessible()) {
+							rrInfo = extractHttpRequestResponseInfo(storageReader, buffer, results, session, udpPacketInfo, udpPacketInfo.getDir(), previousPacket, limit);
+						}
+						if (rrInfo != null) {
+							recentUpRRInfo = rrInfo;
+						} else {
+							if (443 == session.getLocalPort() || 443 == session.getRemotePort() || 80 == session.getLocalPort() || 80 == session.getRemotePort()) {
+								session.setDataInaccessible(true);
+								results = analyzeRequestResponsesForQUICUDPSession(session);
+								break;
 							}
-							if (rrInfo != null) {
+							if (recentUpRRInfo == null) {
+								// Creating a Request Objects when no actual requests were found.
+								session.setDataInaccessible(true);
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
+								populateRRInfo(rrInfo, udpPacketInfo, false, false, HttpDirection.REQUEST);
+								results.add(rrInfo);
 								recentUpRRInfo = rrInfo;
-							} else {
-								if (443 == session.getLocalPort() || 443 == session.getRemotePort() || 80 == session.getLocalPort() || 80 == session.getRemotePort()) {
-									session.setDataInaccessible(true);
-									results = analyzeRequestResponsesForQUICUDPSession(session);
-									break;
-								}
-								if (recentUpRRInfo == null) {
-									// Creating a Request Objects when no actual requests were found.
-									session.setDataInaccessible(true);
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
-									populateRRInfo(rrInfo, udpPacketInfo, false, false, HttpDirection.REQUEST);
-									results.add(rrInfo);
-									recentUpRRInfo = rrInfo;
-								}
-								if (udpPacketInfo.getPayloadLen() != 0) {
-									updateRequestResponseObject(recentUpRRInfo, udpPacketInfo);
-								}
 							}
-							rrInfo = null;
-							recentUpRRInfo.writePayload(udpPacketInfo, false, 0);
-							recentUpRRInfo.addUDPPacket(udpPacketInfo);
-							break;
-
-						case DOWNLINK:
-							if (!session.isDataInaccessible()) {
-								rrInfo = extractHttpRequestResponseInfo(results, session, udpPacketInfo, udpPacketInfo.getDir(), previousPacket, limit);
+							if (udpPacketInfo.getPayloadLen() != 0) {
+								updateRequestResponseObject(recentUpRRInfo, udpPacketInfo);
 							}
-							if (rrInfo != null) {
+						}
+						rrInfo = null;
+						recentUpRRInfo.writePayload(udpPacketInfo, false, 0);
+						recentUpRRInfo.addUDPPacket(udpPacketInfo);
+						break;
+
+					case DOWNLINK:
+						if (!session.isDataInaccessible()) {
+							rrInfo = extractHttpRequestResponseInfo(storageReader, buffer, results, session, udpPacketInfo, udpPacketInfo.getDir(), previousPacket, limit);
+						}
+						if (rrInfo != null) {
+							recentDnRRInfo = rrInfo;
+						} else {
+							if (recentDnRRInfo == null) {
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
+								populateRRInfo(rrInfo, udpPacketInfo, false, false, HttpDirection.RESPONSE);
+								results.add(rrInfo);
 								recentDnRRInfo = rrInfo;
-							} else {
-								if (recentDnRRInfo == null) {
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
-									populateRRInfo(rrInfo, udpPacketInfo, false, false, HttpDirection.RESPONSE);
-									results.add(rrInfo);
-									recentDnRRInfo = rrInfo;
-								}
-								if (udpPacketInfo.getPayloadLen() != 0) {
-									updateRequestResponseObject(recentDnRRInfo, udpPacketInfo);
-								}
 							}
-							rrInfo = null;
-							recentDnRRInfo.writePayload(udpPacketInfo, false, 0);
-							recentDnRRInfo.addUDPPacket(udpPacketInfo);
-							break;
+							if (udpPacketInfo.getPayloadLen() != 0) {
+								updateRequestResponseObject(recentDnRRInfo, udpPacketInfo);
+							}
+						}
+						rrInfo = null;
+						recentDnRRInfo.writePayload(udpPacketInfo, false, 0);
+						recentDnRRInfo.addUDPPacket(udpPacketInfo);
+						break;
+
+					default:
+						LOGGER.warn("91 - No direction for packet");
+						continue;
+					}
+				} catch (IOException e) {
+					LOGGER.error("Error Storing data to UDP Request Response Obect. Session ID: " + session.getSessionKey());
+				}
+			}
+
+		} else { // TCP
+			analyzeACK(session);
+			analyzeZeroWindow(session);
+			analyzeRecoverPkts(session);
+			PacketInfo packetInfo = null;
+			TCPPacket tcpPacket = null;
+			HttpRequestResponseInfo rrInfo = null;
+			HttpRequestResponseInfo tempRRInfo = null;
+
+			try {
 
-						default:
-							LOGGER.warn("91 - No direction for packet");
-							continue;
+				long expectedUploadSeqNo = 0;
+				for (long uploadSequenceNumber : session.getUplinkPacketsSortedBySequenceNumbers().keySet()) {
+					// Identify correct packet from the whole transmission stream
+					packetInfo = identifyCorrectTransmissionStream(session.getUplinkPacketsSortedBySequenceNumbers().get(uploadSequenceNumber),
+							session.getAckNumbers(), session, PacketDirection.UPLINK);
+					tcpPacket = (TCPPacket) packetInfo.getPacket();
+					if (packetInfo.getPayloadLen() > 0) {
+						if (!session.isDataInaccessible()) {
+							rrInfo = extractHttpRequestResponseInfo(storageReader, buffer, results, session, packetInfo, packetInfo.getDir(), previousPacket, limit);
 						}
-					} catch (IOException e) {
-						LOGGER.error("Error Storing data to UDP Request Response Obect. Session ID: " + session.getSessionKey());
+						if (rrInfo != null) {
+							tempRRInfo = rrInfo;
+
+							String host = rrInfo.getHostName();
+
+							if (host != null) {
+								URI referrer = rrInfo.getReferrer();
+								session.setRemoteHostName(host);
+								session.setDomainName(referrer != null ? referrer.getHost() : host);
+							}
+
+							if (isAnIOSSecureSession(session)) {
+								break;
+							}
+
+							expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
+							
+						} else if (tempRRInfo != null) {
+							int headerDelta = 0;
+							boolean flag = false;
+							if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
+								flag = true;
+								headerDelta = setHeaderOffset(storageReader, buffer, tempRRInfo, packetInfo, tcpPacket);
+								tempRRInfo.writeHeader(packetInfo, headerDelta);
+							}
+
+							tempRRInfo.setLastDataPacket(packetInfo);
+							tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
+							if (tcpPacket.getSequenceNumber() == expectedUploadSeqNo) {
+								expectedUploadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
+								tempRRInfo.writePayload(packetInfo, flag, headerDelta);
+							} else if (tcpPacket.getSequenceNumber() < expectedUploadSeqNo) {
+								tcpPacket.setRetransmission(true);
+							} else {
+								LOGGER.warn("Identified the following Request is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
+								tempRRInfo.setCorrupt(true);
+								tempRRInfo.writePayload(packetInfo, false, 0);
+							}
+						} else {
+							if (session.isDecrypted()) {
+								continue;
+							} else if (session.isSsl()) {
+								break;
+							}
+							session.setDataInaccessible(true);
+							rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
+							expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
+							populateRRInfo(rrInfo, packetInfo, false, true, HttpDirection.REQUEST);
+							results.add(rrInfo);
+							tempRRInfo = rrInfo;
+						}
+						rrInfo = null;
+						tempRRInfo.addTCPPacket(uploadSequenceNumber, packetInfo);
 					}
 				}
 
-			} else { // TCP
-				analyzeACK(session);
-				analyzeZeroWindow(session);
-				analyzeRecoverPkts(session);
-				PacketInfo packetInfo = null;
-				TCPPacket tcpPacket = null;
-				HttpRequestResponseInfo rrInfo = null;
-				HttpRequestResponseInfo tempRRInfo = null;
+				rrInfo = null;
+				tempRRInfo = null;
 
-				try {
+				if (!( session.isIOSSecureSession() || (session.isSsl() && !session.isDecrypted()))) {
 
-					long expectedUploadSeqNo = 0;
-					for (long uploadSequenceNumber : session.getUplinkPacketsSortedBySequenceNumbers().keySet()) {
+					long expectedDownloadSeqNo = 0;
+					for (long downloadSequenceNumber : session.getDownlinkPacketsSortedBySequenceNumbers().keySet()) {
 						// Identify correct packet from the whole transmission stream
-						packetInfo = identifyCorrectTransmissionStream(session.getUplinkPacketsSortedBySequenceNumbers().get(uploadSequenceNumber),
-								session.getAckNumbers(), session, PacketDirection.UPLINK);
+						packetInfo = identifyCorrectTransmissionStream(session.getDownlinkPacketsSortedBySequenceNumbers().get(downloadSequenceNumber),
+								session.getAckNumbers(), session, PacketDirection.DOWNLINK);
 						tcpPacket = (TCPPacket) packetInfo.getPacket();
+
 						if (packetInfo.getPayloadLen() > 0) {
 							if (!session.isDataInaccessible()) {
-								rrInfo = extractHttpRequestResponseInfo(results, session, packetInfo, packetInfo.getDir(), previousPacket, limit);
-							}
-							if (rrInfo != null) {
-								tempRRInfo = rrInfo;
+								rrInfo = extractHttpRequestResponseInfo(storageReader, buffer, results, session, packetInfo, packetInfo.getDir(), previousPacket, limit);
+								limit = 0;
 
-								String host = rrInfo.getHostName();
-
-								if (host != null) {
-									URI referrer = rrInfo.getReferrer();
-									session.setRemoteHostName(host);
-									session.setDomainName(referrer != null ? referrer.getHost() : host);
-								}
-
-								if (isAnIOSSecureSession(session)) {
-									break;
+								if (rrInfo != null && !rrInfo.isHeaderParseComplete()) {
+									// the unparsed header stays in the buffer until the packet completing it
+									previousPacket = rrInfo.getFirstDataPacket();
+									continue;
+								} else {
+									previousPacket = null;
 								}
+							}
 
-								expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
-								
+							if (rrInfo != null) {
+								tempRRInfo = rrInfo;
+								expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
 							} else if (tempRRInfo != null) {
-								int headerDelta = 0;
 								boolean flag = false;
-								if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
-									flag = true;
-									headerDelta = setHeaderOffset(tempRRInfo, packetInfo, tcpPacket);
-									tempRRInfo.writeHeader(packetInfo, headerDelta);
-								}
-
+								int headerDelta = 0;
 								tempRRInfo.setLastDataPacket(packetInfo);
-								tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
-								if (tcpPacket.getSequenceNumber() == expectedUploadSeqNo) {
-									expectedUploadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
-									tempRRInfo.writePayload(packetInfo, flag, headerDelta);
-								} else if (tcpPacket.getSequenceNumber() < expectedUploadSeqNo) {
+								if (tcpPacket.getSequenceNumber() == expectedDownloadSeqNo) {
+									expectedDownloadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
+									if (tempRRInfo.getContentLength() == 0 || ((tempRRInfo.getPayloadData().size() + packetInfo.getPayloadLen()) <= tempRRInfo.getContentLength())) {
+										tempRRInfo.writePayload(packetInfo, flag, headerDelta);
+										tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
+									} else if (tempRRInfo.getContentLength() > 0 && (tempRRInfo.getPayloadData().size() + packetInfo.getPayloadLen()) > tempRRInfo.getContentLength()) {
+										limit = tempRRInfo.getContentLength() - tempRRInfo.getPayloadData().size();
+										tempRRInfo.writePayload(packetInfo, limit);
+										previousPacket = packetInfo;
+										// TODO: Update RAW SIZE
+									}
+									
+								} else if (tcpPacket.getSequenceNumber() < expectedDownloadSeqNo) {
 									tcpPacket.setRetransmission(true);
 								} else {
-									LOGGER.warn("Identified the following Request is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
+									LOGGER.warn("Identified the following Response is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
 									tempRRInfo.setCorrupt(true);
 									tempRRInfo.writePayload(packetInfo, false, 0);
 								}
 							} else {
 								if (session.isDecrypted()) {
 									continue;
-								} else if (session.isSsl()) {
-									break;
 								}
-								session.setDataInaccessible(true);
 								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
-								expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
-								populateRRInfo(rrInfo, packetInfo, false, true, HttpDirection.REQUEST);
+								expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
+								populateRRInfo(rrInfo, packetInfo, false, true, HttpDirection.RESPONSE);
 								results.add(rrInfo);
 								tempRRInfo = rrInfo;
 							}
 							rrInfo = null;
-							tempRRInfo.addTCPPacket(uploadSequenceNumber, packetInfo);
-						}
-					}
-
-					rrInfo = null;
-					tempRRInfo = null;
-
-					if (!( session.isIOSSecureSession() || (session.isSsl() && !session.isDecrypted()))) {
-
-						long expectedDownloadSeqNo = 0;
-						for (long downloadSequenceNumber : session.getDownlinkPacketsSortedBySequenceNumbers().keySet()) {
-							// Identify correct packet from the whole transmission stream
-							packetInfo = identifyCorrectTransmissionStream(session.getDownlinkPacketsSortedBySequenceNumbers().get(downloadSequenceNumber),
-									session.getAckNumbers(), session, PacketDirection.DOWNLINK);
-							tcpPacket = (TCPPacket) packetInfo.getPacket();
-
-							if (packetInfo.getPayloadLen() > 0) {
-								if (!session.isDataInaccessible()) {
-									rrInfo = extractHttpRequestResponseInfo(results, session, packetInfo, packetInfo.getDir(), previousPacket, limit);
-									limit = 0;
-
-									if (rrInfo != null && !rrInfo.isHeaderParseComplete()) {
-										previousPacket = packetInfo;
-										continue;
-									} else {
-										previousPacket = null;
-									}
-								}
-
-								if (rrInfo != null) {
-									tempRRInfo = rrInfo;
-									expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
-								} else if (tempRRInfo != null) {
-									boolean flag = false;
-									int headerDelta = 0;
-									tempRRInfo.setLastDataPacket(packetInfo);
-									if (tcpPacket.getSequenceNumber() == expectedDownloadSeqNo) {
-										expectedDownloadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
-										if (tempRRInfo.getContentLength() == 0 || ((tempRRInfo.getPayloadData().size() + packetInfo.getPayloadLen()) <= tempRRInfo.getContentLength())) {
-											tempRRInfo.writePayload(packetInfo, flag, headerDelta);
-											tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
-										} else if (tempRRInfo.getContentLength() > 0 && (tempRRInfo.getPayloadData().size() + packetInfo.getPayloadLen()) > tempRRInfo.getContentLength()) {
-											limit = tempRRInfo.getContentLength() - tempRRInfo.getPayloadData().size();
-											tempRRInfo.writePayload(packetInfo, limit);
-											previousPacket = packetInfo;
-											// TODO: Update RAW SIZE
-										}
-										
-									} else if (tcpPacket.getSequenceNumber() < expectedDownloadSeqNo) {
-										tcpPacket.setRetransmission(true);
-									} else {
-										LOGGER.warn("Identified the following Response is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
-										tempRRInfo.setCorrupt(true);
-										tempRRInfo.writePayload(packetInfo, false, 0);
-									}
-								} else {
-									if (session.isDecrypted()) {
-										continue;
-									}
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
-									expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
-									populateRRInfo(rrInfo, packetInfo, false, true, HttpDirection.RESPONSE);
-									results.add(rrInfo);
-									tempRRInfo = rrInfo;
-								}
-								rrInfo = null;
-								tempRRInfo.addTCPPacket(downloadSequenceNumber, packetInfo);
-							}
+							tempRRInfo.addTCPPacket(downloadSequenceNumber, packetInfo);
 						}
 					}
-				} catch (IOException e) {
-					LOGGER.error("Error Storing data to TCP Request Response Obect. Session ID: " + session.getSessionKey());
-				}
-
-				if (session.isIOSSecureSession()) {
-					results = analyzeRequestResponsesForIOSSecureSessions(session);
-				} else if (session.isSsl() && !session.isDecrypted()) {
-					results =  analyzeRequestResponsesForSecureSessions(session);
 				}
+			} catch (IOException e) {
+				LOGGER.error("Error Storing data to TCP Request Response Obect. Session ID: " + session.getSessionKey());
+			}
 
+			if (session.isIOSSecureSession()) {
+				results = analyzeRequestResponsesForIOSSecureSessions(session);
+			} else if (session.isSsl() && !session.isDecrypted()) {
+				results =  analyzeRequestResponsesForSecureSessions(session);
 			}
 
-			Collections.sort(results);
-			session.setRequestResponseInfo(results);
-			populateDataForRequestResponses(session);
+		}
 
-			if (session.getDomainName() == null) {
-				session.setDomainName(session.getRemoteIP().getHostName());
-			}
+		Collections.sort(results);
+		session.setRequestResponseInfo(results);
+		populateDataForRequestResponses(session);
+
+		if (session.getDomainName() == null) {
+			session.setDomainName(session.getRemoteIP().getHostName());
 		}
 	}
 
@@ -1082,15 +1130,13 @@ public class SessionManagerImpl implements ISessionManager {
         return rrInfo;
 	}
 
-	private int setHeaderOffset(HttpRequestResponseInfo rrInfo, PacketInfo packetInfo, TCPPacket tcpPacket) {
+	private int setHeaderOffset(IByteArrayLineReader storageReader, ReassemblyBuffer buffer, HttpRequestResponseInfo rrInfo, PacketInfo packetInfo, TCPPacket tcpPacket) {
 		String line;
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		BufferedOutputStream bufferedStream = new BufferedOutputStream(stream);
 
 		try {
-			bufferedStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length - tcpPacket.getDataOffset());
-			bufferedStream.flush();
-			storageReader.init(stream.toByteArray());
+			buffer.reset();
+			buffer.append(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length - tcpPacket.getDataOffset());
+			storageReader.init(buffer.getData(), buffer.getLength());
 
 			while ((line = storageReader.readLine()) != null && line.length() != 0) {
 				parseHeaderLine.parseHeaderLine(line, rrInfo);
@@ -1248,61 +1294,40 @@ public class SessionManagerImpl implements ISessionManager {
 
 	}
 
-	private HttpRequestResponseInfo extractHttpRequestResponseInfo(ArrayList<HttpRequestResponseInfo> results, Session session, PacketInfo packetInfo, PacketDirection packetDirection, PacketInfo previousPacketInfo, int addToOffset) {
+	private HttpRequestResponseInfo extractHttpRequestResponseInfo(IByteArrayLineReader storageReader, ReassemblyBuffer buffer, ArrayList<HttpRequestResponseInfo> results, Session session, PacketInfo packetInfo, PacketDirection packetDirection, PacketInfo previousPacketInfo, int addToOffset) {
 		
-		TCPPacket tcpPacket = null;
-		UDPPacket udpPacket = null;
-		HttpRequestResponseInfo rrInfo = null;
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		BufferedOutputStream bufferedStream = new BufferedOutputStream(stream);
+		Packet packet = packetInfo.getPacket();
+		TCPPacket tcpPacket = packet instanceof TCPPacket ? (TCPPacket) packet : null;
 		int carryoverPayloadLength = 0;
-		
-		if (packetInfo.getPacket() instanceof TCPPacket) {
-			tcpPacket = (TCPPacket) packetInfo.getPacket();
-
-			try {
-				if (previousPacketInfo != null) {
-					TCPPacket previousTCPPacket = (TCPPacket) previousPacketInfo.getPacket();
-					carryoverPayloadLength = previousTCPPacket.getData().length - (previousTCPPacket.getDataOffset() + addToOffset);
-					bufferedStream.write(previousTCPPacket.getData(), (previousTCPPacket.getDataOffset() + addToOffset), carryoverPayloadLength);
-				}
-
-				bufferedStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length - tcpPacket.getDataOffset());
-			} catch (Exception exception) {
-				LOGGER.error("Error Reading Data from TCP Packet: ", exception);
-			}
-		} else {
-			udpPacket = (UDPPacket) packetInfo.getPacket();
 
-			try {
+		// the header carried over so far, or the previous packet's leftover, followed by the current payload
+		try {
+			if (previousPacketInfo != null && buffer.takeCarried()) {
+				carryoverPayloadLength = buffer.getLength();
+			} else {
+				buffer.reset();
 				if (previousPacketInfo != null) {
-					UDPPacket previousUDPPacket = (UDPPacket) previousPacketInfo.getPacket();
-					carryoverPayloadLength = previousUDPPacket.getData().length - (previousUDPPacket.getDataOffset() + addToOffset);
-					bufferedStream.write(previousUDPPacket.getData(), (previousUDPPacket.getDataOffset() + addToOffset), carryoverPayloadLength);
+					Packet previousPacket = previousPacketInfo.getPacket();
+					carryoverPayloadLength = previousPacket.getData().length - (previousPacket.getDataOffset() + addToOffset);
+					buffer.append(previousPacket.getData(), (previousPacket.getDataOffset() + addToOffset), carryoverPayloadLength);
 				}
-
-				bufferedStream.write(udpPacket.getData(), udpPacket.getDataOffset(), udpPacket.getData().length - udpPacket.getDataOffset());
-			} catch (Exception exception) {
-				LOGGER.error("Error Reading Data from UDP Packet: ", exception);
 			}
-		}
 
-		try {
-			bufferedStream.flush();
-			byte[] streamArray = stream.toByteArray();
-			storageReader.init(streamArray);
-			return getLastRRInfo(streamArray, packetInfo, tcpPacket, previousPacketInfo, carryoverPayloadLength, session, results, packetDirection);
-		} catch (IOException e) {
-			LOGGER.error(e);
+			buffer.append(packet.getData(), packet.getDataOffset(), packet.getData().length - packet.getDataOffset());
+		} catch (Exception exception) {
+			LOGGER.error("Error Reading Data from " + (tcpPacket != null ? "TCP" : "UDP") + " Packet: ", exception);
 		}
 
-		return rrInfo;
+		storageReader.init(buffer.getData(), buffer.getLength());
+		return getLastRRInfo(storageReader, buffer, packetInfo, tcpPacket, previousPacketInfo, carryoverPayloadLength, session, results, packetDirection);
 	}
 
-	private HttpRequestResponseInfo getLastRRInfo(byte[] streamArray, PacketInfo packetInfo, TCPPacket tcpPacket, PacketInfo previousPacket,
+	private HttpRequestResponseInfo getLastRRInfo(IByteArrayLineReader storageReader, ReassemblyBuffer buffer, PacketInfo packetInfo, TCPPacket tcpPacket, PacketInfo previousPacket,
 			int carryoverPayloadLength, Session session, List<HttpRequestResponseInfo> results, PacketDirection packetDirection) {
 
 		HttpRequestResponseInfo rrInfo = null;
+		byte[] streamArray = buffer.getData();
+		int streamLength = buffer.getLength();
 		String line = null;
 		int readerIndex = -1;
 		boolean carryoverPayloadForNewRRInfo = false;
@@ -1329,7 +1354,7 @@ public class SessionManagerImpl implements ISessionManager {
 
 			    carryoverPayloadForNewRRInfo = false;
 		        rrInfo.setTCP(true);
-                rrInfo = populateRRInfo(session, tcpPacket, rrInfo);
+                rrInfo = populateRRInfo(storageReader, session, tcpPacket, rrInfo);
 
                 boolean isExtractable, isTCP;
                 isExtractable = isTCP = session.isUdpOnly() ? false : true;
@@ -1342,12 +1367,13 @@ public class SessionManagerImpl implements ISessionManager {
                 }
 
                 if (!rrInfo.isHeaderParseComplete()) {
+                	buffer.carry(readerIndex);
                 	return rrInfo;
                 } else {
                 	results.add(rrInfo);
 
                     rrInfo.getHeaderData().write(streamArray, 0, storageReader.getIndex());
-                    remainingLength = streamArray.length - storageReader.getIndex();
+                    remainingLength = streamLength - storageReader.getIndex();
                     if (remainingLength <= 0) {
 						return rrInfo;
 					}
@@ -1357,7 +1383,7 @@ public class SessionManagerImpl implements ISessionManager {
 							rrInfo.getPayloadData().write(streamArray, storageReader.getIndex(), rrInfo.getContentLength());
 
 							storageReader.setArrayIndex(storageReader.getIndex() + rrInfo.getContentLength());
-							remainingLength = streamArray.length - storageReader.getIndex();
+							remainingLength = streamLength - storageReader.getIndex();
 							if (remainingLength <= 0) {
 								return rrInfo;
 							}
@@ -1389,7 +1415,7 @@ public class SessionManagerImpl implements ISessionManager {
 		return rrInfo;
 	}
 
-	private HttpRequestResponseInfo populateRRInfo(Session session, TCPPacket tcpPacket, HttpRequestResponseInfo rrInfo) throws IOException {
+	private HttpRequestResponseInfo populateRRInfo(IByteArrayLineReader storageReader, Session session, TCPPacket tcpPacket, HttpRequestResponseInfo rrInfo) throws IOException {
 
 		String line;
 		rrInfo.setSsl(session.isSsl());
@@ -1604,4 +1630,82 @@ public class SessionManagerImpl implements ISessionManager {
 		}
 	}
 
+
+	/**
+	 * Growable byte buffer reused for every packet of a session. It holds the carried over payload of the previous
+	 * packet followed by the current payload, which is all the header parsing needs. A header that is still incomplete
+	 * is carried to the next packet in the buffer itself, so it can span any number of packets.
+	 */
+	/**
+	 * Finds the session of a packet by its flow, or by the session recorded for it when the sessions of the packets
+	 * were assembled before
+	 */
+	private static final class SessionTable {
+		private final FlowTable<Session> flows;
+		private final int[] packetSessions;
+		private final Session[] recordedSessions;
+
+		SessionTable(int[] packetSessions, Session[] recordedSessions) {
+			this.flows = packetSessions == null ? new FlowTable<>() : null;
+			this.packetSessions = packetSessions;
+			this.recordedSessions = recordedSessions;
+		}
+
+		Session get(int packetIndex, InetAddress localIP, int localPort, InetAddress remoteIP, int remotePort) {
+			if (flows != null) {
+				return flows.get(localIP, localPort, remoteIP, remotePort);
+			}
+			return recordedSessions[packetSessions[packetIndex]];
+		}
+
+		void put(int packetIndex, InetAddress localIP, int localPort, InetAddress remoteIP, int remotePort, Session session) {
+			if (flows != null) {
+				flows.put(localIP, localPort, remoteIP, remotePort, session);
+			} else {
+				recordedSessions[packetSessions[packetIndex]] = session;
+			}
+		}
+	}
+
+	private static final class ReassemblyBuffer {
+		private byte[] data = new byte[4096];
+		private int length;
+		private boolean carried;
+
+		void reset() {
+			length = 0;
+			carried = false;
+		}
+
+		void append(byte[] source, int offset, int count) {
+			if (length + count > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + count));
+			}
+			System.arraycopy(source, offset, data, length, count);
+			length += count;
+		}
+
+		/**
+		 * Keep the bytes from offset on, the start of an incomplete header, for the next packet
+		 */
+		void carry(int offset) {
+			System.arraycopy(data, offset, data, 0, length - offset);
+			length -= offset;
+			carried = true;
+		}
+
+		boolean takeCarried() {
+			boolean result = carried;
+			carried = false;
+			return result;
+		}
+
+		byte[] getData() {
+			return data;
+		}
+
+		int getLength() {
+			return length;
+		}
+	}
 }
@@ -22,60 +22,50 @@ import java.util.List;
 import com.att.aro.core.packetanalysis.IThroughputCalculator;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.Throughput;
-import com.att.aro.core.packetreader.pojo.PacketDirection;
 
 public class ThroughputCalculatorImpl implements IThroughputCalculator {
 
+	/**
+	 * Index of the last packet list, energy and throughput plots ask for many time ranges of the same trace.
+	 */
+	private volatile ThroughputIndex lastIndex;
+
 	public List<Throughput> calculateThroughput(double startTime, double endTime, double window,
 			List<PacketInfo> packets) {
-		List<Throughput> result = new ArrayList<Throughput>();
-		List<PacketInfo> split = new ArrayList<>();
 		if(window < 0.00001 || endTime-startTime < 0.00001) {
 			return Collections.emptyList();
 		}
+		ThroughputIndex index = getIndex(packets);
+		int first = index.indexOf(startTime);
+		int last = index.indexOf(endTime);
+		// when packets follow the time range, the window of its last packet has always been reported twice
+		boolean repeatLastWindow = last < index.size();
+		double lastStamp = last > first ? index.getTimeStamp(last - 1) : startTime;
+
+		List<Throughput> result = new ArrayList<Throughput>();
 		double splitStart = startTime;
-		double splitEnd = startTime + window;
-		for (PacketInfo packet : packets) {
-			double stamp = packet.getTimeStamp();
-			if (stamp < startTime) {
-				continue;
-			} else if (stamp >= endTime) {
-				result.add(getThroughput(splitStart, splitEnd, split));
-				break;
-			} else if (stamp >= splitEnd) {
-				while (stamp >= splitEnd) {
-					result.add(getThroughput(splitStart, splitEnd, split));
-					splitStart = splitEnd;
-					splitEnd = splitStart + window;
-					split = new ArrayList<>();
-				}
-				split.add(packet);
-			} else if (stamp >= splitStart) {
-				split.add(packet);
-			}
-		}
+		int from = first;
 		do {
-			result.add(getThroughput(splitStart, splitEnd, split));
+			double splitEnd = splitStart + window;
+			int to = splitEnd < endTime ? index.indexOf(splitEnd) : last;
+			result.add(new Throughput(splitStart, splitEnd, index.getUpBytes(from, to), index.getDownBytes(from, to)));
+			if (repeatLastWindow && lastStamp < splitEnd) {
+				result.add(new Throughput(splitStart, splitEnd, index.getUpBytes(from, to), index.getDownBytes(from, to)));
+				repeatLastWindow = false;
+			}
 			splitStart = splitEnd;
-			splitEnd = splitStart + window;
-			split = new ArrayList<>();
+			from = to;
 		} while (endTime >= splitStart);
 		return result;
 	}
 
-	private Throughput getThroughput(double startTime, double endTime, List<PacketInfo> packets) {
-		long up = 0;
-		long down = 0;
-		for (PacketInfo packet : packets) {
-			if (packet.getDir() == null || packet.getDir() == PacketDirection.UNKNOWN) {
-				continue;
-			} else if (packet.getDir() == PacketDirection.UPLINK) {
-				up += packet.getLen();
-			} else {
-				down += packet.getLen();
-			}
+	private ThroughputIndex getIndex(List<PacketInfo> packets) {
+		ThroughputIndex index = lastIndex;
+		if (index == null || !index.isIndexOf(packets)) {
+			index = new ThroughputIndex(packets);
+			lastIndex = index;
 		}
-		return new Throughput(startTime, endTime, up, down);
+		return index;
 	}
 
 }
@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+
+/**
+ * Cumulative uplink and downlink bytes of a time ordered packet list, so that the bytes sent in any time
+ * range are found with two binary searches.
+ */
+final class ThroughputIndex {
+
+	private final WeakReference<List<PacketInfo>> packets;
+	private final int size;
+	private final double[] timestamps;
+	private final long[] upBytes;
+	private final long[] downBytes;
+
+	ThroughputIndex(List<PacketInfo> packets) {
+		this.packets = new WeakReference<>(packets);
+		size = packets.size();
+		timestamps = new double[size];
+		upBytes = new long[size + 1];
+		downBytes = new long[size + 1];
+		int index = 0;
+		for (PacketInfo packet : packets) {
+			timestamps[index] = packet.getTimeStamp();
+			long up = 0;
+			long down = 0;
+			if (packet.getDir() == PacketDirection.UPLINK) {
+				up = packet.getLen();
+			} else if (packet.getDir() != null && packet.getDir() != PacketDirection.UNKNOWN) {
+				down = packet.getLen();
+			}
+			upBytes[index + 1] = upBytes[index] + up;
+			downBytes[index + 1] = downBytes[index] + down;
+			index++;
+		}
+	}
+
+	/**
+	 * Tells whether this index was built from the packet list, the list not having grown or been refilled since.
+	 */
+	boolean isIndexOf(List<PacketInfo> packets) {
+		return this.packets.get() == packets && packets.size() == size
+				&& (size == 0 || (packets.get(0).getTimeStamp() == timestamps[0] && packets.get(size - 1).getTimeStamp() == timestamps[size - 1]));
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return index of the first packet at or after the time, size() when there is none
+	 */
+	int indexOf(double time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (timestamps[middle] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	double getTimeStamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * @return uplink bytes of the packets from index from (inclusive) to index to (exclusive)
+	 */
+	long getUpBytes(int from, int to) {
+		return upBytes[to] - upBytes[from];
+	}
+
+	/**
+	 * @return downlink bytes of the packets from index from (inclusive) to index to (exclusive)
+	 */
+	long getDownBytes(int from, int to) {
+		return downBytes[to] - downBytes[from];
+	}
+}
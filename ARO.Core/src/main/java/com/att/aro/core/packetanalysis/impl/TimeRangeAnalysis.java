@@ -19,7 +19,7 @@ import java.io.Serializable;
 import java.util.List;
 
 import com.att.aro.core.SpringContextUtil;
-import com.att.aro.core.configuration.impl.ProfileFactoryImpl;
+import com.att.aro.core.configuration.IProfileFactory;
 import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.configuration.pojo.Profile3G;
 import com.att.aro.core.configuration.pojo.ProfileLTE;
@@ -29,6 +29,7 @@ import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetanalysis.pojo.RrcStateRangeIndex;
 import com.att.aro.core.packetreader.pojo.IPPacket;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
@@ -47,7 +48,7 @@ public class TimeRangeAnalysis implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	@JsonIgnore
-	private static final ProfileFactoryImpl profileFactory = SpringContextUtil.getInstance().getContext().getBean(ProfileFactoryImpl.class);
+	private static final IProfileFactory profileFactory = SpringContextUtil.getInstance().getContext().getBean(IProfileFactory.class);
 
 	@Getter
 	private double startTime;
@@ -229,6 +230,17 @@ public class TimeRangeAnalysis implements Serializable {
 				}
 			}
 	
+			RrcStateRangeIndex stateIndex = analysisData.getStatemachine().getStateIndex();
+			if (stateIndex != null) {
+				// totals come from the index, only the ranges cut by the window have their energy computed again
+				for (RRCState rrcState : RRCState.values()) {
+					rrcEnergy += stateIndex.getEnergy(rrcState, this.startTime, this.endTime);
+					if (isActiveState(profile, rrcState)) {
+						activeTime += stateIndex.getDuration(rrcState, this.startTime, this.endTime);
+					}
+				}
+				return;
+			}
 			int collectionSize = rrcCollection.size();
 			for (int i = 0; i < collectionSize; i++) {
 				double beginTime;
@@ -256,19 +268,17 @@ public class TimeRangeAnalysis implements Serializable {
 	
 				RRCState rrcState = rrc.getState();
 				rrcEnergy += updateEnergy(analysisData, profile, beginTime, endTime, rrcState);
-				activeTime += updateActiveTime(profile, beginTime, endTime, rrcState);
+				if (isActiveState(profile, rrcState)) {
+					activeTime += endTime - beginTime;
+				}
 			}
 		}
 	}
 
-	private double updateActiveTime(Profile profile, double beginTime, double endTime, RRCState rrcState) {
-		double activeTime = 0.0f;
-		if (profile.getProfileType() == ProfileType.T3G && (rrcState == RRCState.STATE_DCH || rrcState == RRCState.TAIL_DCH)
+	private boolean isActiveState(Profile profile, RRCState rrcState) {
+		return profile.getProfileType() == ProfileType.T3G && (rrcState == RRCState.STATE_DCH || rrcState == RRCState.TAIL_DCH)
 				|| profile.getProfileType() == ProfileType.LTE && (rrcState == RRCState.LTE_CONTINUOUS || rrcState == RRCState.LTE_CR_TAIL)
-				|| profile.getProfileType() == ProfileType.WIFI && (rrcState == RRCState.WIFI_ACTIVE || rrcState == RRCState.WIFI_TAIL)) {
-			activeTime = endTime - beginTime;
-		}
-		return activeTime;
+				|| profile.getProfileType() == ProfileType.WIFI && (rrcState == RRCState.WIFI_ACTIVE || rrcState == RRCState.WIFI_TAIL);
 	}
 
 	private double updateEnergy(PacketAnalyzerResult analysisData,
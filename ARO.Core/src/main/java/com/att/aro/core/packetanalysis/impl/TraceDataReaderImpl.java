@@ -29,14 +29,28 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
+import com.att.aro.core.exception.PacketReadAbortedException;
 import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.packetanalysis.ITraceDataReader;
+import com.att.aro.core.packetanalysis.ITracePacketCache;
 import com.att.aro.core.packetanalysis.pojo.AbstractTraceResult;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
@@ -106,6 +120,9 @@ import com.att.aro.core.peripheral.pojo.VideoTime;
 import com.att.aro.core.peripheral.pojo.WakelockInfo;
 import com.att.aro.core.peripheral.pojo.WifiInfo;
 import com.att.aro.core.securedpacketreader.ICrypto;
+import com.att.aro.core.securedpacketreader.IKeyLogDecryptor;
+import com.att.aro.core.settings.impl.SettingsImpl;
+import com.att.aro.core.tracemetadata.pojo.MetaDataModel;
 import com.att.aro.core.util.Util;
 
 public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
@@ -179,6 +196,9 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 
 	private ICrypto crypto;
 
+	@Autowired
+	private IKeyLogDecryptor keyLogDecryptor;
+
 	@Autowired
 	private INetworkTypeReader networktypereader;
 
@@ -193,6 +213,9 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 
 	@Autowired
 	private IVideoStartupReadWrite videoStartupReader;
+
+	@Autowired
+	private ITracePacketCache packetCache;
 	
 	@Autowired
 	IMetaDataReadWrite metaDataReadWrite;
@@ -205,9 +228,38 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	private List<PacketInfo> unknownPackets = null;
 	private Map<InetAddress, Integer> ipCountMap = null;
 	private boolean isSecurePcap = false;
+	private Map<TcpPacketKey, List<TCPPacket>> tcpPacketIndex = null;
+	// packets of traffic.cap as they arrived, and their data before decryption, for the packet cache
+	private List<Packet> arrivedPackets = null;
+	private List<byte[]> arrivedPacketData = null;
+	private List<Packet> cachedPackets = null;
+	// second stage of the packet file being read
+	private PacketTagger packetTagger = null;
+	private PeripheralReads peripheralReads = null;
 
 	public static final String UNKNOWN_APPNAME = "Unknown";
 
+	private static final int PACKET_BATCH_SIZE = 1024;
+	private static final int PACKET_QUEUE_BATCHES = 16;
+	// packets a packet may be out of timestamp order by without a sort of the trace
+	private static final int REORDER_BUFFER_SIZE = 4096;
+	private static final List<PacketInfo> END_OF_PACKETS = new ArrayList<>(0);
+
+	private static final int PERIPHERAL_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	private final ExecutorService peripheralPool = Executors.newFixedThreadPool(PERIPHERAL_THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "peripheralReader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Stops the peripheral reader threads when the application context is closed
+	 */
+	@PreDestroy
+	public void shutdown() {
+		peripheralPool.shutdown();
+	}
+
 	@Autowired
 	public void setFileReader(IFileManager filereader) {
 		this.filereader = filereader;
@@ -232,13 +284,14 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	}
 
 	/**
-	 * read all kind of trace file in a directory
+	 * read all kind of trace file in a directory. Traces are read one at a time, the packets being read are kept in
+	 * this reader.
 	 * 
 	 * @param directoryPath
 	 *            full path to physical directory
 	 * @throws FileNotFoundException
 	 */
-	public TraceDirectoryResult readTraceDirectory(String directoryPath) throws FileNotFoundException {
+	public synchronized TraceDirectoryResult readTraceDirectory(String directoryPath) throws FileNotFoundException {
 		if (!filereader.directoryExist(directoryPath)) {
 			throw new FileNotFoundException("Not found directory: " + directoryPath);
 		}
@@ -250,41 +303,33 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		result.setAppVersionMap(app.getAppVersionMap());
 		result.setAppInfos(app.getAppInfos());
 
-		// Read the time file and PCAP trace
-		try {
-			result = readTimeAndPcap(result);
-		} catch (IOException e1) {
-			LOGGER.error("Failed to read file", e1);
-			return null;// no need to continue, everything else is useless without packet data
-		}
-		if (result == null) {
-			return null;
-		}
-
 		readDeviceDetails(result);
 
-		readFileUtil(result); // merge several methods to one method
-
-		readAlarmDumpsysTimestamp(result);
-
+		peripheralReads = new PeripheralReads();
 		try {
-			readAlarmAnalysisInfo(result);
-		} catch (IOException e) {
-			LOGGER.info("*** Warning: no alarm dumpsys information found ***");
-		}
+			submitDirectoryReads(result);
 
-		readWakelockInfo(result);
-
-		readVideoTime(result);
+			// Read the time file and PCAP trace
+			try {
+				result = readTimeAndPcap(result);
+			} catch (IOException e1) {
+				LOGGER.error("Failed to read file", e1);
+				return null;// no need to continue, everything else is useless without packet data
+			}
+			if (result == null) {
+				return null;
+			}
+			if (!peripheralReads.isTimed()) {
+				submitTimedReads(result, result.getPcapTime0(), result.getTraceDuration(), result.getTraceDateTime());
+			}
+			peripheralReads.mergeInto(result);
+		} finally {
+			peripheralReads.cancel();
+			peripheralReads = null;
+		}
 
 		readSSLKeys(result);
 
-		readPrivateData(result);
-
-		readAttenuationEvent(result);
-
-		readThrottleEvent(result);
-
 		return result;
 	}
 
@@ -314,7 +359,7 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	 * @return TraceFileResult
 	 * @throws IOException
 	 */
-	public TraceFileResult readTraceFile(String traceFilePath) throws IOException {
+	public synchronized TraceFileResult readTraceFile(String traceFilePath) throws IOException {
 		if (!filereader.fileExist(traceFilePath)) {
 			throw new FileNotFoundException("Trace file not found: " + traceFilePath);
 		}
@@ -441,6 +486,10 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 				result.setCaptureOffset(times.getTimezoneOffset());
 			}
 			duration = times.getDuration();
+			if (startTime != null && duration != null && peripheralReads != null) {
+				// the packets do not move the time base, so the peripheral files are read while they are decoded
+				submitTimedReads(result, startTime, duration, new Date((long) (startTime * 1000)));
+			}
 
 		}
 
@@ -458,10 +507,49 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 
 		this.init();
 		this.ipCountMap = result.getIpCountMap();
-		result = (TraceDirectoryResult) this.readPcapTraceFile(filepath, startTime, duration, result);
+		boolean cacheable = isPacketCacheEnabled() && (dresult.getTraceFile() == null || dresult.getTraceFile().equals(""))
+				&& !filereader.fileExist(result.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.TRAFFIC + 1
+						+ TraceDataConst.FileName.CAP_EXT);
+		if (cacheable) {
+			cachedPackets = packetCache.readPackets(result.getTraceDirectory());
+			if (cachedPackets == null) {
+				arrivedPackets = new ArrayList<>();
+				arrivedPacketData = new ArrayList<>();
+			}
+		}
+		try {
+			result = readTrafficFiles(result, filepath, startTime, duration);
+			if (arrivedPackets != null && result != null) {
+				packetCache.writePackets(result.getTraceDirectory(), arrivedPackets, arrivedPacketData);
+			}
+		} finally {
+			cachedPackets = null;
+			arrivedPackets = null;
+			arrivedPacketData = null;
+		}
 		if (result == null) {
 			return new TraceDirectoryResult();
 		}
+		// after the packet cache is written, the cache only keeps what the trace files hold
+		decryptWithKeyLog(result);
+		result.setAllpackets(this.allPackets);
+		this.checkExternalVideoAndTime(result, startTime, duration);
+		return result;
+	}
+
+	/**
+	 * Reads traffic.cap, the following traffic1.cap... files and merges the decrypted packets of secure_traffic.cap.
+	 * Packets come from the packet cache instead when it was read.
+	 * 
+	 * @return the result, null when there is no packet file
+	 */
+	private TraceDirectoryResult readTrafficFiles(TraceDirectoryResult dresult, String trafficFilePath, Double startTime,
+			Double duration) throws IOException {
+		String filepath = trafficFilePath;
+		TraceDirectoryResult result = (TraceDirectoryResult) this.readPcapTraceFile(filepath, startTime, duration, dresult);
+		if (result == null) {
+			return null;
+		}
 
 		for (int i = 1;; i++) {
 			filepath = result.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.TRAFFIC + i
@@ -476,23 +564,44 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 			String secureFilePath = result.getTraceDirectory() + Util.FILE_SEPARATOR
 					+ TraceDataConst.FileName.SECURE_PCAP_FILE;
 			if (filereader.fileExist(secureFilePath)) {
-				try {
-					isSecurePcap = true;
-					result.setSecureTrace(isSecurePcap);
-					this.readSecurePcapTraceFile(secureFilePath, result);
-				} finally {
-					isSecurePcap = false;
+				result.setSecureTrace(true);
+				// cached packets already carry the decrypted payloads
+				if (cachedPackets == null) {
+					try {
+						isSecurePcap = true;
+						this.readSecurePcapTraceFile(secureFilePath, result);
+					} finally {
+						isSecurePcap = false;
+					}
 				}
 			}
 		}
-		if (result == null) {
-			result = new TraceDirectoryResult();
-		}
-		result.setAllpackets(this.allPackets);
-		this.checkExternalVideoAndTime(result, startTime, duration);
 		return result;
 	}
 
+	/**
+	 * Decrypts the TLS sessions the NSS key log of the trace, sslkeylog.log, has secrets for
+	 */
+	private void decryptWithKeyLog(TraceDirectoryResult result) {
+		String keyLogPath = result.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.SSL_KEY_LOG_FILE;
+		if (!filereader.fileExist(keyLogPath)) {
+			return;
+		}
+		try {
+			int sessionCount = keyLogDecryptor.decrypt(keyLogPath, allPackets);
+			if (sessionCount > 0) {
+				result.setSecureTrace(true);
+			}
+			LOGGER.info("Decrypted " + sessionCount + " TLS sessions with " + keyLogPath);
+		} catch (IOException e) {
+			LOGGER.error("Failed to read key log " + keyLogPath, e);
+		}
+	}
+
+	private boolean isPacketCacheEnabled() {
+		return !"false".equalsIgnoreCase(SettingsImpl.getInstance().getAttribute(Util.PACKET_CACHE));
+	}
+
 	/**
 	 * Reads a device data from the device file in trace folder.
 	 * 
@@ -546,70 +655,232 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	}
 
 	/**
-	 * Method to set a reference time Use ALARM_END_FILE elapsed realtime as dumpsys
-	 * batteryinfo time reference.
+	 * Submits the reads of the peripheral files that only need the trace directory.
+	 */
+	private void submitDirectoryReads(TraceDirectoryResult result) {
+		String traceDirectory = result.getTraceDirectory();
+		peripheralReads.submit(() -> {
+			CollectOptions collectOptions = collectOptionsReader.readData(traceDirectory);
+			return merged -> merged.setCollectOptions(collectOptions);
+		});
+		peripheralReads.submit(() -> {
+			VideoStreamStartupData videoStreamStartupData = videoStartupReader.readData(traceDirectory);
+			return merged -> merged.setVideoStartupData(videoStreamStartupData);
+		});
+		peripheralReads.submit(() -> {
+			MetaDataModel metaData = metaDataReadWrite.readData(traceDirectory);
+			return merged -> merged.setMetaData(metaData);
+		});
+		peripheralReads.submit(() -> {
+			List<PrivateDataInfo> devicePrivateDataInfos = privateDataReader.readData(traceDirectory);
+			return merged -> setPrivateData(merged, devicePrivateDataInfos);
+		});
+		peripheralReads.submit(() -> {
+			List<AttenuatorEvent> attenuatorEvents = attnrEventReader.readData(traceDirectory);
+			return merged -> merged.setAttenautionEvent(attenuatorEvents);
+		});
+		peripheralReads.submit(() -> {
+			List<SpeedThrottleEvent> speedThrottleEvents = speedThrottleReader.readData(traceDirectory);
+			return merged -> merged.setSpeedThrottleEvent(speedThrottleEvents);
+		});
+	}
+
+	/**
+	 * Submits the reads of the peripheral files that are aligned to the start of
+	 * the trace: network type, user events and screen rotations, cpu temperature,
+	 * location, cpu, gps, bluetooth, wifi, camera, thermal status, screen state,
+	 * battery, kernel log alarms, radio, the dumpsys alarms and wakelocks, and the
+	 * video time.
+	 * 
+	 * @param pcapTime0
+	 *            start of the trace in seconds
+	 * @param traceDuration
+	 *            duration of the trace in seconds
+	 * @param traceDateTime
+	 *            start of the trace
+	 */
+	private void submitTimedReads(TraceDirectoryResult result, double pcapTime0, double traceDuration, Date traceDateTime) {
+		String traceDirectory = result.getTraceDirectory();
+		double eventTime0 = result.getEventTime0();
+		String osVersion = result.getOsVersion();
+		// the kernel log alarms are aligned before the dumpsys reference time is read
+		double dumpsysEpochTimestamp = result.getDumpsysEpochTimestamp();
+		double dumpsysElapsedTimestamp = result.getDumpsysElapsedTimestamp();
+		peripheralReads.setTimed();
+
+		peripheralReads.submit(() -> {
+			NetworkTypeObject obj = networktypereader.readData(traceDirectory, pcapTime0, traceDuration);
+			return merged -> {
+				if (obj != null) {
+					merged.setNetworkTypeInfos(obj.getNetworkTypeInfos());
+					merged.setNetworkTypesList(obj.getNetworkTypesList());
+				}
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<UserEvent> userEvents = usereventreader.readData(traceDirectory, eventTime0, pcapTime0);
+			List<UserEvent> screenRotations = screenrotationreader.readData(traceDirectory, pcapTime0);
+			return merged -> {
+				merged.setUserEvents(userEvents);
+				merged.setScreenRotationCounter(screenRotations.size());
+				merged.getUserEvents().addAll(screenRotations);
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<TemperatureEvent> temperatureEvents = cputemperaturereader.readData(traceDirectory, pcapTime0);
+			return merged -> merged.setTemperatureInfos(temperatureEvents);
+		});
+		peripheralReads.submit(() -> {
+			List<LocationEvent> locationEvents = locationreader.readData(traceDirectory, pcapTime0);
+			return merged -> merged.setLocationEventInfos(locationEvents);
+		});
+		peripheralReads.submit(() -> {
+			CpuActivityList cpuActivityList = cpureader.readData(traceDirectory, pcapTime0);
+			return merged -> merged.setCpuActivityList(cpuActivityList);
+		});
+		// the active durations are kept by the readers, so they are taken in the same task
+		peripheralReads.submit(() -> {
+			List<GpsInfo> gpsInfos = gpsreader.readData(traceDirectory, pcapTime0, traceDuration);
+			double gpsActiveDuration = gpsreader.getGpsActiveDuration();
+			return merged -> {
+				merged.setGpsInfos(gpsInfos);
+				merged.setGpsActiveDuration(gpsActiveDuration);
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<BluetoothInfo> bluetoothInfos = bluetoothreader.readData(traceDirectory, pcapTime0, traceDuration);
+			double bluetoothActiveDuration = bluetoothreader.getBluetoothActiveDuration();
+			return merged -> {
+				merged.setBluetoothInfos(bluetoothInfos);
+				merged.setBluetoothActiveDuration(bluetoothActiveDuration);
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<WifiInfo> wifiInfos = wifireader.readData(traceDirectory, pcapTime0, traceDuration);
+			double wifiActiveDuration = wifireader.getWifiActiveDuration();
+			return merged -> {
+				merged.setWifiInfos(wifiInfos);
+				merged.setWifiActiveDuration(wifiActiveDuration);
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<CameraInfo> cameraInfos = camerareader.readData(traceDirectory, pcapTime0, traceDuration);
+			double cameraActiveDuration = camerareader.getActiveDuration();
+			return merged -> {
+				merged.setCameraInfos(cameraInfos);
+				merged.setCameraActiveDuration(cameraActiveDuration);
+			};
+		});
+		peripheralReads.submit(() -> {
+			List<ThermalStatusInfo> thermalStatusInfos = new ThermalStatusReaderImpl(filereader).readData(traceDirectory,
+					pcapTime0, traceDuration);
+			return merged -> merged.setThermalstatusInfos(thermalStatusInfos);
+		});
+		peripheralReads.submit(() -> {
+			List<ScreenStateInfo> screenStateInfos = screenstatereader.readData(traceDirectory, pcapTime0, traceDuration);
+			return merged -> merged.setScreenStateInfos(screenStateInfos);
+		});
+		peripheralReads.submit(() -> {
+			List<BatteryInfo> batteryInfos = batteryinforeader.readData(traceDirectory, pcapTime0);
+			return merged -> merged.setBatteryInfos(batteryInfos);
+		});
+		peripheralReads.submit(() -> {
+			// alarm info from kernel log file
+			List<AlarmInfo> alarmInfos = alarminforeader.readData(traceDirectory, dumpsysEpochTimestamp,
+					dumpsysElapsedTimestamp, traceDateTime);
+			return merged -> merged.setAlarmInfos(alarmInfos);
+		});
+		peripheralReads.submit(() -> {
+			List<RadioInfo> radioInfos = radioinforeader.readData(traceDirectory, pcapTime0);
+			return merged -> merged.setRadioInfos(radioInfos);
+		});
+		peripheralReads.submit(() -> readDumpsys(traceDirectory, osVersion, eventTime0, dumpsysEpochTimestamp,
+				dumpsysElapsedTimestamp, traceDuration, traceDateTime));
+		peripheralReads.submit(() -> {
+			VideoTime videoTime = videotimereader.readData(traceDirectory, traceDateTime);
+			return merged -> setVideoTime(merged, videoTime);
+		});
+	}
+
+	/**
+	 * Reads the dumpsys files: the reference time taken from the ALARM_END_FILE
+	 * elapsed realtime, the alarms triggered during the trace and the wakelocks,
+	 * both aligned to that reference time.
 	 * 
-	 * set: dumpsysEpochTimestamp dumpsysElapsedTimestamp
-	 *
+	 * @return sets dumpsysEpochTimestamp, dumpsysElapsedTimestamp, the alarm
+	 *         statistics and the wakelocks when merged
 	 */
-	private void readAlarmDumpsysTimestamp(TraceDirectoryResult result) {
-		AlarmDumpsysTimestamp time = this.alarmdumpsysreader.readData(result.getTraceDirectory(),
-				result.getTraceDateTime(), result.getTraceDuration(), result.getOsVersion(), result.getEventTime0());
-		if (time != null) {
-			result.setDumpsysElapsedTimestamp(time.getDumpsysElapsedTimestamp());
-			result.setDumpsysEpochTimestamp(time.getDumpsysEpochTimestamp());
+	private Consumer<TraceDirectoryResult> readDumpsys(String traceDirectory, String osVersion, double eventTime0,
+			double defaultEpochTimestamp, double defaultElapsedTimestamp, double traceDuration, Date traceDateTime) {
+		AlarmDumpsysTimestamp time = alarmdumpsysreader.readData(traceDirectory, traceDateTime, traceDuration, osVersion,
+				eventTime0);
+		double dumpsysEpochTimestamp = time != null ? time.getDumpsysEpochTimestamp() : defaultEpochTimestamp;
+		double dumpsysElapsedTimestamp = time != null ? time.getDumpsysElapsedTimestamp() : defaultElapsedTimestamp;
+
+		Consumer<TraceDirectoryResult> alarmAnalysis;
+		try {
+			alarmAnalysis = readAlarmAnalysisInfo(traceDirectory, osVersion, dumpsysEpochTimestamp, dumpsysElapsedTimestamp,
+					traceDateTime);
+		} catch (IOException e) {
+			LOGGER.info("*** Warning: no alarm dumpsys information found ***");
+			alarmAnalysis = merged -> {
+			};
 		}
+		List<WakelockInfo> wakelockInfos = wakelockinforeader.readData(traceDirectory, osVersion, dumpsysEpochTimestamp,
+				traceDateTime);
+
+		Consumer<TraceDirectoryResult> alarms = alarmAnalysis;
+		return merged -> {
+			if (time != null) {
+				merged.setDumpsysElapsedTimestamp(time.getDumpsysElapsedTimestamp());
+				merged.setDumpsysEpochTimestamp(time.getDumpsysEpochTimestamp());
+			}
+			alarms.accept(merged);
+			merged.setWakelockInfos(wakelockInfos);
+		};
 	}
 
 	/**
 	 * Create List<AlarmStatisticsInfos> of alarms triggered during the trace.
 	 */
-	private void readAlarmAnalysisInfo(TraceDirectoryResult res) throws IOException {
-		String filepath = res.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.ALARM_END_FILE;
+	private Consumer<TraceDirectoryResult> readAlarmAnalysisInfo(String traceDirectory, String osVersion,
+			double dumpsysEpochTimestamp, double dumpsysElapsedTimestamp, Date traceDateTime) throws IOException {
+		String filepath = traceDirectory + Util.FILE_SEPARATOR + TraceDataConst.FileName.ALARM_END_FILE;
 		// Collect triggered alarms summary at end of capture
 		if (!filereader.fileExist(filepath)) {
-			return;
+			return merged -> {
+			};
 		}
-		filepath = res.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.ALARM_START_FILE;
+		filepath = traceDirectory + Util.FILE_SEPARATOR + TraceDataConst.FileName.ALARM_START_FILE;
 		if (!filereader.fileExist(filepath)) {
-			return;
+			return merged -> {
+			};
 		}
-		AlarmAnalysisResult result = alarmanalysisinfoparser.parse(res.getTraceDirectory(),
-				TraceDataConst.FileName.ALARM_END_FILE, res.getOsVersion(), res.getDumpsysEpochTimestamp(),
-				res.getDumpsysElapsedTimestamp(), res.getTraceDateTime());
+		AlarmAnalysisResult result = alarmanalysisinfoparser.parse(traceDirectory, TraceDataConst.FileName.ALARM_END_FILE,
+				osVersion, dumpsysEpochTimestamp, dumpsysElapsedTimestamp, traceDateTime);
 		// alarmanalysisinfoparser.parse is flawed, an index can run off the end of a
 		// String[]
-		if (result != null) {
-			List<AlarmAnalysisInfo> alarmStatisticsInfosEnd = result.getStatistics();
-			res.getScheduledAlarms().putAll(result.getScheduledAlarms());
-			// Collect triggered alarms summary at start of capture
-			AlarmAnalysisResult result2 = alarmanalysisinfoparser.parse(res.getTraceDirectory(),
-					TraceDataConst.FileName.ALARM_START_FILE, res.getOsVersion(), res.getDumpsysEpochTimestamp(),
-					res.getDumpsysElapsedTimestamp(), res.getTraceDateTime());
-			List<AlarmAnalysisInfo> alarmStatisticsInfosStart = result2.getStatistics();
-			res.getScheduledAlarms().putAll(result2.getScheduledAlarms());
-
-			// Differentiate the triggered alarms between start/end of catpure.
-			if (alarmStatisticsInfosEnd != null && alarmStatisticsInfosStart != null) {
-				List<AlarmAnalysisInfo> alarmStatisticsInfos = alarmanalysisinfoparser
-						.compareAlarmAnalysis(alarmStatisticsInfosEnd, alarmStatisticsInfosStart);
-				res.setAlarmStatisticsInfos(alarmStatisticsInfos);
-			}
+		if (result == null) {
+			return merged -> {
+			};
 		}
-	}
-
-	/**
-	 * Method to read the Wakelock data from the batteryinfo file and store it in
-	 * the wakelockInfos list.
-	 *
-	 * pre: call readAlarmDumpsysTimestamp(), it requires a timestamp for alignment.
-	 *
-	 */
-	private void readWakelockInfo(TraceDirectoryResult result) {
-		List<WakelockInfo> wakelockInfos = wakelockinforeader.readData(result.getTraceDirectory(),
-				result.getOsVersion(), result.getDumpsysEpochTimestamp(), result.getTraceDateTime());
-		result.setWakelockInfos(wakelockInfos);
-
+		List<AlarmAnalysisInfo> alarmStatisticsInfosEnd = result.getStatistics();
+		// Collect triggered alarms summary at start of capture
+		AlarmAnalysisResult result2 = alarmanalysisinfoparser.parse(traceDirectory, TraceDataConst.FileName.ALARM_START_FILE,
+				osVersion, dumpsysEpochTimestamp, dumpsysElapsedTimestamp, traceDateTime);
+		List<AlarmAnalysisInfo> alarmStatisticsInfosStart = result2.getStatistics();
+
+		// Differentiate the triggered alarms between start/end of catpure.
+		List<AlarmAnalysisInfo> alarmStatisticsInfos = alarmStatisticsInfosEnd != null && alarmStatisticsInfosStart != null
+				? alarmanalysisinfoparser.compareAlarmAnalysis(alarmStatisticsInfosEnd, alarmStatisticsInfosStart)
+				: null;
+		return merged -> {
+			merged.getScheduledAlarms().putAll(result.getScheduledAlarms());
+			merged.getScheduledAlarms().putAll(result2.getScheduledAlarms());
+			if (alarmStatisticsInfos != null) {
+				merged.setAlarmStatisticsInfos(alarmStatisticsInfos);
+			}
+		};
 	}
 
 	/**
@@ -618,7 +889,10 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	 * @param result
 	 */
 	private void readPrivateData(AbstractTraceResult result) {
-		List<PrivateDataInfo> devicePrivateDataInfos = privateDataReader.readData(result.getTraceDirectory());
+		setPrivateData(result, privateDataReader.readData(result.getTraceDirectory()));
+	}
+
+	private void setPrivateData(AbstractTraceResult result, List<PrivateDataInfo> devicePrivateDataInfos) {
 		if (devicePrivateDataInfos == null || devicePrivateDataInfos.isEmpty()) {
 			return;
 		}
@@ -634,16 +908,6 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		result.setDeviceKeywordInfos(deviceKeywordInfos);
 	}
 
-	private void readAttenuationEvent(TraceDirectoryResult result) {
-		List<AttenuatorEvent> attenuatorEvents = attnrEventReader.readData(result.getTraceDirectory());
-		result.setAttenautionEvent(attenuatorEvents);
-	}
-
-	private void readThrottleEvent(TraceDirectoryResult result) {
-		List<SpeedThrottleEvent> speedThrottleEvents = speedThrottleReader.readData(result.getTraceDirectory());
-		result.setSpeedThrottleEvent(speedThrottleEvents);
-	}
-
 	/**
 	 * Method to read times from the video time trace file and store video time
 	 * variables.
@@ -658,7 +922,10 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		}
 		LOGGER.info("dirParent: " + dirParent);
 
-		VideoTime vtime = videotimereader.readData(dirParent, result.getTraceDateTime());
+		setVideoTime(result, videotimereader.readData(dirParent, result.getTraceDateTime()));
+	}
+
+	private void setVideoTime(AbstractTraceResult result, VideoTime vtime) {
 		result.setVideoStartTime(vtime.getVideoStartTime());
 		result.setExVideoFound(vtime.isExVideoFound());
 		result.setExVideoTimeFileNotFound(vtime.isExVideoTimeFileNotFound());
@@ -681,73 +948,56 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 			// this.packetreader = new PacketReaderImpl();
 			throw new NullPointerException("this.packetreader is null");
 		}
-		this.packetreader.readPacket(filepath, this);
+		// Determine if timezone difference needs to be accounted for
+		int tzDiff = 0;
+		int captureOffset = result.getCaptureOffset();
+		if (captureOffset != -1) {
+			int localOffset = Calendar.getInstance().getTimeZone().getRawOffset() / 1000;
+			int collectorOffset = captureOffset * 60 * -1;
+			tzDiff = collectorOffset - localOffset;
+		}
+
+		PacketTagger tagger = new PacketTagger(result, startTime, tzDiff);
+		ExecutorService taggingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "packetTagger");
+			thread.setDaemon(true);
+			return thread;
+		});
+		packetTagger = tagger;
+		try {
+			tagger.start(taggingExecutor);
+			try {
+				// packets of earlier files are tagged again along with the new ones
+				for (PacketInfo packetInfo : allPackets) {
+					tagger.add(packetInfo);
+				}
+				if (cachedPackets != null) {
+					for (Packet packet : cachedPackets) {
+						addToAllPackets(null, packet);
+					}
+				} else {
+					this.packetreader.readPacket(filepath, this);
+				}
+			} catch (PacketReadAbortedException e) {
+				// tagging failed, finish() reports why
+			}
+			allPackets = tagger.finish();
+		} finally {
+			packetTagger = null;
+			taggingExecutor.shutdownNow();
+		}
 
 		double pcapTime0 = 0;
 		double traceDuration = 0;
-		// Determine application name associated with each packet
-		if (!allPackets.isEmpty()) {
-
-			pcapTime0 = startTime != null ? startTime.doubleValue() : allPackets.get(0).getPacket().getTimeStamp();
-			traceDuration = duration != null ? duration.doubleValue()
-					: allPackets.get(allPackets.size() - 1).getPacket().getTimeStamp() - pcapTime0;
-			List<Integer> appIds = result.getAppIds();
-			if (appIds == null) {
-				appIds = Collections.emptyList();
-				result.setAppIds(appIds);
-			}
+		if (tagger.getPacketCount() > 0) {
 
-			// Determine if timezone difference needs to be accounted for
-			int tzDiff = 0;
-			int captureOffset = result.getCaptureOffset();
-			if (captureOffset != -1) {
-				int localOffset = Calendar.getInstance().getTimeZone().getRawOffset() / 1000;
-				int collectorOffset = captureOffset * 60 * -1;
-				tzDiff = collectorOffset - localOffset;
+			pcapTime0 = tagger.getPcapTime0();
+			traceDuration = duration != null ? duration.doubleValue() : tagger.getLastTimeStamp() - pcapTime0;
+			if (result.getAppIds() == null) {
+				result.setAppIds(Collections.<Integer>emptyList());
 			}
 			result.setPcapTimeOffset(pcapTime0 - tzDiff);
 
-			int packetIdx = 0;
-			List<String> appInfos = result.getAppInfos();
-			Set<String> allAppNames = result.getAllAppNames();
-			Map<String, Set<InetAddress>> appIps = result.getAppIps();
-			for (Iterator<PacketInfo> iter = allPackets.iterator(); iter.hasNext();) {
-				PacketInfo packetInfo = iter.next();
-
-				// Filter out non-IP packets
-				if (!(packetInfo.getPacket() instanceof IPPacket)) {
-					iter.remove();
-					continue;
-				}
-
-				IPPacket ipPacket = (IPPacket) packetInfo.getPacket();
-				
-				PacketDirection packetDirection = determinePacketDirection(packetInfo, ipPacket.getSourceIPAddress(), ipPacket.getDestinationIPAddress());
-				
-				if (packetDirection.equals(PacketDirection.UNKNOWN) && (ipPacket instanceof TCPPacket || ipPacket instanceof UDPPacket)) {
-					unknownPackets.add(packetInfo);
-				}
-				
-				packetInfo.setDir(packetDirection);
-				packetInfo.setTimestamp(ipPacket.getTimeStamp() - pcapTime0 - tzDiff);
-
-				// Associate application ID with the packet
-				String appName = getAppNameForPacket(packetIdx, appIds, appInfos);
-				packetInfo.setAppName(appName);
-				allAppNames.add(appName);
-
-				// Group IPs by app
-				Set<InetAddress> ips = appIps.get(appName);
-				if (ips == null) {
-					ips = new HashSet<InetAddress>();
-					appIps.put(appName, ips);
-				}
-				ips.add(packetInfo.getRemoteIPAddress());
-
-				// Set packet ID to match Wireshark ID
-				packetInfo.setPacketId(++packetIdx);
-			}
-			
 			if (!unknownPackets.isEmpty()) {
 				for (Iterator<PacketInfo> iterator = unknownPackets.iterator(); iterator.hasNext();) {
 					PacketInfo packetInfo = iterator.next();
@@ -781,7 +1031,9 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 				LOGGER.error("Packets with no direction identified.");
 			}
 			
-			Collections.sort(allPackets);
+			if (!tagger.isOrdered()) {
+				LOGGER.debug("Packets too far out of timestamp order for the reorder buffer, sorted " + filepath);
+			}
 		} else {
 			pcapTime0 = startTime != null ? startTime.doubleValue() : filereader.getLastModified(filepath) / 1000.0;
 			traceDuration = duration != null ? duration.doubleValue() : 0.0;
@@ -799,7 +1051,12 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 			LOGGER.error("Secure packet file unavailable at: " + filepath);
 			return result;
 		}
-		this.packetreader.readPacket(filepath, this);
+		buildTcpPacketIndex();
+		try {
+			this.packetreader.readPacket(filepath, this);
+		} finally {
+			tcpPacketIndex = null;
+		}
 		return result;
 	}
 
@@ -911,25 +1168,48 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		if (isSecurePcap) {
 			updatePacket(packet);
 		} else {
+			if (arrivedPackets != null) {
+				arrivedPackets.add(packet);
+				arrivedPacketData.add(packet.getData());
+			}
 			addToAllPackets(appName, packet);
 		}
 	}
 
-	private void updatePacket(Packet packet) {
-		if (packet instanceof TCPPacket) {
+	/**
+	 * Index the TCP packets read so far by source, destination, sequence and ack number, so each packet of the
+	 * secure pcap is matched with a single lookup instead of a scan over all packets.
+	 */
+	void buildTcpPacketIndex() {
+		tcpPacketIndex = new HashMap<>(allPackets.size() * 2);
+		for (PacketInfo info : allPackets) {
+			if (info.getPacket() instanceof TCPPacket) {
+				TCPPacket tcpPacket = (TCPPacket) info.getPacket();
+				TcpPacketKey key = new TcpPacketKey(tcpPacket.getSourceIPAddress(), tcpPacket.getDestinationIPAddress(),
+						tcpPacket.getSequenceNumber(), tcpPacket.getAckNumber());
+				List<TCPPacket> packets = tcpPacketIndex.get(key);
+				if (packets == null) {
+					packets = new ArrayList<>(1);
+					tcpPacketIndex.put(key, packets);
+				}
+				packets.add(tcpPacket);
+			}
+		}
+	}
+
+	/**
+	 * Replace the payload of every matching TCP packet with the decrypted payload from the secure pcap
+	 */
+	void updatePacket(Packet packet) {
+		if (packet instanceof TCPPacket && packet.getData().length > 66) {
 			TCPPacket ipPacket = (TCPPacket) packet;
-			for (PacketInfo info : allPackets) {
-				Packet curPacket = (Packet) info.getPacket();
-				if (curPacket instanceof TCPPacket) {
-					TCPPacket tcpPacket = (TCPPacket) curPacket;
-					if (ipPacket.getDestinationIPAddress().equals(tcpPacket.getDestinationIPAddress())
-							&& ipPacket.getSourceIPAddress().equals(tcpPacket.getSourceIPAddress())
-							&& ipPacket.getSequenceNumber() == tcpPacket.getSequenceNumber()
-							&& ipPacket.getAckNumber() == tcpPacket.getAckNumber() && packet.getData().length > 66) {
-						byte[] data = Arrays.copyOfRange(packet.getData(), 66, packet.getData().length);
-						tcpPacket.setDecrypted(true);
-						curPacket.setData(data);
-					}
+			List<TCPPacket> packets = tcpPacketIndex.get(new TcpPacketKey(ipPacket.getSourceIPAddress(),
+					ipPacket.getDestinationIPAddress(), ipPacket.getSequenceNumber(), ipPacket.getAckNumber()));
+			if (packets != null) {
+				for (TCPPacket tcpPacket : packets) {
+					byte[] data = Arrays.copyOfRange(packet.getData(), 66, packet.getData().length);
+					tcpPacket.setDecrypted(true);
+					tcpPacket.setData(data);
 				}
 			}
 		}
@@ -944,7 +1224,167 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 			addIpCount(ipack.getSourceIPAddress());
 			addIpCount(ipack.getDestinationIPAddress());
 		}
-		allPackets.add(new PacketInfo(appName, packet));
+		packetTagger.add(new PacketInfo(appName, packet));
+	}
+
+	/**
+	 * Second stage of reading a packet file: while the file is decoded, filters out non-IP packets and tags the
+	 * packets with direction, relative timestamp, application and id on a thread of its own, then puts them in
+	 * timestamp order. Packets are handed over in batches through a bounded queue, so decoding waits when tagging
+	 * falls behind.
+	 */
+	private class PacketTagger implements Callable<List<PacketInfo>> {
+
+		private final BlockingQueue<List<PacketInfo>> queue = new ArrayBlockingQueue<>(PACKET_QUEUE_BATCHES);
+		private final PacketReorderBuffer reorderBuffer = new PacketReorderBuffer(REORDER_BUFFER_SIZE);
+		private final Double startTime;
+		private final int tzDiff;
+		private final List<Integer> appIds;
+		private final List<String> appInfos;
+		private final Set<String> allAppNames;
+		private final Map<String, Set<InetAddress>> appIps;
+		private List<PacketInfo> batch = new ArrayList<>(PACKET_BATCH_SIZE);
+		private Future<List<PacketInfo>> tagging;
+
+		// set by the tagging thread, read once it is done
+		private int packetCount;
+		private int packetIdx;
+		private double pcapTime0;
+		private double lastTimeStamp;
+
+		PacketTagger(AbstractTraceResult result, Double startTime, int tzDiff) {
+			this.startTime = startTime;
+			this.tzDiff = tzDiff;
+			this.appIds = result.getAppIds() != null ? result.getAppIds() : Collections.<Integer>emptyList();
+			this.appInfos = result.getAppInfos();
+			this.allAppNames = result.getAllAppNames();
+			this.appIps = result.getAppIps();
+		}
+
+		void start(ExecutorService executor) {
+			tagging = executor.submit(this);
+		}
+
+		/**
+		 * @throws PacketReadAbortedException once the tagging thread has stopped, decoding the rest of the file is
+		 *             of no use
+		 */
+		void add(PacketInfo packetInfo) {
+			batch.add(packetInfo);
+			if (batch.size() == PACKET_BATCH_SIZE) {
+				handOver(batch);
+				batch = new ArrayList<>(PACKET_BATCH_SIZE);
+			}
+		}
+
+		/**
+		 * @return the IP packets in timestamp order
+		 */
+		List<PacketInfo> finish() throws IOException {
+			try {
+				if (!batch.isEmpty()) {
+					handOver(batch);
+				}
+				handOver(END_OF_PACKETS);
+			} catch (PacketReadAbortedException e) {
+				// the cause is rethrown below
+			}
+			try {
+				return tagging.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while tagging packets", e);
+			} catch (CancellationException e) {
+				throw new IOException("Interrupted while tagging packets", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException("Failed to tag packets", e.getCause());
+			}
+		}
+
+		private void handOver(List<PacketInfo> packets) {
+			try {
+				// a failed tagging thread no longer takes batches, finish() reports its failure
+				while (!tagging.isDone()) {
+					if (queue.offer(packets, 100, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				tagging.cancel(true);
+			}
+			throw new PacketReadAbortedException("Packet tagging has stopped");
+		}
+
+		@Override
+		public List<PacketInfo> call() throws InterruptedException {
+			for (List<PacketInfo> packets = queue.take(); packets != END_OF_PACKETS; packets = queue.take()) {
+				for (PacketInfo packetInfo : packets) {
+					tag(packetInfo);
+				}
+			}
+			return reorderBuffer.drain();
+		}
+
+		private void tag(PacketInfo packetInfo) {
+			double timeStamp = packetInfo.getPacket().getTimeStamp();
+			if (packetCount++ == 0) {
+				pcapTime0 = startTime != null ? startTime.doubleValue() : timeStamp;
+			}
+			lastTimeStamp = timeStamp;
+
+			// Filter out non-IP packets
+			if (!(packetInfo.getPacket() instanceof IPPacket)) {
+				return;
+			}
+
+			IPPacket ipPacket = (IPPacket) packetInfo.getPacket();
+
+			PacketDirection packetDirection = determinePacketDirection(packetInfo, ipPacket.getSourceIPAddress(), ipPacket.getDestinationIPAddress());
+
+			if (packetDirection.equals(PacketDirection.UNKNOWN) && (ipPacket instanceof TCPPacket || ipPacket instanceof UDPPacket)) {
+				unknownPackets.add(packetInfo);
+			}
+
+			packetInfo.setDir(packetDirection);
+			packetInfo.setTimestamp(ipPacket.getTimeStamp() - pcapTime0 - tzDiff);
+
+			// Associate application ID with the packet
+			String appName = getAppNameForPacket(packetIdx, appIds, appInfos);
+			packetInfo.setAppName(appName);
+			allAppNames.add(appName);
+
+			// Group IPs by app
+			Set<InetAddress> ips = appIps.get(appName);
+			if (ips == null) {
+				ips = new HashSet<InetAddress>();
+				appIps.put(appName, ips);
+			}
+			ips.add(packetInfo.getRemoteIPAddress());
+
+			// Set packet ID to match Wireshark ID
+			packetInfo.setPacketId(++packetIdx);
+			reorderBuffer.add(packetInfo);
+		}
+
+		int getPacketCount() {
+			return packetCount;
+		}
+
+		double getPcapTime0() {
+			return pcapTime0;
+		}
+
+		double getLastTimeStamp() {
+			return lastTimeStamp;
+		}
+
+		boolean isOrdered() {
+			return reorderBuffer.isOrdered();
+		}
 	}
 
 	/**
@@ -963,119 +1403,94 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	}
 
 	/**
-	 * some of the trace files read here
-	 *
-	 * Parses the user event trace
-	 * 
-	 * @throws IOException
-	 *
-	 *             Reads the screen rotations information contained in the
-	 *             "screen_rotations" file found inside the trace directory and adds
-	 *             them to the user events list.
-	 * @throws IOException
-	 *             Reads the CPU trace information from the CPU file.
-	 * 
-	 * @throws IOException
-	 *             Method to read the GPS data from the trace file and store it in
-	 *             the gpsInfos list. It also updates the active duration for GPS.
-	 *             Method to read the Bluetooth data from the trace file and store
-	 *             it in the bluetoothInfos list. It also updates the active
-	 *             duration for Bluetooth.
-	 * 
-	 * @throws IOException
-	 *             Method to read the Camera data from the trace file and store it
-	 *             in the cameraInfos list. It also updates the active duration for
-	 *             Camera.
-	 * 
-	 *             Method to read the WIFI data from the trace file and store it in
-	 *             the wifiInfos list. It also updates the active duration for Wifi.
-	 * 
-	 *             Method to read the Screen State data from the trace file and
-	 *             store it in the ScreenStateInfos list.
-	 * 
-	 *             Method to read the Battery data from the trace file and store it
-	 *             in the batteryInfos list.
-	 * 
-	 *             Method to read the alarm event from the trace file and store it
-	 *             in the alarmInfos list.
-	 *
-	 *             Reads the Radio data from the file and stores it in the
-	 *             RadioInfo.
-	 * @param result
+	 * Peripheral trace files read on the peripheral pool while the packets are
+	 * decoded. Each read hands back what it sets on the result, applied in
+	 * submission order so the merged result does not depend on which read ends
+	 * first.
 	 */
-	public void readFileUtil(TraceDirectoryResult result) {
-		NetworkTypeObject obj = networktypereader.readData(result.getTraceDirectory(), result.getPcapTime0(),
-				result.getTraceDuration());
-		if (obj != null) {
-			result.setNetworkTypeInfos(obj.getNetworkTypeInfos());
-			result.setNetworkTypesList(obj.getNetworkTypesList());
-		}
-
-		CollectOptions collectOptions = collectOptionsReader.readData(result.getTraceDirectory());
-		result.setCollectOptions(collectOptions);
-
-		List<UserEvent> userEvents = usereventreader.readData(result.getTraceDirectory(), result.getEventTime0(),
-				result.getPcapTime0());
-		result.setUserEvents(userEvents);
-
-		List<UserEvent> list = this.screenrotationreader.readData(result.getTraceDirectory(), result.getPcapTime0());
-		result.setScreenRotationCounter(list.size());
-		result.getUserEvents().addAll(list);
-
-		List<TemperatureEvent> temperatureEvents = cputemperaturereader.readData(result.getTraceDirectory(),
-				result.getPcapTime0());
-		result.setTemperatureInfos(temperatureEvents);
-
-		List<LocationEvent> locationEvents = locationreader.readData(result.getTraceDirectory(), result.getPcapTime0());
-		result.setLocationEventInfos(locationEvents);
-
-		CpuActivityList cpuActivityList = cpureader.readData(result.getTraceDirectory(), result.getPcapTime0());
-		result.setCpuActivityList(cpuActivityList);
-
-		List<GpsInfo> gpsInfos = gpsreader.readData(result.getTraceDirectory(), result.getPcapTime0(),
-				result.getTraceDuration());
-		result.setGpsInfos(gpsInfos);
-		result.setGpsActiveDuration(gpsreader.getGpsActiveDuration());
-
-		List<BluetoothInfo> bluetoothInfos = bluetoothreader.readData(result.getTraceDirectory(), result.getPcapTime0(),
-				result.getTraceDuration());
-		result.setBluetoothInfos(bluetoothInfos);
-		result.setBluetoothActiveDuration(bluetoothreader.getBluetoothActiveDuration());
-
-		List<WifiInfo> wifiInfos = wifireader.readData(result.getTraceDirectory(), result.getPcapTime0(),
-				result.getTraceDuration());
-		result.setWifiInfos(wifiInfos);
-		result.setWifiActiveDuration(wifireader.getWifiActiveDuration());
-
-		List<CameraInfo> cameraInfos = camerareader.readData(result.getTraceDirectory(), result.getPcapTime0(),
-				result.getTraceDuration());
-		result.setCameraInfos(cameraInfos);
-		result.setCameraActiveDuration(camerareader.getActiveDuration());
-
-		List<ThermalStatusInfo> thermalStatusInfos = new ThermalStatusReaderImpl(filereader)
-				.readData(result.getTraceDirectory(), result.getPcapTime0(), result.getTraceDuration());
-		result.setThermalstatusInfos(thermalStatusInfos);
-
-		List<ScreenStateInfo> screenStateInfos = screenstatereader.readData(result.getTraceDirectory(),
-				result.getPcapTime0(), result.getTraceDuration());
-		result.setScreenStateInfos(screenStateInfos);
-
-		List<BatteryInfo> batteryInfos = batteryinforeader.readData(result.getTraceDirectory(), result.getPcapTime0());
-		result.setBatteryInfos(batteryInfos);
-
-		// alarm info from kernel log file
-		List<AlarmInfo> alarmInfos = alarminforeader.readData(result.getTraceDirectory(),
-				result.getDumpsysEpochTimestamp(), result.getDumpsysElapsedTimestamp(), result.getTraceDateTime());
-		result.setAlarmInfos(alarmInfos);
-
-		List<RadioInfo> radioInfos = radioinforeader.readData(result.getTraceDirectory(), result.getPcapTime0());
-		result.setRadioInfos(radioInfos);
-		
-		VideoStreamStartupData videoStreamStartupData = videoStartupReader.readData(result.getTraceDirectory());
-		result.setVideoStartupData(videoStreamStartupData);
-		
-		result.setMetaData(metaDataReadWrite.readData(result.getTraceDirectory()));
-		
+	private class PeripheralReads {
+
+		private final List<Future<Consumer<TraceDirectoryResult>>> reads = new ArrayList<>();
+		private boolean timed;
+
+		void submit(Callable<Consumer<TraceDirectoryResult>> read) {
+			reads.add(peripheralPool.submit(read));
+		}
+
+		void setTimed() {
+			timed = true;
+		}
+
+		/**
+		 * @return true once the reads aligned to the start of the trace were
+		 *         submitted
+		 */
+		boolean isTimed() {
+			return timed;
+		}
+
+		void mergeInto(TraceDirectoryResult result) {
+			try {
+				for (Future<Consumer<TraceDirectoryResult>> read : reads) {
+					read.get().accept(result);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Interrupted while reading the peripheral files");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException("Failed to read the peripheral files", e.getCause());
+			}
+		}
+
+		/**
+		 * Cancels the reads that are not merged, when the packets could not be
+		 * read
+		 */
+		void cancel() {
+			for (Future<Consumer<TraceDirectoryResult>> read : reads) {
+				read.cancel(true);
+			}
+		}
 	}
 
-}// end class
+	private static final class TcpPacketKey {
+		private final InetAddress source;
+		private final InetAddress destination;
+		private final long sequenceNumber;
+		private final long ackNumber;
+
+		TcpPacketKey(InetAddress source, InetAddress destination, long sequenceNumber, long ackNumber) {
+			this.source = source;
+			this.destination = destination;
+			this.sequenceNumber = sequenceNumber;
+			this.ackNumber = ackNumber;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = source.hashCode();
+			hash = 31 * hash + destination.hashCode();
+			hash = 31 * hash + Long.hashCode(sequenceNumber);
+			return 31 * hash + Long.hashCode(ackNumber);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TcpPacketKey)) {
+				return false;
+			}
+			TcpPacketKey other = (TcpPacketKey) obj;
+			return sequenceNumber == other.sequenceNumber && ackNumber == other.ackNumber
+					&& source.equals(other.source) && destination.equals(other.destination);
+		}
+	}
+}
@@ -0,0 +1,462 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.att.aro.core.packetanalysis.ITracePacketCache;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.util.Util;
+
+/**
+ * Packet cache stored in VideoOptimizerLibrary/PacketCache, one file per trace directory.
+ * 
+ * <pre>
+ * int     magic, version
+ * int     length of the trace directory path, followed by the UTF-8 path
+ * long    traffic.cap size, modified time and CRC32 of its first 64KB
+ * long    secure_traffic.cap size and modified time, -1 when there is none
+ * int     packet count, followed by one column per packet field:
+ * long[]  seconds
+ * int[]   microseconds
+ * int[]   length
+ * short[] datalink header length
+ * int[]   data length
+ * int[]   decrypted payload length, -1 when the packet was not decrypted
+ * byte[]  data of all packets, then the decrypted payloads
+ * int     size of the unfiltered packet list the sessions were assembled from, -1 until sessions are stored
+ * int     session count
+ * int[]   start of each session in the packet index column, followed by the end of the column
+ * int[]   packet index column, the positions in the unfiltered packet list of the packets of each session
+ * </pre>
+ * 
+ * Packets are decoded again from their data when the cache is read. Sessions are only stored for the unfiltered
+ * analysis, the request and response analysis of each session is not cached.
+ */
+public class TracePacketCacheImpl implements ITracePacketCache {
+	private static final Logger LOGGER = LogManager.getLogger(TracePacketCacheImpl.class.getName());
+
+	private static final int MAGIC = 0x564F5043;
+	private static final int VERSION = 2;
+	private static final String CACHE_EXTENSION = ".pktcache";
+	private static final int MAX_CACHED_TRACES = 20;
+	private static final int HASHED_LENGTH = 64 * 1024;
+
+	private static final short IPV4 = 0x0800;
+	private static final short IPV6 = (short) 0x86DD;
+
+	@Autowired
+	private IPacketService packetService;
+
+	private String cacheDirectory = Util.getVideoOptimizerLibrary() + Util.FILE_SEPARATOR + "PacketCache";
+
+	void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public List<Packet> readPackets(String traceDirectory) {
+		File cacheFile = getCacheFile(traceDirectory);
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		long start = System.currentTimeMillis();
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = mapCurrent(channel, traceDirectory, cacheFile);
+			if (buffer == null) {
+				return null;
+			}
+
+			int count = buffer.getInt();
+			long[] seconds = new long[count];
+			int[] microSeconds = new int[count];
+			int[] lengths = new int[count];
+			short[] datalinkHdrLengths = new short[count];
+			int[] dataLengths = new int[count];
+			int[] decryptedLengths = new int[count];
+			buffer.asLongBuffer().get(seconds);
+			buffer.position(buffer.position() + count * 8);
+			buffer.asIntBuffer().get(microSeconds);
+			buffer.position(buffer.position() + count * 4);
+			buffer.asIntBuffer().get(lengths);
+			buffer.position(buffer.position() + count * 4);
+			buffer.asShortBuffer().get(datalinkHdrLengths);
+			buffer.position(buffer.position() + count * 2);
+			buffer.asIntBuffer().get(dataLengths);
+			buffer.position(buffer.position() + count * 4);
+			buffer.asIntBuffer().get(decryptedLengths);
+			buffer.position(buffer.position() + count * 4);
+
+			List<Packet> packets = new ArrayList<>(count);
+			for (int index = 0; index < count; index++) {
+				byte[] data = new byte[dataLengths[index]];
+				buffer.get(data);
+				int datalinkHdrLen = datalinkHdrLengths[index];
+				packets.add(packetService.createPacket(getNetwork(data, datalinkHdrLen), seconds[index], microSeconds[index],
+						lengths[index], datalinkHdrLen, data));
+			}
+			for (int index = 0; index < count; index++) {
+				if (decryptedLengths[index] >= 0) {
+					byte[] decrypted = new byte[decryptedLengths[index]];
+					buffer.get(decrypted);
+					TCPPacket tcpPacket = (TCPPacket) packets.get(index);
+					tcpPacket.setDecrypted(true);
+					tcpPacket.setData(decrypted);
+				}
+			}
+			// keep the most recently used traces when the cache is pruned
+			cacheFile.setLastModified(System.currentTimeMillis());
+			LOGGER.info(String.format("Read %d packets from packet cache in %d ms", count, System.currentTimeMillis() - start));
+			return packets;
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to read packet cache " + cacheFile, e);
+			return null;
+		}
+	}
+
+	@Override
+	public void writePackets(String traceDirectory, List<Packet> packets, List<byte[]> packetData) {
+		long[] stamp = getTraceStamp(traceDirectory);
+		if (stamp == null || packets.isEmpty() || !isCacheable(packets, packetData)) {
+			return;
+		}
+		File directory = new File(cacheDirectory);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			LOGGER.warn("Unable to create packet cache directory " + cacheDirectory);
+			return;
+		}
+		File cacheFile = getCacheFile(traceDirectory);
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+		int count = packets.size();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			byte[] path = getTracePath(traceDirectory).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(path.length);
+			out.write(path);
+			for (long value : stamp) {
+				out.writeLong(value);
+			}
+			out.writeInt(count);
+			for (Packet packet : packets) {
+				out.writeLong(packet.getSeconds());
+			}
+			for (Packet packet : packets) {
+				out.writeInt((int) packet.getMicroSeconds());
+			}
+			for (Packet packet : packets) {
+				out.writeInt(packet.getLen());
+			}
+			for (Packet packet : packets) {
+				out.writeShort(packet.getDatalinkHeaderSize());
+			}
+			for (byte[] data : packetData) {
+				out.writeInt(data.length);
+			}
+			for (Packet packet : packets) {
+				out.writeInt(isDecrypted(packet) ? packet.getData().length : -1);
+			}
+			for (byte[] data : packetData) {
+				out.write(data);
+			}
+			for (Packet packet : packets) {
+				if (isDecrypted(packet)) {
+					out.write(packet.getData());
+				}
+			}
+			out.writeInt(-1);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write packet cache " + cacheFile, e);
+			tempFile.delete();
+			return;
+		}
+		try {
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write packet cache " + cacheFile, e);
+			tempFile.delete();
+			return;
+		}
+		pruneCache();
+	}
+
+	@Override
+	public int[] readSessions(String traceDirectory, int packetCount) {
+		File cacheFile = getCacheFile(traceDirectory);
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = mapCurrent(channel, traceDirectory, cacheFile);
+			if (buffer == null) {
+				return null;
+			}
+			skipPackets(buffer);
+			if (buffer.getInt() != packetCount) {
+				return null;
+			}
+			int[] sessionStarts = new int[buffer.getInt() + 1];
+			buffer.asIntBuffer().get(sessionStarts);
+			buffer.position(buffer.position() + sessionStarts.length * 4);
+			int[] packetIndices = new int[sessionStarts[sessionStarts.length - 1]];
+			buffer.asIntBuffer().get(packetIndices);
+
+			int[] packetSessions = new int[packetCount];
+			Arrays.fill(packetSessions, -1);
+			for (int session = 0; session < sessionStarts.length - 1; session++) {
+				for (int index = sessionStarts[session]; index < sessionStarts[session + 1]; index++) {
+					packetSessions[packetIndices[index]] = session;
+				}
+			}
+			return packetSessions;
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to read sessions from packet cache " + cacheFile, e);
+			return null;
+		}
+	}
+
+	@Override
+	public void writeSessions(String traceDirectory, List<PacketInfo> packets, List<Session> sessions) {
+		File cacheFile = getCacheFile(traceDirectory);
+		if (!cacheFile.isFile()) {
+			return;
+		}
+		int[] positions = getPositions(packets);
+		if (positions == null) {
+			LOGGER.debug("Sessions not cached, packet ids are not unique");
+			return;
+		}
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = mapCurrent(channel, traceDirectory, cacheFile);
+			if (buffer == null) {
+				return;
+			}
+			skipPackets(buffer);
+			long size = buffer.position() + 8L + 4L * (sessions.size() + 1);
+			for (Session session : sessions) {
+				size += 4L * session.getAllPackets().size();
+			}
+			if (size >= Integer.MAX_VALUE) {
+				return;
+			}
+			try (FileOutputStream file = new FileOutputStream(tempFile)) {
+				channel.transferTo(0, buffer.position(), file.getChannel());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+				out.writeInt(packets.size());
+				out.writeInt(sessions.size());
+				int start = 0;
+				for (Session session : sessions) {
+					out.writeInt(start);
+					start += session.getAllPackets().size();
+				}
+				out.writeInt(start);
+				for (Session session : sessions) {
+					for (PacketInfo packetInfo : session.getAllPackets()) {
+						out.writeInt(positions[packetInfo.getPacketId()]);
+					}
+				}
+				out.flush();
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to write sessions to packet cache " + cacheFile, e);
+			tempFile.delete();
+			return;
+		}
+		try {
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write sessions to packet cache " + cacheFile, e);
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Maps the cache file and reads its header.
+	 * 
+	 * @return the buffer positioned after the header, null when the file belongs to another version, another trace
+	 *         or an older state of the trace files
+	 */
+	private MappedByteBuffer mapCurrent(FileChannel channel, String traceDirectory, File cacheFile) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			LOGGER.info("Ignoring packet cache of another version: " + cacheFile);
+			return null;
+		}
+		byte[] path = new byte[buffer.getInt()];
+		buffer.get(path);
+		long[] stamp = new long[5];
+		for (int index = 0; index < stamp.length; index++) {
+			stamp[index] = buffer.getLong();
+		}
+		if (!getTracePath(traceDirectory).equals(new String(path, StandardCharsets.UTF_8))
+				|| !Arrays.equals(stamp, getTraceStamp(traceDirectory))) {
+			LOGGER.debug("Packet cache is out of date: " + cacheFile);
+			return null;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Moves the buffer from the packet count to the session section.
+	 */
+	private static void skipPackets(ByteBuffer buffer) {
+		int count = buffer.getInt();
+		buffer.position(buffer.position() + count * (8 + 4 + 4 + 2));
+		long dataLength = 0;
+		for (int index = 0; index < count; index++) {
+			dataLength += buffer.getInt();
+		}
+		for (int index = 0; index < count; index++) {
+			dataLength += Math.max(0, buffer.getInt());
+		}
+		buffer.position((int) (buffer.position() + dataLength));
+	}
+
+	/**
+	 * @return position of each packet in the list, indexed by packet id, or null when the ids are not unique
+	 */
+	private static int[] getPositions(List<PacketInfo> packets) {
+		int maxId = 0;
+		for (PacketInfo packetInfo : packets) {
+			maxId = Math.max(maxId, packetInfo.getPacketId());
+		}
+		int[] positions = new int[maxId + 1];
+		Arrays.fill(positions, -1);
+		for (int index = 0; index < packets.size(); index++) {
+			int packetId = packets.get(index).getPacketId();
+			if (packetId < 0 || positions[packetId] >= 0) {
+				return null;
+			}
+			positions[packetId] = index;
+		}
+		return positions;
+	}
+
+	/**
+	 * Only packets whose IP header follows the datalink header can be decoded again from their data, and the cache
+	 * file has to fit in a single mapped buffer.
+	 */
+	private boolean isCacheable(List<Packet> packets, List<byte[]> packetData) {
+		long size = 0;
+		for (int index = 0; index < packets.size(); index++) {
+			Packet packet = packets.get(index);
+			byte[] data = packetData.get(index);
+			if (data == null || packet.getMicroSeconds() > Integer.MAX_VALUE) {
+				return false;
+			}
+			if (packet instanceof IPPacket && getNetwork(data, packet.getDatalinkHeaderSize()) == 0) {
+				LOGGER.debug("Packet cache not written, packet " + (index + 1) + " has no IP header after the datalink header");
+				return false;
+			}
+			size += 30 + data.length + (isDecrypted(packet) ? packet.getData().length : 0);
+		}
+		return size < Integer.MAX_VALUE - (1 << 16);
+	}
+
+	private static boolean isDecrypted(Packet packet) {
+		return packet instanceof TCPPacket && ((TCPPacket) packet).isDecrypted();
+	}
+
+	private static short getNetwork(byte[] data, int datalinkHdrLen) {
+		if (data.length <= datalinkHdrLen) {
+			return 0;
+		}
+		int version = (data[datalinkHdrLen] & 0xF0) >> 4;
+		return version == 6 ? IPV6 : version == 4 ? IPV4 : 0;
+	}
+
+	/**
+	 * @return size, modified time and hash of the first 64KB of traffic.cap, size and modified time of
+	 *         secure_traffic.cap, or null when the directory has no traffic.cap
+	 */
+	private long[] getTraceStamp(String traceDirectory) {
+		File pcapFile = new File(traceDirectory, TraceDataConst.FileName.PCAP_FILE);
+		if (!pcapFile.isFile()) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		try (InputStream input = new BufferedInputStream(new FileInputStream(pcapFile))) {
+			byte[] buffer = new byte[8192];
+			int remaining = HASHED_LENGTH;
+			int read;
+			while (remaining > 0 && (read = input.read(buffer, 0, Math.min(buffer.length, remaining))) > 0) {
+				crc.update(buffer, 0, read);
+				remaining -= read;
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read " + pcapFile, e);
+			return null;
+		}
+		File securePcapFile = new File(traceDirectory, TraceDataConst.FileName.SECURE_PCAP_FILE);
+		boolean secure = securePcapFile.isFile();
+		return new long[] { pcapFile.length(), pcapFile.lastModified(), crc.getValue(), secure ? securePcapFile.length() : -1,
+				secure ? securePcapFile.lastModified() : -1 };
+	}
+
+	private static String getTracePath(String traceDirectory) {
+		return new File(traceDirectory).getAbsolutePath();
+	}
+
+	private File getCacheFile(String traceDirectory) {
+		return new File(cacheDirectory, Integer.toHexString(getTracePath(traceDirectory).hashCode()) + CACHE_EXTENSION);
+	}
+
+	/**
+	 * Delete the least recently used cache files over MAX_CACHED_TRACES
+	 */
+	private void pruneCache() {
+		File[] cacheFiles = new File(cacheDirectory).listFiles((dir, name) -> name.endsWith(CACHE_EXTENSION));
+		if (cacheFiles == null || cacheFiles.length <= MAX_CACHED_TRACES) {
+			return;
+		}
+		Arrays.sort(cacheFiles, Comparator.comparingLong(File::lastModified).reversed());
+		for (int index = MAX_CACHED_TRACES; index < cacheFiles.length; index++) {
+			if (!cacheFiles[index].delete()) {
+				LOGGER.debug("Unable to delete packet cache " + cacheFiles[index]);
+			}
+		}
+	}
+}
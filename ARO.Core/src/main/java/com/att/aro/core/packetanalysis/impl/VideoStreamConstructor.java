@@ -64,6 +64,7 @@ import com.att.aro.core.videoanalysis.pojo.VideoEvent.VideoType;
 import com.att.aro.core.videoanalysis.pojo.VideoFormat;
 import com.att.aro.core.videoanalysis.pojo.VideoStream;
 import com.att.aro.core.videoanalysis.videoframe.FFmpegRunner;
+import com.att.aro.core.videoanalysis.videoframe.SegmentProbe;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -115,6 +116,15 @@ public class VideoStreamConstructor {
 		ffmpegRunner = new FFmpegRunner(streamingVideoData, getDefaultThumbnail(), filemanager, extrunner, stringParse);
 		return ffmpegRunner;
 	}
+
+	/**
+	 * Every segment of the trace has been handed to ffmpeg, see {@link FFmpegRunner#submissionComplete()}.
+	 */
+	public void segmentsComplete() {
+		if (ffmpegRunner != null) {
+			ffmpegRunner.submissionComplete();
+		}
+	}
 	
 	public String extractExtensionFromRequest(HttpRequestResponseInfo req) {
 		String string = extractFullNameFromRRInfo(req);
@@ -207,8 +217,14 @@ public class VideoStreamConstructor {
 		savePayload(content, fullPathName);
 		videoEvent.setSegmentPathName(fullPathName);
 		
+		// stream details come from the segment in memory, ffmpeg is left with the thumbnails of video segments
+		SegmentProbe segmentProbe = SegmentProbe.probe(childManifest.getManifest().isVideoFormat(VideoFormat.MPEG4) ? childManifest.getMoovContent() : null, content);
+		if (segmentProbe != null) {
+			segmentProbe.applyTo(videoEvent);
+		}
 		String tempClippingFullPath = buildSegmentFullPathName(streamingVideoData, request);
-		if (videoEvent.isNormalSegment() && createClipping(segmentInfo, childManifest, content, tempClippingFullPath)) {
+		if (videoEvent.isNormalSegment() && (segmentProbe == null || segmentProbe.isVideo() || childManifest.isVideo())
+				&& createClipping(segmentInfo, childManifest, content, tempClippingFullPath)) {
 			ffmpegRunner.addJob(videoEvent, tempClippingFullPath);
 		}
 		videoEvent.isDefaultThumbnail();
@@ -93,11 +93,16 @@ public class VideoTrafficCollectorImpl implements IVideoTrafficCollector {
 		streamingVideoData = new StreamingVideoData(result.getTraceDirectory());
 		videoStreamConstructor.setStreamingVideoData(streamingVideoData);
 
-		LOG.debug("\n**** processRequests(requestMap) ****");
-		processRequests(requestMap);
-		
-		LOG.debug("\n**** processSegments() ****");
-		processSegments();
+		try {
+			LOG.debug("\n**** processRequests(requestMap) ****");
+			processRequests(requestMap);
+
+			LOG.debug("\n**** processSegments() ****");
+			processSegments();
+		} finally {
+			// no more segments for ffmpeg, the video data is finished once they are extracted
+			videoStreamConstructor.segmentsComplete();
+		}
 		
 		videoStreamConstructor.processFailures();
 		
@@ -23,6 +23,7 @@ public abstract class AbstractRrcStateMachine {
 	private double traceDuration;
 	private double packetsDuration;
 	private List<RrcStateRange> staterangelist;
+	private RrcStateRangeIndex stateIndex;
 	
 	
 	public List<RrcStateRange> getStaterangelist() {
@@ -33,6 +34,17 @@ public abstract class AbstractRrcStateMachine {
 		this.staterangelist = staterangelist;
 	}
 
+	/**
+	 * @return time index over the state range list, null if the state machine was not built by the factory
+	 */
+	public RrcStateRangeIndex getStateIndex() {
+		return stateIndex;
+	}
+
+	public void setStateIndex(RrcStateRangeIndex stateIndex) {
+		this.stateIndex = stateIndex;
+	}
+
 	public double getTotalRRCEnergy() {
 		return totalRRCEnergy;
 	}
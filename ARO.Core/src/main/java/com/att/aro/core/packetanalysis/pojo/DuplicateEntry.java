@@ -31,7 +31,10 @@ public class DuplicateEntry {
 	private Double timeStamp;
 	private HttpRequestResponseInfo httpRequestResponse;
 	private String httpObjectName;
-	private byte[] content;
+	/**
+	 * Name of the response body, equal for equal bodies
+	 */
+	private String contentDigest;
 	private int count;
 	@JsonIgnore
 	private Session session;
@@ -42,7 +45,7 @@ public class DuplicateEntry {
 	}
 
 	public DuplicateEntry(HttpRequestResponseInfo assocRequest, HttpRequestResponseInfo assocResponse,
-			Diagnosis diagnosis, PacketInfo sessionFirstPacket, Session session, byte[] content) {
+			Diagnosis diagnosis, PacketInfo sessionFirstPacket, Session session, String contentDigest) {
 		if (assocRequest != null) {
 			this.assocRequest = assocRequest;
 		}
@@ -61,11 +64,11 @@ public class DuplicateEntry {
 		this.contentLength = assocResponse.getContentLength();
 		this.diagnosis = diagnosis;
 		this.sessionFirstPacket = sessionFirstPacket;
-		this.content = content;
+		this.contentDigest = contentDigest;
 	}
 
-	public byte[] getContent() {
-		return content;
+	public String getContentDigest() {
+		return contentDigest;
 	}
 
 	public HttpRequestResponseInfo getRequest() {
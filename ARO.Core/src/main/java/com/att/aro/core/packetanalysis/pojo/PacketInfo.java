@@ -39,6 +39,8 @@ import com.att.aro.core.packetreader.pojo.TCPPacket;
 public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 	private static final long serialVersionUID = 1L;
 
+	private static final String[] TCP_FLAG_STRINGS = tcpFlagStrings();
+
 	/**
 	 * The packet id. The first Packet of a trace would be 1.
 	 */
@@ -88,6 +90,12 @@ public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 	private String strTcpFlags = "";
 
 
+	/**
+	 * Initializes an empty instance for subclasses that read the packet information from elsewhere.
+	 */
+	protected PacketInfo() {
+	}
+
 	/**
 	 * Initializes an instance of the PacketInfo class, using the specified packet data.
 	 * 
@@ -113,6 +121,20 @@ public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 		}
 	}
 
+	/**
+	 * Returns a copy for a new analysis of the same trace. The copy keeps what was read from the trace and leaves
+	 * the packet id, TCP info, RRC state and session state of the packet to the analysis.
+	 * 
+	 * @return A copy of the PacketInfo, with a copy of the packet.
+	 */
+	public PacketInfo copy() {
+		PacketInfo copy = new PacketInfo(appName, packet.copy());
+		copy.packetId = packetId;
+		copy.timestamp = timestamp;
+		copy.dir = dir;
+		return copy;
+	}
+
 	public void clearAnalysis() {
 		setStateMachine(null);
 		setTcpInfo(null);
@@ -150,7 +172,7 @@ public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 	 */
 	@Override
 	public int compareTo(PacketInfo pInfo) {
-		return Double.valueOf(this.timestamp).compareTo(pInfo.timestamp);
+		return Double.compare(getTimeStamp(), pInfo.getTimeStamp());
 	}
 
 	/**
@@ -290,23 +312,40 @@ public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 	 * @param tcpPacket
 	 */
 	private void setTcpFlagString(TCPPacket tcpPacket) {
-		StringBuilder strBuf = new StringBuilder();
-		if (tcpPacket.isACK()) {
-			strBuf.append('A');
-		}
-		if (tcpPacket.isPSH()) {
-			strBuf.append('P');
-		}
-		if (tcpPacket.isRST()) {
-			strBuf.append('R');
-		}
-		if (tcpPacket.isSYN()) {
-			strBuf.append('S');
-		}
-		if (tcpPacket.isFIN()) {
-			strBuf.append('F');
+		strTcpFlags = tcpFlagString(tcpFlags(tcpPacket));
+	}
+
+	/**
+	 * @return the A, P, R, S and F flags of the packet as the bits 0x10 to 0x01
+	 */
+	static int tcpFlags(TCPPacket tcpPacket) {
+		return (tcpPacket.isACK() ? 0x10 : 0)
+				| (tcpPacket.isPSH() ? 0x08 : 0)
+				| (tcpPacket.isRST() ? 0x04 : 0)
+				| (tcpPacket.isSYN() ? 0x02 : 0)
+				| (tcpPacket.isFIN() ? 0x01 : 0);
+	}
+
+	static String tcpFlagString(int flags) {
+		return TCP_FLAG_STRINGS[flags];
+	}
+
+	/**
+	 * One shared flag string per combination of A, P, R, S and F instead of one per packet.
+	 */
+	private static String[] tcpFlagStrings() {
+		char[] letters = { 'A', 'P', 'R', 'S', 'F' };
+		String[] strings = new String[1 << letters.length];
+		for (int flags = 0; flags < strings.length; flags++) {
+			StringBuilder strBuf = new StringBuilder();
+			for (int bit = 0; bit < letters.length; bit++) {
+				if ((flags & (0x10 >> bit)) != 0) {
+					strBuf.append(letters[bit]);
+				}
+			}
+			strings[flags] = strBuf.toString();
 		}
-		strTcpFlags = strBuf.toString();
+		return strings;
 	}
 
 	/**
@@ -0,0 +1,538 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+/**
+ * Read only, columnar copy of the packets of a trace.
+ *
+ * Each packet is a row of primitive columns: timestamp, lengths, direction, protocol, ports, TCP flags, interned
+ * address and app name ids. The packet bytes are kept in an off-heap arena of direct buffers, so the table holds
+ * about 70 bytes of heap per packet where a {@link PacketInfo} and its decoded packet hold several hundred.
+ *
+ * {@link #getPackets()} serves the rows as flyweight {@link PacketInfo} views. A view answers the PacketInfo getters
+ * from the columns, decodes its packet from the arena only when {@link PacketInfo#getPacket()} is called and rejects
+ * every setter. {@link PacketInfo#copy()} of a view decodes a new PacketInfo that an analysis may annotate.
+ *
+ * Packets that can not be decoded again from their bytes, decrypted TCP packets and packets without an IP header
+ * after the datalink header, keep their PacketInfo and are copied as before.
+ *
+ * Safe for concurrent readers once built.
+ */
+public final class PacketTable {
+
+	static final int BLOCK_SIZE = 4 << 20;
+
+	private static final short IPV4 = 0x0800;
+	private static final short IPV6 = (short) 0x86DD;
+
+	private static final byte OTHER = 0;
+	private static final byte TCP = 1;
+	private static final byte UDP = 2;
+
+	private static final PacketDirection[] DIRECTIONS = PacketDirection.values();
+
+	private final IPacketService packetService;
+	private final int size;
+
+	private final double[] timestamps;
+	private final int[] packetIds;
+	private final byte[] directions;
+	private final int[] appNameIds;
+	private final byte[] protocols;
+	private final byte[] ipVersions;
+	private final char[] sourcePorts;
+	private final char[] destinationPorts;
+	private final byte[] tcpFlags;
+	private final int[] sourceAddressIds;
+	private final int[] destinationAddressIds;
+	private final int[] payloadLengths;
+
+	// what decoding a packet again needs
+	private final long[] seconds;
+	private final int[] microSeconds;
+	private final int[] lengths;
+	private final short[] datalinkHdrLengths;
+	private final long[] framePositions;
+	private final int[] frameLengths;
+
+	private final String[] appNames;
+	private final InetAddress[] addresses;
+	private final List<ByteBuffer> arena = new ArrayList<>();
+	private final Map<Integer, PacketInfo> retained = new HashMap<>();
+
+	/**
+	 * Copies the packets read from a trace, which must not be annotated by an analysis.
+	 *
+	 * @param packets       IP packets in timestamp order
+	 * @param packetService decodes the packets of the views
+	 */
+	public PacketTable(List<PacketInfo> packets, IPacketService packetService) {
+		this.packetService = packetService;
+		size = packets.size();
+		timestamps = new double[size];
+		packetIds = new int[size];
+		directions = new byte[size];
+		appNameIds = new int[size];
+		protocols = new byte[size];
+		ipVersions = new byte[size];
+		sourcePorts = new char[size];
+		destinationPorts = new char[size];
+		tcpFlags = new byte[size];
+		sourceAddressIds = new int[size];
+		destinationAddressIds = new int[size];
+		payloadLengths = new int[size];
+		seconds = new long[size];
+		microSeconds = new int[size];
+		lengths = new int[size];
+		datalinkHdrLengths = new short[size];
+		framePositions = new long[size];
+		frameLengths = new int[size];
+
+		Map<String, Integer> appNameIndex = new HashMap<>();
+		List<String> appNameList = new ArrayList<>();
+		Map<InetAddress, Integer> addressIndex = new HashMap<>();
+		List<InetAddress> addressList = new ArrayList<>();
+		long arenaSize = 0;
+		for (int row = 0; row < size; row++) {
+			PacketInfo packetInfo = packets.get(row);
+			Packet packet = packetInfo.getPacket();
+			timestamps[row] = packetInfo.getTimeStamp();
+			packetIds[row] = packetInfo.getPacketId();
+			directions[row] = packetInfo.getDir() != null ? (byte) packetInfo.getDir().ordinal() : -1;
+			appNameIds[row] = id(packetInfo.getAppName(), appNameIndex, appNameList);
+			payloadLengths[row] = packet.getPayloadLen();
+			seconds[row] = packet.getSeconds();
+			lengths[row] = packet.getLen();
+			datalinkHdrLengths[row] = (short) packet.getDatalinkHeaderSize();
+			sourceAddressIds[row] = -1;
+			destinationAddressIds[row] = -1;
+			if (packet instanceof IPPacket) {
+				IPPacket ipPacket = (IPPacket) packet;
+				ipVersions[row] = ipPacket.getIPVersion();
+				sourceAddressIds[row] = id(ipPacket.getSourceIPAddress(), addressIndex, addressList);
+				destinationAddressIds[row] = id(ipPacket.getDestinationIPAddress(), addressIndex, addressList);
+			}
+			if (packet instanceof TCPPacket) {
+				TCPPacket tcpPacket = (TCPPacket) packet;
+				protocols[row] = TCP;
+				sourcePorts[row] = (char) tcpPacket.getSourcePort();
+				destinationPorts[row] = (char) tcpPacket.getDestinationPort();
+				tcpFlags[row] = (byte) PacketInfo.tcpFlags(tcpPacket);
+			} else if (packet instanceof UDPPacket) {
+				UDPPacket udpPacket = (UDPPacket) packet;
+				protocols[row] = UDP;
+				sourcePorts[row] = (char) udpPacket.getSourcePort();
+				destinationPorts[row] = (char) udpPacket.getDestinationPort();
+			} else {
+				protocols[row] = OTHER;
+			}
+
+			byte[] data = packet.getData();
+			if (isDecodable(packet, data)) {
+				int offset = (int) (arenaSize % BLOCK_SIZE);
+				if (offset + data.length > BLOCK_SIZE) {
+					arenaSize += BLOCK_SIZE - offset;
+				}
+				int block = (int) (arenaSize / BLOCK_SIZE);
+				if (block == arena.size()) {
+					arena.add(ByteBuffer.allocateDirect(BLOCK_SIZE));
+				}
+				ByteBuffer buffer = arena.get(block).duplicate();
+				buffer.position((int) (arenaSize % BLOCK_SIZE));
+				buffer.put(data);
+				microSeconds[row] = (int) packet.getMicroSeconds();
+				framePositions[row] = arenaSize;
+				frameLengths[row] = data.length;
+				arenaSize += data.length;
+			} else {
+				framePositions[row] = -1;
+				retained.put(row, packetInfo);
+			}
+		}
+		appNames = appNameList.toArray(new String[appNameList.size()]);
+		addresses = addressList.toArray(new InetAddress[addressList.size()]);
+	}
+
+	/**
+	 * Decoding the bytes again gives the same packet unless the payload was replaced or the network layer can not
+	 * be found from the bytes.
+	 */
+	private static boolean isDecodable(Packet packet, byte[] data) {
+		if (!(packet instanceof IPPacket) || (packet instanceof TCPPacket && ((TCPPacket) packet).isDecrypted())) {
+			return false;
+		}
+		int datalinkHdrLen = packet.getDatalinkHeaderSize();
+		return data != null && data.length <= BLOCK_SIZE && data.length > datalinkHdrLen
+				&& datalinkHdrLen <= Short.MAX_VALUE && packet.getMicroSeconds() <= Integer.MAX_VALUE
+				&& (data[datalinkHdrLen] & 0xF0) >> 4 == ((IPPacket) packet).getIPVersion();
+	}
+
+	private static <T> int id(T value, Map<T, Integer> index, List<T> values) {
+		if (value == null) {
+			return -1;
+		}
+		Integer id = index.get(value);
+		if (id == null) {
+			id = values.size();
+			index.put(value, id);
+			values.add(value);
+		}
+		return id;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return all rows as PacketInfo views
+	 */
+	public List<PacketInfo> getPackets() {
+		return new Rows(this, null, size);
+	}
+
+	/**
+	 * @param rows  rows in table order, the array is kept by the list
+	 * @param count number of rows used
+	 * @return the rows as PacketInfo views
+	 */
+	public List<PacketInfo> getPackets(int[] rows, int count) {
+		return new Rows(this, rows, count);
+	}
+
+	/**
+	 * Binary search of the timestamps.
+	 *
+	 * @param after true to skip rows at the timestamp
+	 * @return the first row with a timestamp after (or at, when after is false) timestamp
+	 */
+	public int indexOf(double timestamp, boolean after) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps[mid] < timestamp || (after && timestamps[mid] == timestamp)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public double getTimeStamp(int row) {
+		return timestamps[row];
+	}
+
+	public int getPacketId(int row) {
+		return packetIds[row];
+	}
+
+	public PacketDirection getDir(int row) {
+		return directions[row] < 0 ? null : DIRECTIONS[directions[row]];
+	}
+
+	public String getAppName(int row) {
+		return appNameIds[row] < 0 ? null : appNames[appNameIds[row]];
+	}
+
+	/**
+	 * @return 4 or 6, 0 when the packet is not an IP packet
+	 */
+	public int getIPVersion(int row) {
+		return ipVersions[row];
+	}
+
+	public boolean isTcp(int row) {
+		return protocols[row] == TCP;
+	}
+
+	public boolean isUdp(int row) {
+		return protocols[row] == UDP;
+	}
+
+	/**
+	 * @return the source port of a TCP or UDP packet, 0 for other packets
+	 */
+	public int getSourcePort(int row) {
+		return sourcePorts[row];
+	}
+
+	/**
+	 * @return the destination port of a TCP or UDP packet, 0 for other packets
+	 */
+	public int getDestinationPort(int row) {
+		return destinationPorts[row];
+	}
+
+	public InetAddress getSourceIPAddress(int row) {
+		return sourceAddressIds[row] < 0 ? null : addresses[sourceAddressIds[row]];
+	}
+
+	public InetAddress getDestinationIPAddress(int row) {
+		return destinationAddressIds[row] < 0 ? null : addresses[destinationAddressIds[row]];
+	}
+
+	/**
+	 * @see PacketInfo#getRemoteIPAddress()
+	 */
+	public InetAddress getRemoteIPAddress(int row) {
+		PacketDirection dir = getDir(row);
+		if (dir == PacketDirection.UPLINK) {
+			return getDestinationIPAddress(row);
+		} else if (dir == PacketDirection.DOWNLINK) {
+			return getSourceIPAddress(row);
+		}
+		return null;
+	}
+
+	/**
+	 * @see PacketInfo#getLen()
+	 */
+	public int getLen(int row) {
+		return lengths[row] - datalinkHdrLengths[row];
+	}
+
+	public int getPayloadLen(int row) {
+		return payloadLengths[row];
+	}
+
+	public String getTcpFlagString(int row) {
+		return protocols[row] == TCP ? PacketInfo.tcpFlagString(tcpFlags[row]) : "";
+	}
+
+	/**
+	 * @return a new packet decoded from the arena, or the packet kept for the row
+	 */
+	public Packet getPacket(int row) {
+		PacketInfo packetInfo = retained.get(row);
+		if (packetInfo != null) {
+			return packetInfo.getPacket();
+		}
+		long position = framePositions[row];
+		ByteBuffer buffer = arena.get((int) (position / BLOCK_SIZE)).duplicate();
+		buffer.position((int) (position % BLOCK_SIZE));
+		byte[] data = new byte[frameLengths[row]];
+		buffer.get(data);
+		return packetService.createPacket(ipVersions[row] == 6 ? IPV6 : IPV4, seconds[row], microSeconds[row], lengths[row],
+				datalinkHdrLengths[row], data);
+	}
+
+	/**
+	 * @return a new PacketInfo of the row that an analysis may annotate
+	 */
+	public PacketInfo copy(int row) {
+		PacketInfo packetInfo = retained.get(row);
+		if (packetInfo != null) {
+			return packetInfo.copy();
+		}
+		PacketInfo copy = new PacketInfo(getAppName(row), getPacket(row));
+		copy.setPacketId(packetIds[row]);
+		copy.setTimestamp(timestamps[row]);
+		copy.setDir(getDir(row));
+		return copy;
+	}
+
+	/**
+	 * Rows of the table, all of them when rows is null.
+	 */
+	private static final class Rows extends AbstractList<PacketInfo> implements RandomAccess {
+		private final PacketTable table;
+		private final int[] rows;
+		private final int count;
+
+		Rows(PacketTable table, int[] rows, int count) {
+			this.table = table;
+			this.rows = rows;
+			this.count = count;
+		}
+
+		@Override
+		public PacketInfo get(int index) {
+			return new PacketView(table, row(index));
+		}
+
+		private int row(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+			}
+			return rows != null ? rows[index] : index;
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
+
+		/**
+		 * Compares the rows without creating views when obj holds rows of the same table.
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Rows)) {
+				return super.equals(obj);
+			}
+			Rows other = (Rows) obj;
+			if (table != other.table || count != other.count) {
+				return false;
+			}
+			for (int index = 0; index < count; index++) {
+				if (row(index) != other.row(index)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return super.hashCode();
+		}
+	}
+
+	/**
+	 * Flyweight PacketInfo of a row.
+	 */
+	private static final class PacketView extends PacketInfo {
+		private static final long serialVersionUID = 1L;
+
+		private final transient PacketTable table;
+		private final int row;
+		private transient Packet packet;
+
+		PacketView(PacketTable table, int row) {
+			this.table = table;
+			this.row = row;
+		}
+
+		@Override
+		public PacketInfo copy() {
+			return table.copy(row);
+		}
+
+		@Override
+		public Packet getPacket() {
+			if (packet == null) {
+				packet = table.getPacket(row);
+			}
+			return packet;
+		}
+
+		@Override
+		public int getPacketId() {
+			return table.getPacketId(row);
+		}
+
+		@Override
+		public double getTimeStamp() {
+			return table.getTimeStamp(row);
+		}
+
+		@Override
+		public PacketDirection getDir() {
+			return table.getDir(row);
+		}
+
+		@Override
+		public InetAddress getRemoteIPAddress() {
+			return table.getRemoteIPAddress(row);
+		}
+
+		@Override
+		public int getLen() {
+			return table.getLen(row);
+		}
+
+		@Override
+		public int getPayloadLen() {
+			return table.getPayloadLen(row);
+		}
+
+		@Override
+		public String getAppName() {
+			return table.getAppName(row);
+		}
+
+		@Override
+		public String getTcpFlagString() {
+			return table.getTcpFlagString(row);
+		}
+
+		@Override
+		public void clearAnalysis() {
+		}
+
+		@Override
+		public void setPacketId(int pId) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setTimestamp(double timestamp) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setDir(PacketDirection dir) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setTcpInfo(TcpInfo tcpInfo) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setStateMachine(RRCState stateMachine) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setAppName(String appName) {
+			throw readOnly();
+		}
+
+		private static UnsupportedOperationException readOnly() {
+			return new UnsupportedOperationException("Packets of a PacketTable are read only, copy them to annotate them");
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof PacketView && ((PacketView) obj).table == table && ((PacketView) obj).row == row;
+		}
+
+		@Override
+		public int hashCode() {
+			return row;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable time index over the RRC state ranges of a trace, built once by the
+ * state machine factory. Begin time, end time and state are kept in primitive
+ * arrays together with prefix sums of duration and energy per state, so the
+ * state at a time and the time, energy and count of a state within any time
+ * window are answered by binary search instead of scanning every range.
+ * 
+ * The ranges are expected in time order, as RrcStateRangeFactory creates them.
+ * The energy of every range is computed once when the index is built and
+ * recorded on the range. An index of a time window only computes the energy of
+ * the ranges inside it, see {@link #window}.
+ */
+public class RrcStateRangeIndex {
+
+	/**
+	 * Energy used in a state between two times, as calculated by the profile factory.
+	 */
+	public interface EnergyFunction {
+		double energy(double beginTime, double endTime, RRCState state);
+	}
+
+	private static final RRCState[] STATES = RRCState.values();
+
+	private final RrcStateRange[] ranges;
+	private final double[] beginTimes;
+	private final double[] endTimes;
+	private final byte[] states;
+	private final double[] energies;
+	private final double[] energyPrefix;
+	private final EnergyFunction energyFunction;
+
+	// per state: positions of its ranges and prefix sums over them
+	private final int[][] statePositions;
+	private final double[][] stateDurationPrefix;
+	private final double[][] stateEnergyPrefix;
+
+	/**
+	 * Builds the index and computes the energy of every range.
+	 * 
+	 * @param rangeList      RRC state ranges in time order
+	 * @param energyFunction energy of a state between two times, or null when energy is not needed
+	 */
+	public RrcStateRangeIndex(List<RrcStateRange> rangeList, EnergyFunction energyFunction) {
+		this(rangeList.toArray(new RrcStateRange[rangeList.size()]), null, energyFunction);
+	}
+
+	/**
+	 * Builds the index of the ranges within [beginTime, endTime], clipped as by
+	 * {@link #subIndex}. Energy is computed for the ranges inside the window only,
+	 * the rest of the trace is never passed to the energy function.
+	 * 
+	 * @param rangeList      RRC state ranges in time order
+	 * @param beginTime      window begin
+	 * @param endTime        window end
+	 * @param energyFunction energy of a state between two times, or null when energy is not needed
+	 * @return index of the clipped ranges
+	 */
+	public static RrcStateRangeIndex window(List<RrcStateRange> rangeList, double beginTime, double endTime, EnergyFunction energyFunction) {
+		RrcStateRange[] ranges = rangeList.toArray(new RrcStateRange[rangeList.size()]);
+		List<RrcStateRange> window = new RrcStateRangeIndex(ranges, new double[ranges.length], null).subIndex(beginTime, endTime).getRanges();
+		return new RrcStateRangeIndex(window, energyFunction);
+	}
+
+	private RrcStateRangeIndex(RrcStateRange[] ranges, double[] knownEnergies, EnergyFunction energyFunction) {
+		int count = ranges.length;
+		this.ranges = ranges;
+		this.energyFunction = energyFunction;
+		beginTimes = new double[count];
+		endTimes = new double[count];
+		states = new byte[count];
+		energies = knownEnergies != null ? knownEnergies : new double[count];
+		energyPrefix = new double[count + 1];
+
+		int[] stateCounts = new int[STATES.length];
+		for (int index = 0; index < count; index++) {
+			RrcStateRange range = ranges[index];
+			beginTimes[index] = range.getBeginTime();
+			endTimes[index] = range.getEndTime();
+			RRCState state = range.getState();
+			states[index] = (byte) (state == null ? -1 : state.ordinal());
+			if (knownEnergies == null) {
+				energies[index] = energy(beginTimes[index], endTimes[index], state);
+				range.setEnergy(energies[index]);
+			}
+			energyPrefix[index + 1] = energyPrefix[index] + energies[index];
+			if (state != null) {
+				stateCounts[state.ordinal()]++;
+			}
+		}
+
+		statePositions = new int[STATES.length][];
+		stateDurationPrefix = new double[STATES.length][];
+		stateEnergyPrefix = new double[STATES.length][];
+		for (int state = 0; state < STATES.length; state++) {
+			statePositions[state] = new int[stateCounts[state]];
+			stateDurationPrefix[state] = new double[stateCounts[state] + 1];
+			stateEnergyPrefix[state] = new double[stateCounts[state] + 1];
+		}
+		int[] filled = new int[STATES.length];
+		for (int index = 0; index < count; index++) {
+			int state = states[index];
+			if (state < 0) {
+				continue;
+			}
+			int position = filled[state]++;
+			statePositions[state][position] = index;
+			stateDurationPrefix[state][position + 1] = stateDurationPrefix[state][position] + (endTimes[index] - beginTimes[index]);
+			stateEnergyPrefix[state][position + 1] = stateEnergyPrefix[state][position] + energies[index];
+		}
+	}
+
+	/**
+	 * @return number of ranges in the index
+	 */
+	public int size() {
+		return ranges.length;
+	}
+
+	/**
+	 * @return a new list of the ranges in time order
+	 */
+	public List<RrcStateRange> getRanges() {
+		return new ArrayList<>(Arrays.asList(ranges));
+	}
+
+	/**
+	 * Returns the RRC state at time.
+	 * 
+	 * @param time trace time in seconds
+	 * @return the state of the last range beginning at or before time that has not
+	 *         ended before it, or null if no range covers time
+	 */
+	public RRCState getStateAt(double time) {
+		int index = upperBound(beginTimes, 0, ranges.length, time) - 1;
+		if (index < 0 || endTimes[index] < time || states[index] < 0) {
+			return null;
+		}
+		return STATES[states[index]];
+	}
+
+	/**
+	 * Returns the original ranges that end at or after beginTime and begin at or
+	 * before endTime, without clipping them.
+	 * 
+	 * @param beginTime window begin
+	 * @param endTime   window end
+	 * @return ranges touching the window in time order
+	 */
+	public List<RrcStateRange> getTouching(double beginTime, double endTime) {
+		int from = lowerBound(endTimes, 0, ranges.length, beginTime);
+		int to = upperBound(beginTimes, from, ranges.length, endTime);
+		return from < to ? Arrays.asList(ranges).subList(from, to) : new ArrayList<RrcStateRange>();
+	}
+
+	/**
+	 * Returns the index of the ranges within [beginTime, endTime]. Ranges crossing
+	 * a window boundary are clipped to it, and only their clipped part has its
+	 * energy calculated; all other ranges keep the energy already computed.
+	 * 
+	 * @param beginTime window begin
+	 * @param endTime   window end
+	 * @return index of the clipped ranges
+	 */
+	public RrcStateRangeIndex subIndex(double beginTime, double endTime) {
+		int from = first(beginTime, endTime);
+		int to = end(from, beginTime, endTime);
+		RrcStateRange[] window = new RrcStateRange[Math.max(0, to - from)];
+		double[] windowEnergies = new double[window.length];
+		for (int index = from; index < to; index++) {
+			RrcStateRange range = ranges[index];
+			if (isClipped(index, beginTime, endTime)) {
+				range = new RrcStateRange(Math.max(beginTimes[index], beginTime), Math.min(endTimes[index], endTime), range.getState());
+				range.setEnergy(energy(range.getBeginTime(), range.getEndTime(), range.getState()));
+			}
+			window[index - from] = range;
+			windowEnergies[index - from] = range == ranges[index] ? energies[index] : range.getEnergy();
+		}
+		return new RrcStateRangeIndex(window, windowEnergies, energyFunction);
+	}
+
+	/**
+	 * @return total time in state over all ranges
+	 */
+	public double getDuration(RRCState state) {
+		double[] prefix = stateDurationPrefix[state.ordinal()];
+		return prefix[prefix.length - 1];
+	}
+
+	/**
+	 * @return total energy in state over all ranges
+	 */
+	public double getEnergy(RRCState state) {
+		double[] prefix = stateEnergyPrefix[state.ordinal()];
+		return prefix[prefix.length - 1];
+	}
+
+	/**
+	 * @return number of ranges in state
+	 */
+	public int getCount(RRCState state) {
+		return statePositions[state.ordinal()].length;
+	}
+
+	/**
+	 * @return total energy of all ranges
+	 */
+	public double getTotalEnergy() {
+		return energyPrefix[ranges.length];
+	}
+
+	/**
+	 * @return time in state within [beginTime, endTime]
+	 */
+	public double getDuration(RRCState state, double beginTime, double endTime) {
+		return sum(state, stateDurationPrefix, beginTime, endTime, false);
+	}
+
+	/**
+	 * @return energy used in state within [beginTime, endTime]
+	 */
+	public double getEnergy(RRCState state, double beginTime, double endTime) {
+		return sum(state, stateEnergyPrefix, beginTime, endTime, true);
+	}
+
+	/**
+	 * @return number of ranges in state within [beginTime, endTime], including ranges crossing the boundaries
+	 */
+	public int getCount(RRCState state, double beginTime, double endTime) {
+		int from = first(beginTime, endTime);
+		int to = end(from, beginTime, endTime);
+		int[] positions = statePositions[state.ordinal()];
+		return Math.max(0, lowerBound(positions, to) - lowerBound(positions, from));
+	}
+
+	private double sum(RRCState state, double[][] prefixes, double beginTime, double endTime, boolean isEnergy) {
+		int from = first(beginTime, endTime);
+		int to = end(from, beginTime, endTime);
+		if (from >= to) {
+			return 0;
+		}
+		int[] positions = statePositions[state.ordinal()];
+		double[] prefix = prefixes[state.ordinal()];
+		double total = prefix[lowerBound(positions, to)] - prefix[lowerBound(positions, from)];
+		total += clipCorrection(from, state, beginTime, endTime, isEnergy);
+		if (to - 1 != from) {
+			total += clipCorrection(to - 1, state, beginTime, endTime, isEnergy);
+		}
+		return total;
+	}
+
+	// difference between the clipped and the full contribution of a boundary range
+	private double clipCorrection(int index, RRCState state, double beginTime, double endTime, boolean isEnergy) {
+		if (states[index] != state.ordinal() || !isClipped(index, beginTime, endTime)) {
+			return 0;
+		}
+		double begin = Math.max(beginTimes[index], beginTime);
+		double end = Math.min(endTimes[index], endTime);
+		if (isEnergy) {
+			return energy(begin, end, state) - energies[index];
+		}
+		return (end - begin) - (endTimes[index] - beginTimes[index]);
+	}
+
+	private boolean isClipped(int index, double beginTime, double endTime) {
+		return beginTimes[index] < beginTime || endTimes[index] > endTime;
+	}
+
+	private double energy(double beginTime, double endTime, RRCState state) {
+		return energyFunction == null || state == null ? 0 : energyFunction.energy(beginTime, endTime, state);
+	}
+
+	/**
+	 * first range that is not entirely before beginTime, a range ending at
+	 * beginTime only counts when it is empty and begins there, or when the
+	 * window itself is a single instant
+	 */
+	private int first(double beginTime, double endTime) {
+		if (beginTime == endTime) {
+			return lowerBound(endTimes, 0, ranges.length, beginTime);
+		}
+		int low = 0;
+		int high = ranges.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (endTimes[mid] > beginTime || beginTimes[mid] >= beginTime) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * end (exclusive) of the ranges from first that are not entirely after endTime,
+	 * a range beginning at endTime only counts when it is empty
+	 */
+	private int end(int first, double beginTime, double endTime) {
+		if (beginTime == endTime) {
+			return upperBound(beginTimes, first, ranges.length, endTime);
+		}
+		int low = first;
+		int high = ranges.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (beginTimes[mid] >= endTime && endTimes[mid] > endTime) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	// first index in [from, to) with values[index] >= key
+	private static int lowerBound(double[] values, int from, int to, double key) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// first index in [from, to) with values[index] > key
+	private static int upperBound(double[] values, int from, int to, double key) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// number of positions below index
+	private static int lowerBound(int[] positions, int index) {
+		int low = 0;
+		int high = positions.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (positions[mid] < index) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
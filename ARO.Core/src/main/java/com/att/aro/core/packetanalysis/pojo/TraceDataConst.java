@@ -188,6 +188,11 @@ public class TraceDataConst {
 		 * The name of the ssl file
 		 */
 		public static final String SSLKEY_FILE = "keys.ssl";
+
+		/**
+		 * The name of the NSS key log file (SSLKEYLOGFILE)
+		 */
+		public static final String SSL_KEY_LOG_FILE = "sslkeylog.log";
 		
 		/**
 		 * The name of the network_details file
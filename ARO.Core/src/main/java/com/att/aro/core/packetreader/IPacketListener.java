@@ -15,6 +15,7 @@
 */
 package com.att.aro.core.packetreader;
 
+import com.att.aro.core.exception.PacketReadAbortedException;
 import com.att.aro.core.packetreader.pojo.Packet;
 
 /**
@@ -28,6 +29,7 @@ public interface IPacketListener {
 	 * null if not known.
 	 * @param packet
 	 *            - The packet that is received.
+	 * @throws PacketReadAbortedException to stop the reading of the file
 	 */
 	void packetArrived(String appName, Packet packet);
 }
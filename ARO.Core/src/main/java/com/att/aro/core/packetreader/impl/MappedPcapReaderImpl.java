@@ -0,0 +1,219 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetreader.impl;
+
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.att.aro.core.exception.PacketReadAbortedException;
+import com.att.aro.core.packetreader.IPacketListener;
+import com.att.aro.core.packetreader.IPacketReader;
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.pojo.Packet;
+
+
+/**
+ * Classic pcap reader that memory maps the capture and walks the record headers itself.
+ * Each record is copied once into the packet's data array and decoded by {@link IPacketService},
+ * without building an intermediate pcap4j object graph.
+ * The copy is the packet's own storage: packets keep their data for the session analysis, are cached between
+ * analyses and are serialized, all long after the mapped window is replaced, and the packet model works on
+ * byte arrays with absolute offsets.
+ *
+ * Files that are not classic pcap (i.e. pcapng) are handed to the pcap4j based reader.
+ *
+ * @see PCAP file format https://pcapng.github.io/pcapng/draft-gharris-opsawg-pcap.html
+ */
+public class MappedPcapReaderImpl implements IPacketReader {
+	private static final Logger LOGGER = LogManager.getLogger(MappedPcapReaderImpl.class);
+
+	private static final int MAGIC_MICROSECONDS = 0xA1B2C3D4;
+	private static final int MAGIC_NANOSECONDS = 0xA1B23C4D;
+
+	private static final int FILE_HEADER_LENGTH = 24;
+	private static final int RECORD_HEADER_LENGTH = 16;
+	private static final long MAX_MAPPED_WINDOW = 256L * 1024 * 1024;
+
+	// LINKTYPE_* values as written in pcap file headers
+	private static final int LINKTYPE_NULL = 0;
+	private static final int LINKTYPE_ETHERNET = 1;
+	private static final int DLT_RAW = 12;
+	private static final int DLT_RAW_OPENBSD = 14;
+	private static final int LINKTYPE_RAW = 101;
+	private static final int LINKTYPE_LOOP = 108;
+	private static final int LINKTYPE_LINUX_SLL = 113;
+	private static final int LINKTYPE_IPV4 = 228;
+	private static final int LINKTYPE_IPV6 = 229;
+	private static final int LINKTYPE_LINUX_SLL2 = 276;
+
+	private static final short IPV4 = 0x0800;
+	private static final short IPV6 = (short) 0x86DD;
+	private static final short VLAN = (short) 0x8100;
+
+	@Autowired
+	private IPacketService packetService;
+
+	@Autowired
+	@Qualifier("pcap4jPacketReader")
+	private IPacketReader pcapngReader;
+
+	@Override
+	public void readPacket(String packetfile, IPacketListener listener) throws IOException {
+		long start = System.currentTimeMillis();
+		int totalPacketReads = 0;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(packetfile), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize < FILE_HEADER_LENGTH) {
+				LOGGER.error("Not a valid pcap file " + packetfile);
+				return;
+			}
+			MappedByteBuffer buffer = map(channel, 0, fileSize);
+			long bufferOffset = 0;
+
+			int magic = buffer.getInt(0);
+			if (magic != MAGIC_MICROSECONDS && magic != MAGIC_NANOSECONDS) {
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				magic = buffer.getInt(0);
+				if (magic != MAGIC_MICROSECONDS && magic != MAGIC_NANOSECONDS) {
+					LOGGER.info("Not a classic pcap file, reading with pcap4j reader " + packetfile);
+					pcapngReader.readPacket(packetfile, listener);
+					return;
+				}
+			}
+			ByteOrder order = buffer.order();
+			boolean nanoseconds = magic == MAGIC_NANOSECONDS;
+			int linkType = buffer.getInt(20) & 0x0FFFFFFF;
+
+			long position = FILE_HEADER_LENGTH;
+			while (position + RECORD_HEADER_LENGTH <= fileSize) {
+				// remap when the next record header is outside of the current window
+				if (position + RECORD_HEADER_LENGTH > bufferOffset + buffer.limit()) {
+					bufferOffset = position;
+					buffer = map(channel, bufferOffset, fileSize);
+					buffer.order(order);
+				}
+				int recordOffset = (int) (position - bufferOffset);
+				long seconds = buffer.getInt(recordOffset) & 0xFFFFFFFFL;
+				long fraction = buffer.getInt(recordOffset + 4) & 0xFFFFFFFFL;
+				int capturedLength = buffer.getInt(recordOffset + 8);
+				if (capturedLength < 0 || position + RECORD_HEADER_LENGTH + capturedLength > fileSize) {
+					LOGGER.warn(String.format("Truncated record at offset %d in pcap file %s", position, packetfile));
+					break;
+				}
+
+				// remap when the record data crosses the end of the current window
+				if (position + RECORD_HEADER_LENGTH + capturedLength > bufferOffset + buffer.limit()) {
+					bufferOffset = position;
+					buffer = map(channel, bufferOffset, fileSize);
+					buffer.order(order);
+					recordOffset = 0;
+				}
+
+				byte[] data = new byte[capturedLength];
+				buffer.position(recordOffset + RECORD_HEADER_LENGTH);
+				buffer.get(data);
+				position += RECORD_HEADER_LENGTH + capturedLength;
+
+				long microSeconds = nanoseconds ? fraction / 1000 : fraction;
+				try {
+					Packet packet = createPacket(linkType, seconds, microSeconds, data);
+					++totalPacketReads;
+					listener.packetArrived(null, packet);
+				} catch (PacketReadAbortedException ex) {
+					LOGGER.warn(String.format("Stopped reading pcap file %s after %d packets: %s", packetfile, totalPacketReads, ex.getMessage()));
+					break;
+				} catch (Exception ex) {
+					LOGGER.debug("Error while reading packet number " + (totalPacketReads + 1), ex);
+				}
+			}
+		}
+
+		LOGGER.info(String.format("Finished reading total %d packets for pcap file %s", totalPacketReads, packetfile));
+		LOGGER.info("Time to read pcap file in ms: " + (System.currentTimeMillis() - start));
+	}
+
+	/**
+	 * Resolve the network protocol and datalink header length of a record and have the packet service decode it
+	 */
+	private Packet createPacket(int linkType, long seconds, long microSeconds, byte[] data) {
+		short network = 0;
+		int hdrLen = 0;
+		switch (linkType) {
+		case LINKTYPE_NULL:
+		case LINKTYPE_LOOP:
+			// 4 byte address family in the byte order of the capturing host, then the IP packet
+			hdrLen = 4;
+			network = ipVersion(data, hdrLen);
+			break;
+		case LINKTYPE_ETHERNET:
+			hdrLen = 14;
+			network = getShort(data, 12);
+			if (network == VLAN) {
+				hdrLen = 18;
+				network = getShort(data, 16);
+			}
+			break;
+		case DLT_RAW:
+		case DLT_RAW_OPENBSD:
+		case LINKTYPE_RAW:
+		case LINKTYPE_IPV4:
+		case LINKTYPE_IPV6:
+			network = ipVersion(data, 0);
+			break;
+		case LINKTYPE_LINUX_SLL:
+			hdrLen = 16;
+			network = getShort(data, 14);
+			break;
+		case LINKTYPE_LINUX_SLL2:
+			hdrLen = 20;
+			network = getShort(data, 0);
+			break;
+		default:
+			break;
+		}
+		return packetService.createPacket(network, seconds, microSeconds, data.length, hdrLen, data);
+	}
+
+	private static short ipVersion(byte[] data, int offset) {
+		if (data.length <= offset) {
+			return 0;
+		}
+		int version = (data[offset] & 0xF0) >> 4;
+		return version == 6 ? IPV6 : version == 4 ? IPV4 : 0;
+	}
+
+	private static short getShort(byte[] data, int offset) {
+		if (data.length < offset + 2) {
+			return 0;
+		}
+		return (short) (((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF));
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long offset, long fileSize) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAX_MAPPED_WINDOW, fileSize - offset));
+	}
+}
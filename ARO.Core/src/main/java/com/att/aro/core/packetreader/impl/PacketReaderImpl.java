@@ -23,6 +23,7 @@ import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.att.aro.core.commandline.IExternalProcessRunner;
+import com.att.aro.core.exception.PacketReadAbortedException;
 import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.packetreader.INativePacketSubscriber;
 import com.att.aro.core.packetreader.IPacketListener;
@@ -209,6 +210,9 @@ public class PacketReaderImpl implements IPacketReader, INativePacketSubscriber
 			}
 			Packet tempPacket = packetservice.createPacketFromPcap(datalink, seconds, microSeconds, len, data, currentPacketfile);
 			packetlistener.packetArrived(null, tempPacket);
+		} catch (PacketReadAbortedException e) {
+			// the native reader can not be stopped from its callback, the remaining packets are dropped
+			LOGGER.debug("Packet dropped: " + e.getMessage());
 		} catch (Throwable t) {
 			LOGGER.error("Unexpected exception parsing packet", t);
 		}
@@ -21,21 +21,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.math.RoundingMode;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.sql.Timestamp;
-import java.text.DecimalFormat;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -53,21 +46,15 @@ import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.factory.statik.StaticProtocolFamilyPacketFactory;
 import org.pcap4j.packet.namednumber.DataLinkType;
 import org.pcap4j.packet.namednumber.ProtocolFamily;
-import org.springframework.beans.factory.annotation.Autowired;
 
-import com.att.aro.core.commandline.IExternalProcessRunner;
-import com.att.aro.core.exception.TsharkException;
+import com.att.aro.core.exception.PacketReadAbortedException;
 import com.att.aro.core.packetreader.IPacketListener;
 import com.att.aro.core.packetreader.IPacketReader;
-import com.att.aro.core.packetreader.model.pcapng.RawPacketData;
+import com.att.aro.core.packetreader.model.pcapng.PacketBlock;
 import com.att.aro.core.packetreader.pojo.IPPacket;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
-import com.att.aro.core.util.StringParse;
-import com.att.aro.core.util.TSharkConfirmationImpl;
 import com.att.aro.core.util.Util;
-import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
 
 import lombok.Data;
 
@@ -75,15 +62,8 @@ import lombok.Data;
 public class PacketReaderLibraryImpl implements IPacketReader {
 	private static final Logger LOGGER = LogManager.getLogger(PacketReaderLibraryImpl.class);
 
-	private static final Random RANDOM = new Random();
-	private static DataLinkType lastDataLinkType;
 	private boolean existNativeLib = false;
 
-
-	@Autowired
-	private IExternalProcessRunner externalProcessRunner;
-
-
 	@Data
 	private class FileDetails {
 		private boolean isPcapNG;
@@ -107,8 +87,6 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 		}
 
 		long start = System.currentTimeMillis();
-		// Update system property org.pcap4j.af.inet6 to correct value based on original OS which captured pcap/pcapng file
-		identifyOSInfo(packetfile);
 
 		if (fileDetails.isPcap) {
 			PcapHandle handle = null;
@@ -135,6 +113,9 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 	        			com.att.aro.core.packetreader.pojo.Packet packet = translatePcap4jPacket(timestamp.getTime()/1000, timestamp.getNanos()/1000, pcap4jPacket);
 	        			++totalPacketReads;
 	        			listener.packetArrived(null, packet);
+	        		} catch (PacketReadAbortedException e) {
+	        			LOGGER.warn(String.format("Stopped reading pcap file %s after %d packets: %s", packetfile, totalPacketReads, e.getMessage()));
+	        			break;
 	        		} catch (EOFException e) {
 	        			LOGGER.info(String.format("Finished reading total %d packets out of %d packets for pcap file %s",
 	        					totalPacketReads, currentPacketNumber - 1, packetfile));
@@ -149,11 +130,6 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 	        	handle.close();
 	        }
 		} else {
-			TSharkConfirmationImpl tsharkConfirmation = new TSharkConfirmationImpl(externalProcessRunner);
-			if (!tsharkConfirmation.checkTsharkVersion()) {
-				throw new TsharkException("Wireshark is either not installed on your machine or its not in your path.");
-			}
-
 			handlePCAPNGFile(packetfile, listener);
 		}
 
@@ -255,18 +231,13 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 	}
 
 	/**
-	 * Identify OS which captured the pcap/pcapng file and update pcap4j system property "org.pcap4j.af.inet6" as follow:
+	 * Identify OS which captured the pcapng file and update pcap4j system property "org.pcap4j.af.inet6" as follow:
 	 * Mac OS: 30, FreeBSD: 28, Linux: 10, All other OS: 23
-	 * @param packetFile pcap/pcapng file path
+	 * Classic pcap files do not record the capturing OS.
+	 * @param osInfo shb_os option of the pcapng section header
 	 */
-	private void identifyOSInfo(String packetFile) {
-		String cmd = Util.getCapinfos() + " " + packetFile;
-		LOGGER.trace("Getting OS Info with command: " + cmd);
-		String result = externalProcessRunner.executeCmd(cmd);
-		LOGGER.debug("OS Info for Packet Reader: " + result);
-
-		String osInfo = StringParse.findLabeledDataFromString("Capture oper-sys", ":", result);
-		LOGGER.error("OS info: " + osInfo);
+	private void identifyOSInfo(String osInfo) {
+		LOGGER.info("OS info: " + osInfo);
 
 		if (StringUtils.isNotBlank(osInfo)) {
 			int af_inet6_value = 23; // Default value for all other OS
@@ -325,99 +296,62 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 	}
 
 	/**
-	 * Process PCAPNG file using Wireshark's tool "tshark"
+	 * Process PCAPNG file block by block, decoding every packet with the link type of the interface it was captured on
 	 * @param packetfile
 	 * @param listener
 	 */
 	private void handlePCAPNGFile(String packetfile, IPacketListener listener) {
-		File tempFile = null;
-		try {
-	        // Write content data (json file) to a temporary file to enable reading json entry in a streaming fashion
-            tempFile = File.createTempFile("temp" + RANDOM.nextInt(), ".json");
-            String cmd = Util.getTshark() + " -r \"" + packetfile + "\" -x -T json -j \"frame\" > " + tempFile.getAbsolutePath();
-            LOGGER.info("Exporting raw packet data to external path " + tempFile.getAbsolutePath() + " for pcapng file " + packetfile + " with command: " + cmd);
-
-            String result = externalProcessRunner.executeCmd(cmd);
-            LOGGER.info("Export result: " + result);
-
-            readPcapNGJson(tempFile.getAbsolutePath(), listener);
-        } catch (Exception e) {
-            LOGGER.error("Something went wrong while processing pcapng file " + packetfile, e);
-        } finally {
-            if (tempFile != null && !tempFile.delete()) {
-                tempFile.deleteOnExit();
-            }
-        }
-	}
-
-	/**
-	 * Read PCAPNG json file generated by tshark to read frame's raw data and timestamp, and process it as VO packet
-	 * @param path
-	 * @param listener
-	 * @throws IOException
-	 */
-	private void readPcapNGJson(String path, IPacketListener listener) throws IOException {
-		try (
-			InputStream inputStream = Files.newInputStream(Paths.get(path));
-			JsonReader reader = new JsonReader(new InputStreamReader(inputStream));
-	    ) {
-			Gson gson = new Gson();
-	        reader.beginArray();
-	        Set<DataLinkType> nextDataLinkTypesSet = getDataLinkTypes();
-	        int currentPacketNumber = 0;
-			int totalPacketReads = 0;
-			lastDataLinkType = DataLinkType.EN10MB;
-			DecimalFormat df = new DecimalFormat("#.######");
-			df.setRoundingMode(RoundingMode.HALF_UP);
-
-	        while (reader.hasNext()) {
-	        	try {
-		        	++currentPacketNumber;
-		        	RawPacketData pcapngRawDataPacket = gson.fromJson(reader, RawPacketData.class);
-		        	
-		        	Double time = pcapngRawDataPacket.getSource().getLayers().getFrame().getEpochTimewithMicrosecondPrecision();
-		        	time = Double.valueOf(df.format(time));
-		        	// Convert timestamp to seconds and microseconds
-		        	long seconds = time.longValue();
-		        	long microseconds = (long) ((time - seconds) * 1000000);
-	
-		        	// Create Pcap4j packet object
-		        	String rawHexData = String.valueOf(pcapngRawDataPacket.getSource().getLayers().getRawAttributesList().get(0));
-		        	byte[] bytes = Hex.decodeHex(rawHexData.toCharArray());
-		        	Packet pcap4jPacket = createPcap4jPacket(bytes, nextDataLinkTypesSet, currentPacketNumber);
-
-		        	// create and process VO packet 
-		        	if (pcap4jPacket != null) {
-		        		com.att.aro.core.packetreader.pojo.Packet packet = translatePcap4jPacket(seconds, microseconds, pcap4jPacket);
-		        		++totalPacketReads;
-		        		listener.packetArrived(null, packet);
-		        	}
-	        	} catch (Exception ex) {
-	        		LOGGER.debug("Error while reading packet number " + currentPacketNumber, ex);
-	        	}
-	        }
-
-	        LOGGER.info(String.format("Finished reading total %d packets out of %d packets for pcap file %s",
-					totalPacketReads, currentPacketNumber, path));
+		int currentPacketNumber = 0;
+		int totalPacketReads = 0;
+		try (PcapngBlockReader reader = new PcapngBlockReader(packetfile)) {
+			// Update system property org.pcap4j.af.inet6 to correct value based on original OS which captured pcapng file
+			identifyOSInfo(reader.getSectionHeader().getOs());
+
+			Set<DataLinkType> nextDataLinkTypesSet = getDataLinkTypes();
+			PacketBlock packetBlock;
+			while ((packetBlock = reader.nextPacket()) != null) {
+				try {
+					++currentPacketNumber;
+					byte[] bytes = packetBlock.getData();
+					DataLinkType dataLinkType = DataLinkType.getInstance(packetBlock.getInterfaceDescription().getLinkType());
+					Packet pcap4jPacket = createPcap4jPacket(bytes, dataLinkType, nextDataLinkTypesSet, currentPacketNumber);
+
+					// create and process VO packet
+					if (pcap4jPacket != null) {
+						com.att.aro.core.packetreader.pojo.Packet packet = translatePcap4jPacket(packetBlock.getSeconds(), packetBlock.getMicroSeconds(), pcap4jPacket);
+						++totalPacketReads;
+						listener.packetArrived(null, packet);
+					}
+				} catch (PacketReadAbortedException ex) {
+					LOGGER.warn(String.format("Stopped reading pcapng file %s after %d packets: %s", packetfile, totalPacketReads, ex.getMessage()));
+					break;
+				} catch (Exception ex) {
+					LOGGER.debug("Error while reading packet number " + currentPacketNumber, ex);
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.error("Something went wrong while processing pcapng file " + packetfile, e);
+		}
 
-	        reader.endArray();
-	    }
+		LOGGER.info(String.format("Finished reading total %d packets out of %d packets for pcapng file %s",
+				totalPacketReads, currentPacketNumber, packetfile));
 	}
 
 	/**
-	 * Create pcap4j packet using PacketFactory by trying most used DataLink Types in practice
+	 * Create pcap4j packet using PacketFactory, starting with the datalink type declared by the capture interface
+	 * and falling back to the most used DataLink Types in practice
 	 * @param data
+	 * @param dataLinkType
 	 * @param nextDataLinkTypesMap
 	 * @return
 	 */
-	private Packet createPcap4jPacket(byte[] data, Set<DataLinkType> nextDataLinkTypesSet, int currentPacketNumber) {
+	private Packet createPcap4jPacket(byte[] data, DataLinkType dataLinkType, Set<DataLinkType> nextDataLinkTypesSet, int currentPacketNumber) {
 		Packet packet = null;
 		boolean isValidPacket = false;
-		DataLinkType saveLastDataLinkType = lastDataLinkType;
-		DataLinkType currentDataLinkType = lastDataLinkType;
+		DataLinkType currentDataLinkType = dataLinkType;
 
 		Iterator<DataLinkType> dataLinkTypesIterator = nextDataLinkTypesSet.iterator();
-		// Try the last datalink type first. Run for every other datalink type until we find a correct one.
+		// Try the declared datalink type first. Run for every other datalink type until we find a correct one.
 		do {
 			packet = PacketFactories.getFactory(Packet.class, DataLinkType.class).newInstance(data, 0, data.length, currentDataLinkType);
 			
@@ -428,13 +362,12 @@ public class PacketReaderLibraryImpl implements IPacketReader {
 				!(packet.getPayload() instanceof UnknownPacket)) {
 
 				isValidPacket = true;
-				lastDataLinkType = currentDataLinkType;
 				break;
 			}
 
 			currentDataLinkType = dataLinkTypesIterator.hasNext() ? dataLinkTypesIterator.next() : null;
 			// If current datalink type is same as the very first datalink type, get the next one as it has already been processed.
-			if(currentDataLinkType != null && currentDataLinkType.equals(saveLastDataLinkType)) {
+			if(currentDataLinkType != null && currentDataLinkType.equals(dataLinkType)) {
 				currentDataLinkType = dataLinkTypesIterator.hasNext() ? dataLinkTypesIterator.next() : null;
 			}
 		} while (currentDataLinkType != null);
@@ -0,0 +1,399 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetreader.impl;
+
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.packetreader.model.pcapng.InterfaceDescription;
+import com.att.aro.core.packetreader.model.pcapng.PacketBlock;
+import com.att.aro.core.packetreader.model.pcapng.SectionHeader;
+
+
+/**
+ * Streaming reader for pcapng files.
+ * Reads the file block by block and returns the captured packets one at a time, so the capture
+ * never has to be held in memory or converted by an external tool.
+ *
+ * Supported blocks are Section Header, Interface Description, Enhanced Packet, Simple Packet and the obsolete Packet Block.
+ * All other blocks are skipped.
+ *
+ * @see PCAPNG file format https://pcapng.github.io/pcapng/draft-tuexen-opsawg-pcapng.html
+ */
+public class PcapngBlockReader implements Closeable {
+	private static final Logger LOGGER = LogManager.getLogger(PcapngBlockReader.class);
+
+	static final int SECTION_HEADER_BLOCK = 0x0A0D0D0A;
+	static final int INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+	static final int PACKET_BLOCK = 0x00000002;
+	static final int SIMPLE_PACKET_BLOCK = 0x00000003;
+	static final int ENHANCED_PACKET_BLOCK = 0x00000006;
+	static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+
+	private static final int OPT_ENDOFOPT = 0;
+	private static final int OPT_SHB_HARDWARE = 2;
+	private static final int OPT_SHB_OS = 3;
+	private static final int OPT_SHB_USERAPPL = 4;
+	private static final int OPT_IF_TSRESOL = 9;
+	private static final int OPT_IF_TSOFFSET = 14;
+
+	private static final int BLOCK_HEADER_LENGTH = 8;
+	private static final int MIN_BLOCK_LENGTH = 12;
+	private static final int MAX_BLOCK_LENGTH = 64 * 1024 * 1024;
+	private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+	private final String path;
+	private final FileChannel channel;
+	private ByteBuffer buffer;
+
+	private SectionHeader sectionHeader;
+	private final List<InterfaceDescription> interfaces = new ArrayList<>();
+	private long lastSeconds;
+	private long lastMicroSeconds;
+	private int skippedPackets;
+
+	public PcapngBlockReader(String path) throws IOException {
+		this(path, READ_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize initial size of the read buffer, it grows to hold larger blocks
+	 */
+	PcapngBlockReader(String path, int bufferSize) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		buffer = ByteBuffer.allocate(bufferSize);
+		buffer.flip();
+		try {
+			if (!fill(BLOCK_HEADER_LENGTH) || buffer.getInt(buffer.position()) != SECTION_HEADER_BLOCK) {
+				throw new IOException("Not a valid pcapng file " + path);
+			}
+			readBlock();
+		} catch (IOException | RuntimeException exception) {
+			channel.close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * @return the Section Header of the section currently being read
+	 */
+	public SectionHeader getSectionHeader() {
+		return sectionHeader;
+	}
+
+	/**
+	 * Reads blocks up to and including the next packet block.
+	 *
+	 * @return next captured packet or null when the end of the file is reached
+	 * @throws IOException if the file cannot be read or contains a malformed block
+	 */
+	public PacketBlock nextPacket() throws IOException {
+		while (fill(BLOCK_HEADER_LENGTH)) {
+			PacketBlock packet = readBlock();
+			if (packet != null) {
+				return packet;
+			}
+		}
+		if (buffer.hasRemaining()) {
+			LOGGER.warn(String.format("Ignoring %d trailing bytes in pcapng file %s", buffer.remaining(), path));
+		}
+		if (skippedPackets > 0) {
+			LOGGER.warn(String.format("Skipped %d packets on undefined interfaces in %s", skippedPackets, path));
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads the block at the current position. On return the buffer is positioned at the next block.
+	 *
+	 * @return packet if the block is a packet block, otherwise null
+	 */
+	private PacketBlock readBlock() throws IOException {
+		int start = buffer.position();
+		int blockType = buffer.getInt(start);
+		if (blockType == SECTION_HEADER_BLOCK) {
+			// Byte order of the section is only known after reading the byte-order magic
+			if (!fill(BLOCK_HEADER_LENGTH + 4)) {
+				throw new EOFException("Truncated section header block in " + path);
+			}
+			// fill may have moved the block to the start of the buffer
+			start = buffer.position();
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			int magic = buffer.getInt(start + BLOCK_HEADER_LENGTH);
+			if (magic != BYTE_ORDER_MAGIC) {
+				if (Integer.reverseBytes(magic) != BYTE_ORDER_MAGIC) {
+					throw new IOException("Invalid byte-order magic in section header block of " + path);
+				}
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+
+		int blockLength = buffer.getInt(start + 4);
+		if (blockLength < MIN_BLOCK_LENGTH || blockLength > MAX_BLOCK_LENGTH || (blockLength & 3) != 0) {
+			throw new IOException(String.format("Invalid block length %d for block type 0x%08X in %s", blockLength, blockType, path));
+		}
+		if (!fill(blockLength)) {
+			throw new EOFException("Truncated block at end of " + path);
+		}
+		start = buffer.position();
+		int bodyStart = start + BLOCK_HEADER_LENGTH;
+		int bodyEnd = start + blockLength - 4;
+
+		PacketBlock packet = null;
+		switch (blockType) {
+		case SECTION_HEADER_BLOCK:
+			readSectionHeader(bodyStart, bodyEnd);
+			break;
+		case INTERFACE_DESCRIPTION_BLOCK:
+			readInterfaceDescription(bodyStart, bodyEnd);
+			break;
+		case ENHANCED_PACKET_BLOCK:
+			packet = readEnhancedPacket(bodyStart, bodyEnd);
+			break;
+		case SIMPLE_PACKET_BLOCK:
+			packet = readSimplePacket(bodyStart, bodyEnd);
+			break;
+		case PACKET_BLOCK:
+			packet = readObsoletePacket(bodyStart, bodyEnd);
+			break;
+		default:
+			break;
+		}
+
+		buffer.position(start + blockLength);
+		return packet;
+	}
+
+	private void readSectionHeader(int offset, int end) {
+		sectionHeader = new SectionHeader();
+		sectionHeader.setByteOrder(buffer.order());
+		sectionHeader.setMajorVersion(buffer.getShort(offset + 4) & 0xFFFF);
+		sectionHeader.setMinorVersion(buffer.getShort(offset + 6) & 0xFFFF);
+		// a new section starts a new list of interfaces
+		interfaces.clear();
+
+		// skip byte-order magic, versions and section length
+		int option = offset + 16;
+		while (option + 4 <= end) {
+			int code = buffer.getShort(option) & 0xFFFF;
+			int length = buffer.getShort(option + 2) & 0xFFFF;
+			if (code == OPT_ENDOFOPT || option + 4 + length > end) {
+				break;
+			}
+			switch (code) {
+			case OPT_SHB_HARDWARE:
+				sectionHeader.setHardware(readString(option + 4, length));
+				break;
+			case OPT_SHB_OS:
+				sectionHeader.setOs(readString(option + 4, length));
+				break;
+			case OPT_SHB_USERAPPL:
+				sectionHeader.setUserApplication(readString(option + 4, length));
+				break;
+			default:
+				break;
+			}
+			option += 4 + pad(length);
+		}
+	}
+
+	private void readInterfaceDescription(int offset, int end) {
+		InterfaceDescription description = new InterfaceDescription();
+		description.setLinkType(buffer.getShort(offset) & 0xFFFF);
+		description.setSnapLength(buffer.getInt(offset + 4) & 0xFFFFFFFFL);
+
+		int option = offset + 8;
+		while (option + 4 <= end) {
+			int code = buffer.getShort(option) & 0xFFFF;
+			int length = buffer.getShort(option + 2) & 0xFFFF;
+			if (code == OPT_ENDOFOPT || option + 4 + length > end) {
+				break;
+			}
+			if (code == OPT_IF_TSRESOL && length >= 1) {
+				description.setTimestampResolution(buffer.get(option + 4));
+			} else if (code == OPT_IF_TSOFFSET && length >= 8) {
+				description.setTimestampOffset(buffer.getLong(option + 4));
+			}
+			option += 4 + pad(length);
+		}
+		interfaces.add(description);
+	}
+
+	private PacketBlock readEnhancedPacket(int offset, int end) throws IOException {
+		InterfaceDescription description = getInterface(buffer.getInt(offset));
+		if (description == null) {
+			return null;
+		}
+		long timestamp = ((buffer.getInt(offset + 4) & 0xFFFFFFFFL) << 32) | (buffer.getInt(offset + 8) & 0xFFFFFFFFL);
+		int capturedLength = buffer.getInt(offset + 12);
+		int originalLength = buffer.getInt(offset + 16);
+		return createPacket(description, timestamp, capturedLength, originalLength, offset + 20, end);
+	}
+
+	private PacketBlock readObsoletePacket(int offset, int end) throws IOException {
+		InterfaceDescription description = getInterface(buffer.getShort(offset) & 0xFFFF);
+		if (description == null) {
+			return null;
+		}
+		long timestamp = ((buffer.getInt(offset + 4) & 0xFFFFFFFFL) << 32) | (buffer.getInt(offset + 8) & 0xFFFFFFFFL);
+		int capturedLength = buffer.getInt(offset + 12);
+		int originalLength = buffer.getInt(offset + 16);
+		return createPacket(description, timestamp, capturedLength, originalLength, offset + 20, end);
+	}
+
+	/**
+	 * Simple Packet Blocks carry no timestamp and always belong to the first interface.
+	 * They are given the timestamp of the previous packet to keep the capture in order.
+	 */
+	private PacketBlock readSimplePacket(int offset, int end) {
+		InterfaceDescription description = getInterface(0);
+		if (description == null) {
+			return null;
+		}
+		int originalLength = buffer.getInt(offset);
+		int capturedLength = Math.min(originalLength, end - offset - 4);
+		if (description.getSnapLength() > 0 && capturedLength > description.getSnapLength()) {
+			capturedLength = (int) description.getSnapLength();
+		}
+
+		PacketBlock packet = new PacketBlock();
+		packet.setInterfaceDescription(description);
+		packet.setSeconds(lastSeconds);
+		packet.setMicroSeconds(lastMicroSeconds);
+		packet.setOriginalLength(originalLength);
+		packet.setData(readBytes(offset + 4, capturedLength));
+		return packet;
+	}
+
+	private PacketBlock createPacket(InterfaceDescription description, long timestamp, int capturedLength, int originalLength, int dataOffset, int end) throws IOException {
+		if (capturedLength < 0 || dataOffset + capturedLength > end) {
+			throw new IOException(String.format("Invalid captured length %d in %s", capturedLength, path));
+		}
+
+		PacketBlock packet = new PacketBlock();
+		packet.setInterfaceDescription(description);
+		setTimestamp(packet, description, timestamp);
+		packet.setOriginalLength(originalLength);
+		packet.setData(readBytes(dataOffset, capturedLength));
+		lastSeconds = packet.getSeconds();
+		lastMicroSeconds = packet.getMicroSeconds();
+		return packet;
+	}
+
+	/**
+	 * Convert a timestamp in interface resolution units to seconds and microseconds
+	 */
+	static void setTimestamp(PacketBlock packet, InterfaceDescription description, long timestamp) {
+		int resolution = description.getTimestampResolution();
+		long seconds;
+		long microSeconds;
+		if ((resolution & 0x80) == 0) {
+			long unitsPerSecond = 1;
+			for (int i = 0; i < resolution && i < 18; i++) {
+				unitsPerSecond *= 10;
+			}
+			seconds = Long.divideUnsigned(timestamp, unitsPerSecond);
+			long remainder = Long.remainderUnsigned(timestamp, unitsPerSecond);
+			microSeconds = unitsPerSecond >= 1000000 ? remainder / (unitsPerSecond / 1000000) : remainder * (1000000 / unitsPerSecond);
+		} else {
+			int shift = Math.min(resolution & 0x7F, 63);
+			seconds = timestamp >>> shift;
+			long remainder = timestamp & ((1L << shift) - 1);
+			microSeconds = (long) (remainder * 1000000.0 / (1L << shift));
+		}
+		packet.setSeconds(seconds + description.getTimestampOffset());
+		packet.setMicroSeconds(microSeconds);
+	}
+
+	/**
+	 * @return the interface or null when the packet refers to an undefined interface and is to be skipped
+	 */
+	private InterfaceDescription getInterface(int interfaceId) {
+		if (interfaceId < 0 || interfaceId >= interfaces.size()) {
+			if (skippedPackets++ == 0) {
+				LOGGER.warn(String.format("Skipping packet on undefined interface %d in %s", interfaceId, path));
+			}
+			return null;
+		}
+		return interfaces.get(interfaceId);
+	}
+
+	private byte[] readBytes(int offset, int length) {
+		byte[] data = new byte[length];
+		int position = buffer.position();
+		buffer.position(offset);
+		buffer.get(data);
+		buffer.position(position);
+		return data;
+	}
+
+	private String readString(int offset, int length) {
+		byte[] data = readBytes(offset, length);
+		int end = data.length;
+		while (end > 0 && data[end - 1] == 0) {
+			end--;
+		}
+		return new String(data, 0, end, StandardCharsets.UTF_8);
+	}
+
+	private static int pad(int length) {
+		return (length + 3) & ~3;
+	}
+
+	/**
+	 * Make sure at least the given number of bytes are available in the buffer from its current position.
+	 *
+	 * @return false if the end of the file was reached first
+	 */
+	private boolean fill(int length) throws IOException {
+		if (buffer.remaining() >= length) {
+			return true;
+		}
+		if (buffer.capacity() < length) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2)).order(buffer.order());
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < length) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= length;
+	}
+}
@@ -16,12 +16,24 @@
 package com.att.aro.core.packetreader.model.pcapng;
 
 
-import com.google.gson.annotations.SerializedName;
 import lombok.Data;
 
 
+/**
+ * Interface Description Block (IDB) of a pcapng file.
+ * Packets refer to an interface by its index in the current section.
+ */
 @Data
-public class Source {
-	@SerializedName("layers")
-	private Layers layers;
+public class InterfaceDescription {
+	private int linkType;
+	private long snapLength;
+	/**
+	 * Raw if_tsresol value. If the most significant bit is 0 the remaining bits are a negative power of 10,
+	 * otherwise a negative power of 2. The default resolution is microseconds (6).
+	 */
+	private byte timestampResolution = 6;
+	/**
+	 * if_tsoffset value in seconds, added to every timestamp of this interface
+	 */
+	private long timestampOffset;
 }
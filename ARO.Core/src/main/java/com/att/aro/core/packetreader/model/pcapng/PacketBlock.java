@@ -16,12 +16,17 @@
 package com.att.aro.core.packetreader.model.pcapng;
 
 
-import com.google.gson.annotations.SerializedName;
 import lombok.Data;
 
 
+/**
+ * Captured packet read from an Enhanced, Simple or (obsolete) Packet Block of a pcapng file.
+ */
 @Data
-public class Frame {
-	@SerializedName("frame.time_epoch")
-	private Double epochTimewithMicrosecondPrecision;
+public class PacketBlock {
+	private InterfaceDescription interfaceDescription;
+	private long seconds;
+	private long microSeconds;
+	private int originalLength;
+	private byte[] data;
 }
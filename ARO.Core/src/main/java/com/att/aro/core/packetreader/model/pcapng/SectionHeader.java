@@ -16,16 +16,21 @@
 package com.att.aro.core.packetreader.model.pcapng;
 
 
-import java.util.List;
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteOrder;
+
 import lombok.Data;
 
 
+/**
+ * Section Header Block (SHB) of a pcapng file.
+ * Every section defines its own byte order and its own set of interfaces.
+ */
 @Data
-public class Layers {
-	@SerializedName("frame")
-	private Frame frame;
-
-	@SerializedName("frame_raw")
-	List<Object> rawAttributesList;
+public class SectionHeader {
+	private ByteOrder byteOrder;
+	private int majorVersion;
+	private int minorVersion;
+	private String hardware;
+	private String os;
+	private String userApplication;
 }
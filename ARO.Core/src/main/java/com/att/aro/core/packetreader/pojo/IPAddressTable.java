@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.packetreader.pojo;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the IP addresses of decoded packets so every packet of a trace to or
+ * from the same host shares one InetAddress instead of holding its own copy.
+ * A trace only talks to a few thousand distinct hosts, while it may hold
+ * millions of packets. The table is dropped and refilled once it exceeds
+ * {@link #MAX_ADDRESSES}, which only costs sharing, never correctness.
+ */
+public final class IPAddressTable {
+
+	static final int MAX_ADDRESSES = 1 << 16;
+
+	private static final Map<Integer, InetAddress> IPV4_ADDRESSES = new ConcurrentHashMap<>();
+	private static final Map<Key, InetAddress> IPV6_ADDRESSES = new ConcurrentHashMap<>();
+
+	private IPAddressTable() {
+	}
+
+	/**
+	 * Returns the shared address for the length bytes in data at offset.
+	 * 
+	 * @param data   packet bytes
+	 * @param offset start of the address
+	 * @param length 4 for IPv4, 16 for IPv6
+	 * @return the shared InetAddress
+	 * @throws UnknownHostException if length is not a valid address length
+	 */
+	public static InetAddress intern(byte[] data, int offset, int length) throws UnknownHostException {
+		if (length == 4) {
+			int value = (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+			InetAddress address = IPV4_ADDRESSES.get(value);
+			if (address == null) {
+				address = put(IPV4_ADDRESSES, value, InetAddress.getByAddress(Arrays.copyOfRange(data, offset, offset + 4)));
+			}
+			return address;
+		}
+		Key key = new Key(Arrays.copyOfRange(data, offset, offset + length));
+		InetAddress address = IPV6_ADDRESSES.get(key);
+		if (address == null) {
+			address = put(IPV6_ADDRESSES, key, InetAddress.getByAddress(key.bytes));
+		}
+		return address;
+	}
+
+	/**
+	 * Returns the shared instance equal to address.
+	 * 
+	 * @param address decoded address, may be null
+	 * @return the shared InetAddress, or null if address is null
+	 */
+	public static InetAddress intern(InetAddress address) {
+		if (address == null) {
+			return null;
+		}
+		byte[] bytes = address.getAddress();
+		try {
+			return intern(bytes, 0, bytes.length);
+		} catch (UnknownHostException e) {
+			return address;
+		}
+	}
+
+	static int size() {
+		return IPV4_ADDRESSES.size() + IPV6_ADDRESSES.size();
+	}
+
+	private static <K> InetAddress put(Map<K, InetAddress> addresses, K key, InetAddress address) {
+		if (addresses.size() >= MAX_ADDRESSES) {
+			addresses.clear();
+		}
+		InetAddress previous = addresses.putIfAbsent(key, address);
+		return previous == null ? address : previous;
+	}
+
+	private static final class Key {
+		private final byte[] bytes;
+		private final int hash;
+
+		Key(byte[] bytes) {
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+		}
+	}
+}
@@ -71,8 +71,8 @@ public class IPPacket extends Packet implements Serializable {
 			fragmentOffset = ipv4Header.getFragmentOffset();
 			timeToLive = ipv4Header.getTtl();
 			protocol = ipv4Header.getProtocol().value();
-			sourceIPAddress = ipv4Header.getSrcAddr();
-			destinationIPAddress = ipv4Header.getDstAddr();
+			sourceIPAddress = IPAddressTable.intern(ipv4Header.getSrcAddr());
+			destinationIPAddress = IPAddressTable.intern(ipv4Header.getDstAddr());
 
 			packetLength = ipv4Packet.length();
 			payloadLen = ipv4Packet.getPayload() != null ? ipv4Packet.getPayload().length() : 0;
@@ -82,8 +82,8 @@ public class IPPacket extends Packet implements Serializable {
 			IpV6Header ipv6Header = ipv6Packet.getHeader();
 
 			ipVersion = 0x06;
-			sourceIPAddress = ipv6Header.getSrcAddr();
-			destinationIPAddress = ipv6Header.getDstAddr();
+			sourceIPAddress = IPAddressTable.intern(ipv6Header.getSrcAddr());
+			destinationIPAddress = IPAddressTable.intern(ipv6Header.getDstAddr());
 			packetLength = ipv6Packet.length(); 
 			payloadLen = ipv6Header.getPayloadLengthAsInt();
 			dataOffset = super.getDataOffset() + ipv6Header.length();
@@ -142,7 +142,6 @@ public class IPPacket extends Packet implements Serializable {
 		}
 
 
-		byte[] buffer = null;
 		int addrLgth = -1;
 		int addrOffset = -1;
 		if (ipVersion == 6) {
@@ -153,17 +152,14 @@ public class IPPacket extends Packet implements Serializable {
 			addrOffset = 12;
 		}
 
-		buffer = new byte[addrLgth];
-		bytes.position(headerOffset + addrOffset);
-		bytes.get(buffer, 0, addrLgth);
+		// addresses are shared between packets of the same host
 		try {
-			sourceIPAddress = InetAddress.getByAddress(buffer);
+			sourceIPAddress = IPAddressTable.intern(data, headerOffset + addrOffset, addrLgth);
 		} catch (UnknownHostException e) {
 			LOGGER.warn("Unable to determine source IP - " + e.getMessage());
 		}
 		try {
-			bytes.get(buffer, 0, addrLgth);
-			destinationIPAddress = InetAddress.getByAddress(buffer);
+			destinationIPAddress = IPAddressTable.intern(data, headerOffset + addrOffset + addrLgth, addrLgth);
 		} catch (UnknownHostException e) {
 			LOGGER.warn("Unable to determine destination IP - " + e.getMessage());
 		}
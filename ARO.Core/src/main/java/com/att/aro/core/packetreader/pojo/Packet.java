@@ -24,7 +24,7 @@ import org.pcap4j.packet.IpV6Packet;
 /**
  * generic packet data
  */
-public class Packet implements Serializable {
+public class Packet implements Serializable, Cloneable {
 	private static final long serialVersionUID = 1L;
 
 	private byte[] data;
@@ -149,5 +149,20 @@ public class Packet implements Serializable {
 	public void setData(byte[] data) {
 		this.data = data;
 	}
+
+	/**
+	 * Returns a copy sharing the packet data, without the state set while the sessions of an analysis are assembled.
+	 * 
+	 * @return A copy of the packet.
+	 */
+	public Packet copy() {
+		try {
+			Packet copy = (Packet) clone();
+			copy.nextPacketInSession = null;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 	
 }
@@ -17,6 +17,7 @@ package com.att.aro.core.packetreader.pojo;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -66,8 +67,9 @@ public class TCPPacket extends IPPacket implements Serializable {
 	@Getter @Setter
 	private boolean retransmission = false;
 	private boolean sslApplicationData;
-	private Set<String> unsecureSSLVersions;
-	private Set<String> weakCipherSuites;
+	// empty shared sets until an SSL record needs them, most packets never do
+	private Set<String> unsecureSSLVersions = Collections.emptySet();
+	private Set<String> weakCipherSuites = Collections.emptySet();
 	private String selectedCipherSuite;
 	@Getter
 	private String serverNameIndication = "";
@@ -99,8 +101,6 @@ public class TCPPacket extends IPPacket implements Serializable {
 		payloadLen = pcap4jTCPPacket.getPayload() != null ? pcap4jTCPPacket.getPayload().length() : 0;
 		dataOffset = super.getDataOffset() + pcap4jTCPHeader.length();
 
-		unsecureSSLVersions = new HashSet<>();
-		weakCipherSuites = new HashSet<>();
 		int offset = dataOffset;
 		if (!(sourcePort == 80 || destinationPort == 80)) {
 			do {
@@ -141,8 +141,6 @@ public class TCPPacket extends IPPacket implements Serializable {
 		fin = (ivalue & 0x0001) != 0;
 		window = bytes.getShort(headerOffset + 14) & 0xFFFF;
 		urgentPointer = bytes.getShort(headerOffset + 18);
-		unsecureSSLVersions = new HashSet<>();
-		weakCipherSuites = new HashSet<>();
 		
 		int offset = dataOffset;
 		if (!(sourcePort == 80 || destinationPort == 80)) {
@@ -357,6 +355,9 @@ public class TCPPacket extends IPPacket implements Serializable {
 			if (isHandshake(contentType, majorVersion, minorVersion)) {
 				// check unsecure SSL version
 				if (isBadSSLVersion(majorVersion, minorVersion)) {
+					if (unsecureSSLVersions.isEmpty()) {
+						unsecureSSLVersions = new HashSet<>();
+					}
 					unsecureSSLVersions.add(getTLSVersion(majorVersion, minorVersion));
 				}
 				getCipherSuitesFromClientHello(bytes, tlsLen);
@@ -604,4 +605,14 @@ public class TCPPacket extends IPPacket implements Serializable {
 	public void setDecrypted(boolean decrypted) {
 		this.decrypted = decrypted;
 	}
+
+	/**
+	 * Returns a copy sharing the packet data, the retransmission flag is left to the session analysis.
+	 */
+	@Override
+	public TCPPacket copy() {
+		TCPPacket copy = (TCPPacket) super.copy();
+		copy.retransmission = false;
+		return copy;
+	}
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
 import com.att.aro.core.peripheral.IAlarmInfoReader;
 import com.att.aro.core.peripheral.pojo.AlarmInfo;
 import com.att.aro.core.peripheral.pojo.AlarmInfo.AlarmType;
+import com.att.aro.core.util.FieldTokenizer;
 import com.att.aro.core.util.Util;
 
 /**
@@ -61,13 +62,15 @@ public class AlarmInfoReaderImpl extends PeripheralBase implements IAlarmInfoRea
 			return alarmInfos;
 		}
 
+		FieldTokenizer strFields = new FieldTokenizer(" ");
 		for (String strLineBuf : lines) {
 			if (strLineBuf.indexOf("alarm_timer_triggered") > 0) {
-				String strFields[] = strLineBuf.split(" ");
-				if (strFields.length > 1) {
+				strFields.reset(strLineBuf);
+				int fieldCount = strFields.getCount();
+				if (fieldCount > 1) {
 					try {
 						timestamp = 0;
-						switch (Integer.parseInt(strFields[strFields.length - 3])) {
+						switch (Integer.parseInt(strFields.get(fieldCount - 3))) {
 						case 0:
 							alarmType = AlarmType.RTC_WAKEUP;
 							break;
@@ -86,13 +89,13 @@ public class AlarmInfoReaderImpl extends PeripheralBase implements IAlarmInfoRea
 
 							// should not arrive here
 							LOGGER.warn("cannot resolve alarm type: " + timestamp 
-									+ " type " + Double.parseDouble(strFields[strFields.length - 3]));
+									+ " type " + Double.parseDouble(strFields.get(fieldCount - 3)));
 							alarmType = AlarmType.UNKNOWN;
 							break;
 						}
 
 						// convert ns to milliseconds
-						timestamp += Double.parseDouble(strFields[strFields.length - 1]) / 1000000;
+						timestamp += strFields.getDouble(fieldCount - 1) / 1000000;
 						timestampEpoch = timestamp;
 						timestamp = timestamp - traceDateTime.getTime();
 						timestampElapsed = timestampEpoch 
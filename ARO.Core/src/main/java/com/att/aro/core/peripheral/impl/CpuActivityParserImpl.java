@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.att.aro.core.peripheral.ICpuActivityParser;
 import com.att.aro.core.peripheral.pojo.CpuActivity;
+import com.att.aro.core.util.FieldTokenizer;
 import com.att.aro.core.util.Util;
 
 /**
@@ -28,20 +29,23 @@ import com.att.aro.core.util.Util;
  */
 public class CpuActivityParserImpl implements ICpuActivityParser {
 
+	// fields are split at whitespace and '=', one tokenizer per thread reading cpu files
+	private final ThreadLocal<FieldTokenizer> tokenizer = ThreadLocal
+			.withInitial(() -> new FieldTokenizer(FieldTokenizer.WHITESPACE + "="));
+
 	@Override
 	public CpuActivity parseCpuLine(String cpuLine, double pcapTime) {
 		CpuActivity cpuActivity = null;
-		String pattern = "[\\s=]";
-		String splitLine[] = cpuLine.split(pattern);
-		int numOfElements = splitLine.length;
+		FieldTokenizer splitLine = tokenizer.get().reset(cpuLine);
+		int numOfElements = splitLine.getCount();
 
 		if(numOfElements < (CpuActivity.TOTAL_CPU_INFO_IDX + 1)){
 			return null;
 		}
 		cpuActivity = new CpuActivity();
-		double time = Double.parseDouble(splitLine[CpuActivity.TIMESTAMP_IDX]);
+		double time = splitLine.getDouble(CpuActivity.TIMESTAMP_IDX);
 		double timeStamp = Util.normalizeTime(time, pcapTime);
-		double cpuUsageTotal = Double.parseDouble(splitLine[CpuActivity.TOTAL_CPU_INFO_IDX]);
+		double cpuUsageTotal = splitLine.getDouble(CpuActivity.TOTAL_CPU_INFO_IDX);
 		double cpuUsageTotalFiltered = cpuUsageTotal;
 		
 		cpuActivity.setTimestamp(timeStamp);
@@ -54,9 +58,9 @@ public class CpuActivityParserImpl implements ICpuActivityParser {
 			List<Double> cpuProcessUsageList = new ArrayList<Double>();
 			String procName;
 			String cpuUsage;
-			for (int i = CpuActivity.PROCESS_INFO_IDX; i < splitLine.length; i++) {
-				procName = splitLine[i];
-				cpuUsage = splitLine[++i];
+			for (int i = CpuActivity.PROCESS_INFO_IDX; i < numOfElements; i++) {
+				procName = splitLine.get(i);
+				cpuUsage = splitLine.get(++i);
 				processNameList.add(procName);
 				cpuProcessUsageList.add(Double.parseDouble(cpuUsage));
 			}
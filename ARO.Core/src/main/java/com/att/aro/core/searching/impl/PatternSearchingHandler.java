@@ -20,10 +20,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import org.apache.commons.validator.CreditCardValidator;
 import org.apache.log4j.Logger;
 import org.apache.log4j.LogManager;
 
@@ -37,23 +34,24 @@ import com.att.aro.core.searching.pojo.SearchingPattern;
 import com.att.aro.core.searching.pojo.SearchingResult;
 import com.att.aro.core.searching.pojo.SearchingResultBuilder;
 
-@SuppressWarnings("deprecation")
 public class PatternSearchingHandler implements ISearchingHandler {
 
 	private static final Logger LOGGER = LogManager.getLogger(PatternSearchingHandler.class.getName());
 
-	private CreditCardValidator validator;
-	
-	public PatternSearchingHandler() {
-		initCreditCardValidator();
-	}
-	
-	private void initCreditCardValidator() {
-		validator = new CreditCardValidator(CreditCardValidator.AMEX 
-											+ CreditCardValidator.DISCOVER 
-											+ CreditCardValidator.MASTERCARD
-											+ CreditCardValidator.VISA);
+	/**
+	 * pivot map of the last searched pattern, so the expressions are parsed and compiled once per pattern
+	 */
+	private static class CompiledPattern {
+		private final SearchingPattern source;
+		private final Map<Character, List<PatternInfo>> pivotCharMap;
+
+		CompiledPattern(SearchingPattern source, Map<Character, List<PatternInfo>> pivotCharMap) {
+			this.source = source;
+			this.pivotCharMap = pivotCharMap;
+		}
 	}
+
+	private volatile CompiledPattern lastPattern;
 	
 	@Override
 	public SearchingResult search(SearchingPattern pattern, SearchingContent content) {
@@ -62,7 +60,7 @@ public class PatternSearchingHandler implements ISearchingHandler {
 			return resultBuilder.build();
 		}
 
-		Map<Character, List<PatternInfo>> pivotCharMap = initPivotCharMap(pattern);
+		Map<Character, List<PatternInfo>> pivotCharMap = getPivotCharMap(pattern);
 		String text = content.get();
 
 		for(int i = 0; i < text.length(); i++) {
@@ -75,12 +73,12 @@ public class PatternSearchingHandler implements ISearchingHandler {
 			
 			for(PatternInfo info : relatedPattern) {
 				if (isValidCandidatePattern(info, text, i)) {
-					String candidate = getValidCandidatePattern(info, pivotChar, text, i);
-					if (candidate == null) {
+					int start = getStartIndex(info, pivotChar, i);
+					if (start + info.getLength() > text.length()) {
 						continue;
 					}
-					if (compare(candidate, info)) {
-						resultBuilder.add(candidate, info.getType());
+					if (compare(text, start, info)) {
+						resultBuilder.add(text.substring(start, start + info.getLength()), info.getType());
 					}
 				}
 			}
@@ -100,48 +98,56 @@ public class PatternSearchingHandler implements ISearchingHandler {
 	}
 	
 	/**
-	 * get valid candidate substring in text
+	 * get start index in text for potential candidate
 	 * @param info
 	 * @param pivotChar
-	 * @param text
 	 * @param index
 	 * @return
 	 */
-	private String getValidCandidatePattern(PatternInfo info, char pivotChar, String text, int index) {
-		int start = getStartIndex(info, pivotChar, index);
-		if (start + info.getLength() > text.length()) {
-			return null;
-		}
-		return text.substring(start, start + info.getLength());
+	private int getStartIndex(PatternInfo info, char pivotChar, int index) {
+		return index - info.getCharToOffsets().get(pivotChar).get(0).getOffsetToHead();
 	}
 	
 	/**
-	 * get start index in text for potential candidate
+	 * compare the candidate region of text starting at start with the pattern expression
+	 * @param text
+	 * @param start
 	 * @param info
-	 * @param pivotChar
-	 * @param index
 	 * @return
 	 */
-	private int getStartIndex(PatternInfo info, char pivotChar, int index) {
-		return index - info.getCharToOffsets().get(pivotChar).get(0).getOffsetToHead();
+	private boolean compare(String text, int start, PatternInfo info) {
+		int end = start + info.getLength();
+		if (isCreditCardType(info) && !isLuhnValid(text, start, end)) {
+			return false;
+		}
+		return info.getCompiledExpression().matcher(text).region(start, end).matches();
 	}
 	
 	/**
-	 * compare candidate string and pattern expression
-	 * @param candidate
-	 * @param info
-	 * @return
+	 * Luhn checksum of the digits in text between start (inclusive) and end (exclusive)
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @return false if the region holds a non digit or fails the checksum
 	 */
-	private boolean compare(String candidate, PatternInfo info) {
-		Pattern patt = Pattern.compile(info.getExpression());
-		Matcher matcher = patt.matcher(candidate);
-		if (matcher.matches()) {
-			if (isCreditCardType(info)) {
-				return validator.isValid(candidate);
+	private boolean isLuhnValid(String text, int start, int end) {
+		int sum = 0;
+		boolean doubled = false;
+		for (int index = end - 1; index >= start; index--) {
+			int digit = text.charAt(index) - '0';
+			if (digit < 0 || digit > 9) {
+				return false;
 			}
-			return true;
+			if (doubled) {
+				digit *= 2;
+				if (digit > 9) {
+					digit -= 9;
+				}
+			}
+			sum += digit;
+			doubled = !doubled;
 		}
-		return false;
+		return sum % 10 == 0;
 	}
 	
 	/**
@@ -186,6 +192,21 @@ public class PatternSearchingHandler implements ISearchingHandler {
 		return true;
 	}
 	
+	/**
+	 * get the pivot map for pattern, building it when the pattern changes
+	 * 
+	 * @param pattern
+	 * @return
+	 */
+	private Map<Character, List<PatternInfo>> getPivotCharMap(SearchingPattern pattern) {
+		CompiledPattern compiled = lastPattern;
+		if (compiled == null || compiled.source != pattern) {
+			compiled = new CompiledPattern(pattern, initPivotCharMap(pattern));
+			lastPattern = compiled;
+		}
+		return compiled.pivotCharMap;
+	}
+	
 	/**
 	 * generate in-memory map (pivot character -> list of potential pattern information)
 	 * 
@@ -18,11 +18,13 @@ package com.att.aro.core.searching.pojo;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 public class PatternInfo {
 	
 	private String type;
 	private String expression;
+	private Pattern compiledExpression;
 	private int length;
 	private char pivotChar;
 	private Map<Character, List<OffsetPair>> charToOffsets;
@@ -72,6 +74,14 @@ public class PatternInfo {
 
 	public void setExpression(String expression) {
 		this.expression = expression;
+		this.compiledExpression = expression == null ? null : Pattern.compile(expression);
+	}
+
+	/**
+	 * @return the expression compiled once when it was set
+	 */
+	public Pattern getCompiledExpression() {
+		return compiledExpression;
 	}
 
 	public int getLength() {
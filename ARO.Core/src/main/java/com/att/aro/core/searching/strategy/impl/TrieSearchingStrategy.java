@@ -15,12 +15,12 @@
 */
 package com.att.aro.core.searching.strategy.impl;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
 
 import com.att.aro.core.searching.pojo.SearchingContent;
 import com.att.aro.core.searching.pojo.SearchingPattern;
@@ -28,6 +28,11 @@ import com.att.aro.core.searching.pojo.SearchingResult;
 import com.att.aro.core.searching.pojo.SearchingResultBuilder;
 import com.att.aro.core.searching.strategy.ISearchingStrategy;
 
+/**
+ * Keyword search over an Aho-Corasick automaton built on the keyword trie.
+ * The automaton for the last pattern is kept, so searching many sessions for
+ * the same pattern compiles it only once and scans each content in a single pass.
+ */
 public class TrieSearchingStrategy implements ISearchingStrategy {
 	
 	/**
@@ -36,11 +41,15 @@ public class TrieSearchingStrategy implements ISearchingStrategy {
 	 *
 	 *
 	 */
-	private class TrieNode {
+	private static class TrieNode {
 		private Map<Character, TrieNode> children;
 		private boolean isEnd;
 		private String pattern;
 		private String type;
+		// longest proper suffix of this node that is also in the trie
+		private TrieNode failure;
+		// nearest node on the failure chain that ends a pattern
+		private TrieNode output;
 		
 		public TrieNode() {
 			children = new HashMap<Character, TrieNode>();
@@ -53,126 +62,136 @@ public class TrieSearchingStrategy implements ISearchingStrategy {
 	 *
 	 *
 	 */
-	private class KeywordTrie {
+	private static class KeywordTrie {
 		
+		private final SearchingPattern source;
 		private TrieNode root;
 		
-		public KeywordTrie() {
+		public KeywordTrie(SearchingPattern source) {
+			this.source = source;
 			root = new TrieNode();
 		}
 		
 		// insert a pattern
 		public void insert(String pattern, String type) {
-			insertHelper(pattern.toCharArray(), type, 0, root);
-		}
-		
-		private void insertHelper(char[] chars, String type, int index, TrieNode root) {
-			if (index == chars.length) {
-				root.isEnd = true;
-				root.pattern = new String(chars);
-				root.type = type;
+			if (pattern == null || pattern.isEmpty()) {
 				return;
 			}
-			
-			char next = chars[index];
-			if (!root.children.containsKey(next)) {
-				root.children.put(next, new TrieNode());
+			TrieNode current = root;
+			for (int index = 0; index < pattern.length(); index++) {
+				char next = pattern.charAt(index);
+				TrieNode child = current.children.get(next);
+				if (child == null) {
+					child = new TrieNode();
+					current.children.put(next, child);
+				}
+				current = child;
 			}
-			insertHelper(chars, type, index + 1, root.children.get(next));
+			current.isEnd = true;
+			current.pattern = pattern;
+			current.type = type;
 		}
 		
-		// peek trie to get next trie node
-		public TrieNode peek(TrieNode current, char next) {
-			if (current.children.containsKey(next)) {
-				return current.children.get(next);
-			} else {
-				return null;
+		// link every node to its failure and output node, breadth first
+		public void link() {
+			Queue<TrieNode> queue = new ArrayDeque<TrieNode>();
+			root.failure = root;
+			for (TrieNode child : root.children.values()) {
+				child.failure = root;
+				queue.add(child);
+			}
+			while (!queue.isEmpty()) {
+				TrieNode current = queue.poll();
+				for (Map.Entry<Character, TrieNode> entry : current.children.entrySet()) {
+					TrieNode child = entry.getValue();
+					child.failure = next(current.failure, entry.getKey());
+					child.output = child.failure.isEnd ? child.failure : child.failure.output;
+					queue.add(child);
+				}
 			}
 		}
 		
-		// check if the upcoming character is a valid start
-		public boolean isCandidateStart(char character) {
-			return root.children.containsKey(character);
+		// follow failure links until a transition on character exists
+		public TrieNode next(TrieNode current, char character) {
+			while (true) {
+				TrieNode child = current.children.get(character);
+				if (child != null) {
+					return child;
+				}
+				if (current == root) {
+					return root;
+				}
+				current = current.failure;
+			}
 		}
 	}
 	
+	private volatile KeywordTrie lastTrie;
+	
 	@Override
 	public SearchingResult applySearch(SearchingPattern pattern, SearchingContent content) {
 		SearchingResultBuilder resultBuilder = new SearchingResultBuilder();
 
-		List<String> words = pattern.getWords();
-		List<String> types = pattern.getTypes();
-		String text = content.get();
-
-		KeywordTrie trie = buildTrie(words, types);
+		KeywordTrie trie = getTrie(pattern);
 		
-		Map<String, String> wordsFound = search(trie, text);
+		Map<String, String> wordsFound = search(trie, content.get());
 		
-		Set<String> keySet = wordsFound.keySet();
-		for(String key : keySet) {
-			resultBuilder.add(key, wordsFound.get(key));
+		for (Map.Entry<String, String> entry : wordsFound.entrySet()) {
+			resultBuilder.add(entry.getKey(), entry.getValue());
 		}
 
 		return resultBuilder.build();
 	}
 	
 	private Map<String, String> search(KeywordTrie trie, String text) {
-		Map<String, String> result = new HashMap<String, String>();
-		
-		Queue<Integer> candidateStartQueue = new LinkedList<Integer>();
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		if (text == null) {
+			return result;
+		}
 		
-		int index = 0;
-		while(index < text.length()) {
-			
-			while(index < text.length() && !trie.isCandidateStart(text.charAt(index))) {
-				index++;
-			}
-			
-			if (index == text.length()) {
-				return result;
-			}
-			candidateStartQueue.add(index);
-			
-			int nextStart = index + 1;
-			
-			while(!candidateStartQueue.isEmpty()) {
-				int candidate = candidateStartQueue.poll();
-				
-				TrieNode current = trie.root;	// check from root
-				int runIndex = candidate;	// candidate start point
-				while(runIndex < text.length() && trie.peek(current, text.charAt(runIndex)) != null) {
-					current = trie.peek(current, text.charAt(runIndex++));
-					
-					if (current.isEnd && !result.containsKey(current.pattern)) {
-						result.put(current.pattern, current.type);
-					}
-					
-					if (runIndex < text.length() && trie.isCandidateStart(text.charAt(runIndex))) {
-						candidateStartQueue.add(runIndex);
-					}
+		TrieNode current = trie.root;
+		for (int index = 0; index < text.length(); index++) {
+			current = trie.next(current, text.charAt(index));
+			for (TrieNode match = current.isEnd ? current : current.output; match != null; match = match.output) {
+				if (!result.containsKey(match.pattern)) {
+					result.put(match.pattern, match.type);
 				}
-				
-				nextStart = Math.max(nextStart, candidate + 1);
 			}
-			
-			index = nextStart;
 		}
 		
 		return result;
 	}
 
+	/**
+	 * get the automaton for pattern, building it when the pattern changes
+	 * 
+	 * @param pattern
+	 * @return
+	 */
+	private KeywordTrie getTrie(SearchingPattern pattern) {
+		KeywordTrie trie = lastTrie;
+		if (trie == null || trie.source != pattern) {
+			trie = buildTrie(pattern);
+			lastTrie = trie;
+		}
+		return trie;
+	}
+
 	/**
 	 * build trie from list of keywords
 	 * 
-	 * @param keywords
+	 * @param pattern
 	 * @return
 	 */
-	private KeywordTrie buildTrie(List<String> keywords, List<String> types) {
-		KeywordTrie trie = new KeywordTrie();
+	private KeywordTrie buildTrie(SearchingPattern pattern) {
+		KeywordTrie trie = new KeywordTrie(pattern);
 		
+		List<String> keywords = pattern.getWords();
+		List<String> types = pattern.getTypes();
 		for(int i = 0; i < keywords.size(); i++) {
 			trie.insert(keywords.get(i), types.get(i));
 		}
+		trie.link();
 		
 		return trie;
 	}
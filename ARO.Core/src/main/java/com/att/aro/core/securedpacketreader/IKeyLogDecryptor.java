@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.securedpacketreader;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+
+/**
+ * Decrypts the TLS sessions of a trace with the secrets of an NSS key log (SSLKEYLOGFILE), in Java.
+ */
+public interface IKeyLogDecryptor {
+
+	/**
+	 * Replaces the payload of the TCP packets of every TLS session the key log has secrets for with the decrypted
+	 * application data, the way the payloads of secure_traffic.cap are merged. Sessions holding decrypted packets
+	 * already are left alone.
+	 * 
+	 * @param keyLogPath
+	 *            path of the key log file
+	 * @param packets
+	 *            packets of the trace, with their direction
+	 * @return the number of sessions decrypted
+	 */
+	int decrypt(String keyLogPath, List<PacketInfo> packets) throws IOException;
+}
@@ -0,0 +1,487 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.securedpacketreader.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.att.aro.core.fileio.IFileManager;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.securedpacketreader.IKeyLogDecryptor;
+import com.att.aro.core.securedpacketreader.pojo.KeyLog;
+import com.att.aro.core.securedpacketreader.impl.TLSRecordCipher.Suite;
+
+/**
+ * Decrypts TLS 1.2 and TLS 1.3 sessions with AEAD cipher suites from an NSS key log, one session per task.
+ * <p>
+ * Each direction of a TCP connection is put together by sequence number, the client and server random and the cipher
+ * suite come from the hello messages and the keys from the key log. The plaintext of a record goes to the packet
+ * holding its last byte, packets of the encrypted part of the stream without a record ending in them get an empty
+ * payload.
+ */
+public class KeyLogDecryptorImpl implements IKeyLogDecryptor {
+	private static final Logger LOGGER = LogManager.getLogger(KeyLogDecryptorImpl.class.getName());
+
+	private static final int CLIENT_HELLO = 1;
+	private static final int SERVER_HELLO = 2;
+	private static final int KEY_UPDATE = 24;
+	private static final int SUPPORTED_VERSIONS = 43;
+	private static final int TLS13 = 0x0304;
+	private static final int RANDOM_LENGTH = 32;
+	private static final int RECORD_HEADER_LENGTH = 5;
+	// random of a ServerHello that is a HelloRetryRequest, RFC 8446 4.1.3
+	private static final byte[] HELLO_RETRY_REQUEST = { (byte) 0xCF, 0x21, (byte) 0xAD, 0x74, (byte) 0xE5, (byte) 0x9A, 0x61, 0x11,
+			(byte) 0xBE, 0x1D, (byte) 0x8C, 0x02, 0x1E, 0x65, (byte) 0xB8, (byte) 0x91, (byte) 0xC2, (byte) 0xA2, 0x11, 0x16, 0x7A,
+			(byte) 0xBB, (byte) 0x8C, 0x5E, 0x07, (byte) 0x9E, 0x09, (byte) 0xE2, (byte) 0xC8, (byte) 0xA8, 0x33, (byte) 0x9C };
+
+	@Autowired
+	private IFileManager filereader;
+
+	private final ForkJoinPool sessionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Stops the session decryption threads when the application context is closed
+	 */
+	@PreDestroy
+	public void shutdown() {
+		sessionPool.shutdown();
+	}
+
+	public void setFileReader(IFileManager filereader) {
+		this.filereader = filereader;
+	}
+
+	@Override
+	public int decrypt(String keyLogPath, List<PacketInfo> packets) throws IOException {
+		KeyLog keyLog = KeyLog.parse(filereader.readAllLine(keyLogPath));
+		if (keyLog.size() == 0) {
+			return 0;
+		}
+		List<List<TCPPacket>> connections = new ArrayList<>();
+		Map<ConnectionKey, List<TCPPacket>> openConnections = new HashMap<>();
+		for (PacketInfo packetInfo : packets) {
+			if (packetInfo.getPacket() instanceof TCPPacket) {
+				TCPPacket packet = (TCPPacket) packetInfo.getPacket();
+				ConnectionKey key = new ConnectionKey(packet.getSourceIPAddress(), packet.getSourcePort(), packet.getDestinationIPAddress(),
+						packet.getDestinationPort());
+				List<TCPPacket> connection = openConnections.get(key);
+				// a SYN on a port in use starts a new connection
+				if (connection == null || (packet.isSYN() && !packet.isACK() && !connection.get(connection.size() - 1).isSYN())) {
+					connection = new ArrayList<>();
+					connections.add(connection);
+					openConnections.put(key, connection);
+				}
+				connection.add(packet);
+			}
+		}
+
+		List<ForkJoinTask<Boolean>> tasks = new ArrayList<>(connections.size());
+		for (List<TCPPacket> connection : connections) {
+			tasks.add(sessionPool.submit(() -> decrypt(keyLog, connection)));
+		}
+		int count = 0;
+		for (ForkJoinTask<Boolean> task : tasks) {
+			if (task.join()) {
+				count++;
+			}
+		}
+		LOGGER.debug("Decrypted " + count + " of " + connections.size() + " TCP sessions with " + keyLog.size() + " key log secrets");
+		return count;
+	}
+
+	/**
+	 * Decrypts one TCP connection
+	 * 
+	 * @return true when packets of the connection were decrypted
+	 */
+	private boolean decrypt(KeyLog keyLog, List<TCPPacket> packets) {
+		TCPPacket first = packets.get(0);
+		TcpStream forward = new TcpStream();
+		TcpStream backward = new TcpStream();
+		for (TCPPacket packet : packets) {
+			if (packet.isDecrypted()) {
+				return false;
+			}
+			boolean isForward = packet.getSourcePort() == first.getSourcePort() && packet.getSourceIPAddress().equals(first.getSourceIPAddress());
+			(isForward ? forward : backward).add(packet);
+		}
+		forward.assemble();
+		backward.assemble();
+
+		Hello forwardHello = forward.readHello();
+		Hello backwardHello = backward.readHello();
+		if (forwardHello == null || backwardHello == null || forwardHello.type == backwardHello.type) {
+			return false;
+		}
+		TcpStream client = forwardHello.type == CLIENT_HELLO ? forward : backward;
+		TcpStream server = client == forward ? backward : forward;
+		Hello clientHello = client == forward ? forwardHello : backwardHello;
+		Hello serverHello = client == forward ? backwardHello : forwardHello;
+
+		Suite suite = Suite.forCode(serverHello.cipherSuite);
+		boolean tls13 = serverHello.version == TLS13;
+		if (suite == null || suite.isTls13() != tls13) {
+			LOGGER.debug("Cipher suite 0x" + Integer.toHexString(serverHello.cipherSuite) + " can not be decrypted");
+			return false;
+		}
+		if (!suite.isAvailable()) {
+			LOGGER.debug(suite + " is not available in this Java runtime");
+			return false;
+		}
+		try {
+			TLSRecordCipher clientCipher;
+			TLSRecordCipher serverCipher;
+			if (tls13) {
+				byte[] clientSecret = keyLog.getSecret(KeyLog.CLIENT_TRAFFIC_SECRET_0, clientHello.random);
+				byte[] serverSecret = keyLog.getSecret(KeyLog.SERVER_TRAFFIC_SECRET_0, clientHello.random);
+				if (clientSecret == null || serverSecret == null) {
+					return false;
+				}
+				clientCipher = TLSRecordCipher.forTrafficSecret(suite, clientSecret);
+				serverCipher = TLSRecordCipher.forTrafficSecret(suite, serverSecret);
+			} else {
+				byte[] masterSecret = keyLog.getSecret(KeyLog.CLIENT_RANDOM, clientHello.random);
+				if (masterSecret == null) {
+					return false;
+				}
+				TLSRecordCipher[] ciphers = TLSRecordCipher.forMasterSecret(suite, masterSecret, clientHello.random, serverHello.random);
+				clientCipher = ciphers[0];
+				serverCipher = ciphers[1];
+			}
+			boolean decrypted = client.decrypt(clientCipher, tls13);
+			return server.decrypt(serverCipher, tls13) || decrypted;
+		} catch (GeneralSecurityException exception) {
+			LOGGER.warn("Failed to decrypt TLS session with " + suite, exception);
+			return false;
+		}
+	}
+
+	/**
+	 * ClientHello or ServerHello
+	 */
+	private static final class Hello {
+		private final int type;
+		private final byte[] random;
+		private int cipherSuite;
+		private int version;
+
+		private Hello(int type, byte[] random) {
+			this.type = type;
+			this.random = random;
+		}
+	}
+
+	/**
+	 * One direction of a TCP connection
+	 */
+	private static final class TcpStream {
+		private final List<TCPPacket> packets = new ArrayList<>();
+		private long initialSequenceNumber = -1;
+		private byte[] data = new byte[0];
+		private int length;
+		// packets in stream order, with the offset of the first byte each of them added to the stream
+		private final List<TCPPacket> segments = new ArrayList<>();
+		private int[] segmentOffsets = new int[0];
+		private final List<Integer> recordOffsets = new ArrayList<>();
+
+		private void add(TCPPacket packet) {
+			if (packet.isSYN()) {
+				initialSequenceNumber = (packet.getSequenceNumber() + 1) & 0xFFFFFFFFL;
+			}
+			if (packet.getPayloadLen() > 0) {
+				packets.add(packet);
+			}
+		}
+
+		/**
+		 * @return offset of the packet's payload in the stream, negative when it is before the start of the stream
+		 */
+		private long offsetOf(TCPPacket packet) {
+			long offset = (packet.getSequenceNumber() - initialSequenceNumber) & 0xFFFFFFFFL;
+			return offset < 0x80000000L ? offset : offset - 0x100000000L;
+		}
+
+		/**
+		 * Puts the payloads together up to the first gap, then splits the stream into TLS records
+		 */
+		private void assemble() {
+			if (packets.isEmpty()) {
+				return;
+			}
+			if (initialSequenceNumber < 0) {
+				initialSequenceNumber = packets.get(0).getSequenceNumber();
+			}
+			List<TCPPacket> ordered = new ArrayList<>(packets);
+			ordered.sort((first, second) -> Long.compare(offsetOf(first), offsetOf(second)));
+			data = new byte[Math.max(1024, ordered.size() * 1460)];
+			segmentOffsets = new int[ordered.size()];
+			for (TCPPacket packet : ordered) {
+				long offset = offsetOf(packet);
+				if (offset < 0) {
+					continue;
+				}
+				if (offset > length) {
+					break;
+				}
+				int available = Math.min(packet.getPayloadLen(), packet.getData().length - packet.getDataOffset());
+				if (offset + available > length) {
+					int skip = (int) (length - offset);
+					int count = available - skip;
+					if (length + count > data.length) {
+						data = Arrays.copyOf(data, Math.max(data.length * 2, length + count));
+					}
+					System.arraycopy(packet.getData(), packet.getDataOffset() + skip, data, length, count);
+					segmentOffsets[segments.size()] = length;
+					segments.add(packet);
+					length += count;
+				}
+				if (available < packet.getPayloadLen()) {
+					// truncated by the capture
+					break;
+				}
+			}
+
+			int offset = 0;
+			while (offset + RECORD_HEADER_LENGTH <= length) {
+				int type = data[offset] & 0xFF;
+				if (type < TLSRecordCipher.CHANGE_CIPHER_SPEC || type > TLSRecordCipher.APPLICATION_DATA || data[offset + 1] != 3) {
+					break;
+				}
+				int end = offset + RECORD_HEADER_LENGTH + readShort(offset + 3);
+				if (end > length) {
+					break;
+				}
+				recordOffsets.add(offset);
+				offset = end;
+			}
+		}
+
+		private int readShort(int offset) {
+			return (data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF;
+		}
+
+		/**
+		 * @return the first ClientHello or ServerHello in the plaintext handshake records, HelloRetryRequests skipped
+		 */
+		private Hello readHello() {
+			ByteArrayOutputStream handshake = new ByteArrayOutputStream();
+			for (int recordOffset : recordOffsets) {
+				int type = data[recordOffset] & 0xFF;
+				if (type == TLSRecordCipher.APPLICATION_DATA) {
+					return null;
+				} else if (type != TLSRecordCipher.HANDSHAKE) {
+					continue;
+				}
+				handshake.write(data, recordOffset + RECORD_HEADER_LENGTH, readShort(recordOffset + 3));
+				byte[] messages = handshake.toByteArray();
+				for (int offset = 0; offset + 4 <= messages.length;) {
+					int messageType = messages[offset] & 0xFF;
+					int end = offset + 4 + ((messages[offset + 1] & 0xFF) << 16 | (messages[offset + 2] & 0xFF) << 8 | messages[offset + 3] & 0xFF);
+					if (end > messages.length) {
+						break;
+					}
+					if (messageType == CLIENT_HELLO || messageType == SERVER_HELLO) {
+						Hello hello = readHello(messageType, messages, offset + 4, end);
+						if (hello == null || messageType == CLIENT_HELLO || !Arrays.equals(hello.random, HELLO_RETRY_REQUEST)) {
+							return hello;
+						}
+					}
+					offset = end;
+				}
+			}
+			return null;
+		}
+
+		private static Hello readHello(int type, byte[] message, int offset, int end) {
+			if (offset + 2 + RANDOM_LENGTH + 1 > end) {
+				return null;
+			}
+			Hello hello = new Hello(type, Arrays.copyOfRange(message, offset + 2, offset + 2 + RANDOM_LENGTH));
+			if (type == CLIENT_HELLO) {
+				return hello;
+			}
+			hello.version = (message[offset] & 0xFF) << 8 | message[offset + 1] & 0xFF;
+			int position = offset + 2 + RANDOM_LENGTH;
+			position += 1 + (message[position] & 0xFF);
+			if (position + 3 > end) {
+				return null;
+			}
+			hello.cipherSuite = (message[position] & 0xFF) << 8 | message[position + 1] & 0xFF;
+			// compression method, then the extensions
+			position += 3;
+			if (position + 2 <= end) {
+				int extensionsEnd = Math.min(end, position + 2 + ((message[position] & 0xFF) << 8 | message[position + 1] & 0xFF));
+				position += 2;
+				while (position + 4 <= extensionsEnd) {
+					int extensionType = (message[position] & 0xFF) << 8 | message[position + 1] & 0xFF;
+					int extensionLength = (message[position + 2] & 0xFF) << 8 | message[position + 3] & 0xFF;
+					position += 4;
+					if (extensionType == SUPPORTED_VERSIONS && extensionLength == 2 && position + 2 <= extensionsEnd) {
+						hello.version = (message[position] & 0xFF) << 8 | message[position + 1] & 0xFF;
+					}
+					position += extensionLength;
+				}
+			}
+			return hello;
+		}
+
+		/**
+		 * Decrypts the records of this direction and sets the plaintext on the packets
+		 * 
+		 * @return true when records were decrypted
+		 */
+		private boolean decrypt(TLSRecordCipher cipher, boolean tls13) throws GeneralSecurityException {
+			ByteArrayOutputStream[] plaintexts = new ByteArrayOutputStream[segments.size()];
+			int encryptedOffset = -1;
+			boolean changeCipherSpec = false;
+			for (int recordOffset : recordOffsets) {
+				int type = data[recordOffset] & 0xFF;
+				int fragmentLength = readShort(recordOffset + 3);
+				if (tls13 ? type != TLSRecordCipher.APPLICATION_DATA : !changeCipherSpec) {
+					changeCipherSpec = type == TLSRecordCipher.CHANGE_CIPHER_SPEC;
+					continue;
+				}
+				byte[] plaintext = cipher.decrypt(type, readShort(recordOffset + 1), data, recordOffset + RECORD_HEADER_LENGTH, fragmentLength);
+				if (plaintext == null) {
+					if (tls13 && encryptedOffset < 0) {
+						// encrypted with the handshake traffic secret
+						continue;
+					}
+					LOGGER.warn("TLS record at stream offset " + recordOffset + " does not authenticate, decrypted up to there");
+					break;
+				}
+				if (encryptedOffset < 0) {
+					encryptedOffset = recordOffset;
+				}
+				if (cipher.getContentType() == TLSRecordCipher.APPLICATION_DATA) {
+					int segment = segmentOf(recordOffset + RECORD_HEADER_LENGTH + fragmentLength - 1);
+					if (plaintexts[segment] == null) {
+						plaintexts[segment] = new ByteArrayOutputStream(plaintext.length);
+					}
+					plaintexts[segment].write(plaintext, 0, plaintext.length);
+				} else if (tls13 && cipher.getContentType() == TLSRecordCipher.HANDSHAKE && isKeyUpdate(plaintext)) {
+					cipher = cipher.nextTrafficSecret();
+				}
+			}
+			if (encryptedOffset < 0) {
+				return false;
+			}
+
+			Map<TCPPacket, byte[]> segmentPlaintexts = new IdentityHashMap<>(segments.size());
+			Map<Long, TCPPacket> segmentsBySequenceNumber = new HashMap<>(segments.size() * 2);
+			for (int segment = 0; segment < segments.size(); segment++) {
+				TCPPacket packet = segments.get(segment);
+				segmentPlaintexts.put(packet, plaintexts[segment] != null ? plaintexts[segment].toByteArray() : new byte[0]);
+				segmentsBySequenceNumber.put(packet.getSequenceNumber(), packet);
+			}
+			for (TCPPacket packet : packets) {
+				long offset = offsetOf(packet);
+				if (offset < 0 || offset + packet.getPayloadLen() <= encryptedOffset) {
+					continue;
+				}
+				byte[] plaintext = segmentPlaintexts.get(packet);
+				if (plaintext == null) {
+					// retransmitted, same payload as the packet it repeats
+					TCPPacket original = segmentsBySequenceNumber.get(packet.getSequenceNumber());
+					plaintext = original != null && original.getPayloadLen() == packet.getPayloadLen() ? segmentPlaintexts.get(original) : new byte[0];
+				}
+				packet.setDecrypted(true);
+				packet.setData(plaintext);
+			}
+			return true;
+		}
+
+		/**
+		 * @return index of the segment holding the stream offset
+		 */
+		private int segmentOf(int offset) {
+			int index = Arrays.binarySearch(segmentOffsets, 0, segments.size(), offset);
+			return index >= 0 ? index : -index - 2;
+		}
+
+		private static boolean isKeyUpdate(byte[] messages) {
+			for (int offset = 0; offset + 4 <= messages.length;) {
+				if ((messages[offset] & 0xFF) == KEY_UPDATE) {
+					return true;
+				}
+				offset += 4 + ((messages[offset + 1] & 0xFF) << 16 | (messages[offset + 2] & 0xFF) << 8 | messages[offset + 3] & 0xFF);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Endpoints of a TCP connection, the same for both directions
+	 */
+	private static final class ConnectionKey {
+		private final InetAddress lowAddress;
+		private final int lowPort;
+		private final InetAddress highAddress;
+		private final int highPort;
+
+		private ConnectionKey(InetAddress sourceAddress, int sourcePort, InetAddress destinationAddress, int destinationPort) {
+			boolean ordered = sourcePort < destinationPort
+					|| (sourcePort == destinationPort && compare(sourceAddress.getAddress(), destinationAddress.getAddress()) <= 0);
+			lowAddress = ordered ? sourceAddress : destinationAddress;
+			lowPort = ordered ? sourcePort : destinationPort;
+			highAddress = ordered ? destinationAddress : sourceAddress;
+			highPort = ordered ? destinationPort : sourcePort;
+		}
+
+		private static int compare(byte[] first, byte[] second) {
+			if (first.length != second.length) {
+				return first.length - second.length;
+			}
+			for (int index = 0; index < first.length; index++) {
+				if (first[index] != second[index]) {
+					return (first[index] & 0xFF) - (second[index] & 0xFF);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return (lowAddress.hashCode() * 31 + lowPort) * 31 + highAddress.hashCode() * 17 + highPort;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof ConnectionKey)) {
+				return false;
+			}
+			ConnectionKey key = (ConnectionKey) object;
+			return lowPort == key.lowPort && highPort == key.highPort && lowAddress.equals(key.lowAddress) && highAddress.equals(key.highAddress);
+		}
+	}
+}
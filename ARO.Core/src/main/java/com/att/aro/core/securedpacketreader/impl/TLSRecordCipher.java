@@ -0,0 +1,297 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.securedpacketreader.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypts the records of one direction of a TLS 1.2 or TLS 1.3 session with an AEAD cipher suite, on javax.crypto.
+ * Keys are derived from the TLS 1.2 master secret (RFC 5246 6.3) or the TLS 1.3 traffic secret (RFC 8446 7.3).
+ */
+final class TLSRecordCipher {
+
+	static final int CHANGE_CIPHER_SPEC = 20;
+	static final int ALERT = 21;
+	static final int HANDSHAKE = 22;
+	static final int APPLICATION_DATA = 23;
+
+	private static final int TAG_LENGTH = 16;
+	private static final int NONCE_LENGTH = 12;
+	private static final int EXPLICIT_NONCE_LENGTH = 8;
+	private static final String AES_GCM = "AES/GCM/NoPadding";
+	private static final String CHACHA20_POLY1305 = "ChaCha20-Poly1305";
+
+	/**
+	 * AEAD cipher suites, ChaCha20-Poly1305 needs a JCE provider with it (Java 11 and later).
+	 */
+	enum Suite {
+		TLS_AES_128_GCM_SHA256(0x1301, true, AES_GCM, 16, "HmacSHA256"),
+		TLS_AES_256_GCM_SHA384(0x1302, true, AES_GCM, 32, "HmacSHA384"),
+		TLS_CHACHA20_POLY1305_SHA256(0x1303, true, CHACHA20_POLY1305, 32, "HmacSHA256"),
+		TLS_RSA_WITH_AES_128_GCM_SHA256(0x009C, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_RSA_WITH_AES_256_GCM_SHA384(0x009D, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_DHE_RSA_WITH_AES_128_GCM_SHA256(0x009E, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_DHE_RSA_WITH_AES_256_GCM_SHA384(0x009F, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_DHE_DSS_WITH_AES_128_GCM_SHA256(0x00A2, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_DHE_DSS_WITH_AES_256_GCM_SHA384(0x00A3, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_DH_anon_WITH_AES_128_GCM_SHA256(0x00A6, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_DH_anon_WITH_AES_256_GCM_SHA384(0x00A7, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256(0xC02B, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384(0xC02C, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_ECDH_ECDSA_WITH_AES_128_GCM_SHA256(0xC02D, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_ECDH_ECDSA_WITH_AES_256_GCM_SHA384(0xC02E, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256(0xC02F, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384(0xC030, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_ECDH_RSA_WITH_AES_128_GCM_SHA256(0xC031, false, AES_GCM, 16, "HmacSHA256"),
+		TLS_ECDH_RSA_WITH_AES_256_GCM_SHA384(0xC032, false, AES_GCM, 32, "HmacSHA384"),
+		TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256(0xCCA8, false, CHACHA20_POLY1305, 32, "HmacSHA256"),
+		TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256(0xCCA9, false, CHACHA20_POLY1305, 32, "HmacSHA256"),
+		TLS_DHE_RSA_WITH_CHACHA20_POLY1305_SHA256(0xCCAA, false, CHACHA20_POLY1305, 32, "HmacSHA256");
+
+		private final int code;
+		private final boolean tls13;
+		private final String transformation;
+		private final int keyLength;
+		private final String mac;
+
+		Suite(int code, boolean tls13, String transformation, int keyLength, String mac) {
+			this.code = code;
+			this.tls13 = tls13;
+			this.transformation = transformation;
+			this.keyLength = keyLength;
+			this.mac = mac;
+		}
+
+		boolean isTls13() {
+			return tls13;
+		}
+
+		/**
+		 * @return the suite, null when it is not an AEAD suite known here
+		 */
+		static Suite forCode(int code) {
+			for (Suite suite : values()) {
+				if (suite.code == code) {
+					return suite;
+				}
+			}
+			return null;
+		}
+
+		boolean isAvailable() {
+			try {
+				Cipher.getInstance(transformation);
+				return true;
+			} catch (GeneralSecurityException exception) {
+				return false;
+			}
+		}
+
+		private boolean hasExplicitNonce() {
+			return !tls13 && AES_GCM.equals(transformation);
+		}
+
+		private int getIvLength() {
+			return hasExplicitNonce() ? NONCE_LENGTH - EXPLICIT_NONCE_LENGTH : NONCE_LENGTH;
+		}
+	}
+
+	private final Suite suite;
+	private final byte[] secret;
+	private final SecretKeySpec key;
+	private final byte[] iv;
+	private Cipher cipher;
+	private final byte[] nonce = new byte[NONCE_LENGTH];
+	private long sequenceNumber;
+	private int contentType;
+
+	private TLSRecordCipher(Suite suite, byte[] secret, byte[] key, byte[] iv) throws GeneralSecurityException {
+		this.suite = suite;
+		this.secret = secret;
+		this.key = new SecretKeySpec(key, AES_GCM.equals(suite.transformation) ? "AES" : "ChaCha20");
+		this.iv = iv;
+		this.cipher = Cipher.getInstance(suite.transformation);
+	}
+
+	/**
+	 * Derives the ciphers of a TLS 1.2 session from its master secret.
+	 * 
+	 * @return client and server write ciphers
+	 */
+	static TLSRecordCipher[] forMasterSecret(Suite suite, byte[] masterSecret, byte[] clientRandom, byte[] serverRandom)
+			throws GeneralSecurityException {
+		int ivLength = suite.getIvLength();
+		byte[] seed = new byte[serverRandom.length + clientRandom.length];
+		System.arraycopy(serverRandom, 0, seed, 0, serverRandom.length);
+		System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+		// AEAD suites have no MAC keys
+		byte[] keyBlock = prf(suite.mac, masterSecret, "key expansion", seed, 2 * (suite.keyLength + ivLength));
+		int offset = 0;
+		byte[] clientKey = Arrays.copyOfRange(keyBlock, offset, offset += suite.keyLength);
+		byte[] serverKey = Arrays.copyOfRange(keyBlock, offset, offset += suite.keyLength);
+		byte[] clientIv = Arrays.copyOfRange(keyBlock, offset, offset += ivLength);
+		byte[] serverIv = Arrays.copyOfRange(keyBlock, offset, offset + ivLength);
+		return new TLSRecordCipher[] { new TLSRecordCipher(suite, null, clientKey, clientIv),
+				new TLSRecordCipher(suite, null, serverKey, serverIv) };
+	}
+
+	/**
+	 * Derives the cipher of one direction of a TLS 1.3 session from its traffic secret.
+	 */
+	static TLSRecordCipher forTrafficSecret(Suite suite, byte[] trafficSecret) throws GeneralSecurityException {
+		return new TLSRecordCipher(suite, trafficSecret, hkdfExpandLabel(suite.mac, trafficSecret, "key", suite.keyLength),
+				hkdfExpandLabel(suite.mac, trafficSecret, "iv", NONCE_LENGTH));
+	}
+
+	/**
+	 * @return the cipher of the next TLS 1.3 traffic secret, after a KeyUpdate
+	 */
+	TLSRecordCipher nextTrafficSecret() throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(suite.mac);
+		return forTrafficSecret(suite, hkdfExpandLabel(suite.mac, secret, "traffic upd", mac.getMacLength()));
+	}
+
+	/**
+	 * Decrypts the next record. The sequence number only moves on when the record authenticates.
+	 * 
+	 * @param type
+	 *            record type of the header
+	 * @param version
+	 *            record version of the header
+	 * @param fragment
+	 *            array holding the encrypted fragment
+	 * @param offset
+	 *            offset of the fragment, after the 5 byte header
+	 * @param length
+	 *            length of the fragment
+	 * @return the plaintext, null when the record does not authenticate with this cipher
+	 */
+	byte[] decrypt(int type, int version, byte[] fragment, int offset, int length) throws GeneralSecurityException {
+		int explicitLength = suite.hasExplicitNonce() ? EXPLICIT_NONCE_LENGTH : 0;
+		int plainLength = length - explicitLength - TAG_LENGTH;
+		if (plainLength < 0) {
+			return null;
+		}
+		ByteBuffer aad;
+		if (suite.tls13) {
+			aad = ByteBuffer.allocate(5).put((byte) type).putShort((short) version).putShort((short) length);
+		} else {
+			aad = ByteBuffer.allocate(13).putLong(sequenceNumber).put((byte) type).putShort((short) version).putShort((short) plainLength);
+		}
+		if (explicitLength > 0) {
+			System.arraycopy(iv, 0, nonce, 0, iv.length);
+			System.arraycopy(fragment, offset, nonce, iv.length, explicitLength);
+		} else {
+			System.arraycopy(iv, 0, nonce, 0, NONCE_LENGTH);
+			for (int index = 0; index < 8; index++) {
+				nonce[NONCE_LENGTH - 1 - index] ^= (byte) (sequenceNumber >>> (8 * index));
+			}
+		}
+		AlgorithmParameterSpec parameters = AES_GCM.equals(suite.transformation) ? new GCMParameterSpec(TAG_LENGTH * 8, nonce)
+				: new IvParameterSpec(nonce);
+		byte[] plaintext;
+		try {
+			cipher.init(Cipher.DECRYPT_MODE, key, parameters);
+			cipher.updateAAD(aad.array());
+			plaintext = cipher.doFinal(fragment, offset + explicitLength, length - explicitLength);
+		} catch (AEADBadTagException exception) {
+			// ChaCha20-Poly1305 refuses to be initialized with the same nonce twice
+			cipher = Cipher.getInstance(suite.transformation);
+			return null;
+		}
+		sequenceNumber++;
+		if (!suite.tls13) {
+			contentType = type;
+			return plaintext;
+		}
+		// TLSInnerPlaintext: content, the real type, zero padding
+		int end = plaintext.length;
+		while (end > 0 && plaintext[end - 1] == 0) {
+			end--;
+		}
+		if (end == 0) {
+			return null;
+		}
+		contentType = plaintext[end - 1] & 0xff;
+		return Arrays.copyOf(plaintext, end - 1);
+	}
+
+	/**
+	 * @return content type of the last record decrypted
+	 */
+	int getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * TLS 1.2 PRF, P_hash of the suite's MAC
+	 */
+	static byte[] prf(String algorithm, byte[] secret, String label, byte[] seed, int length) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(algorithm);
+		mac.init(new SecretKeySpec(secret, algorithm));
+		byte[] labelBytes = label.getBytes(StandardCharsets.US_ASCII);
+		byte[] labelSeed = new byte[labelBytes.length + seed.length];
+		System.arraycopy(labelBytes, 0, labelSeed, 0, labelBytes.length);
+		System.arraycopy(seed, 0, labelSeed, labelBytes.length, seed.length);
+
+		byte[] result = new byte[length];
+		byte[] a = labelSeed;
+		for (int offset = 0; offset < length;) {
+			a = mac.doFinal(a);
+			mac.update(a);
+			byte[] block = mac.doFinal(labelSeed);
+			int count = Math.min(block.length, length - offset);
+			System.arraycopy(block, 0, result, offset, count);
+			offset += count;
+		}
+		return result;
+	}
+
+	/**
+	 * TLS 1.3 HKDF-Expand-Label with an empty context
+	 */
+	static byte[] hkdfExpandLabel(String algorithm, byte[] secret, String label, int length) throws GeneralSecurityException {
+		byte[] fullLabel = ("tls13 " + label).getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer info = ByteBuffer.allocate(4 + fullLabel.length).putShort((short) length).put((byte) fullLabel.length).put(fullLabel)
+				.put((byte) 0);
+
+		Mac mac = Mac.getInstance(algorithm);
+		mac.init(new SecretKeySpec(secret, algorithm));
+		byte[] result = new byte[length];
+		byte[] block = new byte[0];
+		for (int offset = 0, counter = 1; offset < length; counter++) {
+			mac.update(block);
+			mac.update(info.array());
+			mac.update((byte) counter);
+			block = mac.doFinal();
+			int count = Math.min(block.length, length - offset);
+			System.arraycopy(block, 0, result, offset, count);
+			offset += count;
+		}
+		return result;
+	}
+}
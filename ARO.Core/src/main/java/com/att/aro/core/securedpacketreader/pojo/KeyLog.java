@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.securedpacketreader.pojo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Secrets of an NSS key log (SSLKEYLOGFILE), one line per secret:
+ * 
+ * <pre>
+ * CLIENT_RANDOM &lt;client random&gt; &lt;TLS 1.2 master secret&gt;
+ * CLIENT_TRAFFIC_SECRET_0 &lt;client random&gt; &lt;TLS 1.3 client application traffic secret&gt;
+ * SERVER_TRAFFIC_SECRET_0 &lt;client random&gt; &lt;TLS 1.3 server application traffic secret&gt;
+ * </pre>
+ * 
+ * in hex. Comments start with #, other labels are kept but not used.
+ */
+public class KeyLog {
+	public static final String CLIENT_RANDOM = "CLIENT_RANDOM";
+	public static final String CLIENT_TRAFFIC_SECRET_0 = "CLIENT_TRAFFIC_SECRET_0";
+	public static final String SERVER_TRAFFIC_SECRET_0 = "SERVER_TRAFFIC_SECRET_0";
+
+	private final Map<String, byte[]> secrets = new HashMap<>();
+
+	public static KeyLog parse(String[] lines) {
+		KeyLog keyLog = new KeyLog();
+		for (String line : lines) {
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length != 3 || fields[0].startsWith("#")) {
+				continue;
+			}
+			byte[] clientRandom = parseHex(fields[1]);
+			byte[] secret = parseHex(fields[2]);
+			if (clientRandom != null && clientRandom.length == 32 && secret != null) {
+				keyLog.addSecret(fields[0], clientRandom, secret);
+			}
+		}
+		return keyLog;
+	}
+
+	public void addSecret(String label, byte[] clientRandom, byte[] secret) {
+		secrets.put(key(label, clientRandom), secret);
+	}
+
+	/**
+	 * @return the secret, null when the key log has none for the label and client random
+	 */
+	public byte[] getSecret(String label, byte[] clientRandom) {
+		return secrets.get(key(label, clientRandom));
+	}
+
+	public int size() {
+		return secrets.size();
+	}
+
+	private static String key(String label, byte[] clientRandom) {
+		StringBuilder key = new StringBuilder(label.length() + 1 + clientRandom.length * 2).append(label).append(' ');
+		for (byte value : clientRandom) {
+			key.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	private static byte[] parseHex(String hex) {
+		if (hex.length() % 2 != 0) {
+			return null;
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int index = 0; index < bytes.length; index++) {
+			int high = Character.digit(hex.charAt(index * 2), 16);
+			int low = Character.digit(hex.charAt(index * 2 + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[index] = (byte) (high << 4 | low);
+		}
+		return bytes;
+	}
+}
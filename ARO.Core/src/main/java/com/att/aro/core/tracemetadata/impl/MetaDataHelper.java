@@ -80,8 +80,12 @@ public class MetaDataHelper implements IMetaDataHelper {
 		metaDataReadWrite.save(filemanager.createFile(path), metaData);
 	}
 
+	/**
+	 * Synchronized as the helper is shared and keeps the trace it works on in its fields, batch analysis builds the
+	 * metadata of several traces at the same time.
+	 */
 	@Override
-	public MetaDataModel initMetaData(PacketAnalyzerResult result) {
+	public synchronized MetaDataModel initMetaData(PacketAnalyzerResult result) {
 		
 		String tracePath = result.getTraceresult().getTraceDirectory();
 		if ((metaData = metaDataReadWrite.readData(tracePath)) == null) {
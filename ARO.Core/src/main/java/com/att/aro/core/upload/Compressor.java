@@ -16,29 +16,25 @@
 package com.att.aro.core.upload;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.OutputStream;
 import java.util.Base64;
-import java.util.Base64.Encoder;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.att.aro.core.cloud.Repository;
 import com.att.aro.core.cloud.State;
 import com.att.aro.core.cloud.TraceManager;
+import com.att.aro.core.cloud.local.LocalRepository;
 import com.att.aro.core.datacollector.pojo.StatusResult;
 import com.att.aro.core.util.IResultSubscriber;
 import com.att.aro.core.util.Util;
 
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
-import net.lingala.zip4j.util.Zip4jConstants;
-
 public class Compressor implements Runnable {
 	private String targetFolder;
 	private IResultSubscriber subscriber;
@@ -83,34 +79,50 @@ public class Compressor implements Runnable {
 	}
 	
 	/**
-	 * String[] to ArrayList<String>
+	 * Zip a folder into Base64 format in the trace folder, the zip is encoded while it is written so only the .zip64 file lands on disk.
+	 * The share dialog needs the file: it reports the payload size before the user confirms, and FileSubmit posts it afterwards.
 	 * 
-	 * @param sArray
-	 * @return
+	 * @return path of the .zip64 file
 	 */
-	private ArrayList<String> sArrayToArrayList(String[] sArray) {
-		ArrayList<String> arrayList = new ArrayList<>(sArray.length);
-		if (sArray.length > 0) {
-			for (String file : sArray) {
-				arrayList.add(file);
-			}
+	public String zipBase64() throws Exception{
+		delete(".zip");		
+		delete(".zip64");
+		if (upload(new LocalRepository(new File(targetFolder))) != TransferState.Completed) {
+			throw new IOException("Failed to write " + folderName(targetFolder) + ".zip64");
 		}
-		return arrayList;
+		return targetFolder + FILE_SEPARATOR + folderName(targetFolder) + ".zip64";
 	}
 
 	/**
-	 * Zip a folder into Base64 format, exclude files listed in String array
-	 * 
-	 * @param targetFolder
-	 * @param exclude
-	 * @return
+	 * Streams the folder as Base64 encoded zip to the repository, nothing is written to disk.
 	 */
-	public String zipBase64() throws Exception{
-		TraceManager tm = new TraceManager(null);
-		delete(".zip");		
-		delete(".zip64");
-		String zipPath = tm.compress(targetFolder);
-		return encode(zipPath);
+	public TransferState upload(Repository repository) throws IOException {
+		List<File> files = TraceManager.listTraceFiles(targetFolder);
+		if (files.isEmpty()) {
+			throw new IOException("No files to compress in " + targetFolder);
+		}
+		return repository.put(folderName(targetFolder) + ".zip64", out -> writeZipBase64(files, out));
+	}
+
+	/**
+	 * Writes the files as a zip encoded in Base64, the sink is flushed but left open.
+	 */
+	public static void writeZipBase64(List<File> files, OutputStream sink) throws IOException {
+		OutputStream unclosed = new FilterOutputStream(sink) {
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				out.write(bytes, offset, length);
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+		// closing the encoder writes the final quantum and padding
+		try (OutputStream base64 = Base64.getEncoder().wrap(unclosed)) {
+			ParallelZipWriter.zip(files, base64);
+		}
 	}
 
 	private void delete(String fileExt) {
@@ -130,75 +142,4 @@ public class Compressor implements Runnable {
  		return traceName;
 	}
 
-	public String encode(String zipPath) throws IOException {
-		String zip64 = zipPath + "64";
-		Encoder encoder = Base64.getEncoder();
-		try (FileOutputStream fos = new FileOutputStream(zip64);
-				FileInputStream fis = new FileInputStream(new File(zipPath))) {
-			int size;
-			final int capacity = 3 * 1024 * 1024;// Keep it mutliple of 3 so it could be decoded 4/3 size
-			byte[] buffer = new byte[capacity];
-			while ((size = fis.read(buffer)) != -1) {
-				if(size < capacity) {
-					fos.write(encoder.encode(Arrays.copyOfRange(buffer, 0, size)));
-				} else {
-					fos.write(encoder.encode(buffer));
-				}
-			}
-			fos.flush();
-		}
-		return zip64;
-	}
-	
-	/**
-	 * Create a zip file of a folder while filtering out certain folders/files
-	 * 
-	 * @param targetFolder
-	 *            - folder to zip
-	 * @param exclude
-	 *            - String arry of files to skip/exclude
-	 * @param zippedName
-	 *            - name of resulting zip file
-	 * @return
-	 */
-	public String zipFolder(String targetFolder, String[] exclude, String zippedName) {
-		notifyListeners(new StatusResult(null, null, State.COMPRESSING));
-
-		File folder = new File(targetFolder);
-		File[] listOfFiles = folder.listFiles();
-		if (listOfFiles == null) {
-			notifyListeners(new StatusResult(false, null, State.FAILURE));
-			return "";
-		}
-
-		ArrayList<String> excluded = sArrayToArrayList(exclude);
-
-		ArrayList<File> sourceFileList = new ArrayList<>();
-		for (int i = 0; i < listOfFiles.length; i++) {
-			if (listOfFiles[i].isFile()) {
-				if (!excluded.contains(listOfFiles[i].getName())) {
-					sourceFileList.add(listOfFiles[i]);
-				}
-			}
-		}
-
-		if (sourceFileList.size() <= 0) {
-			notifyListeners(new StatusResult(false, null, State.FAILURE));
-			return "";
-		}
-
-		ZipParameters parameters = new ZipParameters();
-		parameters.setCompressionMethod(Zip4jConstants.COMP_DEFLATE);
-		parameters.setCompressionLevel(Zip4jConstants.DEFLATE_LEVEL_ULTRA);
-		ZipFile zipfile;
-		try {
-			zipfile = new ZipFile(targetFolder + FILE_SEPARATOR + zippedName);
-			zipfile.addFiles(sourceFileList, parameters);
-		} catch (ZipException e) {
-			e.printStackTrace();
-		}
-		notifyListeners(new StatusResult(true, null, State.DONE));
-		return targetFolder + FILE_SEPARATOR + zippedName;
-	}
-
 }
\ No newline at end of file
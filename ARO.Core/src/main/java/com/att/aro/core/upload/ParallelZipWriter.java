@@ -0,0 +1,382 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a zip archive to a stream, deflating the files in blocks on a pool of threads. Each block is deflated on its
+ * own with the end of the previous block as dictionary and the blocks are written in order, so the entry is a single
+ * deflate stream. At most two blocks per thread are held in memory, nothing is written to disk.
+ * 
+ * Entries use data descriptors since the sizes are known after the data, and ZIP64 records when sizes or offsets do
+ * not fit in 32 bits.
+ */
+public class ParallelZipWriter {
+
+	static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	// data descriptor, UTF-8 names
+	private static final int FLAGS = 0x0808;
+	private static final int DEFLATED = 8;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	private final OutputStream out;
+	private final ExecutorService pool;
+	private final int maxBlocks;
+	private final int blockSize;
+	private final List<Entry> entries = new ArrayList<>();
+	private long written = 0;
+
+	private static final class Entry {
+		private final byte[] name;
+		private final long time;
+		private final long offset;
+		private long crc;
+		private long compressedSize;
+		private long size;
+
+		private Entry(byte[] name, long time, long offset) {
+			this.name = name;
+			this.time = time;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * @param out
+	 *            receives the archive, not closed by the writer
+	 * @param pool
+	 *            deflates the blocks
+	 * @param threads
+	 *            number of threads of the pool
+	 */
+	public ParallelZipWriter(OutputStream out, ExecutorService pool, int threads) {
+		this(out, pool, threads, DEFAULT_BLOCK_SIZE);
+	}
+
+	ParallelZipWriter(OutputStream out, ExecutorService pool, int threads, int blockSize) {
+		this.out = out;
+		this.pool = pool;
+		this.maxBlocks = 2 * Math.max(1, threads);
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Writes the files as a zip archive on a pool sized to the processors.
+	 * 
+	 * @param files
+	 *            stored under their names at the root of the archive
+	 * @param out
+	 *            receives the archive, not closed
+	 */
+	public static void zip(List<File> files, OutputStream out) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "zipDeflater");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			ParallelZipWriter writer = new ParallelZipWriter(out, pool, threads);
+			for (File file : files) {
+				writer.addFile(file.getName(), file);
+			}
+			writer.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Adds the content of the file as a deflated entry.
+	 */
+	public void addFile(String name, File file) throws IOException {
+		Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), file.lastModified(), written);
+		// the sizes go to the data descriptor, ZIP64 fields are announced for files that can need them
+		boolean zip64 = file.length() >= ZIP64_MAGIC;
+		writeLocalHeader(entry, zip64);
+
+		CRC32 crc = new CRC32();
+		Deque<Future<byte[]>> blocks = new ArrayDeque<>();
+		try (InputStream input = new FileInputStream(file)) {
+			byte[] dictionary = null;
+			byte[] block = read(input);
+			boolean last;
+			do {
+				byte[] next = block.length == blockSize ? read(input) : new byte[0];
+				last = next.length == 0;
+				crc.update(block);
+				entry.size += block.length;
+				byte[] blockInput = block;
+				byte[] blockDictionary = dictionary;
+				boolean finish = last;
+				blocks.add(pool.submit(() -> deflate(blockInput, blockDictionary, finish)));
+				while (blocks.size() >= maxBlocks) {
+					entry.compressedSize += writeBlock(blocks.poll());
+				}
+				dictionary = Arrays.copyOfRange(block, Math.max(0, block.length - DICTIONARY_SIZE), block.length);
+				block = next;
+			} while (!last);
+			while (!blocks.isEmpty()) {
+				entry.compressedSize += writeBlock(blocks.poll());
+			}
+		} finally {
+			for (Future<byte[]> pending : blocks) {
+				pending.cancel(true);
+			}
+		}
+		entry.crc = crc.getValue();
+		writeDataDescriptor(entry);
+		entries.add(entry);
+	}
+
+	/**
+	 * Writes the central directory, the stream can be closed afterwards.
+	 */
+	public void finish() throws IOException {
+		long directoryOffset = written;
+		for (Entry entry : entries) {
+			writeCentralHeader(entry);
+		}
+		long directorySize = written - directoryOffset;
+		if (entries.size() >= ZIP64_MAGIC_COUNT || directoryOffset >= ZIP64_MAGIC || directorySize >= ZIP64_MAGIC) {
+			long zip64EndOffset = written;
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			writeInt(record, ZIP64_END_SIGNATURE);
+			writeLong(record, 44);
+			writeShort(record, VERSION_ZIP64);
+			writeShort(record, VERSION_ZIP64);
+			writeInt(record, 0);
+			writeInt(record, 0);
+			writeLong(record, entries.size());
+			writeLong(record, entries.size());
+			writeLong(record, directorySize);
+			writeLong(record, directoryOffset);
+			writeInt(record, ZIP64_LOCATOR_SIGNATURE);
+			writeInt(record, 0);
+			writeLong(record, zip64EndOffset);
+			writeInt(record, 1);
+			write(record.toByteArray());
+		}
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		writeInt(record, END_SIGNATURE);
+		writeShort(record, 0);
+		writeShort(record, 0);
+		writeShort(record, Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+		writeShort(record, Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+		writeInt(record, Math.min(directorySize, ZIP64_MAGIC));
+		writeInt(record, Math.min(directoryOffset, ZIP64_MAGIC));
+		writeShort(record, 0);
+		write(record.toByteArray());
+		out.flush();
+	}
+
+	private byte[] read(InputStream input) throws IOException {
+		byte[] block = new byte[blockSize];
+		int length = 0;
+		int count;
+		while (length < blockSize && (count = input.read(block, length, blockSize - length)) > 0) {
+			length += count;
+		}
+		return length == blockSize ? block : Arrays.copyOf(block, length);
+	}
+
+	/**
+	 * Deflates a block, only the last block of an entry ends the deflate stream, the others are flushed to a byte
+	 * boundary so the next block can follow.
+	 */
+	static byte[] deflate(byte[] block, byte[] dictionary, boolean last) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(block);
+			ByteArrayOutputStream output = new ByteArrayOutputStream(block.length / 2 + 64);
+			byte[] buffer = new byte[64 * 1024];
+			int count;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					count = deflater.deflate(buffer);
+					output.write(buffer, 0, count);
+				}
+			} else {
+				do {
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					output.write(buffer, 0, count);
+				} while (count == buffer.length);
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private int writeBlock(Future<byte[]> block) throws IOException {
+		byte[] compressed;
+		try {
+			compressed = block.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while deflating", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to deflate", e.getCause());
+		}
+		write(compressed);
+		return compressed.length;
+	}
+
+	private void writeLocalHeader(Entry entry, boolean zip64) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		writeInt(header, LOCAL_HEADER_SIGNATURE);
+		writeShort(header, zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(header, FLAGS);
+		writeShort(header, DEFLATED);
+		writeInt(header, dosTime(entry.time));
+		writeInt(header, 0);
+		writeInt(header, zip64 ? ZIP64_MAGIC : 0);
+		writeInt(header, zip64 ? ZIP64_MAGIC : 0);
+		writeShort(header, entry.name.length);
+		writeShort(header, zip64 ? 20 : 0);
+		header.write(entry.name);
+		if (zip64) {
+			writeShort(header, ZIP64_EXTRA_ID);
+			writeShort(header, 16);
+			writeLong(header, 0);
+			writeLong(header, 0);
+		}
+		write(header.toByteArray());
+	}
+
+	private void writeDataDescriptor(Entry entry) throws IOException {
+		ByteArrayOutputStream descriptor = new ByteArrayOutputStream();
+		writeInt(descriptor, DATA_DESCRIPTOR_SIGNATURE);
+		writeInt(descriptor, entry.crc);
+		if (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC) {
+			writeLong(descriptor, entry.compressedSize);
+			writeLong(descriptor, entry.size);
+		} else {
+			writeInt(descriptor, entry.compressedSize);
+			writeInt(descriptor, entry.size);
+		}
+		write(descriptor.toByteArray());
+	}
+
+	private void writeCentralHeader(Entry entry) throws IOException {
+		ByteArrayOutputStream extra = new ByteArrayOutputStream();
+		if (entry.size >= ZIP64_MAGIC) {
+			writeLong(extra, entry.size);
+		}
+		if (entry.compressedSize >= ZIP64_MAGIC) {
+			writeLong(extra, entry.compressedSize);
+		}
+		if (entry.offset >= ZIP64_MAGIC) {
+			writeLong(extra, entry.offset);
+		}
+		boolean zip64 = extra.size() > 0;
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		writeInt(header, CENTRAL_HEADER_SIGNATURE);
+		writeShort(header, zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(header, zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(header, FLAGS);
+		writeShort(header, DEFLATED);
+		writeInt(header, dosTime(entry.time));
+		writeInt(header, entry.crc);
+		writeInt(header, Math.min(entry.compressedSize, ZIP64_MAGIC));
+		writeInt(header, Math.min(entry.size, ZIP64_MAGIC));
+		writeShort(header, entry.name.length);
+		writeShort(header, zip64 ? extra.size() + 4 : 0);
+		// comment length, disk number, internal and external attributes
+		writeShort(header, 0);
+		writeShort(header, 0);
+		writeShort(header, 0);
+		writeInt(header, 0);
+		writeInt(header, Math.min(entry.offset, ZIP64_MAGIC));
+		header.write(entry.name);
+		if (zip64) {
+			writeShort(header, ZIP64_EXTRA_ID);
+			writeShort(header, extra.size());
+			extra.writeTo(header);
+		}
+		write(header.toByteArray());
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		out.write(bytes);
+		written += bytes.length;
+	}
+
+	private static long dosTime(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			// 1980-01-01
+			return (1 << 21) | (1 << 16);
+		}
+		return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16
+				| calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5
+				| calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, long value) {
+		writeShort(out, (int) (value & 0xffff));
+		writeShort(out, (int) ((value >>> 16) & 0xffff));
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long value) {
+		writeInt(out, value & ZIP64_MAGIC);
+		writeInt(out, value >>> 32);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Splits a line into fields at single delimiter characters, the way String.split does with a character class, without
+ * going through a regular expression or building the array of fields. Empty fields between two delimiters and a
+ * leading empty field are kept, trailing empty fields are dropped.
+ * 
+ * A tokenizer is reset for every line and is not thread safe.
+ */
+public class FieldTokenizer {
+
+	/**
+	 * the characters of the \s regular expression class
+	 */
+	public static final String WHITESPACE = " \t\n\u000B\f\r";
+
+	private final String delimiters;
+	private String line;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int count;
+
+	/**
+	 * @param delimiters
+	 *            each character of the string delimits a field
+	 */
+	public FieldTokenizer(String delimiters) {
+		this.delimiters = delimiters;
+	}
+
+	/**
+	 * Splits a new line, the fields of the previous line are discarded.
+	 * 
+	 * @return this tokenizer
+	 */
+	public FieldTokenizer reset(String line) {
+		this.line = line;
+		count = 0;
+		int start = 0;
+		int length = line.length();
+		for (int index = 0; index < length; index++) {
+			if (delimiters.indexOf(line.charAt(index)) >= 0) {
+				add(start, index);
+				start = index + 1;
+			}
+		}
+		add(start, length);
+		if (count > 1) {
+			while (count > 0 && starts[count - 1] == ends[count - 1]) {
+				count--;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return the number of fields of the line
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return field at index, out of bounds indexes throw as an array does
+	 */
+	public String get(int index) {
+		if (index < 0 || index >= count) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return line.substring(starts[index], ends[index]);
+	}
+
+	/**
+	 * @return field at index parsed by Double.parseDouble
+	 */
+	public double getDouble(int index) {
+		return Double.parseDouble(get(index));
+	}
+
+	private void add(int start, int end) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+}
@@ -71,6 +71,10 @@ public final class Util {
 	private static final int RECENT_TRACES_MAXSIZE = 15;
 	public static final String FFPROBE = "ffprobe";
 	public static final String IDEVICESCREENSHOT = "iDeviceScreenshot";
+	public static final String PACKET_READER = "PACKET_READER";
+	public static final String MAPPED_PACKET_READER = "mapped";
+	public static final String PARALLEL_BEST_PRACTICES = "PARALLEL_BEST_PRACTICES";
+	public static final String PACKET_CACHE = "PACKET_CACHE";
 	public static final String JDK_VERSION = System.getProperty("java.version");
 	public static final String FILE_SEPARATOR = System.getProperty("file.separator");
 	public static final String LINE_SEPARATOR = System.getProperty("line.separator");
@@ -35,6 +35,7 @@ import com.att.aro.core.util.Util;
 import com.att.aro.core.videoanalysis.impl.SortSelection;
 import com.att.aro.core.videoanalysis.impl.VideoEventComparator;
 import com.att.aro.core.videoanalysis.pojo.Manifest.ContentType;
+import com.att.aro.core.videoanalysis.videoframe.FFmpegRunner;
 import com.fasterxml.jackson.annotation.JsonIgnoreType;
 
 import lombok.AccessLevel;
@@ -107,7 +108,13 @@ public class StreamingVideoData extends AbstractBestPracticeResult {
 
 	@Getter
 	@Setter
-	private boolean finished = true;
+	private volatile boolean finished = true;
+
+	/**
+	 * Extracts the segment thumbnails, tells when the data is finished. null when nothing is extracted.
+	 */
+	@EqualsAndHashCode.Exclude
+	private transient FFmpegRunner ffmpegRunner;
 	
 	/**
 	 * handy debugging info
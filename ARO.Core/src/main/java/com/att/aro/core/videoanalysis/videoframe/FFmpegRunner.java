@@ -19,9 +19,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.LogManager;
@@ -32,29 +38,66 @@ import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.util.IStringParse;
 import com.att.aro.core.util.StringParse;
 import com.att.aro.core.util.Util;
-import com.att.aro.core.videoanalysis.pojo.Manifest.ContentType;
 import com.att.aro.core.videoanalysis.pojo.StreamingVideoData;
 import com.att.aro.core.videoanalysis.pojo.VideoEvent;
 
-public class FFmpegRunner implements Runnable{
+/**
+ * Extracts thumbnails and stream details of video segments with ffmpeg, several segments at a time.
+ * StreamingVideoData is finished once every segment has been added, see {@link #submissionComplete()}, and none
+ * of them are still waiting or being extracted. {@link Listener}s are told about the progress.
+ */
+public class FFmpegRunner {
 
 	private static final Logger LOG = LogManager.getLogger(FFmpegRunner.class.getName());
 
+	static final int POOL_SIZE = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	private static final Pattern HEIGHT_PATTERN = Pattern.compile("\\d{2,4}x(\\d+)");
+	private static final Pattern AUDIO_PATTERN = Pattern.compile("Stream #0.*Audio: ([A-Za-z0-9]*) ");
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	/**
+	 * Shared by every trace, each job runs its own ffmpeg process.
+	 */
+	private static final ExecutorService EXECUTOR = createExecutor();
+
+	private static final AtomicInteger JOB_COUNT = new AtomicInteger();
+
 	private IStringParse stringParse;
 	private IFileManager filemanager;
 	private IExternalProcessRunner externalProcessRunner;
 
-	private static final Queue<VideoEvent> queue = new PriorityQueue<>();
-	
-	private static final HashMap<VideoEvent, String> clipMap = new HashMap<>();
-	
 	private StreamingVideoData streamingVideoData;
 
 	private byte[] defaultThumbnail;
-	private int timeout;
+	private int pending;
 	private int processed;
-	private boolean running = false;
-	private boolean halt = false;
+	private boolean submitting;
+	private boolean done;
+	private final List<Listener> listeners = new ArrayList<>();
+
+	/**
+	 * Follows the extraction of the segments of a trace. Called from the ffmpeg workers, or from the thread that
+	 * completes the submission or adds the listener when there is nothing left to wait for.
+	 */
+	public interface Listener {
+		/**
+		 * A segment has been extracted.
+		 * 
+		 * @param processed segments extracted so far
+		 * @param pending segments still waiting or being extracted
+		 */
+		default void progress(int processed, int pending) {
+		}
+
+		/**
+		 * Every segment has been extracted and StreamingVideoData is finished.
+		 * 
+		 * @param processed segments extracted
+		 */
+		void finished(int processed);
+	}
 
 	public FFmpegRunner(StreamingVideoData streamingVideoData, byte[] defaultThumbnail
 			, IFileManager filemanager, IExternalProcessRunner externalProcessRunner,IStringParse stringParse) {
@@ -63,75 +106,147 @@ public class FFmpegRunner implements Runnable{
 		this.stringParse = stringParse;
 		this.defaultThumbnail = defaultThumbnail;
 		this.streamingVideoData = streamingVideoData;
-		halt = false;
-		running = false;
+		pending = 0;
 		processed = 0;
+		submitting = true;
+		streamingVideoData.setFinished(false);
+		streamingVideoData.setFfmpegRunner(this);
 	}
-	
+
+	private static ExecutorService createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "ffmpegRunner-" + THREAD_COUNT.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Queues the extraction of a segment.
+	 * 
+	 * @throws IllegalStateException after {@link #submissionComplete()}
+	 */
 	public void addJob(VideoEvent videoEvent, String tempClippingFullPath) {
-		if (!running) {
-			run();
-		}
 		LOG.debug("addJob: " + videoEvent);
-		queue.add(videoEvent);
-		clipMap.put(videoEvent, tempClippingFullPath);
+		jobAdded();
+		EXECUTOR.execute(() -> {
+			try {
+				extractSegmentData(videoEvent, tempClippingFullPath);
+			} catch (Exception e) {
+				LOG.debug("extractSegmentData() failure", e);
+			} finally {
+				jobDone();
+			}
+		});
 	}
-	
-	@Override
-	public void run() {
-		halt = false;
-		if (!halt) {
-			running = true;
-			timeout = 100;
-
-			Runnable processQueue = () -> {
-				streamingVideoData.setFinished(false);
-
-				while (running && !halt && timeout > 0) {
-					if (!queue.isEmpty()) {
-						timeout = 100; // reset to 10 seconds with every item found in queue
-						
-						try {
-							extractSegmentData(queue.remove());
-						} catch (Exception e) {
-							LOG.debug("extractSegmentData() failure", e);
-						}
-						processed++;
-						LOG.debug(String.format("FFmpegRunner processed:%d, remaining:%d", processed, queue.size()));
-					} else {
-						try {
-							timeout -= 10; // counting down, still allows for additions to queue
-							LOG.debug(String.format("FFmpegRunner count down:%d", timeout/10));
-							Thread.sleep(100);
-						} catch (InterruptedException e) {
-							LOG.debug("interrupted");
-						}
-					}
-				}
-
-				LOG.debug(String.format("FFmpegRunner HALTED. processed:%d", processed));
-				streamingVideoData.setFinished(true);
-			};
-			new Thread(processQueue, "ffmpegRunner").start();
+
+	/**
+	 * Every segment of the trace has been added. StreamingVideoData is finished when the segments added so far are
+	 * extracted, right away if there are none.
+	 */
+	public void submissionComplete() {
+		List<Listener> notified;
+		int count;
+		synchronized (this) {
+			if (!submitting) {
+				return;
+			}
+			submitting = false;
+			notified = finishIfDone();
+			count = processed;
 		}
+		notifyFinished(notified, count);
 	}
 
 	/**
+	 * Adds a listener, it is told right away when StreamingVideoData is already finished.
+	 */
+	public void addListener(Listener listener) {
+		int count;
+		synchronized (this) {
+			if (!done) {
+				listeners.add(listener);
+				return;
+			}
+			count = processed;
+		}
+		notifyFinished(Collections.singletonList(listener), count);
+	}
+
+	private synchronized void jobAdded() {
+		if (!submitting) {
+			throw new IllegalStateException("Segment added after the submission was completed");
+		}
+		pending++;
+	}
+
+	private void jobDone() {
+		List<Listener> progressed;
+		List<Listener> notified;
+		int count;
+		int remaining;
+		synchronized (this) {
+			count = ++processed;
+			remaining = --pending;
+			LOG.debug(String.format("FFmpegRunner processed:%d, remaining:%d", count, remaining));
+			progressed = new ArrayList<>(listeners);
+			notified = finishIfDone();
+		}
+		for (Listener listener : progressed) {
+			try {
+				listener.progress(count, remaining);
+			} catch (RuntimeException e) {
+				LOG.error("FFmpegRunner listener failure", e);
+			}
+		}
+		notifyFinished(notified, count);
+	}
+
+	/**
+	 * @return the listeners to tell, null if not finished now
+	 */
+	private List<Listener> finishIfDone() {
+		if (done || submitting || pending > 0) {
+			return null;
+		}
+		done = true;
+		LOG.debug(String.format("FFmpegRunner finished. processed:%d", processed));
+		streamingVideoData.setFinished(true);
+		List<Listener> notified = new ArrayList<>(listeners);
+		listeners.clear();
+		return notified;
+	}
+
+	private void notifyFinished(List<Listener> notified, int count) {
+		if (notified == null) {
+			return;
+		}
+		for (Listener listener : notified) {
+			try {
+				listener.finished(count);
+			} catch (RuntimeException e) {
+				LOG.error("FFmpegRunner listener failure", e);
+			}
+		}
+	}
+
+	/**
+	 * Sets the thumbnail, resolution and audio channels of a segment from its clipping, using a thumbnail file of its own.
 	 * 
-	 * @param startTime
-	 * @param frameCount
+	 * @param videoEvent
+	 * @param clippingFile clipping of the segment, deleted once extracted
+	 * @return false when ffmpeg reported nothing
 	 */
-	private boolean extractSegmentData(VideoEvent videoEvent) {
+	private boolean extractSegmentData(VideoEvent videoEvent, String clippingFile) {
 
-		String clippingFile;
-		if ((clippingFile = clipMap.get(videoEvent)) != null) {
-			clipMap.remove(videoEvent);
-		} else {
+		if (clippingFile == null) {
 			clippingFile = buildSegmentFullPathName(videoEvent);
-		} 
+		}
 
 		byte[] data = null;
-		String thumbnailFile = streamingVideoData.getVideoPath() + "thumbnail.png";
+		String thumbnailFile = streamingVideoData.getVideoPath() + "thumbnail_" + JOB_COUNT.incrementAndGet() + ".png";
 		filemanager.deleteFile(thumbnailFile);
 		String cmd = Util.getFFMPEG() + " -y -i " + "\"" + clippingFile + "\"" + " -ss 00:00:00   -vframes 1 " + "\"" + thumbnailFile + "\"";
 		String lines = externalProcessRunner.executeCmd(cmd, true, true);
@@ -155,29 +270,10 @@ public class FFmpegRunner implements Runnable{
 		filemanager.deleteFile(clippingFile);
 
 		if (!StringUtils.isEmpty(lines)) {
-			String[] height = stringParse.parse(lines, "\\d{2,4}x(\\d+)");
-			if (videoEvent.getResolutionHeight() == 0 && height != null) {
-				videoEvent.setResolutionHeight(StringParse.stringToInteger(height[0], 0));
-				videoEvent.getChildManifest().setPixelHeight(videoEvent.getResolutionHeight());
-			}
-
-			if ((stringParse.parse(lines, "Stream #0.*Audio: ([A-Za-z0-9]*) ")) != null) {
-				if (videoEvent.getSegmentInfo().isVideo() && videoEvent.getSegmentInfo().getContentType().equals(ContentType.VIDEO)) {
-					videoEvent.getSegmentInfo().setContentType(ContentType.MUXED);
-				}
-				if (videoEvent.getChannels() == null) {
-					String chnls = "";
-					if (lines.contains(" stereo,")) {
-						chnls = "2";
-					} else if (lines.contains(" mono,")) {
-						chnls = "1";
-					}
-					if (videoEvent.getChildManifest().getChannels() == null) {
-						videoEvent.getChildManifest().setChannels(chnls);
-					}
-					videoEvent.setChannels(chnls);
-				}
-			}
+			String[] height = stringParse.parse(lines, HEIGHT_PATTERN);
+			int channelCount = lines.contains(" stereo,") ? 2 : lines.contains(" mono,") ? 1 : 0;
+			new SegmentProbe(height == null ? 0 : StringParse.stringToInteger(height[0], 0), stringParse.parse(lines, AUDIO_PATTERN) != null,
+					channelCount).applyTo(videoEvent);
 		} else {
 			// false for meta data
 			return false;
@@ -0,0 +1,488 @@
+/*
+ *  Copyright 2021 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.core.videoanalysis.videoframe;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.att.aro.core.videoanalysis.pojo.Manifest.ContentType;
+import com.att.aro.core.videoanalysis.pojo.VideoEvent;
+
+import lombok.Getter;
+
+/**
+ * Reads the resolution height and audio channels of a video segment from its MP4 boxes or MPEG-TS tables,
+ * in place of running ffmpeg on a clipping of the segment.
+ * 
+ * MP4 segments take their sample entries from the moov box, fragmented segments from the moov of their
+ * initialization segment. MPEG-TS segments take their streams from the PMT, the height of H.264 video from
+ * its SPS and the channels of AAC and MPEG audio from the first frame header.
+ */
+@Getter
+public final class SegmentProbe {
+
+	private static final int TS_PACKET_SIZE = 188;
+	private static final byte TS_SYNC = 0x47;
+	/**
+	 * Video PES payload searched for a sequence parameter set
+	 */
+	private static final int MAX_VIDEO_PAYLOAD = 256 * 1024;
+
+	private int height;
+	private boolean video;
+	private boolean audio;
+	private int channelCount;
+
+	SegmentProbe() {
+	}
+
+	SegmentProbe(int height, boolean audio, int channelCount) {
+		this.height = height;
+		this.video = height > 0;
+		this.audio = audio;
+		this.channelCount = channelCount;
+	}
+
+	/**
+	 * Probes a segment.
+	 * 
+	 * @param initSegment
+	 *            - the initialization segment holding the moov box of fragmented MP4, or null
+	 * @param segment
+	 *            - the segment payload
+	 * @return the streams found, null when the segment is neither MP4 nor MPEG-TS or has no known stream
+	 */
+	public static SegmentProbe probe(byte[] initSegment, byte[] segment) {
+		SegmentProbe probe = new SegmentProbe();
+		if (segment != null && isTransportStream(segment)) {
+			probe.probeTransportStream(segment);
+		} else {
+			if (initSegment != null) {
+				probe.probeBoxes(initSegment, 0, initSegment.length);
+			}
+			if (segment != null) {
+				probe.probeBoxes(segment, 0, segment.length);
+			}
+		}
+		return probe.video || probe.audio ? probe : null;
+	}
+
+	/**
+	 * Sets the details of the segment: the height when not known yet, muxed content when a video segment carries
+	 * audio, and "1" for mono or "2" for stereo channels. Details read from ffmpeg output follow the same rules.
+	 */
+	public void applyTo(VideoEvent videoEvent) {
+		if (videoEvent.getResolutionHeight() == 0 && height > 0) {
+			videoEvent.setResolutionHeight(height);
+			videoEvent.getChildManifest().setPixelHeight(height);
+		}
+		if (audio) {
+			if (videoEvent.getSegmentInfo().isVideo() && videoEvent.getSegmentInfo().getContentType().equals(ContentType.VIDEO)) {
+				videoEvent.getSegmentInfo().setContentType(ContentType.MUXED);
+			}
+			if (videoEvent.getChannels() == null) {
+				String channels = channelCount == 1 || channelCount == 2 ? String.valueOf(channelCount) : "";
+				if (videoEvent.getChildManifest().getChannels() == null) {
+					videoEvent.getChildManifest().setChannels(channels);
+				}
+				videoEvent.setChannels(channels);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------------
+	// MP4
+	// ------------------------------------------------------------------------------------------------------------------
+
+	private void probeBoxes(byte[] data, int offset, int end) {
+		while (offset + 8 <= end) {
+			long size = readUInt32(data, offset);
+			String type = new String(data, offset + 4, 4, StandardCharsets.ISO_8859_1);
+			int header = 8;
+			if (size == 1) {
+				if (offset + 16 > end) {
+					return;
+				}
+				size = (readUInt32(data, offset + 8) << 32) | readUInt32(data, offset + 12);
+				header = 16;
+			} else if (size == 0) {
+				size = end - offset;
+			}
+			if (size < header || size > end - offset) {
+				// a box running past the data, as the mdat of a truncated segment
+				size = end - offset;
+			}
+			int boxEnd = (int) (offset + size);
+			switch (type) {
+			case "moov":
+			case "trak":
+			case "mdia":
+			case "minf":
+			case "stbl":
+				probeBoxes(data, offset + header, boxEnd);
+				break;
+			case "stsd":
+				probeSampleEntries(data, offset + header + 8, boxEnd);
+				break;
+			default:
+				break;
+			}
+			offset = boxEnd;
+		}
+	}
+
+	private void probeSampleEntries(byte[] data, int offset, int end) {
+		while (offset + 8 <= end) {
+			long size = readUInt32(data, offset);
+			if (size < 8 || size > end - offset) {
+				return;
+			}
+			String type = new String(data, offset + 4, 4, StandardCharsets.ISO_8859_1);
+			switch (type) {
+			case "avc1":
+			case "avc3":
+			case "hvc1":
+			case "hev1":
+			case "vp09":
+			case "av01":
+			case "mp4v":
+			case "encv":
+				// VisualSampleEntry: width and height follow the 16 bytes of pre_defined and reserved fields
+				if (size >= 36) {
+					video = true;
+					height = Math.max(height, readUInt16(data, offset + 34));
+				}
+				break;
+			case "mp4a":
+			case "enca":
+			case "ac-3":
+			case "ec-3":
+			case "Opus":
+				// AudioSampleEntry: channelcount follows 8 reserved bytes
+				if (size >= 26) {
+					audio = true;
+					channelCount = readUInt16(data, offset + 24);
+				}
+				break;
+			default:
+				break;
+			}
+			offset += size;
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------------
+	// MPEG-TS
+	// ------------------------------------------------------------------------------------------------------------------
+
+	private static boolean isTransportStream(byte[] data) {
+		return data.length >= TS_PACKET_SIZE && data[0] == TS_SYNC
+				&& (data.length < 2 * TS_PACKET_SIZE || data[TS_PACKET_SIZE] == TS_SYNC);
+	}
+
+	private void probeTransportStream(byte[] data) {
+		int pmtPid = -1;
+		int videoPid = -1;
+		int audioPid = -1;
+		int audioType = 0;
+		boolean pmtRead = false;
+		boolean videoDone = false;
+		boolean audioDone = false;
+		int videoBytes = 0;
+		ByteArrayOutputStream videoPayload = null;
+
+		for (int packet = 0; packet + TS_PACKET_SIZE <= data.length; packet += TS_PACKET_SIZE) {
+			if (data[packet] != TS_SYNC) {
+				return;
+			}
+			boolean unitStart = (data[packet + 1] & 0x40) != 0;
+			int pid = ((data[packet + 1] & 0x1F) << 8) | (data[packet + 2] & 0xFF);
+			int adaptation = (data[packet + 3] >> 4) & 0x03;
+			if ((adaptation & 0x01) == 0) {
+				continue;
+			}
+			int payload = packet + 4;
+			if ((adaptation & 0x02) != 0) {
+				payload += 1 + (data[payload] & 0xFF);
+			}
+			int end = packet + TS_PACKET_SIZE;
+			if (payload >= end) {
+				continue;
+			}
+
+			if (pid == 0 && unitStart && pmtPid < 0) {
+				pmtPid = readProgramMapPid(data, payload + 1 + (data[payload] & 0xFF), end);
+			} else if (pid == pmtPid && unitStart && !pmtRead) {
+				int section = payload + 1 + (data[payload] & 0xFF);
+				if (section + 12 > end || data[section] != 0x02) {
+					continue;
+				}
+				int sectionEnd = Math.min(end, section + 3 + (((data[section + 1] & 0x0F) << 8) | (data[section + 2] & 0xFF)) - 4);
+				int stream = section + 12 + (((data[section + 10] & 0x0F) << 8) | (data[section + 11] & 0xFF));
+				while (stream + 5 <= sectionEnd) {
+					int streamType = data[stream] & 0xFF;
+					int streamPid = ((data[stream + 1] & 0x1F) << 8) | (data[stream + 2] & 0xFF);
+					if (videoPid < 0 && isVideoStream(streamType)) {
+						videoPid = streamPid;
+						video = true;
+						// only the height of H.264 is read
+						videoDone = streamType != 0x1B;
+					} else if (audioPid < 0 && isAudioStream(streamType)) {
+						audioPid = streamPid;
+						audioType = streamType;
+						audio = true;
+					}
+					stream += 5 + (((data[stream + 3] & 0x0F) << 8) | (data[stream + 4] & 0xFF));
+				}
+				videoDone |= videoPid < 0;
+				audioDone = audioPid < 0;
+				pmtRead = true;
+			} else if (pid == videoPid && !videoDone) {
+				if (unitStart) {
+					// the SPS leads the access unit, look for it once the PES packet is complete
+					if (videoPayload != null) {
+						height = findSpsHeight(videoPayload.toByteArray());
+						videoDone = height > 0 || videoBytes > MAX_VIDEO_PAYLOAD;
+					}
+					videoPayload = new ByteArrayOutputStream();
+					payload = skipPesHeader(data, payload, end);
+				}
+				if (!videoDone && videoPayload != null && payload < end) {
+					videoPayload.write(data, payload, end - payload);
+					videoBytes += end - payload;
+				}
+			} else if (pid == audioPid && unitStart && !audioDone) {
+				channelCount = readAudioChannels(data, skipPesHeader(data, payload, end), end, audioType);
+				audioDone = true;
+			}
+			if (pmtRead && videoDone && audioDone) {
+				return;
+			}
+		}
+		if (!videoDone && videoPayload != null) {
+			height = findSpsHeight(videoPayload.toByteArray());
+		}
+	}
+
+	private static int readProgramMapPid(byte[] data, int section, int end) {
+		if (section + 8 > end || data[section] != 0x00) {
+			return -1;
+		}
+		int sectionEnd = Math.min(end, section + 3 + (((data[section + 1] & 0x0F) << 8) | (data[section + 2] & 0xFF)) - 4);
+		for (int program = section + 8; program + 4 <= sectionEnd; program += 4) {
+			if (readUInt16(data, program) != 0) {
+				return ((data[program + 2] & 0x1F) << 8) | (data[program + 3] & 0xFF);
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isVideoStream(int streamType) {
+		return streamType == 0x01 || streamType == 0x02 || streamType == 0x1B || streamType == 0x24;
+	}
+
+	private static boolean isAudioStream(int streamType) {
+		return streamType == 0x03 || streamType == 0x04 || streamType == 0x0F || streamType == 0x11 || streamType == 0x81
+				|| streamType == 0x87;
+	}
+
+	private static int skipPesHeader(byte[] data, int payload, int end) {
+		if (payload + 9 <= end && data[payload] == 0 && data[payload + 1] == 0 && data[payload + 2] == 1) {
+			return payload + 9 + (data[payload + 8] & 0xFF);
+		}
+		return payload;
+	}
+
+	/**
+	 * @return channels of the first AAC ADTS or MPEG audio frame header, 0 when unknown
+	 */
+	private static int readAudioChannels(byte[] data, int offset, int end, int streamType) {
+		for (; offset + 4 <= end; offset++) {
+			if ((data[offset] & 0xFF) != 0xFF || (data[offset + 1] & 0xE0) != 0xE0) {
+				continue;
+			}
+			if (streamType == 0x0F && (data[offset + 1] & 0xF6) == 0xF0) {
+				return ((data[offset + 2] & 0x01) << 2) | ((data[offset + 3] >> 6) & 0x03);
+			} else if (streamType == 0x03 || streamType == 0x04) {
+				return ((data[offset + 3] >> 6) & 0x03) == 3 ? 1 : 2;
+			}
+			return 0;
+		}
+		return 0;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------------
+	// H.264 sequence parameter set
+	// ------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * @return height of the first H.264 SPS found in Annex B byte stream, 0 when there is none
+	 */
+	static int findSpsHeight(byte[] stream) {
+		for (int offset = 0; offset + 4 < stream.length; offset++) {
+			if (stream[offset] == 0 && stream[offset + 1] == 0 && stream[offset + 2] == 1 && (stream[offset + 3] & 0x1F) == 7) {
+				try {
+					return readSpsHeight(unescape(stream, offset + 4));
+				} catch (ArrayIndexOutOfBoundsException e) {
+					// truncated SPS
+					return 0;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes the emulation prevention bytes of a NAL unit up to the next start code.
+	 */
+	private static byte[] unescape(byte[] stream, int offset) {
+		ByteArrayOutputStream rbsp = new ByteArrayOutputStream(64);
+		int zeros = 0;
+		for (int index = offset; index < stream.length; index++) {
+			int value = stream[index] & 0xFF;
+			if (zeros >= 2 && value <= 1) {
+				break;
+			}
+			if (zeros >= 2 && value == 3) {
+				zeros = 0;
+				continue;
+			}
+			zeros = value == 0 ? zeros + 1 : 0;
+			rbsp.write(value);
+		}
+		return rbsp.toByteArray();
+	}
+
+	private static int readSpsHeight(byte[] sps) {
+		BitReader bits = new BitReader(sps);
+		int profile = bits.read(8);
+		bits.read(16); // constraint flags and level
+		bits.readUE(); // seq_parameter_set_id
+		int chromaFormat = 1;
+		boolean separateColourPlane = false;
+		if (profile == 100 || profile == 110 || profile == 122 || profile == 244 || profile == 44 || profile == 83 || profile == 86
+				|| profile == 118 || profile == 128 || profile == 138 || profile == 139 || profile == 134 || profile == 135) {
+			chromaFormat = bits.readUE();
+			if (chromaFormat == 3) {
+				separateColourPlane = bits.read(1) == 1;
+			}
+			bits.readUE(); // bit_depth_luma_minus8
+			bits.readUE(); // bit_depth_chroma_minus8
+			bits.read(1); // qpprime_y_zero_transform_bypass_flag
+			if (bits.read(1) == 1) {
+				for (int list = 0; list < (chromaFormat != 3 ? 8 : 12); list++) {
+					if (bits.read(1) == 1) {
+						skipScalingList(bits, list < 6 ? 16 : 64);
+					}
+				}
+			}
+		}
+		bits.readUE(); // log2_max_frame_num_minus4
+		int pictureOrderCountType = bits.readUE();
+		if (pictureOrderCountType == 0) {
+			bits.readUE();
+		} else if (pictureOrderCountType == 1) {
+			bits.read(1);
+			bits.readSE();
+			bits.readSE();
+			for (int cycle = bits.readUE(); cycle > 0; cycle--) {
+				bits.readSE();
+			}
+		}
+		bits.readUE(); // max_num_ref_frames
+		bits.read(1); // gaps_in_frame_num_value_allowed_flag
+		bits.readUE(); // pic_width_in_mbs_minus1
+		int mapUnits = bits.readUE() + 1;
+		int frameMbsOnly = bits.read(1);
+		if (frameMbsOnly == 0) {
+			bits.read(1); // mb_adaptive_frame_field_flag
+		}
+		bits.read(1); // direct_8x8_inference_flag
+		int cropTop = 0;
+		int cropBottom = 0;
+		if (bits.read(1) == 1) {
+			bits.readUE();
+			bits.readUE();
+			cropTop = bits.readUE();
+			cropBottom = bits.readUE();
+		}
+		int chromaArrayType = separateColourPlane ? 0 : chromaFormat;
+		int cropUnit = chromaArrayType == 0 ? 2 - frameMbsOnly : (chromaFormat == 1 ? 2 : 1) * (2 - frameMbsOnly);
+		return (2 - frameMbsOnly) * mapUnits * 16 - cropUnit * (cropTop + cropBottom);
+	}
+
+	private static void skipScalingList(BitReader bits, int size) {
+		int lastScale = 8;
+		int nextScale = 8;
+		for (int index = 0; index < size; index++) {
+			if (nextScale != 0) {
+				nextScale = (lastScale + bits.readSE() + 256) % 256;
+			}
+			lastScale = nextScale == 0 ? lastScale : nextScale;
+		}
+	}
+
+	private static long readUInt32(byte[] data, int offset) {
+		return ((long) (data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) | ((data[offset + 2] & 0xFF) << 8)
+				| (data[offset + 3] & 0xFF);
+	}
+
+	private static int readUInt16(byte[] data, int offset) {
+		return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+	}
+
+	private static final class BitReader {
+
+		private final byte[] data;
+		private int position;
+
+		BitReader(byte[] data) {
+			this.data = data;
+		}
+
+		int read(int count) {
+			int value = 0;
+			for (int bit = 0; bit < count; bit++) {
+				value = (value << 1) | ((data[position >> 3] >> (7 - (position & 7))) & 1);
+				position++;
+			}
+			return value;
+		}
+
+		int readUE() {
+			int zeros = 0;
+			while (read(1) == 0) {
+				if (++zeros > 31) {
+					throw new ArrayIndexOutOfBoundsException("invalid exp-Golomb code");
+				}
+			}
+			return (int) ((1L << zeros) - 1 + (zeros == 0 ? 0 : readLong(zeros)));
+		}
+
+		int readSE() {
+			int value = readUE();
+			return (value & 1) == 1 ? (value + 1) / 2 : -(value / 2);
+		}
+
+		private long readLong(int count) {
+			long value = 0;
+			for (int bit = 0; bit < count; bit++) {
+				value = (value << 1) | read(1);
+			}
+			return value;
+		}
+	}
+}
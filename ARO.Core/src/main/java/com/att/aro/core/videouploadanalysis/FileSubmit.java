@@ -92,6 +92,7 @@ public class FileSubmit implements Runnable{
 		}
 		FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
 		
+		// the payload is the file Compressor.zipBase64 prepared, it exists before the post so the dialog can show its size first
 		FileDataBodyPart part1 = new FileDataBodyPart("file", file1, MediaType.APPLICATION_OCTET_STREAM_TYPE);
 		FileDataBodyPart part2 = new FileDataBodyPart("file", file2, MediaType.APPLICATION_JSON_TYPE);
 		LOG.info(String.format("File Information: FileDataBodyPart(%s, %s)", file1.getName(), file2.getName()));
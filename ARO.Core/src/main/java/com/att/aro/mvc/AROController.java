@@ -72,6 +72,7 @@ import com.att.aro.core.util.GoogleAnalyticsUtil;
 import com.att.aro.core.util.Util;
 import com.att.aro.core.video.pojo.VideoOption;
 import com.att.aro.core.videoanalysis.pojo.StreamingVideoData;
+import com.att.aro.core.videoanalysis.videoframe.FFmpegRunner;
 
 import lombok.Getter;
 
@@ -161,23 +162,18 @@ public class AROController implements PropertyChangeListener, ActionListener {
 						&& results.getAnalyzerResult().getStreamingVideoData() != null
 						&& !results.getAnalyzerResult().getStreamingVideoData().isFinished()) {
 					StreamingVideoData streamingVideoData = results.getAnalyzerResult().getStreamingVideoData();
-					if (!streamingVideoData.getVideoStreamMap().isEmpty()) {
-						Runnable waitingForUpdate = () -> {
-							int count = 1;
-							while (!streamingVideoData.isFinished()) {
-								LOG.debug(String.format("(%d) Waiting for FFmpegRunner to complete", count++));
-								Util.sleep(1000);
+					if (!streamingVideoData.getVideoStreamMap().isEmpty() && streamingVideoData.getFfmpegRunner() != null) {
+						streamingVideoData.getFfmpegRunner().addListener(new FFmpegRunner.Listener() {
+							@Override
+							public void progress(int processed, int pending) {
+								LOG.debug(String.format("Waiting for FFmpegRunner to complete, processed:%d, remaining:%d", processed, pending));
 							}
-							Util.sleep(1000);
-
-							SwingUtilities.invokeLater(new Runnable() {
-								@Override
-								public void run() {
-									analyzeVideoBP();
-								}
-							});
-						};
-						new Thread(waitingForUpdate, "waitingForUpdate").start();
+
+							@Override
+							public void finished(int processed) {
+								SwingUtilities.invokeLater(() -> analyzeVideoBP());
+							}
+						});
 					}
 				}
 			} catch (OutOfMemoryError err) {
@@ -0,0 +1,37 @@
+package com.att.aro.core;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.ITraceDataReader;
+import com.att.aro.core.securedpacketreader.IKeyLogDecryptor;
+
+public class AROConfigTest {
+
+	@Test
+	public void closeStopsAnalysisThreads() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AROConfig.class);
+		Object traceDataReader = context.getBean(ITraceDataReader.class);
+		Object aroService = context.getBean(IAROService.class);
+		Object sessionManager = context.getBean(ISessionManager.class);
+		Object keyLogDecryptor = context.getBean(IKeyLogDecryptor.class);
+
+		// a batch analysis closes a context per worker, none of them may leave threads behind
+		context.close();
+
+		assertTrue(isShutdown(traceDataReader, "peripheralPool"));
+		assertTrue(isShutdown(aroService, "bestPracticePool"));
+		assertTrue(isShutdown(sessionManager, "sessionPool"));
+		assertTrue(isShutdown(keyLogDecryptor, "sessionPool"));
+	}
+
+	private boolean isShutdown(Object bean, String pool) {
+		return ((ExecutorService) ReflectionTestUtils.getField(bean, pool)).isShutdown();
+	}
+}
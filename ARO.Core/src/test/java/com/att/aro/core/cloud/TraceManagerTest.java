@@ -1,9 +1,11 @@
 package com.att.aro.core.cloud;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
 
 import org.junit.After;
@@ -17,6 +19,7 @@ import org.mockito.MockitoAnnotations;
 
 import com.amazonaws.ClientConfiguration;
 import com.att.aro.core.cloud.aws.AwsRepository;
+import com.att.aro.core.cloud.local.LocalRepository;
 import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.fileio.impl.FileManagerImpl;
 
@@ -97,6 +100,23 @@ public class TraceManagerTest {
 
 	}
 
+	@Test
+	public void testUploadAndDownloadLocal() throws IOException {
+		File tracefolder = folder.newFolder("localtrace");
+		File testfile = new File(tracefolder, "cpu");
+		Files.write(testfile.toPath(), "1.0 25".getBytes("UTF-8"));
+		LocalRepository local = new LocalRepository(folder.newFolder("remote"));
+		manager.setRepository(local);
+
+		assertEquals(State.COMPLETE, manager.upload(tracefolder.getAbsolutePath()));
+		assertEquals(1, tracefolder.list().length);
+		assertEquals("localtrace.zip", local.list().get(0));
+
+		File downloads = folder.newFolder("downloads");
+		assertEquals(State.COMPLETE, manager.download("localtrace.zip", downloads.getAbsolutePath()));
+		assertEquals("1.0 25", new String(Files.readAllBytes(new File(downloads, "localtrace/cpu").toPath()), "UTF-8"));
+	}
+
 	@Test
 	public void testList() {
 		new AwsRepository(new HashMap<>(),new ClientConfiguration()).list();
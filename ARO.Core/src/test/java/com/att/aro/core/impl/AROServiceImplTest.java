@@ -3,6 +3,7 @@ package com.att.aro.core.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
@@ -10,6 +11,7 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -19,10 +21,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.bestpractice.IBestPractice;
+import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
 import com.att.aro.core.bestpractice.pojo.BestPracticeType;
+import com.att.aro.core.bestpractice.pojo.CombineCsJssResult;
+import com.att.aro.core.bestpractice.pojo.HttpsUsageResult;
 import com.att.aro.core.bestpractice.pojo.PeriodicTransferResult;
 import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.fileio.IFileManager;
@@ -318,4 +325,30 @@ public class AROServiceImplTest extends BaseTest {
 		assertEquals(108, testResult.getError().getCode());
 		assertFalse(testResult.isSuccess());
 	}
+
+	@Test
+	public void analyze_keepsRequestOrderAndIsolatesFailures() {
+		PacketAnalyzerResult analyze = new PacketAnalyzerResult();
+		final PeriodicTransferResult periodicTransferResult = new PeriodicTransferResult();
+		HttpsUsageResult httpsUsageResult = new HttpsUsageResult();
+		CombineCsJssResult combineCsJssResult = new CombineCsJssResult();
+		// the first best practice finishes last
+		when(periodicTransfer.runTest(analyze)).thenAnswer(new Answer<AbstractBestPracticeResult>() {
+			public AbstractBestPracticeResult answer(InvocationOnMock invocation) throws InterruptedException {
+				Thread.sleep(100);
+				return periodicTransferResult;
+			}
+		});
+		when(connectionClosing.runTest(analyze)).thenThrow(new IllegalStateException("failed"));
+		when(httpsUsage.runTest(analyze)).thenReturn(httpsUsageResult);
+		when(combineCsJss.runTest(analyze)).thenReturn(combineCsJssResult);
+
+		List<AbstractBestPracticeResult> results = aro.analyze(analyze, Arrays.asList(BestPracticeType.PERIODIC_TRANSFER,
+				BestPracticeType.CONNECTION_CLOSING, BestPracticeType.HTTPS_USAGE, BestPracticeType.COMBINE_CS_JSS));
+
+		assertEquals(3, results.size());
+		assertSame(periodicTransferResult, results.get(0));
+		assertSame(httpsUsageResult, results.get(1));
+		assertSame(combineCsJssResult, results.get(2));
+	}
 }
@@ -1,6 +1,10 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,5 +35,45 @@ public class ByteArrayLineReaderImplTest extends BaseTest{
 		
 	}
 
+	@Test
+	public void readLine_onlyReadsLength() throws IOException {
+		// a reused buffer with stale bytes after the valid length
+		byte[] buffer = "Host: a\r\nContent-Length: 2\r\nstale\r\n".getBytes(StandardCharsets.US_ASCII);
+		storageReader.init(buffer, 28);
+		assertEquals("Host: a", storageReader.readLine());
+		assertEquals("Content-Length: 2", storageReader.readLine());
+		assertNull(storageReader.readLine());
+
+		storageReader.init(buffer, 28);
+		assertEquals("index :0\nHost: a\r\nContent-Length: 2\r\n", storageReader.toString());
+	}
+
+	@Test
+	public void readLine_lineSplitAtEndOfData() throws IOException {
+		byte[] buffer = "HTTP/1.1 200 OK\r\nContent-Le".getBytes(StandardCharsets.US_ASCII);
+		storageReader.init(buffer, buffer.length);
+		assertEquals("HTTP/1.1 200 OK", storageReader.readLine());
+		// the rest of the header is in the next packet
+		assertEquals("Content-Le", storageReader.readLine());
+		assertNull(storageReader.readLine());
+		assertEquals(buffer.length, storageReader.getIndex());
+	}
+
+	@Test
+	public void readLine_reinitReusesReader() throws IOException {
+		byte[] buffer = "first line\r\nsecond".getBytes(StandardCharsets.US_ASCII);
+		storageReader.init(buffer, buffer.length);
+		assertEquals("first line", storageReader.readLine());
+
+		// the same buffer refilled with a shorter carried over header
+		byte[] carried = "ab\rc\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(carried, 0, buffer, 0, carried.length);
+		storageReader.init(buffer, carried.length);
+		assertEquals(0, storageReader.getIndex());
+		assertEquals("ab\rc", storageReader.readLine());
+		assertEquals("", storageReader.readLine());
+		assertNull(storageReader.readLine());
+	}
+
 	
 }
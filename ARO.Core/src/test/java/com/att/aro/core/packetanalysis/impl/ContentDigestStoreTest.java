@@ -0,0 +1,27 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class ContentDigestStoreTest {
+
+	@Test
+	public void equalBodiesShareOneName() {
+		try (ContentDigestStore store = new ContentDigestStore()) {
+			byte[] body = new byte[200000];
+			for (int index = 0; index < body.length; index++) {
+				body[index] = (byte) (index * 31);
+			}
+			byte[] other = body.clone();
+			other[body.length - 1]++;
+
+			String name = store.add(body);
+			assertEquals(name, store.add(body.clone()));
+			assertNotEquals(name, store.add(other));
+			assertEquals(store.add(new byte[0]), store.add(new byte[0]));
+			assertEquals(3, store.size());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+public class DecodedContentCacheTest {
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		DecodedContentCache cache = new DecodedContentCache(250, 1000);
+		HttpRequestResponseInfo first = new HttpRequestResponseInfo();
+		HttpRequestResponseInfo second = new HttpRequestResponseInfo();
+		HttpRequestResponseInfo third = new HttpRequestResponseInfo();
+
+		cache.put(first, new byte[100]);
+		cache.put(second, new byte[100]);
+		cache.get(first);
+		cache.put(third, new byte[100]);
+
+		assertNull(cache.get(second));
+		assertEquals(100, cache.get(first).length);
+		assertEquals(100, cache.get(third).length);
+		assertEquals(200, cache.getMemoryBytes());
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void spillsLargeBodies() {
+		DecodedContentCache cache = new DecodedContentCache(250, 100);
+		HttpRequestResponseInfo request = new HttpRequestResponseInfo();
+		byte[] content = new byte[500];
+		for (int index = 0; index < content.length; index++) {
+			content[index] = (byte) index;
+		}
+
+		cache.put(request, content);
+		assertEquals(0, cache.getMemoryBytes());
+		assertEquals(500, cache.getSpilledBytes());
+		assertArrayEquals(content, cache.get(request));
+		// matched by identity, not by the host name compared in equals
+		assertNull(cache.get(new HttpRequestResponseInfo()));
+
+		cache.clear();
+		assertNull(cache.get(request));
+		assertEquals(0, cache.getSpilledBytes());
+	}
+}
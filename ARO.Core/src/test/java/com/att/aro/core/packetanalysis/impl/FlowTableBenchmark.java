@@ -0,0 +1,100 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Session lookup for a synthetic mix of 1M packets, comparing the former String session key with
+ * {@link FlowTable}. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlowTableBenchmark {
+
+	private static final int PACKET_COUNT = 1_000_000;
+
+	@Param({ "100", "10000" })
+	private int flowCount;
+
+	private InetAddress[] localIPs;
+	private InetAddress[] remoteIPs;
+	private int[] localPorts;
+	private int[] remotePorts;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FlowTableBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		Random random = new Random(42);
+		InetAddress localIP = InetAddress.getByName("10.0.0.1");
+		InetAddress[] remotes = new InetAddress[flowCount];
+		int[] ports = new int[flowCount];
+		for (int flow = 0; flow < flowCount; flow++) {
+			remotes[flow] = InetAddress.getByAddress(new byte[] { (byte) 172, 16, (byte) (flow >> 8), (byte) flow });
+			ports[flow] = 32768 + flow % 28000;
+		}
+		localIPs = new InetAddress[PACKET_COUNT];
+		remoteIPs = new InetAddress[PACKET_COUNT];
+		localPorts = new int[PACKET_COUNT];
+		remotePorts = new int[PACKET_COUNT];
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			int flow = random.nextInt(flowCount);
+			// decoded packets carry their own address instances
+			localIPs[index] = InetAddress.getByAddress(localIP.getAddress());
+			remoteIPs[index] = InetAddress.getByAddress(remotes[flow].getAddress());
+			localPorts[index] = ports[flow];
+			remotePorts[index] = flow % 2 == 0 ? 443 : 80;
+		}
+	}
+
+	@Benchmark
+	public int stringKey() {
+		Map<String, Object> sessions = new LinkedHashMap<>();
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			String sessionKey = localIPs[index].getHostAddress() + " " + localPorts[index] + " " + remotePorts[index] + " "
+					+ remoteIPs[index].getHostAddress();
+			if (!sessions.containsKey(sessionKey)) {
+				sessions.put(sessionKey, new Object());
+			} else {
+				sessions.get(sessionKey);
+			}
+		}
+		return sessions.size();
+	}
+
+	@Benchmark
+	public int flowTable() {
+		FlowTable<Object> sessions = new FlowTable<>();
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			if (sessions.get(localIPs[index], localPorts[index], remoteIPs[index], remotePorts[index]) == null) {
+				sessions.put(localIPs[index], localPorts[index], remoteIPs[index], remotePorts[index], new Object());
+			}
+		}
+		return sessions.size();
+	}
+}
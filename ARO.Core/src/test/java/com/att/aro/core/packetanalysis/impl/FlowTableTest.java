@@ -0,0 +1,60 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class FlowTableTest {
+
+	@Test
+	public void getAndPutIPv4() throws UnknownHostException {
+		FlowTable<String> table = new FlowTable<>();
+		InetAddress local = InetAddress.getByName("10.0.0.1");
+		InetAddress remote = InetAddress.getByName("192.168.0.2");
+
+		assertNull(table.get(local, 40000, remote, 443));
+		table.put(local, 40000, remote, 443, "first");
+		table.put(local, 40001, remote, 443, "second");
+		assertEquals("first", table.get(InetAddress.getByName("10.0.0.1"), 40000, remote, 443));
+		assertEquals("second", table.get(local, 40001, remote, 443));
+		// direction matters
+		assertNull(table.get(remote, 443, local, 40000));
+
+		table.put(local, 40000, remote, 443, "replaced");
+		assertEquals("replaced", table.get(local, 40000, remote, 443));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void getAndPutIPv6() throws UnknownHostException {
+		FlowTable<String> table = new FlowTable<>();
+		InetAddress local = InetAddress.getByName("2001:db8::1");
+		InetAddress remote = InetAddress.getByName("2001:db8::2");
+		InetAddress remoteIPv4 = InetAddress.getByName("192.168.0.2");
+
+		table.put(local, 40000, remote, 443, "ipv6");
+		table.put(local, 40000, remoteIPv4, 443, "mixed");
+		assertEquals("ipv6", table.get(InetAddress.getByName("2001:db8::1"), 40000, remote, 443));
+		assertEquals("mixed", table.get(local, 40000, remoteIPv4, 443));
+		assertNull(table.get(local, 40000, InetAddress.getByName("2001:db8::3"), 443));
+	}
+
+	@Test
+	public void resize() throws UnknownHostException {
+		FlowTable<Integer> table = new FlowTable<>(8);
+		InetAddress remote = InetAddress.getByName("192.168.0.2");
+		for (int index = 0; index < 5000; index++) {
+			InetAddress local = InetAddress.getByAddress(new byte[] { 10, 0, (byte) (index >> 8), (byte) index });
+			table.put(local, 1024 + index, remote, 80, index);
+		}
+		assertEquals(5000, table.size());
+		for (int index = 0; index < 5000; index++) {
+			InetAddress local = InetAddress.getByAddress(new byte[] { 10, 0, (byte) (index >> 8), (byte) index });
+			assertEquals(Integer.valueOf(index), table.get(local, 1024 + index, remote, 80));
+		}
+	}
+}
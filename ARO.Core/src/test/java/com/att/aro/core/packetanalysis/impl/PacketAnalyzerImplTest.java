@@ -1,15 +1,27 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -18,13 +30,17 @@ import java.util.Set;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.att.aro.core.BaseTest;
+import com.att.aro.core.SpringContextUtil;
 import com.att.aro.core.configuration.IProfileFactory;
 import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.configuration.pojo.ProfileLTE;
@@ -33,8 +49,10 @@ import com.att.aro.core.packetanalysis.IEnergyModelFactory;
 import com.att.aro.core.packetanalysis.IPacketAnalyzer;
 import com.att.aro.core.packetanalysis.IPktAnazlyzerTimeRangeUtil;
 import com.att.aro.core.packetanalysis.IRrcStateMachineFactory;
+import com.att.aro.core.packetanalysis.ISessionManager;
 import com.att.aro.core.packetanalysis.ITraceDataReader;
 import com.att.aro.core.packetanalysis.pojo.AnalysisFilter;
+import com.att.aro.core.packetanalysis.pojo.ApplicationSelection;
 import com.att.aro.core.packetanalysis.pojo.BurstCollectionAnalysisData;
 import com.att.aro.core.packetanalysis.pojo.EnergyModel;
 import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
@@ -58,6 +76,9 @@ import com.att.aro.core.tracemetadata.pojo.MetaDataModel;
 
 @SuppressWarnings("unchecked")
 public class PacketAnalyzerImplTest extends BaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
 	
 	@InjectMocks
 	PacketAnalyzerImpl iPacketAnalyzer;
@@ -325,4 +346,182 @@ public class PacketAnalyzerImplTest extends BaseTest {
 		assertEquals(3,testResult.getTotalPackets());
 	}
 
+	@Test
+	public void analyzeTraceDirectory_reusesParsedTrace() throws Exception {
+		useAnalyzers(context.getBean(ISessionManager.class));
+		File traceFolder = folder.newFolder("trace");
+		File pcapFile = new File(traceFolder, "traffic.cap");
+		writeBytes(pcapFile, 24);
+		TraceDirectoryResult traceResult = retransmissionTrace(traceFolder);
+		traceResult.getCpuActivityList().add(new CpuActivity());
+		when(tracereader.readTraceDirectory(traceFolder.getAbsolutePath())).thenReturn(traceResult, retransmissionTrace(traceFolder));
+		Profile profile = new ProfileLTE();
+
+		TraceDirectoryResult first = (TraceDirectoryResult) iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, null)
+				.getTraceresult();
+		first.getCpuActivityList().updateTimeRange(1, 2);
+		first.setAllpackets(new ArrayList<PacketInfo>());
+		TraceDirectoryResult second = (TraceDirectoryResult) iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, null)
+				.getTraceresult();
+
+		verify(tracereader, times(1)).readTraceDirectory(traceFolder.getAbsolutePath());
+		assertNotSame(first, second);
+		assertEquals(traceFolder.getAbsolutePath(), second.getTraceDirectory());
+		assertEquals(5, second.getAllpackets().size());
+		assertEquals(1, second.getCpuActivityList().getCpuActivities().size());
+		assertFalse(second.getCpuActivityList().isFilterByTime());
+
+		writeBytes(pcapFile, 48);
+		iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, null);
+		verify(tracereader, times(2)).readTraceDirectory(traceFolder.getAbsolutePath());
+	}
+
+	@Test
+	public void packetIndex_findsTimeRangeBounds() {
+		List<PacketInfo> packets = packetsAt(1, 2, 2, 2, 5, 8);
+
+		assertEquals(0, PacketAnalyzerImpl.packetIndex(packets, 0.5, false));
+		assertEquals(1, PacketAnalyzerImpl.packetIndex(packets, 2, false));
+		assertEquals(4, PacketAnalyzerImpl.packetIndex(packets, 2, true));
+		assertEquals(4, PacketAnalyzerImpl.packetIndex(packets, 3, false));
+		assertEquals(6, PacketAnalyzerImpl.packetIndex(packets, 8, true));
+		assertEquals(0, PacketAnalyzerImpl.packetIndex(new ArrayList<PacketInfo>(), 1, false));
+	}
+
+	@Test
+	public void analyzeTraceDirectory_timeRangeAfterFullAnalysis() throws Exception {
+		useAnalyzers(context.getBean(ISessionManager.class));
+		File traceFolder = folder.newFolder("rangetrace");
+		File pcapFile = new File(traceFolder, "traffic.cap");
+		writeBytes(pcapFile, 24);
+		when(tracereader.readTraceDirectory(traceFolder.getAbsolutePath())).thenReturn(retransmissionTrace(traceFolder), retransmissionTrace(traceFolder));
+		Profile profile = new ProfileLTE();
+
+		List<PacketInfo> full = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, null).getTraceresult().getAllpackets();
+		assertEquals(5, full.size());
+		assertTrue(((TCPPacket) full.get(4).getPacket()).isRetransmission());
+		TcpInfo fullTcpInfo = full.get(4).getTcpInfo();
+
+		List<PacketInfo> range = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, timeRangeFilter(2.5, 10))
+				.getTraceresult().getAllpackets();
+		verify(tracereader, times(1)).readTraceDirectory(traceFolder.getAbsolutePath());
+
+		// same as the time range analysis of a trace read again
+		writeBytes(pcapFile, 48);
+		List<PacketInfo> expected = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, timeRangeFilter(2.5, 10))
+				.getTraceresult().getAllpackets();
+		verify(tracereader, times(2)).readTraceDirectory(traceFolder.getAbsolutePath());
+		assertEquals(expected.size(), range.size());
+		for (int index = 0; index < expected.size(); index++) {
+			assertEquals(expected.get(index).getPacketId(), range.get(index).getPacketId());
+			assertEquals(expected.get(index).getTcpInfo(), range.get(index).getTcpInfo());
+			assertEquals(((TCPPacket) expected.get(index).getPacket()).isRetransmission(), ((TCPPacket) range.get(index).getPacket()).isRetransmission());
+		}
+		assertFalse(((TCPPacket) range.get(range.size() - 1).getPacket()).isRetransmission());
+
+		// the full analysis keeps its results and a new one finds them again
+		assertTrue(((TCPPacket) full.get(4).getPacket()).isRetransmission());
+		assertEquals(fullTcpInfo, full.get(4).getTcpInfo());
+		List<PacketInfo> again = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), profile, null).getTraceresult().getAllpackets();
+		assertTrue(((TCPPacket) again.get(4).getPacket()).isRetransmission());
+		assertEquals(fullTcpInfo, again.get(4).getTcpInfo());
+	}
+
+	@Test
+	public void analyzeTraceDirectory_reusesSessionsOfSameSelection() throws Exception {
+		ISessionManager spySessionManager = Mockito.spy(context.getBean(ISessionManager.class));
+		useAnalyzers(spySessionManager);
+
+		File traceFolder = folder.newFolder("sessiontrace");
+		writeBytes(new File(traceFolder, "traffic.cap"), 24);
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		InetAddress server = InetAddress.getByName("192.168.0.2");
+		List<PacketInfo> packets = new ArrayList<>();
+		packets.add(packetInfo(0, client, 40000, server, 80, 1000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(1, server, 80, client, 40000, 5000, 1001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+		TraceDirectoryResult traceResult = new TraceDirectoryResult();
+		traceResult.setTraceDirectory(traceFolder.getAbsolutePath());
+		traceResult.setAllpackets(packets);
+		traceResult.setTraceDuration(10);
+		when(tracereader.readTraceDirectory(traceFolder.getAbsolutePath())).thenReturn(traceResult);
+
+		PacketAnalyzerResult first = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), new ProfileLTE(), timeRangeFilter(0, 10));
+		PacketAnalyzerResult second = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), new ProfileLTE(), timeRangeFilter(0, 10));
+		PacketAnalyzerResult narrowed = iPacketAnalyzer.analyzeTraceDirectory(traceFolder.getAbsolutePath(), new ProfileLTE(), timeRangeFilter(0.5, 10));
+
+		verify(spySessionManager, times(2)).processPacketsAndAssembleSessions(any(List.class));
+		assertSame(first.getSessionlist(), second.getSessionlist());
+		assertEquals(1, narrowed.getTraceresult().getAllpackets().size());
+		assertNotSame(first.getSessionlist(), narrowed.getSessionlist());
+	}
+
+	private void useAnalyzers(ISessionManager sessionManager) {
+		ReflectionTestUtils.setField(iPacketAnalyzer, "sessionmanager", sessionManager);
+		iPacketAnalyzer.setRrcStateMachineFactory(context.getBean(IRrcStateMachineFactory.class));
+		iPacketAnalyzer.setProfileFactory(context.getBean(IProfileFactory.class));
+		iPacketAnalyzer.setEnergyModelFactory(context.getBean(IEnergyModelFactory.class));
+		iPacketAnalyzer.setBurstCollectionAnalayzer(context.getBean(IBurstCollectionAnalysis.class));
+		ReflectionTestUtils.setField(iPacketAnalyzer, "pktTimeUtil", context.getBean(IPktAnazlyzerTimeRangeUtil.class));
+		// TimeRangeAnalysis looks up the profile factory by its class in the lazy application context
+		SpringContextUtil.getInstance().getContext().getBean(IProfileFactory.class);
+	}
+
+	/**
+	 * An HTTP request and a segment sent again over the end of it, a retransmission only when the request is part of
+	 * the analysis
+	 */
+	private TraceDirectoryResult retransmissionTrace(File traceFolder) throws UnknownHostException {
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		InetAddress server = InetAddress.getByName("192.168.0.2");
+		byte[] request = "GET /a HTTP/1.1\r\nHost: example.com\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+		byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII);
+		byte[] resent = Arrays.copyOfRange(request, request.length - 8, request.length);
+		List<PacketInfo> packets = new ArrayList<>();
+		packets.add(packetInfo(0, client, 40000, server, 80, 1000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(1, server, 80, client, 40000, 5000, 1001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+		packets.add(packetInfo(1.5, client, 40000, server, 80, 1001, 5001, 0x18, request, PacketDirection.UPLINK));
+		packets.add(packetInfo(2, server, 80, client, 40000, 5001, 1001 + request.length, 0x18, response, PacketDirection.DOWNLINK));
+		packets.add(packetInfo(6, client, 40000, server, 80, 1001 + request.length - 8, 5001 + response.length, 0x18, resent, PacketDirection.UPLINK));
+		TraceDirectoryResult traceResult = new TraceDirectoryResult();
+		traceResult.setTraceDirectory(traceFolder.getAbsolutePath());
+		traceResult.setAllpackets(packets);
+		traceResult.setTraceDuration(10);
+		return traceResult;
+	}
+
+	private AnalysisFilter timeRangeFilter(double beginTime, double endTime) {
+		Map<String, ApplicationSelection> appSelections = new HashMap<>();
+		appSelections.put("test", new ApplicationSelection("test", null));
+		return new AnalysisFilter(appSelections, new TimeRange(beginTime, endTime), new HashMap<InetAddress, String>());
+	}
+
+	private PacketInfo packetInfo(double timestamp, InetAddress source, int sourcePort, InetAddress destination, int destinationPort, int seq,
+			int ack, int flags, byte[] payload, PacketDirection direction) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + payload.length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(source.getAddress()).put(destination.getAddress());
+		ip.putShort((short) sourcePort).putShort((short) destinationPort).putInt(seq).putInt(ack);
+		ip.put((byte) 0x50).put((byte) flags).putShort((short) 65535).putInt(0).put(payload);
+		PacketInfo packetInfo = new PacketInfo("test", new TCPPacket(1600000000L, 0, ip.capacity(), 0, (byte) 6, 0, ip.array()));
+		packetInfo.setTimestamp(timestamp);
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
+
+	private List<PacketInfo> packetsAt(double... timestamps) {
+		List<PacketInfo> packets = new ArrayList<>();
+		for (double timestamp : timestamps) {
+			PacketInfo packetInfo = mock(PacketInfo.class);
+			when(packetInfo.getTimeStamp()).thenReturn(timestamp);
+			packets.add(packetInfo);
+		}
+		return packets;
+	}
+
+	private void writeBytes(File file, int length) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[length]);
+		}
+	}
+
 }
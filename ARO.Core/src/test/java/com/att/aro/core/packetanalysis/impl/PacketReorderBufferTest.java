@@ -0,0 +1,70 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetreader.pojo.Packet;
+
+public class PacketReorderBufferTest {
+
+	@Test
+	public void nearlyOrderedMatchesStableSort() {
+		Random random = new Random(3);
+		List<PacketInfo> packets = new ArrayList<>();
+		double time = 0;
+		for (int index = 0; index < 20000; index++) {
+			// ties, and packets up to 50 places late
+			time += random.nextInt(4) == 0 ? 0 : random.nextDouble();
+			double timeStamp = random.nextInt(10) == 0 ? time - random.nextDouble() * 50 : time;
+			packets.add(packet(index + 1, Math.floor(timeStamp * 4) / 4));
+		}
+
+		PacketReorderBuffer buffer = new PacketReorderBuffer(256);
+		for (PacketInfo packet : packets) {
+			buffer.add(packet);
+		}
+		List<PacketInfo> ordered = buffer.drain();
+
+		assertTrue(buffer.isOrdered());
+		assertEquals(stableSort(packets), ordered);
+	}
+
+	@Test
+	public void farOutOfPlaceIsSorted() {
+		List<PacketInfo> packets = new ArrayList<>();
+		for (int index = 0; index < 100; index++) {
+			packets.add(packet(index + 1, index == 90 ? 1.0 : index));
+		}
+
+		PacketReorderBuffer buffer = new PacketReorderBuffer(8);
+		for (PacketInfo packet : packets) {
+			buffer.add(packet);
+		}
+		List<PacketInfo> ordered = buffer.drain();
+
+		assertFalse(buffer.isOrdered());
+		assertEquals(stableSort(packets), ordered);
+	}
+
+	private List<PacketInfo> stableSort(List<PacketInfo> packets) {
+		List<PacketInfo> sorted = new ArrayList<>(packets);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	private PacketInfo packet(int packetId, double timeStamp) {
+		PacketInfo packetInfo = new PacketInfo(new Packet(0, 0, 0, 0, new byte[0]));
+		packetInfo.setTimestamp(timeStamp);
+		packetInfo.setPacketId(packetId);
+		return packetInfo;
+	}
+}
@@ -0,0 +1,71 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.att.aro.core.packetanalysis.pojo.HttpDirection;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+/**
+ * Parsing the request and response headers of {@link ParseHeaderLineDifferentialTest}, with {@link ParseHeaderLineImpl}
+ * and with the regular expressions it replaced. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseHeaderLineBenchmark {
+
+	private final ParseHeaderLineImpl parser = new ParseHeaderLineImpl();
+	private final ParseHeaderLineDifferentialTest.RegexParser regexParser = new ParseHeaderLineDifferentialTest.RegexParser();
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ParseHeaderLineBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	@Benchmark
+	public HttpRequestResponseInfo[] tokenizer() {
+		HttpRequestResponseInfo request = message(HttpDirection.REQUEST);
+		for (String line : ParseHeaderLineDifferentialTest.REQUEST_HEADERS) {
+			parser.parseHeaderLine(line + "\r\n", request);
+		}
+		HttpRequestResponseInfo response = message(HttpDirection.RESPONSE);
+		for (String line : ParseHeaderLineDifferentialTest.RESPONSE_HEADERS) {
+			parser.parseHeaderLine(line + "\r\n", response);
+		}
+		return new HttpRequestResponseInfo[] { request, response };
+	}
+
+	@Benchmark
+	public HttpRequestResponseInfo[] regularExpressions() {
+		HttpRequestResponseInfo request = message(HttpDirection.REQUEST);
+		for (String line : ParseHeaderLineDifferentialTest.REQUEST_HEADERS) {
+			regexParser.parseHeaderLine(line + "\r\n", request);
+		}
+		HttpRequestResponseInfo response = message(HttpDirection.RESPONSE);
+		for (String line : ParseHeaderLineDifferentialTest.RESPONSE_HEADERS) {
+			regexParser.parseHeaderLine(line + "\r\n", response);
+		}
+		return new HttpRequestResponseInfo[] { request, response };
+	}
+
+	private HttpRequestResponseInfo message(HttpDirection direction) {
+		HttpRequestResponseInfo rrInfo = new HttpRequestResponseInfo();
+		rrInfo.setDirection(direction);
+		return rrInfo;
+	}
+}
@@ -0,0 +1,396 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.att.aro.core.packetanalysis.pojo.HttpDirection;
+import com.att.aro.core.packetanalysis.pojo.HttpPattern;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+import com.att.aro.core.util.Util;
+
+/**
+ * Compares ParseHeaderLineImpl with the regular expression parser it replaced, field by field.
+ */
+public class ParseHeaderLineDifferentialTest {
+
+	static final String[] REQUEST_HEADERS = { "Host: www.example.com", "Host: api.example.com:8443", "host: cdn.example.net",
+			"User-Agent: Mozilla/5.0 (Linux; Android 10; SM-G973U) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/86.0.4240.198 Mobile Safari/537.36",
+			"Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8", "Accept-Encoding: gzip, deflate, br",
+			"Accept-Language: en-US,en;q=0.9", "Connection: keep-alive", "Cache-Control: max-age=0", "Cache-Control: no-cache, max-stale",
+			"Cache-Control: max-stale=30, min-fresh=10, only-if-cached", "Pragma: no-cache", "Referer: https://www.example.com/news/index.html?id=3",
+			"Referer: not a uri", "If-Modified-Since: Tue, 15 Nov 1994 08:12:31 GMT", "If-None-Match: \"xyzzy\"",
+			"Cookie: session=38afes7a8; theme=dark", "Content-Type: application/x-www-form-urlencoded; charset=UTF-8", "Content-Length: 229",
+			"Content-length: 2z9", "Upgrade-Insecure-Requests: 1", "X-Requested-With: XMLHttpRequest", "Range: bytes=0-1023" };
+
+	static final String[] RESPONSE_HEADERS = { "Date: Mon, 23 Nov 2020 18:34:12 GMT", "Server: nginx/1.18.0", "Content-Type: text/html; charset=utf-8",
+			"Content-Type: image/jpeg", "content-type: application/json;charset=ISO-8859-1; boundary=x", "Content-Length: 52",
+			"Content-Length: 99999999999", "Transfer-Encoding: chunked", "transfer-encoding: gzip, chunked", "Content-Encoding: GZIP",
+			"Cache-Control: public, max-age=31536000, s-maxage=600", "Cache-Control: private, no-store, must-revalidate, proxy-revalidate",
+			"Cache-Control: max-age = 60 ,no-cache", "Pragma : no-cache", "ETag: \"33a64df551425fcc55e4d42a148795d9f25f89d4\"", "ETag: W/\"0815\"",
+			"Etag : \"a\"b\"", "ETag: \"unterminated", "Age: 24", "Age: ", "Age : 7x", "Expires: Thu, 01 Dec 1994 16:00:00 GMT", "Expires: 0",
+			"Last-Modified: Wed, 21 Oct 2015 07:28:00 GMT", "Content-Range: bytes 0-1023/146515", "Content-Range: bytes 21010-47021/47022",
+			"Content-Range : bytes 1 - 3000000000 / 4000000000", "Content-Range: bytes */1234", "Vary: Accept-Encoding",
+			"Strict-Transport-Security: max-age=63072000", "Set-Cookie: id=a3fWa; Expires=Thu, 21 Oct 2021 07:28:00 GMT", "Connection: close",
+			"Access-Control-Allow-Origin: *", "X-Cache: HIT from cdn" };
+
+	private static final List<Class<?>> VALUE_TYPES = Arrays.asList(boolean.class, int.class, long.class, double.class, Long.class,
+			String.class, Date.class, URI.class, HttpDirection.class);
+
+	private static final String[] SUFFIXES = { "", "\r\n", "\n", " \r\n", "\u2028tail\r\n" };
+
+	@Test
+	public void sameAsRegularExpressions() throws ReflectiveOperationException {
+		Random random = new Random(11);
+		List<String> lines = new ArrayList<>();
+		lines.addAll(Arrays.asList(REQUEST_HEADERS));
+		lines.addAll(Arrays.asList(RESPONSE_HEADERS));
+		lines.add("");
+		lines.add("GET / HTTP/1.1");
+		lines.add("HTTP/1.1 200 OK");
+
+		int compared = 0;
+		for (HttpDirection direction : new HttpDirection[] { HttpDirection.REQUEST, HttpDirection.RESPONSE, null }) {
+			for (int message = 0; message < 300; message++) {
+				HttpRequestResponseInfo expected = new HttpRequestResponseInfo();
+				HttpRequestResponseInfo actual = new HttpRequestResponseInfo();
+				expected.setDirection(direction);
+				actual.setDirection(direction);
+				RegexParser regexParser = new RegexParser();
+				ParseHeaderLineImpl parser = new ParseHeaderLineImpl();
+				for (int header = random.nextInt(20); header > 0; header--) {
+					String line = mutate(lines.get(random.nextInt(lines.size())), random) + SUFFIXES[random.nextInt(SUFFIXES.length)];
+					Class<?> expectedFailure = parse(regexParser, line, expected);
+					Class<?> actualFailure = parse(parser, line, actual);
+					assertEquals(line, expectedFailure, actualFailure);
+					assertSameFields(line, expected, actual);
+					compared++;
+				}
+			}
+		}
+		assertTrue(compared > 1000);
+	}
+
+	private Class<?> parse(Object parser, String line, HttpRequestResponseInfo rrInfo) {
+		try {
+			if (parser instanceof RegexParser) {
+				((RegexParser) parser).parseHeaderLine(line, rrInfo);
+			} else {
+				((ParseHeaderLineImpl) parser).parseHeaderLine(line, rrInfo);
+			}
+			return null;
+		} catch (RuntimeException e) {
+			return e.getClass();
+		}
+	}
+
+	private String mutate(String line, Random random) {
+		switch (random.nextInt(6)) {
+		case 0:
+			// flip the case of one character
+			int index = random.nextInt(Math.max(1, line.length()));
+			if (line.isEmpty()) {
+				return line;
+			}
+			char character = line.charAt(index);
+			char flipped = Character.isUpperCase(character) ? Character.toLowerCase(character) : Character.toUpperCase(character);
+			return line.substring(0, index) + flipped + line.substring(index + 1);
+		case 1:
+			// white space around the colon
+			return line.replaceFirst(":", random.nextBoolean() ? " :" : ":\t ");
+		default:
+			return line;
+		}
+	}
+
+	private void assertSameFields(String line, HttpRequestResponseInfo expected, HttpRequestResponseInfo actual) throws IllegalAccessException {
+		for (Field field : HttpRequestResponseInfo.class.getDeclaredFields()) {
+			// the parser only sets values, not the buffers and links to other objects
+			if (Modifier.isStatic(field.getModifiers()) || !VALUE_TYPES.contains(field.getType())) {
+				continue;
+			}
+			field.setAccessible(true);
+			assertTrue(line + " " + field.getName(), Objects.deepEquals(field.get(expected), field.get(actual)));
+		}
+	}
+
+	/**
+	 * The parser as it was before, one regular expression per header
+	 */
+	static class RegexParser {
+
+		private static final Logger LOGGER = LogManager.getLogger(RegexParser.class.getName());
+
+		private static final String CHARSET = "charset";
+		private static final String CHUNKED = "chunked";
+		private static final String NOCACHE = "no-cache";
+		private static final String NOSTORE = "no-store";
+		private static final String PUBLIC = "public";
+		private static final String PRIVATE = "private";
+		private static final String MUSTREVALIDATE = "must-revalidate";
+		private static final String PROXYREVALIDATE = "proxy-revalidate";
+		private static final String ONLYIFCACHED = "only-if-cached";
+
+		public void parseHeaderLine(String headerLine, HttpRequestResponseInfo rrInfo) {
+
+			append(headerLine, rrInfo);
+
+			Matcher matcher;
+			String[] str;
+
+			// Get request host "[H|h]ost:"
+			matcher = HttpPattern.strReRequestHost.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				String hostName = headerLine.substring(matcher.end()).trim();
+
+				// Strip port info if included
+				int index = hostName.indexOf(':');
+				if (index >= 0) {
+					hostName = hostName.substring(0, index);
+				}
+				rrInfo.setHostName(hostName);
+				return;
+			}
+
+			// Get request content length "[C|c]ontent-[L|l]ength:"
+			matcher = HttpPattern.strReResponseContentLength.matcher(headerLine);
+			if (matcher.lookingAt() && rrInfo.getContentLength() == 0) {
+				try {
+					rrInfo.setContentLength(Integer.parseInt(headerLine.substring(matcher.end()).trim()));
+				} catch (NumberFormatException e) {
+					/*
+					 * The value exceeds the Interger.MAX_VALUE i.e
+					 * 2^31-1=2147483647
+					 */
+					LOGGER.info("Cannot parse the string to int for contentLength,because" + " The value to parse is :" + (headerLine.substring(matcher.end()).trim())
+							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+				}
+
+				return;
+			}
+
+			// Get request transfer encoding "[T|t]ransfer-[E|e]ncoding:"
+			matcher = HttpPattern.strReTransferEncoding.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				rrInfo.setChunked(CHUNKED.equals(headerLine.substring(matcher.end()).trim()));
+				return;
+			}
+
+			// Get request transfer encoding
+			matcher = HttpPattern.strReResponseContentEncoding.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				rrInfo.setContentEncoding(headerLine.substring(matcher.end()).trim().toLowerCase());
+				return;
+			}
+
+			// Get content type
+			matcher = HttpPattern.strReResponseContentType.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				str = headerLine.substring(matcher.end()).trim().split(";");
+				rrInfo.setContentType(str[0].trim().toLowerCase());
+				for (int i = 1; i < str.length; ++i) {
+					int index = str[i].indexOf('=');
+					if (index >= 0) {
+						String attr = str[i].substring(0, index).trim();
+						if (CHARSET.equals(attr)) {
+							rrInfo.setCharset(str[i].substring(index+1).trim());
+						}
+					}
+				}
+				return;
+			}
+
+			// Date
+			matcher = HttpPattern.strReResponseDate.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				rrInfo.setDate(Util.readHttpDate(matcher.group(1), false));
+				return;
+			}
+
+			// Pragma: no-cache
+			matcher = HttpPattern.strReResponsePragmaNoCache.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				rrInfo.setHasCacheHeaders(true);
+				rrInfo.setPragmaNoCache(true);
+				return;
+			}
+
+			// Cache-Control
+			matcher = HttpPattern.strReResponseCacheControl.matcher(headerLine);
+			if (matcher.lookingAt()) {
+				str = matcher.group(1).split(",");
+				if (str.length > 0) {
+					rrInfo.setHasCacheHeaders(true);
+				}
+				for (int i = 0; i < str.length; ++i) {
+					String directive = str[i].trim();
+					if (NOCACHE.equals(directive)) {
+						rrInfo.setNoCache(true);
+						continue;
+					} else if (NOSTORE.equals(directive)) {
+						rrInfo.setNoStore(true);
+						continue;
+					}
+
+					// max-age
+					matcher = HttpPattern.strReCacheMaxAge.matcher(directive);
+					if (matcher.lookingAt()) {
+						rrInfo.setMaxAge(Long.valueOf(matcher.group(1)));
+						continue;
+					}
+
+					if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+						if (ONLYIFCACHED.equals(directive)) { // only-if-cached
+							rrInfo.setOnlyIfCached(true);
+							continue;
+						}
+
+						// min-fresh
+						matcher = HttpPattern.strReCacheMinFresh.matcher(directive);
+						if (matcher.lookingAt()) {
+							rrInfo.setMinFresh(Long.valueOf(matcher.group(1)));
+							continue;
+						}
+
+						// max-stale
+						matcher = HttpPattern.strReCacheMaxStale.matcher(directive);
+						if (matcher.lookingAt()) {
+							rrInfo.setMaxStale(matcher.group(1) != null ? Long.valueOf(matcher.group(1)) : Long.MAX_VALUE);
+							continue;
+						}
+
+					} else if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+						if (PUBLIC.equals(directive)) {
+							rrInfo.setPublicCache(true);
+							continue;
+						} else if (PRIVATE.equals(directive)) {
+							rrInfo.setPrivateCache(true);
+							continue;
+						} else if (MUSTREVALIDATE.equals(directive)) {
+							rrInfo.setMustRevalidate(true);
+							continue;
+						} else if (PROXYREVALIDATE.equals(directive)) {
+							rrInfo.setProxyRevalidate(true);
+							continue;
+						}
+
+						// s-maxage
+						matcher = HttpPattern.strReCacheSMaxAge.matcher(directive);
+						if (matcher.lookingAt()) {
+							rrInfo.setsMaxAge(Long.valueOf(matcher.group(1)));
+							continue;
+						}
+
+					}
+				}
+				return;
+			}
+
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+
+				// ETag
+				matcher = HttpPattern.strReResponseEtag.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setEtag(matcher.group(2));
+					return;
+				}
+
+				// Age
+				matcher = HttpPattern.strReResponseAge.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					String age = matcher.group(1);
+					if (StringUtils.isNotBlank(age) && StringUtils.isNumeric(age)) {
+						rrInfo.setAge(Long.valueOf(matcher.group(1)));
+					}
+
+					return;
+				}
+
+				// Expires
+				matcher = HttpPattern.strReResponseExpires.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setExpires(Util.readHttpDate(matcher.group(1), true));
+					return;
+				}
+
+				// Last modified
+				matcher = HttpPattern.strReResponseLastMod.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setLastModified(Util.readHttpDate(matcher.group(1), false));
+					return;
+				}
+
+				// Content-Range
+				matcher = HttpPattern.strReContentRange.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setRangeResponse(true);
+					rrInfo.setRangeFirst(Integer.parseInt(matcher.group(1)));
+					try {
+						rrInfo.setRangeLast(Integer.parseInt(matcher.group(2)));
+					} catch (NumberFormatException e) {
+						/*
+						 * The value exceeds the Interger.MAX_VALUE i.e
+						 * 2^31-1=2147483647. Continue.
+						 */
+						LOGGER.info("Cannot parse the string to int for rangeLast,because" + " The value to parse is :" + matcher.group(2)
+								+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+
+					}
+					rrInfo.setRangeFull(Long.parseLong(matcher.group(3)));
+
+					if (rrInfo.getContentLength() == 0) {
+						rrInfo.setContentLength(rrInfo.getRangeLast() - rrInfo.getRangeFirst() + 1);
+					}
+					return;
+				}
+
+			} else if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+
+				// Referer
+				matcher = HttpPattern.strReResponseReferer.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					try {
+						rrInfo.setReferrer(new URI(matcher.group(1).trim()));
+					} catch (URISyntaxException e) {
+						LOGGER.warn("Invalid referrer URI: " + matcher.group(1));
+					}
+					return;
+				}
+
+				// If-Modified-Since
+				matcher = HttpPattern.strReIfModifiedSince.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setIfModifiedSince(true);
+					return;
+				}
+
+				// If-None-Match
+				matcher = HttpPattern.strReIfNoneMatch.matcher(headerLine);
+				if (matcher.lookingAt()) {
+					rrInfo.setIfNoneMatch(true);
+					return;
+				}
+			}
+		}
+
+		private void append(String line, HttpRequestResponseInfo rrInfo) {
+			rrInfo.setAllHeaders((rrInfo.getAllHeaders() == null ? "" : rrInfo.getAllHeaders()) + " " + line);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.att.aro.core.configuration.pojo.Profile3G;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+
+/**
+ * 3G state machine simulation over growing synthetic traces of trickling traffic that keeps the
+ * radio on FACH and repeatedly takes the late FACH to DCH promotion path. Time per packet should
+ * stay flat as the trace grows. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RrcStateRange3GBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	private int packetCount;
+
+	private List<PacketInfo> packets;
+	private Profile3G profile;
+	private double traceDuration;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(RrcStateRange3GBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	@Setup
+	public void setup() {
+		// values of the inspire device profile
+		profile = new Profile3G();
+		profile.setDchFachTimer(4);
+		profile.setFachIdleTimer(10);
+		profile.setIdleDchPromoMin(1.5);
+		profile.setIdleDchPromoAvg(2.0);
+		profile.setIdleDchPromoMax(4.0);
+		profile.setFachDchPromoMin(0.8);
+		profile.setFachDchPromoAvg(1.5);
+		profile.setFachDchPromoMax(3.0);
+		profile.setRlcUlTh(543);
+		profile.setRlcDlTh(475);
+		profile.setDchTimerResetSize(320);
+		profile.setDchTimerResetWin(0.3);
+		profile.setRlcUlRateP2(0.0014);
+		profile.setRlcUlRateP1(1.6);
+		profile.setRlcUlRateP0(20.0);
+		profile.setRlcDlRateP2(0);
+		profile.setRlcDlRateP1(0.1);
+		profile.setRlcDlRateP0(10);
+
+		Random random = new Random(42);
+		packets = new ArrayList<>(packetCount);
+		double time = 1;
+		for (int index = 0; index < packetCount; index++) {
+			// mostly small packets a few hundred milliseconds apart, with the odd large downlink one
+			time += random.nextDouble() * 0.5;
+			boolean large = random.nextInt(20) == 0;
+			int len = large ? 1400 : 40 + random.nextInt(100);
+			long seconds = (long) time;
+			PacketInfo packet = new PacketInfo(new Packet(seconds, (long) ((time - seconds) * 1e6), len, 0, new byte[0]));
+			packet.setDir(large || random.nextBoolean() ? PacketDirection.DOWNLINK : PacketDirection.UPLINK);
+			packets.add(packet);
+		}
+		traceDuration = time + 20;
+	}
+
+	@Benchmark
+	public List<RrcStateRange> create3G() {
+		return new RrcStateRangeFactoryImpl().create(packets, profile, traceDuration);
+	}
+}
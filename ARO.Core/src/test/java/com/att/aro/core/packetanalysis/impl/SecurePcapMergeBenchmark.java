@@ -0,0 +1,100 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+
+/**
+ * Compares the former linear scan merge of secure pcap packets with the indexed merge in
+ * {@link TraceDataReaderImpl}. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SecurePcapMergeBenchmark {
+
+	@Param({ "1000", "10000" })
+	private int packetCount;
+
+	private List<PacketInfo> allPackets;
+	private List<Packet> securePackets;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SecurePcapMergeBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		allPackets = new ArrayList<>(packetCount);
+		securePackets = new ArrayList<>(packetCount / 2);
+		for (int i = 0; i < packetCount; i++) {
+			allPackets.add(new PacketInfo(tcpPacket(i, i, 100)));
+			if (i % 2 == 0) {
+				securePackets.add(tcpPacket(i, i, 160));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<PacketInfo> linearMerge() {
+		for (Packet packet : securePackets) {
+			TCPPacket ipPacket = (TCPPacket) packet;
+			for (PacketInfo info : allPackets) {
+				TCPPacket tcpPacket = (TCPPacket) info.getPacket();
+				if (ipPacket.getDestinationIPAddress().equals(tcpPacket.getDestinationIPAddress())
+						&& ipPacket.getSourceIPAddress().equals(tcpPacket.getSourceIPAddress())
+						&& ipPacket.getSequenceNumber() == tcpPacket.getSequenceNumber()
+						&& ipPacket.getAckNumber() == tcpPacket.getAckNumber() && packet.getData().length > 66) {
+					tcpPacket.setDecrypted(true);
+					tcpPacket.setData(Arrays.copyOfRange(packet.getData(), 66, packet.getData().length));
+				}
+			}
+		}
+		return allPackets;
+	}
+
+	@Benchmark
+	public List<PacketInfo> indexedMerge() {
+		TraceDataReaderImpl reader = new TraceDataReaderImpl();
+		ReflectionTestUtils.setField(reader, "allPackets", allPackets);
+		reader.buildTcpPacketIndex();
+		for (Packet packet : securePackets) {
+			reader.updatePacket(packet);
+		}
+		return allPackets;
+	}
+
+	private static TCPPacket tcpPacket(int seq, int ack, int payloadLength) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + payloadLength);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 8080).putShort((short) 443).putInt(seq).putInt(ack).put((byte) 0x50).put((byte) 0x18).putShort((short) 65535).putInt(0);
+		return new TCPPacket(1600000000L, 0, ip.capacity(), 0, (byte) 6, 0, ip.array());
+	}
+}
@@ -7,6 +7,8 @@ import static org.junit.Assert.assertEquals;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -21,6 +23,7 @@ import org.mockito.MockitoAnnotations;
 
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.TcpInfo;
@@ -621,4 +624,188 @@ public class SessionManagerImplTest extends BaseTest{
 		SessionManagerImpl mgrImpl = (SessionManagerImpl)sessionMgr;
 		mgrImpl.parse(session, packetList, nPass);
 	}*/
+
+	@Test
+	public void processPacketsAndAssembleSessions_manySessions() throws UnknownHostException {
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		InetAddress server = InetAddress.getByName("192.168.0.2");
+		int sessionCount = 200;
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		for (int index = 0; index < sessionCount; index++) {
+			int port = 40000 + index;
+			byte[] request = ("GET /object" + index + " HTTP/1.1\r\nHost: example.com\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+			byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII);
+			packets.add(packetInfo(packets.size(), client, port, server, 80, 1000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+			packets.add(packetInfo(packets.size(), server, 80, client, port, 5000, 1001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+			packets.add(packetInfo(packets.size(), client, port, server, 80, 1001, 5001, 0x18, request, PacketDirection.UPLINK));
+			packets.add(packetInfo(packets.size(), server, 80, client, port, 5001, 1001 + request.length, 0x18, response, PacketDirection.DOWNLINK));
+		}
+
+		List<Session> sessions = sessionMgr.processPacketsAndAssembleSessions(packets);
+
+		assertEquals(sessionCount, sessions.size());
+		for (int index = 0; index < sessionCount; index++) {
+			Session session = sessions.get(index);
+			assertEquals(40000 + index, session.getLocalPort());
+			List<HttpRequestResponseInfo> rrInfos = session.getRequestResponseInfo();
+			assertEquals(2, rrInfos.size());
+			assertEquals("/object" + index, rrInfos.get(0).getObjName());
+			assertEquals(200, rrInfos.get(1).getStatusCode());
+		}
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_responseHeaderSplitAcrossTwoPackets() throws UnknownHostException {
+		List<HttpRequestResponseInfo> rrInfos = requestResponses(
+				"HTTP/1.1 200 OK\r\nContent-Le",
+				"ngth: 2\r\n\r\nok");
+
+		assertEquals(2, rrInfos.size());
+		assertEquals(200, rrInfos.get(1).getStatusCode());
+		assertEquals(2, rrInfos.get(1).getContentLength());
+		assertEquals("ok", rrInfos.get(1).getPayloadData().toString());
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_responseHeaderSplitAcrossThreePackets() throws UnknownHostException {
+		List<HttpRequestResponseInfo> rrInfos = requestResponses(
+				"HTTP/1.1 200 OK\r\nCont",
+				"ent-Type: text/plain\r\nContent-Le",
+				"ngth: 2\r\n\r\nok");
+
+		assertEquals(2, rrInfos.size());
+		assertEquals(200, rrInfos.get(1).getStatusCode());
+		assertEquals("text/plain", rrInfos.get(1).getContentType());
+		assertEquals(2, rrInfos.get(1).getContentLength());
+		assertEquals("ok", rrInfos.get(1).getPayloadData().toString());
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_leftoverCarriedIntoNextPacket() throws UnknownHostException {
+		// the second packet ends the first body and starts the next response
+		List<HttpRequestResponseInfo> rrInfos = requestResponses(
+				"HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\nok",
+				"okHTTP/1.1 404 Not Found\r\nContent-Length: 3\r\n\r\n",
+				"abc");
+
+		assertEquals(3, rrInfos.size());
+		assertEquals("okok", rrInfos.get(1).getPayloadData().toString());
+		assertEquals(404, rrInfos.get(2).getStatusCode());
+		assertEquals("abc", rrInfos.get(2).getPayloadData().toString());
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_leftoverHeaderCarriedIntoNextPacket() throws UnknownHostException {
+		// the leftover is itself only the start of a header
+		List<HttpRequestResponseInfo> rrInfos = requestResponses(
+				"HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\nok",
+				"okHTTP/1.1 404 Not Found\r\nConte",
+				"nt-Length: 3\r\n\r\nabc");
+
+		assertEquals(3, rrInfos.size());
+		assertEquals("okok", rrInfos.get(1).getPayloadData().toString());
+		assertEquals(404, rrInfos.get(2).getStatusCode());
+		assertEquals(3, rrInfos.get(2).getContentLength());
+		assertEquals("abc", rrInfos.get(2).getPayloadData().toString());
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_headerAfterCompleteResponseCarriedIntoNextPacket() throws UnknownHostException {
+		// only the start of the next response is carried, the complete one is not read again
+		List<HttpRequestResponseInfo> rrInfos = requestResponses(
+				"HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nokHTTP/1.1 404 Not",
+				" Found\r\nContent-Length: 3\r\n\r\nabc");
+
+		assertEquals(3, rrInfos.size());
+		assertEquals(200, rrInfos.get(1).getStatusCode());
+		assertEquals("ok", rrInfos.get(1).getPayloadData().toString());
+		assertEquals(404, rrInfos.get(2).getStatusCode());
+		assertEquals("abc", rrInfos.get(2).getPayloadData().toString());
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_recordedSessions() throws UnknownHostException {
+		List<Session> expected = sessionMgr.processPacketsAndAssembleSessions(reusedPortPackets());
+		List<PacketInfo> packets = reusedPortPackets();
+		int[] packetSessions = new int[packets.size()];
+		for (int index = 0; index < expected.size(); index++) {
+			for (PacketInfo packetInfo : expected.get(index).getAllPackets()) {
+				packetSessions[(int) packetInfo.getPacket().getSeconds() - 1600000000] = index;
+			}
+		}
+
+		List<Session> sessions = sessionMgr.processPacketsAndAssembleSessions(packets, packetSessions);
+
+		assertEquals(3, sessions.size());
+		for (int index = 0; index < expected.size(); index++) {
+			assertEquals(expected.get(index).getSessionKey(), sessions.get(index).getSessionKey());
+			assertEquals(expected.get(index).getAllPackets().size(), sessions.get(index).getAllPackets().size());
+			assertEquals(expected.get(index).getRequestResponseInfo().size(), sessions.get(index).getRequestResponseInfo().size());
+		}
+		assertEquals(packets.get(0), sessions.get(0).getAllPackets().get(0));
+		assertEquals(packets.get(4), sessions.get(2).getAllPackets().get(0));
+	}
+
+	@Test
+	public void processPacketsAndAssembleSessions_unrecordedPacket() throws UnknownHostException {
+		List<PacketInfo> packets = reusedPortPackets();
+		int[] packetSessions = new int[packets.size()];
+		packetSessions[2] = -1;
+
+		// the recording does not fit the packets, the flows are looked up instead
+		assertEquals(3, sessionMgr.processPacketsAndAssembleSessions(packets, packetSessions).size());
+	}
+
+	/**
+	 * Two connections from the same port, the second opened by a new SYN, and one from another port
+	 */
+	private List<PacketInfo> reusedPortPackets() throws UnknownHostException {
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		InetAddress server = InetAddress.getByName("192.168.0.2");
+		byte[] request = "GET /object HTTP/1.1\r\nHost: example.com\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 1000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(packets.size(), server, 80, client, 40000, 5000, 1001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 1001, 5001, 0x18, request, PacketDirection.UPLINK));
+		packets.add(packetInfo(packets.size(), client, 40001, server, 80, 3000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 9000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(packets.size(), server, 80, client, 40000, 7000, 9001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 9001, 7001, 0x18, request, PacketDirection.UPLINK));
+		return packets;
+	}
+
+	/**
+	 * Request/responses of a single session, a request followed by the response segments in separate packets
+	 */
+	private List<HttpRequestResponseInfo> requestResponses(String... responseSegments) throws UnknownHostException {
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		InetAddress server = InetAddress.getByName("192.168.0.2");
+		byte[] request = "GET /object HTTP/1.1\r\nHost: example.com\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 1000, 0, 0x02, new byte[0], PacketDirection.UPLINK));
+		packets.add(packetInfo(packets.size(), server, 80, client, 40000, 5000, 1001, 0x12, new byte[0], PacketDirection.DOWNLINK));
+		packets.add(packetInfo(packets.size(), client, 40000, server, 80, 1001, 5001, 0x18, request, PacketDirection.UPLINK));
+		int seq = 5001;
+		for (String segment : responseSegments) {
+			byte[] payload = segment.getBytes(StandardCharsets.US_ASCII);
+			packets.add(packetInfo(packets.size(), server, 80, client, 40000, seq, 1001 + request.length, 0x18, payload, PacketDirection.DOWNLINK));
+			seq += payload.length;
+		}
+
+		List<Session> sessions = sessionMgr.processPacketsAndAssembleSessions(packets);
+		assertEquals(1, sessions.size());
+		return sessions.get(0).getRequestResponseInfo();
+	}
+
+	private PacketInfo packetInfo(int packetNumber, InetAddress source, int sourcePort, InetAddress destination, int destinationPort,
+			int seq, int ack, int flags, byte[] payload, PacketDirection direction) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + payload.length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(source.getAddress()).put(destination.getAddress());
+		ip.putShort((short) sourcePort).putShort((short) destinationPort).putInt(seq).putInt(ack);
+		ip.put((byte) 0x50).put((byte) flags).putShort((short) 65535).putInt(0).put(payload);
+		PacketInfo packetInfo = new PacketInfo(new TCPPacket(1600000000L + packetNumber, 0, ip.capacity(), 0, (byte) 6, 0, ip.array()));
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
 }
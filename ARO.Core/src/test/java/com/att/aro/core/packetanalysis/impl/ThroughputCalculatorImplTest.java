@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -15,6 +16,7 @@ import com.att.aro.core.BaseTest;
 import com.att.aro.core.packetanalysis.IThroughputCalculator;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.Throughput;
+import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 
 public class ThroughputCalculatorImplTest extends BaseTest{
@@ -117,6 +119,82 @@ public class ThroughputCalculatorImplTest extends BaseTest{
 		 assertEquals(2,testResult.size());
 	 }
 
-	 
+	 @Test
+	 public void calculateThroughput_matchesWindowScan(){
+		 Random random = new Random(7);
+		 PacketDirection[] directions = { PacketDirection.UPLINK, PacketDirection.DOWNLINK, PacketDirection.UNKNOWN, null };
+		 List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		 double time = 0;
+		 for (int index = 0; index < 2000; index++) {
+			 time += random.nextInt(4) == 0 ? 0 : random.nextDouble() * 0.2;
+			 PacketInfo packet = new PacketInfo(new Packet(0, 0, 40 + random.nextInt(1460), 14, new byte[0]));
+			 packet.setTimestamp(time);
+			 packet.setDir(directions[random.nextInt(directions.length)]);
+			 packets.add(packet);
+		 }
+		 double[][] ranges = { { 0, time }, { 0, time + 5 }, { 10.5, 20 }, { 40, 40.3 }, { time + 1, time + 3 }, { 30, 31 } };
+		 double[] windows = { 0.1, 0.5, 1, 2.5, 10 };
+		 for (double[] range : ranges) {
+			 for (double window : windows) {
+				 List<Throughput> expected = windowScan(range[0], range[1], window, packets);
+				 List<Throughput> actual = throughputCalculator.calculateThroughput(range[0], range[1], window, packets);
+				 assertEquals(expected.size(), actual.size());
+				 for (int index = 0; index < expected.size(); index++) {
+					 assertEquals(expected.get(index).getTime(), actual.get(index).getTime(), 0);
+					 assertEquals(expected.get(index).getSamplePeriod(), actual.get(index).getSamplePeriod(), 0);
+					 assertEquals(expected.get(index).getUploadKbps(), actual.get(index).getUploadKbps(), 0);
+					 assertEquals(expected.get(index).getDownloadKbps(), actual.get(index).getDownloadKbps(), 0);
+				 }
+			 }
+		 }
+	 }
 
+	 /**
+	  * The former calculation, building a packet list for every window.
+	  */
+	 private List<Throughput> windowScan(double startTime, double endTime, double window, List<PacketInfo> packets) {
+		 List<Throughput> result = new ArrayList<Throughput>();
+		 List<PacketInfo> split = new ArrayList<>();
+		 double splitStart = startTime;
+		 double splitEnd = startTime + window;
+		 for (PacketInfo packet : packets) {
+			 double stamp = packet.getTimeStamp();
+			 if (stamp < startTime) {
+				 continue;
+			 } else if (stamp >= endTime) {
+				 result.add(windowThroughput(splitStart, splitEnd, split));
+				 break;
+			 } else if (stamp >= splitEnd) {
+				 while (stamp >= splitEnd) {
+					 result.add(windowThroughput(splitStart, splitEnd, split));
+					 splitStart = splitEnd;
+					 splitEnd = splitStart + window;
+					 split = new ArrayList<>();
+				 }
+				 split.add(packet);
+			 } else if (stamp >= splitStart) {
+				 split.add(packet);
+			 }
+		 }
+		 do {
+			 result.add(windowThroughput(splitStart, splitEnd, split));
+			 splitStart = splitEnd;
+			 splitEnd = splitStart + window;
+			 split = new ArrayList<>();
+		 } while (endTime >= splitStart);
+		 return result;
+	 }
+
+	 private Throughput windowThroughput(double startTime, double endTime, List<PacketInfo> packets) {
+		 long up = 0;
+		 long down = 0;
+		 for (PacketInfo packet : packets) {
+			 if (packet.getDir() == PacketDirection.UPLINK) {
+				 up += packet.getLen();
+			 } else if (packet.getDir() != null && packet.getDir() != PacketDirection.UNKNOWN) {
+				 down += packet.getLen();
+			 }
+		 }
+		 return new Throughput(startTime, endTime, up, down);
+	 }
 }
@@ -1,7 +1,12 @@
 package com.att.aro.core.packetanalysis.impl;
 
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -9,7 +14,9 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -24,16 +31,21 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.att.aro.core.BaseTest;
+import com.att.aro.core.exception.PacketReadAbortedException;
 import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.packetanalysis.ITraceDataReader;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.ScheduledAlarmInfo;
 import com.att.aro.core.packetanalysis.pojo.TraceDirectoryResult;
 import com.att.aro.core.packetanalysis.pojo.TraceFileResult;
 import com.att.aro.core.packetreader.IPacketListener;
 import com.att.aro.core.packetreader.IPacketReader;
 import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.peripheral.IAlarmAnalysisInfoParser;
 import com.att.aro.core.peripheral.IAppInfoReader;
 import com.att.aro.core.peripheral.ICollectOptionsReader;
@@ -137,6 +149,38 @@ public class TraceDataReaderImplTest extends BaseTest {
 		assertSame(0,result.getAllpackets().size());
 	}
 
+	@Test
+	public void readTraceFile_stopsDecodingWhenTaggingFails() throws IOException {
+		traceDataReaderImpl.setFileReader(filereader);
+		Packet broken = mock(Packet.class);
+		when(broken.getTimeStamp()).thenThrow(new IllegalStateException("broken packet"));
+		int[] arrived = new int[1];
+		// a reader decoding a large file, it stops when the listener aborts
+		Mockito.doAnswer(invocation -> {
+			IPacketListener listener = (IPacketListener) invocation.getArguments()[1];
+			try {
+				for (; arrived[0] < 10000000; arrived[0]++) {
+					listener.packetArrived(null, broken);
+				}
+			} catch (PacketReadAbortedException e) {
+				// stopped reading
+			}
+			return null;
+		}).when(packetreader).readPacket(any(String.class), any(IPacketListener.class));
+		when(filereader.fileExist(any(String.class))).thenReturn(true);
+		when(filereader.getDirectory(any(String.class))).thenReturn(Util.getCurrentRunningDir());
+		when(filereader.getLastModified(any(String.class))).thenReturn(new Date().getTime());
+
+		try {
+			traceDataReaderImpl.readTraceFile(Util.getCurrentRunningDir() + Util.FILE_SEPARATOR + "traffic.cap");
+			fail("tagging failure not reported");
+		} catch (IllegalStateException e) {
+			assertEquals("broken packet", e.getMessage());
+		}
+		// the first batch fails, at most the batches queued meanwhile are decoded
+		assertTrue(String.valueOf(arrived[0]), arrived[0] < 100000);
+	}
+
 	@Test
 	public void readTraceDir_()throws IOException{
 		String[] time = {"1410212153 1410213352","272927100","1410213352.550"};
@@ -281,4 +325,41 @@ public class TraceDataReaderImplTest extends BaseTest {
 		assertSame(0,result.getAppIds().size());
 	}
 	
+	@Test
+	public void updatePacket_mergesDecryptedPayload() {
+		TraceDataReaderImpl reader = new TraceDataReaderImpl();
+		List<PacketInfo> allPackets = new ArrayList<PacketInfo>();
+		TCPPacket original = tcpPacket(1000, 1, new byte[10]);
+		TCPPacket retransmit = tcpPacket(1000, 1, new byte[10]);
+		TCPPacket other = tcpPacket(2000, 1, new byte[10]);
+		allPackets.add(new PacketInfo(original));
+		allPackets.add(new PacketInfo(other));
+		allPackets.add(new PacketInfo(retransmit));
+		ReflectionTestUtils.setField(reader, "allPackets", allPackets);
+
+		byte[] decrypted = new byte[100];
+		for (int i = 0; i < decrypted.length; i++) {
+			decrypted[i] = (byte) i;
+		}
+		TCPPacket secure = tcpPacket(1000, 1, decrypted);
+		reader.buildTcpPacketIndex();
+		reader.updatePacket(secure);
+
+		byte[] expected = Arrays.copyOfRange(secure.getData(), 66, secure.getData().length);
+		assertTrue(original.isDecrypted());
+		assertTrue(retransmit.isDecrypted());
+		assertArrayEquals(expected, original.getData());
+		assertArrayEquals(expected, retransmit.getData());
+		assertFalse(other.isDecrypted());
+		assertSame(50, other.getData().length);
+	}
+
+	private TCPPacket tcpPacket(int seq, int ack, byte[] payload) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + payload.length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) (40 + payload.length)).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 8080).putShort((short) 443).putInt(seq).putInt(ack).put((byte) 0x50).put((byte) 0x18).putShort((short) 65535).putInt(0);
+		ip.put(payload);
+		return new TCPPacket(1600000000L, 0, ip.capacity(), 0, (byte) 6, 0, ip.array());
+	}
 }
@@ -0,0 +1,160 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+public class TracePacketCacheImplTest extends BaseTest {
+
+	private static final short IPV4 = 0x0800;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TracePacketCacheImpl packetCache;
+	private IPacketService packetService;
+	private File traceFolder;
+
+	@Before
+	public void setup() throws IOException {
+		packetService = context.getBean(IPacketService.class);
+		packetCache = new TracePacketCacheImpl();
+		ReflectionTestUtils.setField(packetCache, "packetService", packetService);
+		packetCache.setCacheDirectory(folder.newFolder("cache").getAbsolutePath());
+		traceFolder = folder.newFolder("trace");
+		writeBytes(new File(traceFolder, "traffic.cap"), 100);
+	}
+
+	@Test
+	public void writeAndReadPackets() {
+		List<Packet> packets = new ArrayList<>();
+		List<byte[]> packetData = new ArrayList<>();
+		byte[] tcpData = tcpPacket();
+		packets.add(packetService.createPacket(IPV4, 1600000000L, 123456, tcpData.length, 0, tcpData));
+		packetData.add(tcpData);
+		byte[] udpData = udpPacket();
+		packets.add(packetService.createPacket(IPV4, 1600000001L, 654321, udpData.length, 0, udpData));
+		packetData.add(udpData);
+		TCPPacket decrypted = (TCPPacket) packets.get(0);
+		decrypted.setDecrypted(true);
+		decrypted.setData(new byte[] { 1, 2, 3 });
+
+		packetCache.writePackets(traceFolder.getAbsolutePath(), packets, packetData);
+		List<Packet> cached = packetCache.readPackets(traceFolder.getAbsolutePath());
+
+		assertEquals(2, cached.size());
+		assertTrue(cached.get(0) instanceof TCPPacket);
+		TCPPacket tcp = (TCPPacket) cached.get(0);
+		assertEquals(1600000000.123456, tcp.getTimeStamp(), 0.0000001);
+		assertEquals(8080, tcp.getSourcePort());
+		assertEquals(443, tcp.getDestinationPort());
+		assertEquals(1000, tcp.getSequenceNumber());
+		assertTrue(tcp.isDecrypted());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, tcp.getData());
+
+		assertTrue(cached.get(1) instanceof UDPPacket);
+		UDPPacket udp = (UDPPacket) cached.get(1);
+		assertEquals(1600000001.654321, udp.getTimeStamp(), 0.0000001);
+		assertEquals(4, udp.getPayloadLen());
+		assertArrayEquals(udpData, udp.getData());
+	}
+
+	@Test
+	public void readPackets_changedTraceIsNotRead() throws IOException {
+		List<Packet> packets = new ArrayList<>();
+		List<byte[]> packetData = new ArrayList<>();
+		byte[] tcpData = tcpPacket();
+		packets.add(packetService.createPacket(IPV4, 1600000000L, 0, tcpData.length, 0, tcpData));
+		packetData.add(tcpData);
+
+		assertNull(packetCache.readPackets(traceFolder.getAbsolutePath()));
+		packetCache.writePackets(traceFolder.getAbsolutePath(), packets, packetData);
+		assertEquals(1, packetCache.readPackets(traceFolder.getAbsolutePath()).size());
+		assertFalse(((TCPPacket) packetCache.readPackets(traceFolder.getAbsolutePath()).get(0)).isDecrypted());
+
+		writeBytes(new File(traceFolder, "traffic.cap"), 200);
+		assertNull(packetCache.readPackets(traceFolder.getAbsolutePath()));
+	}
+
+	@Test
+	public void writeAndReadSessions() {
+		List<Packet> packets = new ArrayList<>();
+		List<byte[]> packetData = new ArrayList<>();
+		List<PacketInfo> packetInfos = new ArrayList<>();
+		for (int index = 0; index < 3; index++) {
+			byte[] tcpData = tcpPacket();
+			packets.add(packetService.createPacket(IPV4, 1600000000L + index, 0, tcpData.length, 0, tcpData));
+			packetData.add(tcpData);
+			PacketInfo packetInfo = new PacketInfo(packets.get(index));
+			packetInfo.setPacketId(3 - index);
+			packetInfos.add(packetInfo);
+		}
+		String trace = traceFolder.getAbsolutePath();
+		Session first = new Session(null, null, 443, 8080, "first");
+		first.addUdpPacket(packetInfos.get(0));
+		first.addUdpPacket(packetInfos.get(2));
+		Session second = new Session(null, null, 443, 8081, "second");
+		second.addUdpPacket(packetInfos.get(1));
+
+		packetCache.writeSessions(trace, packetInfos, Arrays.asList(first, second));
+		assertNull(packetCache.readSessions(trace, 3));
+
+		packetCache.writePackets(trace, packets, packetData);
+		assertNull(packetCache.readSessions(trace, 3));
+		packetCache.writeSessions(trace, packetInfos, Arrays.asList(first, second));
+
+		assertArrayEquals(new int[] { 0, 1, 0 }, packetCache.readSessions(trace, 3));
+		assertNull(packetCache.readSessions(trace, 2));
+		assertEquals(3, packetCache.readPackets(trace).size());
+
+		// new packets drop the sessions
+		packetCache.writePackets(trace, packets, packetData);
+		assertNull(packetCache.readSessions(trace, 3));
+	}
+
+	private void writeBytes(File file, int length) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[length]);
+		}
+	}
+
+	private byte[] tcpPacket() {
+		ByteBuffer ip = ByteBuffer.allocate(40);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 8080).putShort((short) 443).putInt(1000).putInt(0).put((byte) 0x50).put((byte) 0x02).putShort((short) 65535).putInt(0);
+		return ip.array();
+	}
+
+	private byte[] udpPacket() {
+		ByteBuffer ip = ByteBuffer.allocate(32);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) 32).putInt(0).put((byte) 64).put((byte) 17).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 5000).putShort((short) 5000).putShort((short) 12).putShort((short) 0).putInt(0x01020304);
+		return ip.array();
+	}
+}
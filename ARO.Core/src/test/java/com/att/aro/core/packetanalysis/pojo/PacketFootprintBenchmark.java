@@ -0,0 +1,78 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+
+/**
+ * Heap allocated to decode a TCP packet into a {@link PacketInfo}, not counting the packet bytes, and to hold it in a
+ * {@link PacketTable}, whose packet bytes are off the heap. Run the main method from the test classpath and read
+ * gc.alloc.rate.norm, which is in bytes per packet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PacketFootprintBenchmark {
+
+	private static final int PACKET_COUNT = 1000;
+	private static final int HOST_COUNT = 20;
+
+	private byte[][] packets;
+	private List<PacketInfo> packetInfos;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PacketFootprintBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+
+	@Setup
+	public void setup() {
+		packets = new byte[PACKET_COUNT][];
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			ByteBuffer ip = ByteBuffer.allocate(40 + 100);
+			ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+			ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, (byte) (index % HOST_COUNT) });
+			ip.putShort((short) (40000 + index % HOST_COUNT)).putShort((short) 443).putInt(index).putInt(index).put((byte) 0x50).put((byte) 0x18)
+					.putShort((short) 65535).putInt(0);
+			packets[index] = ip.array();
+		}
+		packetInfos = decode();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKET_COUNT)
+	public List<PacketInfo> decode() {
+		List<PacketInfo> packetInfos = new ArrayList<>(PACKET_COUNT);
+		for (byte[] data : packets) {
+			packetInfos.add(new PacketInfo(new TCPPacket(1600000000L, 0, data.length, 0, (byte) 6, 0, data)));
+		}
+		return packetInfos;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKET_COUNT)
+	public PacketTable table() {
+		return new PacketTable(packetInfos, null);
+	}
+}
@@ -0,0 +1,191 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+public class PacketTableTest extends BaseTest {
+
+	private IPacketService packetService;
+
+	@Before
+	public void setup() {
+		packetService = context.getBean(IPacketService.class);
+	}
+
+	@Test
+	public void viewsReadTheColumns() throws Exception {
+		List<PacketInfo> packets = new ArrayList<>();
+		packets.add(packetInfo(1.5, 7, "app", new TCPPacket(1600000000L, 250, 40 + 3, 0, (byte) 6, 0, tcpData(0x18, new byte[] { 1, 2, 3 })),
+				PacketDirection.UPLINK));
+		packets.add(packetInfo(2.5, 8, null, new UDPPacket(1600000001L, 0, 32, 0, (byte) 17, 0, udpData()), PacketDirection.DOWNLINK));
+		PacketTable table = new PacketTable(packets, packetService);
+		List<PacketInfo> views = table.getPackets();
+
+		assertEquals(2, views.size());
+		for (int index = 0; index < packets.size(); index++) {
+			PacketInfo packetInfo = packets.get(index);
+			PacketInfo view = views.get(index);
+			assertEquals(packetInfo.getPacketId(), view.getPacketId());
+			assertEquals(packetInfo.getTimeStamp(), view.getTimeStamp(), 0.0);
+			assertEquals(packetInfo.getDir(), view.getDir());
+			assertEquals(packetInfo.getAppName(), view.getAppName());
+			assertEquals(packetInfo.getRemoteIPAddress(), view.getRemoteIPAddress());
+			assertEquals(packetInfo.getLen(), view.getLen());
+			assertEquals(packetInfo.getPayloadLen(), view.getPayloadLen());
+			assertEquals(packetInfo.getTcpFlagString(), view.getTcpFlagString());
+			assertNull(view.getTcpInfo());
+			assertEquals(view, views.get(index));
+		}
+		assertEquals("AP", views.get(0).getTcpFlagString());
+		assertSame(table.getSourceIPAddress(0), table.getDestinationIPAddress(1));
+		assertTrue(table.isTcp(0));
+		assertTrue(table.isUdp(1));
+		assertEquals(5000, table.getSourcePort(1));
+		assertEquals(4, table.getIPVersion(1));
+		assertNotEquals(views.get(0), views.get(1));
+	}
+
+	@Test
+	public void copyDecodesThePacket() throws Exception {
+		byte[] payload = { 1, 2, 3 };
+		PacketInfo packetInfo = packetInfo(1.5, 7, "app",
+				new TCPPacket(1600000000L, 250, 40 + payload.length, 0, (byte) 6, 0, tcpData(0x18, payload)), PacketDirection.UPLINK);
+		PacketTable table = new PacketTable(Arrays.asList(packetInfo), packetService);
+		PacketInfo view = table.getPackets().get(0);
+
+		TCPPacket packet = (TCPPacket) view.getPacket();
+		assertNotSame(packetInfo.getPacket(), packet);
+		assertSame(packet, view.getPacket());
+		assertEquals(1600000000L, packet.getSeconds());
+		assertEquals(250, packet.getMicroSeconds());
+		assertEquals(443, packet.getDestinationPort());
+		assertEquals(InetAddress.getByName("192.168.0.2"), packet.getDestinationIPAddress());
+
+		PacketInfo copy = view.copy();
+		assertEquals(PacketInfo.class, copy.getClass());
+		assertEquals(7, copy.getPacketId());
+		assertEquals(1.5, copy.getTimeStamp(), 0.0);
+		assertEquals(PacketDirection.UPLINK, copy.getDir());
+		assertEquals("app", copy.getAppName());
+		assertArrayEquals(payload, Arrays.copyOfRange(copy.getPacket().getData(), copy.getPacket().getDataOffset(), copy.getPacket().getLen()));
+		assertNotSame(copy.getPacket(), table.getPackets().get(0).copy().getPacket());
+
+		// copies are annotated by the analysis, the table stays as read
+		copy.setTcpInfo(TcpInfo.TCP_DATA);
+		copy.setPacketId(1);
+		assertNull(table.getPackets().get(0).getTcpInfo());
+		assertEquals(7, table.getPackets().get(0).getPacketId());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void viewsAreReadOnly() throws Exception {
+		PacketInfo packetInfo = packetInfo(1, 1, "app", new TCPPacket(1600000000L, 0, 40, 0, (byte) 6, 0, tcpData(0x02, new byte[0])),
+				PacketDirection.UPLINK);
+		new PacketTable(Arrays.asList(packetInfo), packetService).getPackets().get(0).setTcpInfo(TcpInfo.TCP_ESTABLISH);
+	}
+
+	@Test
+	public void decryptedPacketIsKept() throws Exception {
+		TCPPacket packet = new TCPPacket(1600000000L, 0, 40 + 4, 0, (byte) 6, 0, tcpData(0x18, new byte[4]));
+		packet.setDecrypted(true);
+		packet.setData(new byte[] { 'o', 'k' });
+		PacketTable table = new PacketTable(Arrays.asList(packetInfo(1, 1, "app", packet, PacketDirection.DOWNLINK)), packetService);
+
+		PacketInfo view = table.getPackets().get(0);
+		assertSame(packet, view.getPacket());
+		TCPPacket copy = (TCPPacket) view.copy().getPacket();
+		assertNotSame(packet, copy);
+		assertTrue(copy.isDecrypted());
+		assertArrayEquals(new byte[] { 'o', 'k' }, copy.getData());
+	}
+
+	@Test
+	public void framesSpanArenaBlocks() throws Exception {
+		byte[] payload = new byte[60000];
+		List<PacketInfo> packets = new ArrayList<>();
+		int count = PacketTable.BLOCK_SIZE / payload.length + 2;
+		for (int index = 0; index < count; index++) {
+			Arrays.fill(payload, (byte) index);
+			packets.add(packetInfo(index, index + 1, "app",
+					new TCPPacket(1600000000L + index, 0, 40 + payload.length, 0, (byte) 6, 0, tcpData(0x18, payload)), PacketDirection.UPLINK));
+		}
+		PacketTable table = new PacketTable(packets, packetService);
+
+		for (int index = 0; index < count; index++) {
+			byte[] data = table.getPacket(index).getData();
+			assertArrayEquals(packets.get(index).getPacket().getData(), data);
+			assertEquals(1600000000L + index, table.getPacket(index).getSeconds());
+		}
+	}
+
+	@Test
+	public void selectedRows() throws Exception {
+		List<PacketInfo> packets = new ArrayList<>();
+		double[] timestamps = { 1, 2, 2, 2, 5, 8 };
+		for (int index = 0; index < timestamps.length; index++) {
+			packets.add(packetInfo(timestamps[index], index + 1, "app",
+					new TCPPacket(1600000000L, 0, 40, 0, (byte) 6, 0, tcpData(0x10, new byte[0])), PacketDirection.UPLINK));
+		}
+		PacketTable table = new PacketTable(packets, packetService);
+
+		assertEquals(0, table.indexOf(0.5, false));
+		assertEquals(1, table.indexOf(2, false));
+		assertEquals(4, table.indexOf(2, true));
+		assertEquals(6, table.indexOf(8, true));
+
+		List<PacketInfo> selected = table.getPackets(new int[] { 1, 4, 5, 0 }, 3);
+		assertEquals(3, selected.size());
+		assertEquals(5, selected.get(1).getPacketId());
+		assertEquals(selected, table.getPackets(new int[] { 1, 4, 5 }, 3));
+		assertFalse(selected.equals(table.getPackets(new int[] { 1, 4, 4 }, 3)));
+		assertEquals(table.getPackets(), table.getPackets(new int[] { 0, 1, 2, 3, 4, 5 }, 6));
+		assertFalse(selected.equals(new PacketTable(packets, packetService).getPackets(new int[] { 1, 4, 5 }, 3)));
+	}
+
+	private PacketInfo packetInfo(double timestamp, int packetId, String appName, Packet packet, PacketDirection direction) {
+		PacketInfo packetInfo = new PacketInfo(appName, packet);
+		packetInfo.setTimestamp(timestamp);
+		packetInfo.setPacketId(packetId);
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
+
+	private byte[] tcpData(int flags, byte[] payload) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + payload.length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 40000).putShort((short) 443).putInt(1000).putInt(0).put((byte) 0x50).put((byte) flags).putShort((short) 65535).putInt(0);
+		ip.put(payload);
+		return ip.array();
+	}
+
+	private byte[] udpData() {
+		ByteBuffer ip = ByteBuffer.allocate(32);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) 32).putInt(0).put((byte) 64).put((byte) 17).putShort((short) 0);
+		ip.put(new byte[] { (byte) 192, (byte) 168, 0, 2 }).put(new byte[] { 10, 0, 0, 1 });
+		ip.putShort((short) 5000).putShort((short) 5000).putShort((short) 12).putShort((short) 0).putInt(0x01020304);
+		return ip.array();
+	}
+}
@@ -0,0 +1,151 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RrcStateRangeIndexTest {
+
+	private static final RRCState[] STATES = { RRCState.LTE_IDLE, RRCState.LTE_PROMOTION, RRCState.LTE_CONTINUOUS, RRCState.LTE_CR_TAIL,
+			RRCState.LTE_DRX_SHORT };
+
+	// energy depends on the state and grows faster than linear, so clipping errors show up
+	private final RrcStateRangeIndex.EnergyFunction energyFunction = (beginTime, endTime, state) -> (state.ordinal() + 1)
+			* (endTime - beginTime) * (endTime - beginTime);
+
+	@Test
+	public void getStateAt() {
+		List<RrcStateRange> ranges = new ArrayList<>();
+		ranges.add(new RrcStateRange(0, 1, RRCState.LTE_IDLE));
+		ranges.add(new RrcStateRange(1, 2.5, RRCState.LTE_PROMOTION));
+		ranges.add(new RrcStateRange(2.5, 4, RRCState.LTE_CONTINUOUS));
+		RrcStateRangeIndex index = new RrcStateRangeIndex(ranges, energyFunction);
+
+		assertNull(index.getStateAt(-0.5));
+		assertEquals(RRCState.LTE_IDLE, index.getStateAt(0.5));
+		assertEquals(RRCState.LTE_PROMOTION, index.getStateAt(1));
+		assertEquals(RRCState.LTE_CONTINUOUS, index.getStateAt(3.9));
+		assertEquals(RRCState.LTE_CONTINUOUS, index.getStateAt(4));
+		assertNull(index.getStateAt(4.5));
+		assertEquals(energyFunction.energy(1, 2.5, RRCState.LTE_PROMOTION), ranges.get(1).getEnergy(), 0.0);
+	}
+
+	@Test
+	public void windowQueriesMatchScan() {
+		Random random = new Random(7);
+		List<RrcStateRange> ranges = new ArrayList<>();
+		double time = 100;
+		for (int count = 0; count < 500; count++) {
+			double duration = random.nextInt(5) == 0 ? 0 : random.nextDouble() * 10;
+			ranges.add(new RrcStateRange(time, time + duration, STATES[random.nextInt(STATES.length)]));
+			time += duration;
+		}
+		RrcStateRangeIndex index = new RrcStateRangeIndex(ranges, energyFunction);
+
+		for (int query = 0; query < 300; query++) {
+			double beginTime = 90 + random.nextDouble() * (time - 80);
+			double endTime = beginTime + random.nextDouble() * 200;
+			if (query % 10 == 0) {
+				// boundaries on range edges
+				int first = random.nextInt(ranges.size());
+				beginTime = ranges.get(first).getBeginTime();
+				endTime = ranges.get(first + random.nextInt(ranges.size() - first)).getEndTime();
+			}
+			List<RrcStateRange> expected = clip(ranges, beginTime, endTime);
+			RrcStateRangeIndex window = index.subIndex(beginTime, endTime);
+			List<RrcStateRange> actual = window.getRanges();
+
+			assertEquals(expected.size(), actual.size());
+			for (int position = 0; position < expected.size(); position++) {
+				assertEquals(expected.get(position).getBeginTime(), actual.get(position).getBeginTime(), 0.0);
+				assertEquals(expected.get(position).getEndTime(), actual.get(position).getEndTime(), 0.0);
+				assertSame(expected.get(position).getState(), actual.get(position).getState());
+			}
+			for (RRCState state : STATES) {
+				double duration = 0;
+				double energy = 0;
+				int count = 0;
+				for (RrcStateRange range : expected) {
+					if (range.getState() == state) {
+						duration += range.getEndTime() - range.getBeginTime();
+						energy += energyFunction.energy(range.getBeginTime(), range.getEndTime(), state);
+						count++;
+					}
+				}
+				assertEquals(duration, index.getDuration(state, beginTime, endTime), 1e-6);
+				assertEquals(energy, index.getEnergy(state, beginTime, endTime), 1e-6);
+				assertEquals(count, index.getCount(state, beginTime, endTime));
+				assertEquals(duration, window.getDuration(state), 1e-6);
+				assertEquals(energy, window.getEnergy(state), 1e-6);
+				assertEquals(count, window.getCount(state));
+			}
+		}
+	}
+
+	@Test
+	public void windowComputesEnergyInsideOnly() {
+		List<RrcStateRange> ranges = new ArrayList<>();
+		for (int second = 0; second < 100; second++) {
+			ranges.add(new RrcStateRange(second, second + 1, STATES[second % STATES.length]));
+		}
+		List<Double> energyTimes = new ArrayList<>();
+		RrcStateRangeIndex window = RrcStateRangeIndex.window(ranges, 10.5, 20.5, (beginTime, endTime, state) -> {
+			energyTimes.add(beginTime);
+			return energyFunction.energy(beginTime, endTime, state);
+		});
+		RrcStateRangeIndex expected = new RrcStateRangeIndex(ranges, energyFunction).subIndex(10.5, 20.5);
+
+		assertEquals(11, energyTimes.size());
+		for (double time : energyTimes) {
+			assertTrue(time >= 10.5 && time < 20.5);
+		}
+		assertEquals(expected.size(), window.size());
+		assertEquals(expected.getTotalEnergy(), window.getTotalEnergy(), 1e-9);
+		for (RRCState state : STATES) {
+			assertEquals(expected.getDuration(state), window.getDuration(state), 1e-9);
+			assertEquals(expected.getEnergy(state), window.getEnergy(state), 1e-9);
+		}
+	}
+
+	@Test
+	public void getTouching() {
+		List<RrcStateRange> ranges = new ArrayList<>();
+		ranges.add(new RrcStateRange(0, 1, RRCState.WIFI_IDLE));
+		ranges.add(new RrcStateRange(1, 2, RRCState.WIFI_ACTIVE));
+		ranges.add(new RrcStateRange(2, 3, RRCState.WIFI_TAIL));
+		RrcStateRangeIndex index = new RrcStateRangeIndex(ranges, null);
+
+		assertEquals(ranges.subList(0, 2), index.getTouching(0.5, 1));
+		assertEquals(ranges.subList(1, 3), index.getTouching(2, 2));
+		assertEquals(0, index.getTouching(3.5, 4).size());
+	}
+
+	/**
+	 * clipping as the state machine factory did it before the index
+	 */
+	private List<RrcStateRange> clip(List<RrcStateRange> rrcRanges, double beginTime, double endTime) {
+		List<RrcStateRange> filteredRRCStates = new ArrayList<RrcStateRange>();
+		boolean stateAdded = false;
+		for (RrcStateRange rrcRange : rrcRanges) {
+			if (rrcRange.getBeginTime() >= beginTime && rrcRange.getEndTime() <= endTime) {
+				filteredRRCStates.add(rrcRange);
+			} else if (rrcRange.getBeginTime() <= beginTime && rrcRange.getEndTime() <= endTime && rrcRange.getEndTime() > beginTime) {
+				filteredRRCStates.add(new RrcStateRange(beginTime, rrcRange.getEndTime(), rrcRange.getState()));
+			} else if (rrcRange.getBeginTime() <= beginTime && rrcRange.getEndTime() >= endTime) {
+				filteredRRCStates.add(new RrcStateRange(beginTime, endTime, rrcRange.getState()));
+			} else if (rrcRange.getBeginTime() >= beginTime && rrcRange.getBeginTime() < endTime && rrcRange.getEndTime() >= endTime
+					&& !stateAdded) {
+				filteredRRCStates.add(new RrcStateRange(rrcRange.getBeginTime(), endTime, rrcRange.getState()));
+				stateAdded = true;
+			}
+		}
+		return filteredRRCStates;
+	}
+}
@@ -0,0 +1,105 @@
+package com.att.aro.core.packetreader.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.att.aro.core.packetreader.IPacketService;
+
+/**
+ * Heap allocated per record by {@link MappedPcapReaderImpl}. decode builds the same packets from arrays that are
+ * already on the heap, the difference to read is what the reader itself allocates. Run the main method from the test
+ * classpath and read gc.alloc.rate.norm, which is in bytes per packet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappedPcapReaderBenchmark {
+
+	private static final int PACKET_COUNT = 1000;
+	private static final int ETHERNET_HEADER_LENGTH = 14;
+
+	@Param({ "0", "1400" })
+	private int payloadLength;
+
+	private File file;
+	private byte[][] records;
+	private MappedPcapReaderImpl reader;
+	private IPacketService packetService;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MappedPcapReaderBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		packetService = new PacketServiceImpl();
+		reader = new MappedPcapReaderImpl();
+		ReflectionTestUtils.setField(reader, "packetService", packetService);
+
+		records = new byte[PACKET_COUNT][];
+		ByteBuffer capture = ByteBuffer.allocate(24 + PACKET_COUNT * (16 + ETHERNET_HEADER_LENGTH + 40 + payloadLength)).order(ByteOrder.LITTLE_ENDIAN);
+		capture.putInt(0xA1B2C3D4).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0).putInt(65535).putInt(1);
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			ByteBuffer frame = ByteBuffer.allocate(ETHERNET_HEADER_LENGTH + 40 + payloadLength);
+			frame.put(new byte[12]).putShort((short) 0x0800);
+			frame.put((byte) 0x45).put((byte) 0).putShort((short) (40 + payloadLength)).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+			frame.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, (byte) (index % 20) });
+			frame.putShort((short) 40000).putShort((short) 443).putInt(index).putInt(index).put((byte) 0x50).put((byte) 0x18)
+					.putShort((short) 65535).putInt(0);
+			records[index] = frame.array();
+			capture.putInt(1600000000 + index).putInt(0).putInt(frame.capacity()).putInt(frame.capacity()).put(frame.array());
+		}
+
+		file = File.createTempFile("benchmark", ".cap");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(capture.array(), 0, capture.position());
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKET_COUNT)
+	public void read(Blackhole blackhole) throws IOException {
+		reader.readPacket(file.getAbsolutePath(), (appName, packet) -> blackhole.consume(packet));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKET_COUNT)
+	public void decode(Blackhole blackhole) {
+		for (int index = 0; index < PACKET_COUNT; index++) {
+			byte[] data = records[index];
+			blackhole.consume(packetService.createPacket((short) 0x0800, 1600000000L + index, 0, data.length, ETHERNET_HEADER_LENGTH, data));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.att.aro.core.packetreader.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.packetreader.IPacketReader;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+public class MappedPcapReaderImplTest extends BaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private IPacketReader reader;
+	private List<Packet> packets;
+
+	@Before
+	public void setup() {
+		reader = (IPacketReader) context.getBean("mappedPacketReader");
+		packets = new ArrayList<>();
+	}
+
+	@Test
+	public void readEthernetMicroseconds() throws IOException {
+		File file = writeCapture(ByteOrder.LITTLE_ENDIAN, 0xA1B2C3D4, 1, 123456);
+		reader.readPacket(file.getAbsolutePath(), (appName, packet) -> packets.add(packet));
+		verifyPackets(14);
+	}
+
+	@Test
+	public void readRawNanoseconds() throws IOException {
+		File file = writeCapture(ByteOrder.BIG_ENDIAN, 0xA1B23C4D, 101, 123456789);
+		reader.readPacket(file.getAbsolutePath(), (appName, packet) -> packets.add(packet));
+		verifyPackets(0);
+	}
+
+	private void verifyPackets(int datalinkHdrLen) {
+		assertEquals(2, packets.size());
+
+		assertTrue(packets.get(0) instanceof TCPPacket);
+		TCPPacket tcp = (TCPPacket) packets.get(0);
+		assertEquals(1600000000.123456, tcp.getTimeStamp(), 0.0000001);
+		assertEquals("10.0.0.1", tcp.getSourceIPAddress().getHostAddress());
+		assertEquals("192.168.0.2", tcp.getDestinationIPAddress().getHostAddress());
+		assertEquals(8080, tcp.getSourcePort());
+		assertEquals(443, tcp.getDestinationPort());
+		assertEquals(1000, tcp.getSequenceNumber());
+		assertTrue(tcp.isSYN());
+		assertEquals(datalinkHdrLen, tcp.getDatalinkHeaderSize());
+
+		assertTrue(packets.get(1) instanceof UDPPacket);
+		UDPPacket udp = (UDPPacket) packets.get(1);
+		assertEquals(5000, udp.getSourcePort());
+		assertEquals(4, udp.getPayloadLen());
+	}
+
+	private File writeCapture(ByteOrder order, int magic, int linkType, int fraction) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1024).order(order);
+		buffer.putInt(magic).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0).putInt(65535).putInt(linkType);
+
+		putRecord(buffer, fraction, linkType, tcpPacket());
+		putRecord(buffer, fraction, linkType, udpPacket());
+
+		File file = folder.newFile("traffic.cap");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(buffer.array(), 0, buffer.position());
+		}
+		return file;
+	}
+
+	private void putRecord(ByteBuffer buffer, int fraction, int linkType, byte[] ip) {
+		byte[] ethernet = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 0x08, 0x00 };
+		int length = ip.length + (linkType == 1 ? ethernet.length : 0);
+		buffer.putInt(1600000000).putInt(fraction).putInt(length).putInt(length);
+		if (linkType == 1) {
+			buffer.put(ethernet);
+		}
+		buffer.put(ip);
+	}
+
+	private byte[] tcpPacket() {
+		ByteBuffer ip = ByteBuffer.allocate(40);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 8080).putShort((short) 443).putInt(1000).putInt(0).put((byte) 0x50).put((byte) 0x02).putShort((short) 65535).putInt(0);
+		return ip.array();
+	}
+
+	private byte[] udpPacket() {
+		ByteBuffer ip = ByteBuffer.allocate(32);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) 32).putInt(0).put((byte) 64).put((byte) 17).putShort((short) 0);
+		ip.put(new byte[] { 10, 0, 0, 1 }).put(new byte[] { (byte) 192, (byte) 168, 0, 2 });
+		ip.putShort((short) 5000).putShort((short) 5000).putShort((short) 12).putShort((short) 0).putInt(0x01020304);
+		return ip.array();
+	}
+}
@@ -0,0 +1,227 @@
+package com.att.aro.core.packetreader.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.packetreader.model.pcapng.PacketBlock;
+
+public class PcapngBlockReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final byte[] PAYLOAD = new byte[] { 0x45, 0x00, 0x00, 0x14, 1, 2, 3, 4, 5 };
+
+	@Test
+	public void readLittleEndian() throws IOException {
+		verifyCapture(writeCapture(ByteOrder.LITTLE_ENDIAN));
+	}
+
+	@Test
+	public void readBigEndian() throws IOException {
+		verifyCapture(writeCapture(ByteOrder.BIG_ENDIAN));
+	}
+
+	@Test
+	public void sectionHeaderAcrossBufferBoundary() throws IOException {
+		File file = writeSections();
+		// every split of the file over the read buffer, including a second section header that spans its end
+		for (int bufferSize = 12; bufferSize <= file.length(); bufferSize++) {
+			try (PcapngBlockReader reader = new PcapngBlockReader(file.getAbsolutePath(), bufferSize)) {
+				String message = "buffer size " + bufferSize;
+				assertEquals(message, "Mac OS X 10.15", reader.getSectionHeader().getOs());
+				PacketBlock packet = reader.nextPacket();
+				assertEquals(message, 101, packet.getInterfaceDescription().getLinkType());
+				assertArrayEquals(message, PAYLOAD, packet.getData());
+
+				packet = reader.nextPacket();
+				assertEquals(message, "Linux", reader.getSectionHeader().getOs());
+				assertEquals(message, ByteOrder.LITTLE_ENDIAN, reader.getSectionHeader().getByteOrder());
+				assertEquals(message, 1, packet.getInterfaceDescription().getLinkType());
+				assertEquals(message, 1600000001L, packet.getSeconds());
+				assertArrayEquals(message, PAYLOAD, packet.getData());
+
+				assertNull(message, reader.nextPacket());
+			}
+		}
+	}
+
+	@Test
+	public void skipPacketOnUndefinedInterface() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		putSectionHeader(buffer, "Linux");
+		int start = startBlock(buffer, PcapngBlockReader.INTERFACE_DESCRIPTION_BLOCK);
+		buffer.putShort((short) 1).putShort((short) 0).putInt(65535);
+		endBlock(buffer, start);
+		putEnhancedPacket(buffer, 0, 1600000000000000L);
+		putEnhancedPacket(buffer, 3, 1600000001000000L);
+		putEnhancedPacket(buffer, 0, 1600000002000000L);
+		File file = folder.newFile("undefined.pcapng");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(buffer.array(), 0, buffer.position());
+		}
+
+		try (PcapngBlockReader reader = new PcapngBlockReader(file.getAbsolutePath())) {
+			assertEquals(1600000000L, reader.nextPacket().getSeconds());
+			assertEquals(1600000002L, reader.nextPacket().getSeconds());
+			assertNull(reader.nextPacket());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void notPcapng() throws IOException {
+		File file = folder.newFile("traffic.cap");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[] { (byte) 0xd4, (byte) 0xc3, (byte) 0xb2, (byte) 0xa1, 0, 0, 0, 0, 0, 0, 0, 0 });
+		}
+		new PcapngBlockReader(file.getAbsolutePath()).close();
+	}
+
+	private void verifyCapture(File file) throws IOException {
+		try (PcapngBlockReader reader = new PcapngBlockReader(file.getAbsolutePath())) {
+			assertEquals("Mac OS X 10.15", reader.getSectionHeader().getOs());
+			assertEquals(1, reader.getSectionHeader().getMajorVersion());
+
+			// Enhanced packet on a nanosecond interface
+			PacketBlock packet = reader.nextPacket();
+			assertEquals(101, packet.getInterfaceDescription().getLinkType());
+			assertEquals(1600000000L, packet.getSeconds());
+			assertEquals(123456, packet.getMicroSeconds());
+			assertEquals(PAYLOAD.length, packet.getOriginalLength());
+			assertArrayEquals(PAYLOAD, packet.getData());
+
+			// Enhanced packet on the default microsecond interface
+			packet = reader.nextPacket();
+			assertEquals(1, packet.getInterfaceDescription().getLinkType());
+			assertEquals(1600000001L, packet.getSeconds());
+			assertEquals(500000, packet.getMicroSeconds());
+
+			// Simple packet keeps the previous timestamp
+			packet = reader.nextPacket();
+			assertEquals(101, packet.getInterfaceDescription().getLinkType());
+			assertEquals(1600000001L, packet.getSeconds());
+			assertArrayEquals(PAYLOAD, packet.getData());
+
+			assertNull(reader.nextPacket());
+		}
+	}
+
+	private File writeCapture(ByteOrder order) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1024).order(order);
+
+		putSectionHeader(buffer, "Mac OS X 10.15");
+
+		// Interface 0: raw IP with nanosecond resolution
+		int start = startBlock(buffer, PcapngBlockReader.INTERFACE_DESCRIPTION_BLOCK);
+		buffer.putShort((short) 101).putShort((short) 0).putInt(65535);
+		putOption(buffer, 9, new byte[] { 9 });
+		buffer.putInt(0);
+		endBlock(buffer, start);
+
+		// Interface 1: ethernet with default resolution and no options
+		start = startBlock(buffer, PcapngBlockReader.INTERFACE_DESCRIPTION_BLOCK);
+		buffer.putShort((short) 1).putShort((short) 0).putInt(65535);
+		endBlock(buffer, start);
+
+		// unknown block to be skipped
+		start = startBlock(buffer, 0x00000005);
+		buffer.putInt(0);
+		endBlock(buffer, start);
+
+		putEnhancedPacket(buffer, 0, 1600000000123456789L);
+		putEnhancedPacket(buffer, 1, 1600000001500000L);
+
+		start = startBlock(buffer, PcapngBlockReader.SIMPLE_PACKET_BLOCK);
+		buffer.putInt(PAYLOAD.length);
+		putPadded(buffer, PAYLOAD);
+		endBlock(buffer, start);
+
+		File file = folder.newFile("traffic-" + order + ".pcapng");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(buffer.array(), 0, buffer.position());
+		}
+		return file;
+	}
+
+	/**
+	 * A big-endian section followed by a little-endian one, each with an interface and a packet
+	 */
+	private File writeSections() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.BIG_ENDIAN);
+		putSectionHeader(buffer, "Mac OS X 10.15");
+		int start = startBlock(buffer, PcapngBlockReader.INTERFACE_DESCRIPTION_BLOCK);
+		buffer.putShort((short) 101).putShort((short) 0).putInt(65535);
+		endBlock(buffer, start);
+		putEnhancedPacket(buffer, 0, 1600000000000000L);
+
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		putSectionHeader(buffer, "Linux");
+		start = startBlock(buffer, PcapngBlockReader.INTERFACE_DESCRIPTION_BLOCK);
+		buffer.putShort((short) 1).putShort((short) 0).putInt(65535);
+		endBlock(buffer, start);
+		putEnhancedPacket(buffer, 0, 1600000001000000L);
+
+		File file = folder.newFile("sections.pcapng");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(buffer.array(), 0, buffer.position());
+		}
+		return file;
+	}
+
+	/**
+	 * Section Header Block with shb_os option
+	 */
+	private void putSectionHeader(ByteBuffer buffer, String os) {
+		int start = startBlock(buffer, PcapngBlockReader.SECTION_HEADER_BLOCK);
+		buffer.putInt(PcapngBlockReader.BYTE_ORDER_MAGIC);
+		buffer.putShort((short) 1).putShort((short) 0).putLong(-1);
+		putOption(buffer, 3, os.getBytes(StandardCharsets.UTF_8));
+		buffer.putInt(0);
+		endBlock(buffer, start);
+	}
+
+	private void putEnhancedPacket(ByteBuffer buffer, int interfaceId, long timestamp) {
+		int start = startBlock(buffer, PcapngBlockReader.ENHANCED_PACKET_BLOCK);
+		buffer.putInt(interfaceId);
+		buffer.putInt((int) (timestamp >>> 32)).putInt((int) timestamp);
+		buffer.putInt(PAYLOAD.length).putInt(PAYLOAD.length);
+		putPadded(buffer, PAYLOAD);
+		endBlock(buffer, start);
+	}
+
+	private int startBlock(ByteBuffer buffer, int type) {
+		int start = buffer.position();
+		buffer.putInt(type).putInt(0);
+		return start;
+	}
+
+	private void endBlock(ByteBuffer buffer, int start) {
+		int length = buffer.position() - start + 4;
+		buffer.putInt(length);
+		buffer.putInt(start + 4, length);
+	}
+
+	private void putOption(ByteBuffer buffer, int code, byte[] value) {
+		buffer.putShort((short) code).putShort((short) value.length);
+		putPadded(buffer, value);
+	}
+
+	private void putPadded(ByteBuffer buffer, byte[] value) {
+		buffer.put(value);
+		for (int i = value.length; i % 4 != 0; i++) {
+			buffer.put((byte) 0);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.att.aro.core.packetreader.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class IPAddressTableTest {
+
+	@Test
+	public void internIPv4() throws UnknownHostException {
+		byte[] header = new byte[] { 0, 0, 10, 0, 0, 1, (byte) 192, (byte) 168, 0, 2 };
+
+		InetAddress source = IPAddressTable.intern(header, 2, 4);
+		assertEquals(InetAddress.getByName("10.0.0.1"), source);
+		assertEquals(InetAddress.getByName("192.168.0.2"), IPAddressTable.intern(header, 6, 4));
+		assertSame(source, IPAddressTable.intern(new byte[] { 10, 0, 0, 1 }, 0, 4));
+		assertSame(source, IPAddressTable.intern(InetAddress.getByName("10.0.0.1")));
+	}
+
+	@Test
+	public void internIPv6() throws UnknownHostException {
+		InetAddress address = InetAddress.getByName("2001:db8::1");
+
+		InetAddress interned = IPAddressTable.intern(address.getAddress(), 0, 16);
+		assertEquals(address, interned);
+		assertSame(interned, IPAddressTable.intern(InetAddress.getByName("2001:db8::1")));
+		assertNull(IPAddressTable.intern(null));
+	}
+
+	@Test
+	public void tableIsBounded() throws UnknownHostException {
+		for (int index = 0; index < IPAddressTable.MAX_ADDRESSES + 10; index++) {
+			IPAddressTable.intern(new byte[] { 100, (byte) (index >> 16), (byte) (index >> 8), (byte) index }, 0, 4);
+		}
+		assertTrue(IPAddressTable.size() <= 2 * IPAddressTable.MAX_ADDRESSES);
+	}
+}
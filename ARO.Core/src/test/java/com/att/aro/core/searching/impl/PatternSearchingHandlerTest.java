@@ -76,4 +76,23 @@ public class PatternSearchingHandlerTest extends BaseTest {
 		assertEquals(1, result.getWords().size());
 		assertEquals("443-237-7431", result.getWords().get(0));
 	}
+	
+	@Test
+	public void testCreditCardLuhnCheck() {
+		SearchingPatternBuilder pattenBuilder = new SearchingPatternBuilder();
+		pattenBuilder.add("4\\d{15},4,0,15", PrivateDataType.regex_credit_card_number.toString());
+		SearchingPattern pattern = pattenBuilder.build();
+		
+		SearchingResult result = searchingHandler.search(pattern, new SearchingContent("card=4111111111111111&cvv=123"));
+		assertEquals(1, result.getWords().size());
+		assertEquals("4111111111111111", result.getWords().get(0));
+		
+		// fails the Luhn checksum
+		result = searchingHandler.search(pattern, new SearchingContent("card=4111111111111112&cvv=123"));
+		assertEquals(0, result.getWords().size());
+		
+		// embedded in a longer number
+		result = searchingHandler.search(pattern, new SearchingContent("id=94111111111111111"));
+		assertEquals(0, result.getWords().size());
+	}
 }
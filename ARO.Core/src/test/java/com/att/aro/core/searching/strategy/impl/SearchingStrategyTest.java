@@ -2,6 +2,9 @@ package com.att.aro.core.searching.strategy.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +13,7 @@ import org.mockito.InjectMocks;
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.bestpractice.pojo.PrivateDataType;
 import com.att.aro.core.searching.pojo.SearchingContent;
+import com.att.aro.core.searching.pojo.SearchingPattern;
 import com.att.aro.core.searching.pojo.SearchingPatternBuilder;
 import com.att.aro.core.searching.pojo.SearchingResult;
 import com.att.aro.core.searching.strategy.ISearchingStrategy;
@@ -106,5 +110,29 @@ public class SearchingStrategyTest extends BaseTest {
 		assertNotNull(result);
 		assertEquals(0, result.getWords().size());
 	}
-
+	
+	@Test
+	public void testOverlappingPatternsFound() {
+		SearchingContent content = new SearchingContent("ushers");
+		
+		SearchingPatternBuilder patternBuilder = new SearchingPatternBuilder();
+		patternBuilder.add("he", PrivateDataType.regex_other.name())
+					  .add("she", PrivateDataType.regex_other.name())
+					  .add("his", PrivateDataType.regex_other.name())
+					  .add("hers", PrivateDataType.regex_other.name());
+		
+		SearchingResult result = searchStrategy.applySearch(patternBuilder.build(), content);
+		
+		assertNotNull(result);
+		assertEquals(3, result.getWords().size());
+		assertTrue(result.getWords().containsAll(Arrays.asList("he", "she", "hers")));
+	}
+	
+	@Test
+	public void testSamePatternReusedForContents() {
+		SearchingPattern pattern = new SearchingPatternBuilder().add("abe", PrivateDataType.regex_other.name()).build();
+		
+		assertEquals(1, searchStrategy.applySearch(pattern, new SearchingContent("abcabeabd")).getWords().size());
+		assertEquals(0, searchStrategy.applySearch(pattern, new SearchingContent("abcabd")).getWords().size());
+	}
 }
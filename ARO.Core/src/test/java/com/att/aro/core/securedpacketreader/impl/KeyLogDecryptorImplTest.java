@@ -0,0 +1,344 @@
+package com.att.aro.core.securedpacketreader.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.fileio.impl.FileManagerImpl;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+
+/**
+ * Decrypts sessions recorded from the JDK's own SSLEngine, with the secrets taken out of the engine.
+ */
+public class KeyLogDecryptorImplTest {
+
+	// self-signed EC certificate for localhost and its key
+	private static final String CERTIFICATE = "MIIBQDCB5aADAgECAgQr7H6lMAwGCCqGSM49BAMCBQAwFDESMBAGA1UEAxMJbG9jYWxob3N0MCAXDTI2MTAxODE2NTU0MFoYDzIxMjYw"
+			+ "OTI0MTY1NTQwWjAUMRIwEAYDVQQDEwlsb2NhbGhvc3QwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAAQAjFuz1vo0gFpDez5bkG+mDekn23jY0dA9D4Vsu3B8"
+			+ "apmaQTkPHxS4t1kPKXzt25qrq3pHp3fmHGdVOFnFiAVPoyEwHzAdBgNVHQ4EFgQUkWt2QXPZqhsgRWT3YElgO6FtNqQwDAYIKoZIzj0EAwIFAANIADBFAiEA"
+			+ "xgut2hSOaK5VzmZDqfkUonb1UsMXKwqCG397VYrbBmoCIHkv8Y4J0Ihr39y7yhE4dmMfFfoSWHgr6orf0MgRqM4h";
+	private static final String PRIVATE_KEY = "MEECAQAwEwYHKoZIzj0CAQYIKoZIzj0DAQcEJzAlAgEBBCDTjj4ugZspkdMPnUtwNwgX60kwlk+ejq/ap2I1qs6Inw==";
+
+	private static final int SEGMENT_SIZE = 1400;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private KeyLogDecryptorImpl decryptor;
+	private SSLContext context;
+
+	private final byte[] request = "GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+	private byte[] response;
+
+	// what went over the wire, in order
+	private final List<PacketDirection> directions = new ArrayList<>();
+	private final List<byte[]> chunks = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		decryptor = new KeyLogDecryptorImpl();
+		decryptor.setFileReader(new FileManagerImpl());
+
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		keyStore.load(null, null);
+		PrivateKey key = KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(PRIVATE_KEY)));
+		Certificate certificate = CertificateFactory.getInstance("X.509")
+				.generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(CERTIFICATE)));
+		keyStore.setKeyEntry("localhost", key, "password".toCharArray(), new Certificate[] { certificate });
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore, "password".toCharArray());
+		context = SSLContext.getInstance("TLS");
+		context.init(keyManagers.getKeyManagers(), new TrustManager[] { new TrustingManager() }, new SecureRandom());
+
+		StringBuilder body = new StringBuilder();
+		for (int line = 0; body.length() < 40000; line++) {
+			body.append("line ").append(line).append(" of the response body\n");
+		}
+		response = ("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length() + "\r\n\r\n" + body)
+				.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void decryptTls12AesGcm() throws Exception {
+		assertDecrypts("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256");
+		assertDecrypts("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384");
+	}
+
+	@Test
+	public void decryptTls12ChaCha20() throws Exception {
+		assertDecrypts("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256");
+	}
+
+	@Test
+	public void decryptTls13AesGcm() throws Exception {
+		assertDecrypts("TLSv1.3", "TLS_AES_128_GCM_SHA256");
+		assertDecrypts("TLSv1.3", "TLS_AES_256_GCM_SHA384");
+	}
+
+	@Test
+	public void decryptTls13ChaCha20() throws Exception {
+		assertDecrypts("TLSv1.3", "TLS_CHACHA20_POLY1305_SHA256");
+	}
+
+	@Test
+	public void withoutSecretsNothingChanges() throws Exception {
+		Assume.assumeTrue(isSupported("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256"));
+		runSession("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256");
+		List<PacketInfo> packets = toPackets();
+		byte[] otherRandom = new byte[32];
+		File keyLog = writeKeyLog("CLIENT_RANDOM " + hex(otherRandom) + " " + hex(new byte[48]));
+
+		assertEquals(0, decryptor.decrypt(keyLog.getPath(), packets));
+		for (PacketInfo packetInfo : packets) {
+			assertFalse(((TCPPacket) packetInfo.getPacket()).isDecrypted());
+		}
+	}
+
+	private void assertDecrypts(String protocol, String cipherSuite) throws Exception {
+		Assume.assumeTrue(isSupported(protocol, cipherSuite) && TLSRecordCipher.Suite.valueOf(cipherSuite).isAvailable());
+		directions.clear();
+		chunks.clear();
+		SSLEngine client = runSession(protocol, cipherSuite);
+		byte[] clientRandom = Arrays.copyOfRange(chunks.get(0), 11, 43);
+		File keyLog;
+		if ("TLSv1.3".equals(protocol)) {
+			Object transport = field(client, "conContext");
+			byte[] serverSecret = ((SecretKey) field(field(field(transport, "inputRecord"), "readCipher"), "baseSecret")).getEncoded();
+			byte[] clientSecret = ((SecretKey) field(field(field(transport, "outputRecord"), "writeCipher"), "baseSecret")).getEncoded();
+			keyLog = writeKeyLog("# key log", "CLIENT_TRAFFIC_SECRET_0 " + hex(clientRandom) + " " + hex(clientSecret),
+					"SERVER_TRAFFIC_SECRET_0 " + hex(clientRandom) + " " + hex(serverSecret));
+		} else {
+			Method getMasterSecret = client.getSession().getClass().getDeclaredMethod("getMasterSecret");
+			getMasterSecret.setAccessible(true);
+			byte[] masterSecret = ((SecretKey) getMasterSecret.invoke(client.getSession())).getEncoded();
+			keyLog = writeKeyLog("CLIENT_RANDOM " + hex(clientRandom) + " " + hex(masterSecret));
+		}
+		List<PacketInfo> packets = toPackets();
+
+		assertEquals(1, decryptor.decrypt(keyLog.getPath(), packets));
+		assertArrayEquals(request, plaintext(packets, PacketDirection.UPLINK));
+		assertArrayEquals(response, plaintext(packets, PacketDirection.DOWNLINK));
+		// the ClientHello is left alone
+		assertFalse(((TCPPacket) packets.get(2).getPacket()).isDecrypted());
+	}
+
+	private boolean isSupported(String protocol, String cipherSuite) {
+		SSLEngine engine = context.createSSLEngine();
+		return Arrays.asList(engine.getSupportedProtocols()).contains(protocol)
+				&& Arrays.asList(engine.getSupportedCipherSuites()).contains(cipherSuite);
+	}
+
+	/**
+	 * Handshake, one request and its response between two engines, recording what they send
+	 * 
+	 * @return the client engine
+	 */
+	private SSLEngine runSession(String protocol, String cipherSuite) throws IOException {
+		SSLEngine client = context.createSSLEngine("localhost", 443);
+		client.setUseClientMode(true);
+		SSLEngine server = context.createSSLEngine();
+		server.setUseClientMode(false);
+		for (SSLEngine engine : new SSLEngine[] { client, server }) {
+			engine.setEnabledProtocols(new String[] { protocol });
+			engine.setEnabledCipherSuites(new String[] { cipherSuite });
+		}
+		client.beginHandshake();
+		server.beginHandshake();
+		ByteBuffer clientData = ByteBuffer.allocate(0);
+		ByteBuffer serverData = ByteBuffer.allocate(0);
+		ByteBuffer toServer = ByteBuffer.allocate(1 << 17);
+		ByteBuffer toClient = ByteBuffer.allocate(1 << 17);
+		ByteArrayOutputStream serverReceived = new ByteArrayOutputStream();
+		ByteArrayOutputStream clientReceived = new ByteArrayOutputStream();
+		for (int round = 0; round < 100 && clientReceived.size() < response.length; round++) {
+			if (client.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING && clientData.capacity() == 0) {
+				clientData = ByteBuffer.wrap(request);
+			}
+			exchange(client, clientData, toServer, server, serverReceived, PacketDirection.UPLINK);
+			if (serverReceived.size() == request.length && serverData.capacity() == 0) {
+				serverData = ByteBuffer.wrap(response);
+			}
+			exchange(server, serverData, toClient, client, clientReceived, PacketDirection.DOWNLINK);
+		}
+		assertArrayEquals(request, serverReceived.toByteArray());
+		assertArrayEquals(response, clientReceived.toByteArray());
+		return client;
+	}
+
+	/**
+	 * Sends what the engine has to send to its peer, the peer reads what it can of it
+	 */
+	private void exchange(SSLEngine from, ByteBuffer data, ByteBuffer inbound, SSLEngine to, ByteArrayOutputStream received,
+			PacketDirection direction) throws IOException {
+		ByteBuffer wire = ByteBuffer.allocate(1 << 17);
+		while (from.wrap(data, wire).bytesProduced() > 0) {
+			runTasks(from);
+		}
+		runTasks(from);
+		wire.flip();
+		if (wire.hasRemaining()) {
+			directions.add(direction);
+			chunks.add(Arrays.copyOf(wire.array(), wire.limit()));
+			inbound.put(wire);
+		}
+		inbound.flip();
+		ByteBuffer plain = ByteBuffer.allocate(1 << 17);
+		SSLEngineResult result;
+		do {
+			result = to.unwrap(inbound, plain);
+			runTasks(to);
+		} while (result.bytesConsumed() > 0 && inbound.hasRemaining());
+		inbound.compact();
+		plain.flip();
+		received.write(plain.array(), 0, plain.limit());
+	}
+
+	private static void runTasks(SSLEngine engine) {
+		Runnable task;
+		while ((task = engine.getDelegatedTask()) != null) {
+			task.run();
+		}
+	}
+
+	/**
+	 * TCP packets of the recorded session with a retransmission of the first response packet
+	 */
+	private List<PacketInfo> toPackets() {
+		List<PacketInfo> packets = new ArrayList<>();
+		int clientSequence = 1000;
+		int serverSequence = 0xFFFFFF00;
+		packets.add(packet(PacketDirection.UPLINK, clientSequence++, 0x02, new byte[0], 0, 0));
+		packets.add(packet(PacketDirection.DOWNLINK, serverSequence++, 0x12, new byte[0], 0, 0));
+		boolean retransmitted = false;
+		for (int index = 0; index < chunks.size(); index++) {
+			byte[] chunk = chunks.get(index);
+			for (int offset = 0; offset < chunk.length; offset += SEGMENT_SIZE) {
+				int length = Math.min(SEGMENT_SIZE, chunk.length - offset);
+				if (directions.get(index) == PacketDirection.UPLINK) {
+					packets.add(packet(PacketDirection.UPLINK, clientSequence, 0x18, chunk, offset, length));
+					clientSequence += length;
+				} else {
+					packets.add(packet(PacketDirection.DOWNLINK, serverSequence, 0x18, chunk, offset, length));
+					if (index == chunks.size() - 1 && !retransmitted) {
+						packets.add(packet(PacketDirection.DOWNLINK, serverSequence, 0x18, chunk, offset, length));
+						retransmitted = true;
+					}
+					serverSequence += length;
+				}
+			}
+		}
+		return packets;
+	}
+
+	private static PacketInfo packet(PacketDirection direction, int sequenceNumber, int flags, byte[] payload, int offset, int length) {
+		ByteBuffer ip = ByteBuffer.allocate(40 + length);
+		ip.put((byte) 0x45).put((byte) 0).putShort((short) ip.capacity()).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		byte[] local = { 10, 0, 0, 1 };
+		byte[] remote = { (byte) 192, (byte) 168, 0, 2 };
+		boolean uplink = direction == PacketDirection.UPLINK;
+		ip.put(uplink ? local : remote).put(uplink ? remote : local);
+		ip.putShort((short) (uplink ? 40000 : 443)).putShort((short) (uplink ? 443 : 40000)).putInt(sequenceNumber).putInt(0).put((byte) 0x50)
+				.put((byte) flags).putShort((short) 65535).putInt(0);
+		ip.put(payload, offset, length);
+		PacketInfo packetInfo = new PacketInfo(new TCPPacket(1600000000L, 0, ip.capacity(), 0, (byte) 6, 0, ip.array()));
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
+
+	/**
+	 * Plaintext of the decrypted packets of one direction, each sequence number once
+	 */
+	private static byte[] plaintext(List<PacketInfo> packets, PacketDirection direction) throws IOException {
+		ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+		long lastSequenceNumber = -1;
+		for (PacketInfo packetInfo : packets) {
+			TCPPacket packet = (TCPPacket) packetInfo.getPacket();
+			if (packetInfo.getDir() == direction && packet.isDecrypted() && packet.getSequenceNumber() != lastSequenceNumber) {
+				plaintext.write(packet.getData());
+				lastSequenceNumber = packet.getSequenceNumber();
+			}
+		}
+		return plaintext.toByteArray();
+	}
+
+	private File writeKeyLog(String... lines) throws IOException {
+		File keyLog = folder.newFile();
+		Files.write(keyLog.toPath(), Arrays.asList(lines), StandardCharsets.US_ASCII);
+		return keyLog;
+	}
+
+	private static Object field(Object object, String name) throws ReflectiveOperationException {
+		for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+			try {
+				Field field = type.getDeclaredField(name);
+				field.setAccessible(true);
+				return field.get(object);
+			} catch (NoSuchFieldException exception) {
+				// declared further up
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte value : bytes) {
+			hex.append(String.format("%02x", value));
+		}
+		return hex.toString();
+	}
+
+	private static class TrustingManager implements X509TrustManager {
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType) {
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType) {
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+	}
+}
@@ -1,30 +1,36 @@
 package com.att.aro.core.upload;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-public class CompressorTest {
-	private static final String FILE1 = "temp";
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.att.aro.core.cloud.local.LocalRepository;
 
+public class CompressorTest {
 	private static Path TEMP_DIR;
-	private static Path TEMP_FILE;
 
 	private Compressor compressor;
 	
 	@BeforeClass
 	public static void setup() throws IOException {
 		TEMP_DIR = Files.createTempDirectory("compressionTest");
-		TEMP_FILE = Files.createTempFile(TEMP_DIR, FILE1, null);
 	}
 	
 	@Before
@@ -33,23 +39,39 @@ public class CompressorTest {
 	}
 	
 	@Test
-	public void testEncode() throws Exception {
-		Files.write(TEMP_FILE, new byte[] {'1', '2', '3', '4', '5', '6'});
-		String zipPath = TEMP_FILE.toString();
-		String z64Path = zipPath + "64";
-		compressor.encode(zipPath);
-		assertEquals("MTIzNDU2", Files.readAllLines(Paths.get(z64Path)).get(0));
+	public void testZipBase64() throws Exception {
+		Path trace = Files.createDirectory(TEMP_DIR.resolve("zipTrace"));
+		Files.write(trace.resolve("cpu"), "1.0 25\n2.0 30\n".getBytes("UTF-8"));
+		Files.write(trace.resolve("video.mp4"), new byte[] { 0 });
+		compressor.prepare(null, trace.toString(), new String[0], null);
+
+		String zip64 = compressor.zipBase64();
+		assertEquals(trace.resolve("zipTrace.zip64").toString(), zip64);
+		assertFalse(Files.exists(trace.resolve("zipTrace.zip")));
+		assertUnzips(Files.readAllBytes(Paths.get(zip64)), "cpu", "1.0 25\n2.0 30\n");
 	}
-	
+
 	@Test
-	public void testEncodeEmpty() throws Exception {
-		Files.write(TEMP_FILE, new byte[] {});
-		String zipPath = TEMP_FILE.toString();
-		String z64Path = zipPath + "64";
-		compressor.encode(zipPath);
-		assertEquals(0, Files.readAllLines(Paths.get(z64Path)).size());		
+	public void testUpload() throws Exception {
+		Path trace = Files.createDirectory(TEMP_DIR.resolve("uploadTrace"));
+		Files.write(trace.resolve("cpu"), "3.0 40\n".getBytes("UTF-8"));
+		Path remote = TEMP_DIR.resolve("remote");
+		compressor.prepare(null, trace.toString(), new String[0], null);
+
+		assertEquals(TransferState.Completed, compressor.upload(new LocalRepository(remote.toFile())));
+		assertEquals(1, trace.toFile().list().length);
+		assertUnzips(Files.readAllBytes(remote.resolve("uploadTrace.zip64")), "cpu", "3.0 40\n");
 	}
-	
+
+	private void assertUnzips(byte[] base64, String name, String content) throws IOException {
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(base64)))) {
+			ZipEntry entry = zip.getNextEntry();
+			assertEquals(name, entry.getName());
+			assertArrayEquals(content.getBytes("UTF-8"), IOUtils.toByteArray(zip));
+			assertEquals(null, zip.getNextEntry());
+		}
+	}
+
 	@AfterClass
 	public static void cleanup() {
 		FileUtils.deleteQuietly(TEMP_DIR.toFile());
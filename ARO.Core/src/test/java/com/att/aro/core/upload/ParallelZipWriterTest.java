@@ -0,0 +1,107 @@
+package com.att.aro.core.upload;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelZipWriterTest {
+
+	private static final int BLOCK_SIZE = 40 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void zipReadsBack() throws Exception {
+		Random random = new Random(3);
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+		byte[] noise = new byte[5 * BLOCK_SIZE + 123];
+		random.nextBytes(noise);
+		contents.put("traffic.cap", noise);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 7 * BLOCK_SIZE) {
+			text.append(random.nextDouble()).append(" cpu ").append(random.nextInt(100)).append('\n');
+		}
+		contents.put("cpu", text.toString().getBytes("UTF-8"));
+		// ends on a block boundary
+		contents.put("appname", Arrays.copyOf(noise, 2 * BLOCK_SIZE));
+		contents.put("empty", new byte[0]);
+
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			ParallelZipWriter writer = new ParallelZipWriter(zip, pool, 3, BLOCK_SIZE);
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				writer.addFile(content.getKey(), write(content.getKey(), content.getValue()));
+			}
+			writer.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+
+		try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				ZipEntry entry = input.getNextEntry();
+				assertEquals(content.getKey(), entry.getName());
+				assertArrayEquals(content.getValue(), IOUtils.toByteArray(input));
+			}
+			assertNull(input.getNextEntry());
+		}
+
+		File zipFile = folder.newFile("trace.zip");
+		Files.write(zipFile.toPath(), zip.toByteArray());
+		try (ZipFile archive = new ZipFile(zipFile)) {
+			assertEquals(contents.size(), archive.size());
+			Enumeration<? extends ZipEntry> entries = archive.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				assertEquals(contents.get(entry.getName()).length, entry.getSize());
+				try (InputStream input = archive.getInputStream(entry)) {
+					assertArrayEquals(contents.get(entry.getName()), IOUtils.toByteArray(input));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void dictionaryCarriesAcrossBlocks() {
+		byte[] first = new byte[BLOCK_SIZE];
+		new Random(5).nextBytes(first);
+		// the second block repeats the end of the first one and deflates to little with the dictionary
+		byte[] second = Arrays.copyOfRange(first, BLOCK_SIZE - 16 * 1024, BLOCK_SIZE);
+		byte[] withDictionary = ParallelZipWriter.deflate(second, Arrays.copyOfRange(first, BLOCK_SIZE - 32 * 1024, BLOCK_SIZE), true);
+		byte[] withoutDictionary = ParallelZipWriter.deflate(second, null, true);
+		assertEquals(true, withDictionary.length * 10 < withoutDictionary.length);
+	}
+
+	private File write(String name, byte[] content) throws IOException {
+		File file = folder.newFile(name);
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+		return file;
+	}
+}
@@ -0,0 +1,49 @@
+package com.att.aro.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FieldTokenizerTest {
+
+	@Test
+	public void cpuLine() {
+		FieldTokenizer tokenizer = new FieldTokenizer(FieldTokenizer.WHITESPACE + "=");
+		tokenizer.reset("1413914000.123 25 com.att.android=12 system_server=3.5");
+		assertEquals(6, tokenizer.getCount());
+		assertEquals(1413914000.123, tokenizer.getDouble(0), 0.0);
+		assertEquals("com.att.android", tokenizer.get(2));
+		assertEquals(3.5, tokenizer.getDouble(5), 0.0);
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void outOfBounds() {
+		new FieldTokenizer(" ").reset("a b").get(2);
+	}
+
+	@Test
+	public void matchesSplit() {
+		Random random = new Random(11);
+		char[] alphabet = { 'a', '1', '.', ' ', ' ', '=', '\t' };
+		FieldTokenizer spaces = new FieldTokenizer(" ");
+		FieldTokenizer whitespaceAndEquals = new FieldTokenizer(FieldTokenizer.WHITESPACE + "=");
+		for (int count = 0; count < 2000; count++) {
+			StringBuilder line = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int index = 0; index < length; index++) {
+				line.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			assertFields(line.toString().split(" "), spaces.reset(line.toString()));
+			assertFields(line.toString().split("[\\s=]"), whitespaceAndEquals.reset(line.toString()));
+		}
+	}
+
+	private void assertFields(String[] expected, FieldTokenizer tokenizer) {
+		assertEquals(expected.length, tokenizer.getCount());
+		for (int index = 0; index < expected.length; index++) {
+			assertEquals(expected[index], tokenizer.get(index));
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.att.aro.core.videoanalysis.videoframe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.att.aro.core.commandline.IExternalProcessRunner;
+import com.att.aro.core.fileio.IFileManager;
+import com.att.aro.core.util.IStringParse;
+import com.att.aro.core.videoanalysis.pojo.StreamingVideoData;
+import com.att.aro.core.videoanalysis.pojo.VideoEvent;
+
+public class FFmpegRunnerTest {
+
+	private StreamingVideoData streamingVideoData;
+	private IExternalProcessRunner externalProcessRunner;
+	private FFmpegRunner runner;
+
+	private CountDownLatch release;
+	private AtomicInteger running;
+	private AtomicInteger maxRunning;
+
+	@Before
+	public void setUp() {
+		release = new CountDownLatch(0);
+		running = new AtomicInteger();
+		maxRunning = new AtomicInteger();
+		externalProcessRunner = mock(IExternalProcessRunner.class);
+		// ffmpeg is left running until the test releases it
+		when(externalProcessRunner.executeCmd(anyString(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} finally {
+				running.decrementAndGet();
+			}
+			return "";
+		});
+		streamingVideoData = new StreamingVideoData("trace");
+		runner = new FFmpegRunner(streamingVideoData, new byte[0], mock(IFileManager.class), externalProcessRunner, mock(IStringParse.class));
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+	}
+
+	@Test
+	public void notFinishedWhileSubmitting() throws Exception {
+		assertFalse(streamingVideoData.isFinished());
+		assertEquals(runner, streamingVideoData.getFfmpegRunner());
+
+		RecordingListener listener = new RecordingListener(2);
+		runner.addListener(listener);
+		runner.addJob(videoEvent(), "clip1");
+		runner.addJob(videoEvent(), "clip2");
+		assertTrue(listener.progressed.await(10, TimeUnit.SECONDS));
+
+		// every job is done, but more segments may come
+		assertFalse(streamingVideoData.isFinished());
+		assertEquals(1, listener.finished.getCount());
+
+		runner.submissionComplete();
+		assertTrue(streamingVideoData.isFinished());
+		assertEquals(0, listener.finished.getCount());
+		assertEquals(2, listener.processed);
+	}
+
+	@Test
+	public void finishedAfterLastJob() throws Exception {
+		release = new CountDownLatch(1);
+		RecordingListener listener = new RecordingListener(3);
+		runner.addListener(listener);
+		for (int job = 0; job < 3; job++) {
+			runner.addJob(videoEvent(), "clip" + job);
+		}
+		runner.submissionComplete();
+		assertFalse(streamingVideoData.isFinished());
+		assertEquals(1, listener.finished.getCount());
+
+		release.countDown();
+		assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+		assertTrue(streamingVideoData.isFinished());
+		assertEquals(0, listener.progressed.getCount());
+		assertEquals(3, listener.processed);
+	}
+
+	@Test
+	public void finishedWithoutJobs() {
+		RecordingListener listener = new RecordingListener(0);
+		runner.addListener(listener);
+		runner.submissionComplete();
+		assertTrue(streamingVideoData.isFinished());
+		assertEquals(0, listener.finished.getCount());
+		assertEquals(0, listener.processed);
+
+		// told right away once finished
+		RecordingListener lateListener = new RecordingListener(0);
+		runner.addListener(lateListener);
+		assertEquals(0, lateListener.finished.getCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void addJobAfterSubmissionComplete() {
+		runner.submissionComplete();
+		runner.addJob(videoEvent(), "clip");
+	}
+
+	@Test
+	public void poolBoundsRunningJobs() throws Exception {
+		release = new CountDownLatch(1);
+		RecordingListener listener = new RecordingListener(FFmpegRunner.POOL_SIZE + 2);
+		runner.addListener(listener);
+		for (int job = 0; job < FFmpegRunner.POOL_SIZE + 2; job++) {
+			runner.addJob(videoEvent(), "clip" + job);
+		}
+		runner.submissionComplete();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (running.get() < FFmpegRunner.POOL_SIZE && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		// the other jobs wait in the queue
+		Thread.sleep(100);
+		assertEquals(FFmpegRunner.POOL_SIZE, running.get());
+
+		release.countDown();
+		assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+		assertEquals(FFmpegRunner.POOL_SIZE, maxRunning.get());
+		assertEquals(FFmpegRunner.POOL_SIZE + 2, listener.processed);
+	}
+
+	private VideoEvent videoEvent() {
+		return mock(VideoEvent.class, RETURNS_DEEP_STUBS);
+	}
+
+	private static class RecordingListener implements FFmpegRunner.Listener {
+		private final CountDownLatch progressed;
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile int processed = -1;
+
+		RecordingListener(int jobs) {
+			progressed = new CountDownLatch(jobs);
+		}
+
+		@Override
+		public void progress(int processed, int pending) {
+			progressed.countDown();
+		}
+
+		@Override
+		public void finished(int processed) {
+			this.processed = processed;
+			finished.countDown();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.att.aro.core.videoanalysis.videoframe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SegmentProbeTest {
+
+	@Test
+	public void probeFragmentedMp4() {
+		byte[] avc1 = ByteBuffer.allocate(78).putShort(6, (short) 1).putShort(24, (short) 1280).putShort(26, (short) 720).array();
+		byte[] mp4a = ByteBuffer.allocate(20).putShort(6, (short) 1).putShort(16, (short) 2).array();
+		byte[] init = concat(box("ftyp", "iso6".getBytes(StandardCharsets.ISO_8859_1)),
+				box("moov", box("mvhd", new byte[100]), track(box("avc1", avc1)), track(box("mp4a", mp4a))));
+		byte[] segment = concat(box("moof", box("mfhd", new byte[8])), box("mdat", new byte[500]));
+
+		SegmentProbe probe = SegmentProbe.probe(init, segment);
+		assertTrue(probe.isVideo());
+		assertEquals(720, probe.getHeight());
+		assertTrue(probe.isAudio());
+		assertEquals(2, probe.getChannelCount());
+
+		assertNull(SegmentProbe.probe(null, segment));
+	}
+
+	@Test
+	public void probeTransportStream() {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		// PAT, program 1 on PID 0x100
+		stream.write(tsPacket(0, psi(0x00, 0x0001, new byte[] { 0x00, 0x01, (byte) 0xE1, 0x00 })), 0, 188);
+		// PMT, H.264 on PID 0x101 and AAC on PID 0x102
+		stream.write(tsPacket(0x100, psi(0x02, 0x0001, new byte[] { (byte) 0xE1, 0x01, (byte) 0xF0, 0x00
+				, 0x1B, (byte) 0xE1, 0x01, (byte) 0xF0, 0x00
+				, 0x0F, (byte) 0xE1, 0x02, (byte) 0xF0, 0x00 })), 0, 188);
+		byte[] video = concat(pesHeader(0xE0), new byte[] { 0, 0, 0, 1, 0x09, (byte) 0xF0, 0, 0, 0, 1, 0x67 }, sps1080p(),
+				new byte[] { 0, 0, 0, 1, 0x68, (byte) 0xEB, (byte) 0xE3, (byte) 0xCB });
+		stream.write(tsPacket(0x101, video), 0, 188);
+		// ADTS header of a mono frame
+		byte[] audio = concat(pesHeader(0xC0), new byte[] { (byte) 0xFF, (byte) 0xF1, 0x50, 0x40, 0x10, (byte) 0xFF, (byte) 0xFC });
+		stream.write(tsPacket(0x102, audio), 0, 188);
+
+		SegmentProbe probe = SegmentProbe.probe(null, stream.toByteArray());
+		assertTrue(probe.isVideo());
+		assertEquals(1080, probe.getHeight());
+		assertTrue(probe.isAudio());
+		assertEquals(1, probe.getChannelCount());
+	}
+
+	@Test
+	public void probeUnknownContent() {
+		byte[] content = new byte[1000];
+		Arrays.fill(content, (byte) 0x5A);
+		assertNull(SegmentProbe.probe(null, content));
+		assertNull(SegmentProbe.probe(null, new byte[0]));
+	}
+
+	@Test
+	public void findSpsHeight() {
+		assertEquals(1080, SegmentProbe.findSpsHeight(concat(new byte[] { 0, 0, 1, 0x67 }, sps1080p())));
+		assertEquals(0, SegmentProbe.findSpsHeight(new byte[] { 0, 0, 1, 0x68, 1, 2, 3 }));
+		assertFalse(SegmentProbe.findSpsHeight(new byte[] { 0, 0, 1, 0x67, 0x64 }) > 0);
+	}
+
+	/**
+	 * High profile SPS of 1920x1088 macroblocks cropped to 1080 lines.
+	 */
+	private static byte[] sps1080p() {
+		BitWriter bits = new BitWriter();
+		bits.write(100, 8); // profile_idc
+		bits.write(0, 8);
+		bits.write(40, 8); // level_idc
+		bits.writeUE(0); // seq_parameter_set_id
+		bits.writeUE(1); // chroma_format_idc
+		bits.writeUE(0);
+		bits.writeUE(0);
+		bits.write(0, 1);
+		bits.write(0, 1); // seq_scaling_matrix_present_flag
+		bits.writeUE(0); // log2_max_frame_num_minus4
+		bits.writeUE(0); // pic_order_cnt_type
+		bits.writeUE(2);
+		bits.writeUE(4); // max_num_ref_frames
+		bits.write(0, 1);
+		bits.writeUE(119); // pic_width_in_mbs_minus1
+		bits.writeUE(67); // pic_height_in_map_units_minus1
+		bits.write(1, 1); // frame_mbs_only_flag
+		bits.write(1, 1);
+		bits.write(1, 1); // frame_cropping_flag
+		bits.writeUE(0);
+		bits.writeUE(0);
+		bits.writeUE(0);
+		bits.writeUE(4); // frame_crop_bottom_offset
+		bits.write(0, 1); // vui_parameters_present_flag
+		bits.write(1, 1); // rbsp_stop_one_bit
+		return bits.toByteArray();
+	}
+
+	private static byte[] track(byte[] sampleEntry) {
+		byte[] stsd = concat(new byte[] { 0, 0, 0, 0, 0, 0, 0, 1 }, sampleEntry);
+		return box("trak", box("tkhd", new byte[84]), box("mdia", box("minf", box("stbl", box("stsd", stsd)))));
+	}
+
+	private static byte[] box(String type, byte[]... children) {
+		byte[] content = concat(children);
+		return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length).put(type.getBytes(StandardCharsets.ISO_8859_1))
+				.put(content).array();
+	}
+
+	private static byte[] psi(int tableId, int tableIdExtension, byte[] body) {
+		int sectionLength = 5 + body.length + 4;
+		return concat(new byte[] { 0, (byte) tableId, (byte) (0xB0 | sectionLength >> 8), (byte) sectionLength
+				, (byte) (tableIdExtension >> 8), (byte) tableIdExtension, (byte) 0xC1, 0, 0 }, body, new byte[4]);
+	}
+
+	private static byte[] pesHeader(int streamId) {
+		return new byte[] { 0, 0, 1, (byte) streamId, 0, 0, (byte) 0x80, (byte) 0x80, 5, 0x21, 0, 1, 0, 1 };
+	}
+
+	private static byte[] tsPacket(int pid, byte[] payload) {
+		ByteBuffer packet = ByteBuffer.allocate(188);
+		packet.put((byte) 0x47).put((byte) (0x40 | pid >> 8)).put((byte) pid);
+		int stuffing = 184 - payload.length;
+		if (stuffing > 0) {
+			packet.put((byte) 0x30).put((byte) (stuffing - 1));
+			if (stuffing > 1) {
+				packet.put((byte) 0);
+				for (int index = 2; index < stuffing; index++) {
+					packet.put((byte) 0xFF);
+				}
+			}
+		} else {
+			packet.put((byte) 0x10);
+		}
+		return packet.put(payload).array();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.write(part, 0, part.length);
+		}
+		return out.toByteArray();
+	}
+
+	private static final class BitWriter {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private int current;
+		private int count;
+
+		void write(int value, int bits) {
+			for (int bit = bits - 1; bit >= 0; bit--) {
+				current = (current << 1) | ((value >> bit) & 1);
+				if (++count == 8) {
+					out.write(current);
+					current = 0;
+					count = 0;
+				}
+			}
+		}
+
+		void writeUE(int value) {
+			int length = 32 - Integer.numberOfLeadingZeros(value + 1);
+			write(0, length - 1);
+			write(value + 1, length);
+		}
+
+		byte[] toByteArray() {
+			if (count > 0) {
+				write(0, 8 - count);
+			}
+			return out.toByteArray();
+		}
+	}
+}
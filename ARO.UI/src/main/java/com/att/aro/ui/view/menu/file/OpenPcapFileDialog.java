@@ -238,19 +238,9 @@ public class OpenPcapFileDialog extends JDialog {
 				if (analyzerResult != null && analyzerResult.getStreamingVideoData() != null && !analyzerResult.getStreamingVideoData().isFinished()) {
 					StreamingVideoData streamingVideoData = analyzerResult.getStreamingVideoData();
 					// Wait for FFMpegRunner to complete
-					if (!streamingVideoData.getVideoStreamMap().isEmpty()) {
-						Runnable waitingForUpdate = () -> {
-							int count = 1;
-							while (!streamingVideoData.isFinished()) {
-								LOG.info(String.format("(%d) Waiting for FFmpegRunner to complete", count++));
-								Util.sleep(1000);
-							}
-							Util.sleep(1000);
-
-							deleteDirectory(newPcapFileTracePath);
-						};
-
-						new Thread(waitingForUpdate, "FFMpegRunnerWaitingThread").start();
+					if (!streamingVideoData.getVideoStreamMap().isEmpty() && streamingVideoData.getFfmpegRunner() != null) {
+						LOG.info("Waiting for FFmpegRunner to complete");
+						streamingVideoData.getFfmpegRunner().addListener(processed -> deleteDirectory(newPcapFileTracePath));
 					} else {
 						deleteDirectory(newPcapFileTracePath);
 					}
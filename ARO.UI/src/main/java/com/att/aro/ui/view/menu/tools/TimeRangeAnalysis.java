@@ -44,6 +44,7 @@ import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetanalysis.pojo.RrcStateRangeIndex;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 import com.att.aro.ui.commonui.ContextAware;
 
@@ -192,6 +193,17 @@ public class TimeRangeAnalysis implements Serializable {
 
 		double energy = 0.0f;
 		double activeTime = 0.0f;
+		RrcStateRangeIndex stateIndex = analysisData.getStatemachine().getStateIndex();
+		if (stateIndex != null) {
+			// totals come from the index, only the ranges cut by the window have their energy computed again
+			for (RRCState rrcState : RRCState.values()) {
+				energy += stateIndex.getEnergy(rrcState, analyzeBeginTime, analyzeEndTime);
+				if (isActiveState(profile, rrcState)) {
+					activeTime += stateIndex.getDuration(rrcState, analyzeBeginTime, analyzeEndTime);
+				}
+			}
+			return new TimeRangeAnalysis(analyzeBeginTime, analyzeEndTime, totalBytes, uplinkBytes, downlinkBytes, payloadLength, activeTime, energy);
+		}
 		int collectionSize = rrcCollection.size();
 
 		for (int i = 0; i < collectionSize; i++) {
@@ -224,21 +236,19 @@ public class TimeRangeAnalysis implements Serializable {
 			energy += updateEnergy(analysisData, profile, beginTime,
 					endTime, rrcState, profileFactory);
 			
-			activeTime += updateActiveTime(profile, beginTime, endTime, rrcState);
+			if (isActiveState(profile, rrcState)) {
+				activeTime += endTime - beginTime;
+			}
 		}
 
 		return new TimeRangeAnalysis(analyzeBeginTime, analyzeEndTime, totalBytes, uplinkBytes, downlinkBytes, payloadLength, activeTime, energy);
 	}
 
 	// TODO:  The calculation in this method should not be in the UI - move elsewhere
-	private static double updateActiveTime(Profile profile, double beginTime, double endTime, RRCState rrcState) {
-		double activeTime = 0.0f;
-		if (profile.getProfileType() == ProfileType.T3G && (rrcState == RRCState.STATE_DCH || rrcState == RRCState.TAIL_DCH)
+	private static boolean isActiveState(Profile profile, RRCState rrcState) {
+		return profile.getProfileType() == ProfileType.T3G && (rrcState == RRCState.STATE_DCH || rrcState == RRCState.TAIL_DCH)
 				|| profile.getProfileType() == ProfileType.LTE && (rrcState == RRCState.LTE_CONTINUOUS || rrcState == RRCState.LTE_CR_TAIL)
-				|| profile.getProfileType() == ProfileType.WIFI && (rrcState == RRCState.WIFI_ACTIVE || rrcState == RRCState.WIFI_TAIL)) {
-			activeTime = endTime - beginTime;
-		}
-		return activeTime;
+				|| profile.getProfileType() == ProfileType.WIFI && (rrcState == RRCState.WIFI_ACTIVE || rrcState == RRCState.WIFI_TAIL);
 	}
 
 	// TODO:  Move this separation of calls by profile type elsewhere - not just the UI